@@ -0,0 +1,110 @@
+package com.vtaccess;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.Schedule;
+
+/**
+ * Loads the recorded pages in tests/fixtures for the benchmarks, and builds Schedules out of them.
+ *
+ * The fixtures directory can be moved with the system property vtaccess.fixtures.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class BenchmarkFixtures {
+
+    //~Constants----------------------------------------------
+    /**
+     * The recorded printer friendly timetable page for all of the CS courses of a term.
+     */
+    public static final String TIMETABLE_PAGE = "timetable_CS.html";
+
+    //~Constructors--------------------------------------------
+    /**
+     * Blocked, all methods are static.
+     */
+    private BenchmarkFixtures() {
+
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @param name the file name of the fixture.
+     * @return the fixture's File.
+     */
+    public static File getFile(String name) {
+
+        return new File(System.getProperty("vtaccess.fixtures", "tests/fixtures"), name);
+    }
+
+    /**
+     * Parses a recorded page.
+     *
+     * @param name the file name of the fixture.
+     * @return the parsed page.
+     *
+     * @throws IOException thrown if the fixture could not be read.
+     */
+    public static Document parse(String name) throws IOException {
+
+        return Jsoup.parse(getFile(name), "UTF-8");
+    }
+
+    /**
+     * Gets the rows of the timetable table of a recorded timetable page, the same way CourseInfo does.
+     *
+     * @param name the file name of the fixture.
+     * @return the rows of the timetable.
+     *
+     * @throws IOException thrown if the fixture could not be read.
+     */
+    public static Elements timetableRows(String name) throws IOException {
+
+        return parse(name).select("table").get(0).select("tr");
+    }
+
+    /**
+     * Gets every Course on the recorded timetable page.
+     *
+     * @return the Courses, duplicates included.
+     *
+     * @throws IOException thrown if the fixture could not be read.
+     */
+    public static List<Course> timetableCourses() throws IOException {
+
+        return CourseInfo.readRows(timetableRows(TIMETABLE_PAGE), true);
+    }
+
+    /**
+     * Builds a Schedule out of every stride'th Course on the recorded timetable page,
+     * starting at offset.
+     *
+     * @param owner the owner of the Schedule.
+     * @param offset the index of the first Course to put in the Schedule.
+     * @param stride the distance between the Courses put in the Schedule.
+     * @param numCourses the number of Courses to put in the Schedule.
+     * @return the Schedule.
+     *
+     * @throws IOException thrown if the fixture could not be read.
+     */
+    public static Schedule schedule(String owner, int offset, int stride, int numCourses) throws IOException {
+
+        List<Course> courses = new ArrayList<Course>(timetableCourses());
+        Schedule schedule = new Schedule(owner);
+
+        for (int i = 0; i < numCourses; i++) {
+
+            Course course = courses.get((offset + i * stride) % courses.size());
+            schedule.setCourseInDays(course, course.getDays());
+        }
+
+        return schedule;
+    }
+}
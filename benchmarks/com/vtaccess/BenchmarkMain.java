@@ -0,0 +1,47 @@
+package com.vtaccess;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so allocation rates (gc.alloc.rate.norm, bytes per
+ * operation) are reported next to the throughput or time of each one.
+ *
+ * The first argument, if any, is a regular expression picking the benchmarks to run, e.g. "ScheduleIO".
+ * Run from the root of the project so that tests/fixtures can be found.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class BenchmarkMain {
+
+    //~Constructors--------------------------------------------
+    /**
+     * Blocked, all methods are static.
+     */
+    private BenchmarkMain() {
+
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @param args optionally, a regular expression picking the benchmarks to run.
+     *
+     * @throws RunnerException thrown if a benchmark fails.
+     */
+    public static void main(String[] args) throws RunnerException {
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "com\\.vtaccess\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(5)
+                .measurementIterations(5)
+                .forks(1)
+                .jvmArgsAppend("-Dvtaccess.fixtures=" + System.getProperty("vtaccess.fixtures", "tests/fixtures"));
+
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,79 @@
+package com.vtaccess;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jsoup.Jsoup;
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import com.vtaccess.schedule.Course;
+
+/**
+ * Benchmarks reading the Courses off of a recorded full-subject timetable page.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CourseInfoBenchmark {
+
+    //~Data Fields--------------------------------------------
+    /**
+     * The rows of the recorded timetable.
+     */
+    private Elements rows;
+    /**
+     * The HTML of the recorded timetable.
+     */
+    private String page;
+
+    //~Methods-------------------------------------------------
+    /**
+     * Loads the recorded timetable.
+     *
+     * @throws IOException thrown if the fixture could not be read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+
+        rows = BenchmarkFixtures.timetableRows(BenchmarkFixtures.TIMETABLE_PAGE);
+        page = BenchmarkFixtures.parse(BenchmarkFixtures.TIMETABLE_PAGE).outerHtml();
+    }
+
+    /**
+     * @return every Course on the page, duplicates included.
+     */
+    @Benchmark
+    public List<Course> readRowsWithDuplicates() {
+
+        return CourseInfo.readRows(rows, true);
+    }
+
+    /**
+     * @return the Courses on the page, one per course code.
+     */
+    @Benchmark
+    public List<Course> readRowsWithoutDuplicates() {
+
+        return CourseInfo.readRows(rows, false);
+    }
+
+    /**
+     * Parses the page and reads it, as CourseInfo does once the page has been downloaded.
+     *
+     * @return every Course on the page, duplicates included.
+     */
+    @Benchmark
+    public List<Course> parseAndReadRows() {
+
+        return CourseInfo.readRows(Jsoup.parse(page).select("table").get(0).select("tr"), true);
+    }
+}
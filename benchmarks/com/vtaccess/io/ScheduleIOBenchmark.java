@@ -0,0 +1,140 @@
+package com.vtaccess.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import com.vtaccess.BenchmarkFixtures;
+import com.vtaccess.schedule.Schedule;
+
+/**
+ * Benchmarks saving and loading a user's Schedule along with their friends' Schedules,
+ * built from Courses on the recorded timetable.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScheduleIOBenchmark {
+
+    //~Data Fields--------------------------------------------
+    /**
+     * The number of friends' Schedules saved along with the user's.
+     */
+    @Param({ "0", "25" })
+    public int numFriends;
+    /**
+     * True to save compressed.
+     */
+    @Param({ "false", "true" })
+    public boolean compressed;
+    /**
+     * The file Schedules are saved to and loaded from.
+     */
+    private File schedulesFile;
+    /**
+     * The exams file of the ScheduleIO, unused.
+     */
+    private File examsFile;
+    /**
+     * The ScheduleIO working on the files.
+     */
+    private ScheduleIO scheduleIO;
+    /**
+     * The user's Schedule.
+     */
+    private Schedule mine;
+    /**
+     * The friends' Schedules saved along with the user's.
+     */
+    private List<Schedule> friends;
+
+    //~Methods-------------------------------------------------
+    /**
+     * Builds the Schedules and saves them once, so that there is something to load.
+     *
+     * @throws IOException thrown if the fixture could not be read, or the files couldn't be created.
+     */
+    @Setup
+    public void setUp() throws IOException {
+
+        schedulesFile = File.createTempFile("schedules", ".xml");
+        examsFile = File.createTempFile("exams", ".xml");
+
+        scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        scheduleIO.setCompressed(compressed);
+
+        mine = BenchmarkFixtures.schedule("MySchedule", 0, 7, 6);
+        friends = new ArrayList<Schedule>(numFriends);
+        for (int i = 0; i < numFriends; i++) {
+
+            friends.add(BenchmarkFixtures.schedule("Friend " + i, i + 1, 7, 6));
+        }
+
+        scheduleIO.saveSchedules(mine, friends);
+    }
+
+    /**
+     * Deletes the files.
+     */
+    @TearDown
+    public void tearDown() {
+
+        scheduleIO.getJournalFile().delete();
+        schedulesFile.delete();
+        examsFile.delete();
+    }
+
+    /**
+     * @return true if the save succeeded.
+     */
+    @Benchmark
+    public boolean saveSchedules() {
+
+        return scheduleIO.saveSchedules(mine, friends);
+    }
+
+    /**
+     * Changes one Course and saves only its days.
+     *
+     * @return true if the save succeeded.
+     */
+    @Benchmark
+    public boolean saveChangesOneCourse() {
+
+        mine.getAllCourses().get(0).setTeacherName("Staff");
+        return scheduleIO.saveChanges(mine, friends);
+    }
+
+    /**
+     * @return all of the loaded Schedules.
+     */
+    @Benchmark
+    public List<Schedule> loadSchedules() {
+
+        return ScheduleIO.loadSchedules(schedulesFile);
+    }
+
+    /**
+     * Loads lazily and gets only the user's Schedule, as the first screen of an app would.
+     *
+     * @return the user's loaded Schedule.
+     */
+    @Benchmark
+    public Schedule loadSchedulesLazily() {
+
+        return ScheduleIO.loadSchedulesLazily(schedulesFile).get(0);
+    }
+}
@@ -0,0 +1,78 @@
+package com.vtaccess.schedule;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the parsing done by Course on every Course read off of a timetable.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CourseBenchmark {
+
+    //~Data Fields--------------------------------------------
+    /**
+     * The time to parse, in each of the formats found on the timetable.
+     */
+    @Param({ "10:10AM", "2:30PM", "12:15PM", "1:30 pm", "N/A" })
+    public String time;
+    /**
+     * The course code to split.
+     */
+    @Param({ "CS-2114", "MATH 2214" })
+    public String courseCode;
+    /**
+     * The Course whose times are set.
+     */
+    private Course course;
+
+    //~Methods-------------------------------------------------
+    /**
+     * Creates the Course.
+     */
+    @Setup
+    public void setUp() {
+
+        course = new Course();
+    }
+
+    /**
+     * @return the Course's begin time.
+     */
+    @Benchmark
+    public Point setBeginTime() {
+
+        course.setBeginTime(time);
+        return course.getCoursePoint();
+    }
+
+    /**
+     * @return the Course's end time.
+     */
+    @Benchmark
+    public Point setEndTime() {
+
+        course.setEndTime(time);
+        return course.getCoursePoint();
+    }
+
+    /**
+     * @return the split course code.
+     */
+    @Benchmark
+    public String[] splitCourseCode() {
+
+        return Course.splitCourseCode(courseCode);
+    }
+}
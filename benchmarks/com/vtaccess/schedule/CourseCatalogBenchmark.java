@@ -0,0 +1,149 @@
+package com.vtaccess.schedule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import com.vtaccess.BenchmarkFixtures;
+
+/**
+ * Benchmarks scanning a whole term's Courses held as Course objects against the same Courses held in a
+ * CourseCatalog. The term is the recorded CS timetable repeated, to the size of a real term.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CourseCatalogBenchmark {
+
+    //~Data Fields--------------------------------------------
+    /**
+     * The number of times the recorded timetable is repeated.
+     */
+    @Param({ "1", "20" })
+    public int copies;
+    /**
+     * The term as Course objects.
+     */
+    private List<Course> courses;
+    /**
+     * The term in a CourseCatalog.
+     */
+    private CourseCatalog catalog;
+    /**
+     * A query of the afternoon 3 credit Courses, by scan.
+     */
+    private CatalogQuery scanQuery;
+    /**
+     * The same query limited to the building of the first Course, planned on its postings.
+     */
+    private CatalogQuery buildingQuery;
+
+    //~Methods-------------------------------------------------
+    /**
+     * Builds the term.
+     *
+     * @throws IOException thrown if the fixture could not be read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+
+        List<Course> timetable = BenchmarkFixtures.timetableCourses();
+        courses = new ArrayList<Course>(timetable.size() * copies);
+        for (int i = 0; i < copies; i++) {
+            courses.addAll(timetable);
+        }
+        catalog = new CourseCatalog(courses);
+        scanQuery = new CatalogQuery().setCredits(3).setTimes(1200, -1);
+        buildingQuery = new CatalogQuery().setCredits(3).setTimes(1200, -1)
+                .setBuildings(timetable.get(0).getBuilding());
+    }
+
+    /**
+     * @return the credits of the afternoon Courses, summed over the Course objects.
+     */
+    @Benchmark
+    public int scanCourses() {
+
+        int total = 0;
+        for (Course course : courses) {
+
+            if (course.getCoursePoint().x >= 1200) {
+                total += course.getCredits();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return the credits of the afternoon Courses, summed through a View.
+     */
+    @Benchmark
+    public int scanCatalog() {
+
+        int total = 0;
+        CourseCatalog.View view = catalog.view(0);
+        for (int i = 0; i < catalog.size(); i++) {
+
+            view.moveTo(i);
+            if (view.getBegin() >= 1200) {
+                total += view.getCredits();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of CS Courses, found by comparing strings.
+     */
+    @Benchmark
+    public int bySubjectCourses() {
+
+        int found = 0;
+        for (Course course : courses) {
+
+            if ("CS".equals(course.getSubjectCode())) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the indexes of the CS Courses, found by comparing dictionary indexes.
+     */
+    @Benchmark
+    public int[] bySubjectCatalog() {
+
+        return catalog.bySubject("CS");
+    }
+
+    /**
+     * @return the indexes of the afternoon 3 credit Courses, found by a CatalogQuery scanning every Course.
+     */
+    @Benchmark
+    public int[] queryScan() {
+
+        return scanQuery.run(catalog);
+    }
+
+    /**
+     * @return the indexes of the afternoon 3 credit Courses in a building, found by a CatalogQuery scanning
+     *          the building's postings.
+     */
+    @Benchmark
+    public int[] queryBuilding() {
+
+        return buildingQuery.run(catalog);
+    }
+}
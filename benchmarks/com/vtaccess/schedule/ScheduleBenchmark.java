@@ -0,0 +1,102 @@
+package com.vtaccess.schedule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import com.vtaccess.BenchmarkFixtures;
+
+/**
+ * Benchmarks sorting the Courses of a Day and comparing two Schedules, with Courses from
+ * the recorded timetable.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScheduleBenchmark {
+
+    //~Data Fields--------------------------------------------
+    /**
+     * The number of Courses in the Day, and in each Schedule.
+     */
+    @Param({ "6", "40" })
+    public int numCourses;
+    /**
+     * The Courses of the Day, in reverse order of begin time.
+     */
+    private List<Course> reversed;
+    /**
+     * The Day that is sorted.
+     */
+    private Day day;
+    /**
+     * The Schedule compared to friends.
+     */
+    private Schedule mine;
+    /**
+     * The Schedule compared to mine, sharing about half of its Courses.
+     */
+    private Schedule friends;
+
+    //~Methods-------------------------------------------------
+    /**
+     * Builds the Day and the Schedules.
+     *
+     * @throws IOException thrown if the fixture could not be read.
+     */
+    @Setup
+    public void setUp() throws IOException {
+
+        List<Course> courses = new ArrayList<Course>(BenchmarkFixtures.timetableCourses().subList(0, numCourses));
+        reversed = new ArrayList<Course>(courses);
+        Collections.sort(reversed, new Comparator<Course>() {
+
+            @Override
+            public int compare(Course first, Course second) {
+
+                return second.getCoursePoint().getX() - first.getCoursePoint().getX();
+            }
+        });
+
+        day = new Day("Monday");
+
+        mine = BenchmarkFixtures.schedule("Mine", 0, 2, numCourses);
+        friends = BenchmarkFixtures.schedule("Friend", 0, 4, numCourses);
+    }
+
+    /**
+     * Sorts a Day whose Courses are in the worst order for the insertion sort.
+     * Includes copying the Courses into the Day.
+     *
+     * @return the sorted Day.
+     */
+    @Benchmark
+    public Day sortCourses() {
+
+        day.setList(reversed);
+        day.sortCourses();
+        return day;
+    }
+
+    /**
+     * @return the Courses the two Schedules share.
+     */
+    @Benchmark
+    public Schedule compareSchedules() {
+
+        return mine.compareSchedules(friends);
+    }
+}
@@ -19,7 +19,10 @@ import org.jsoup.Connection.Response;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import com.vtaccess.event.PipelineListeners;
 import com.vtaccess.exceptions.WrongLoginException;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.net.Transport;
 
 /**
  * Used to connect to the Virginia
@@ -36,18 +39,10 @@ public final class Cas {
      * the users agents to pass along with the response
      */
     private static final String AGENTS = "Mozilla/5.0 (Windows NT 6.1; WOW64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/27.0.1453.116 Safari/537.36";
-    /**
-     * The url for hokiespa to login at.
-     */
-    private static final String HOKIESPA_LOGIN = "https://auth.vt.edu/login?service=https://webapps.banner.vt.edu/banner-cas-prod/authorized/banner/SelfService";
     /**
      * The url for the Timeclock to login at.
      */
     private static final String TIMECLOCK_LOGIN = "https://auth.vt.edu/login?TARGET=https%3a%2f%2ftimeclock.vt.edu%2fwebclock30%2fdefault.aspx&renew=true";
-    /**
-     * The URL to logout of CAS entirely.
-     */
-    private static final String CAS_LOGOUT = "https://auth.vt.edu/logout";
     /**
      * String to check for recovery options screen with.
      */
@@ -224,10 +219,14 @@ public final class Cas {
                 returnVal = login(username, password, certFilePath);
             }
             
+            PipelineListeners.fireSessionRefreshed(this, returnVal);
             return returnVal;
         }
-        catch (WrongLoginException e) {}
+        catch (WrongLoginException e) {
+            PipelineListeners.fireErrorCaught(e);
+        }
         
+        PipelineListeners.fireSessionRefreshed(this, false);
         return false;
     }
     
@@ -340,9 +339,19 @@ public final class Cas {
     private boolean grabCertificate() {
         
         try {
-            URL url = new URL(HOKIESPA_LOGIN);
+            URL url = new URL(Endpoints.hokiespaLogin());
             HttpsURLConnection connect = (HttpsURLConnection)url.openConnection();
-            connect.connect();
+            connect.setConnectTimeout(Transport.getPolicy(Endpoint.LOGIN).getAttemptTimeout());
+            connect.setReadTimeout(Transport.getPolicy(Endpoint.LOGIN).getAttemptTimeout());
+            long start = Transport.begin(Endpoint.LOGIN);
+            try {
+                connect.connect();
+                Transport.end(Endpoint.LOGIN, start, 0, null);
+            }
+            catch (IOException e) {
+                Transport.end(Endpoint.LOGIN, start, 0, e);
+                throw e;
+            }
             Certificate[] certs = connect.getServerCertificates();
             
             if (certs.length > 0) {
@@ -358,15 +367,19 @@ public final class Cas {
         }
         catch (SSLPeerUnverifiedException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         catch (MalformedURLException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         catch (IOException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         catch (CertificateEncodingException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         
         return false;
@@ -384,9 +397,19 @@ public final class Cas {
     private boolean grabCertificate(String filePath) {
         
         try {
-            URL url = new URL(HOKIESPA_LOGIN);
+            URL url = new URL(Endpoints.hokiespaLogin());
             HttpsURLConnection connect = (HttpsURLConnection)url.openConnection();
-            connect.connect();
+            connect.setConnectTimeout(Transport.getPolicy(Endpoint.LOGIN).getAttemptTimeout());
+            connect.setReadTimeout(Transport.getPolicy(Endpoint.LOGIN).getAttemptTimeout());
+            long start = Transport.begin(Endpoint.LOGIN);
+            try {
+                connect.connect();
+                Transport.end(Endpoint.LOGIN, start, 0, null);
+            }
+            catch (IOException e) {
+                Transport.end(Endpoint.LOGIN, start, 0, e);
+                throw e;
+            }
             Certificate[] certs = connect.getServerCertificates();
             
             if (certs.length > 0) {
@@ -402,15 +425,19 @@ public final class Cas {
         }
         catch (SSLPeerUnverifiedException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         catch (MalformedURLException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         catch (IOException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         catch (CertificateEncodingException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         
         return false;
@@ -433,6 +460,12 @@ public final class Cas {
 
         try {
 
+            //there is no certificate to grab when CAS is not reached over SSL
+            if (!Endpoints.isAuthSecure()) {
+
+                return loginHelper(username, password);
+            }
+
             if(grabCertificate()) {
 
                 System.setProperty("javax.net.ssl.trustStore", cert.getAbsolutePath());
@@ -442,9 +475,11 @@ public final class Cas {
         }
         catch (SocketTimeoutException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         catch (IOException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
 
         return false;
@@ -470,6 +505,12 @@ public final class Cas {
 
         try {
 
+            //there is no certificate to grab when CAS is not reached over SSL
+            if (!Endpoints.isAuthSecure()) {
+
+                return loginHelper(username, password);
+            }
+
             if(grabCertificate(filePath)) {
             
                 System.setProperty("javax.net.ssl.trustStore", cert.getAbsolutePath());
@@ -479,10 +520,12 @@ public final class Cas {
         }
         catch (SocketTimeoutException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
             throw new WrongLoginException();
         }
         catch (IOException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
 
         return false;
@@ -490,14 +533,16 @@ public final class Cas {
     
     private boolean loginHelper(char[] username, char[] password) throws IOException, WrongLoginException {
         
+        String loginUrl = Endpoints.hokiespaLogin();
+
         // get three hidden fields, and cookies from initial Login Page
-        Response loginPageResp = Jsoup.connect(HOKIESPA_LOGIN).execute();
+        Response loginPageResp = Transport.execute(Endpoint.LOGIN, Jsoup.connect(loginUrl));
 
         // save JSESSION cookie from the LOGIN URL's response
         cookies = loginPageResp.cookies();
 
         // get the document from the response to retrieve hidden fields
-        Document doc = loginPageResp.parse();
+        Document doc = Transport.parse(Endpoint.LOGIN, loginPageResp);
 
         // select the correct div section under form-->fieldset
         Elements divs = doc.select("form fieldset div");
@@ -523,21 +568,20 @@ public final class Cas {
 
         // enter in the hidden fields as well as username and pasword --
         // press submit, USE GET METHOD!!!
-        Response resp = Jsoup
-                .connect(HOKIESPA_LOGIN)
+        Response resp = Transport.execute(Endpoint.LOGIN, Jsoup
+                .connect(loginUrl)
                 .data(hiddenFields)
                 .cookies(cookies)
                 .method(Method.GET)
                 .header("Content-Type", "application/x-www-form-urlencoded")
-                .referrer(HOKIESPA_LOGIN)
-                .userAgent(AGENTS)
-                .execute();
+                .referrer(loginUrl)
+                .userAgent(AGENTS));
 
         // get all cookies from the resp generated above to use in future
         // authentication
         cookies.putAll(resp.cookies());
 
-        Document loginCheck = resp.parse();
+        Document loginCheck = Transport.parse(Endpoint.LOGIN, resp);
 
         // check to see if the login was successful
         Elements checkLoginEls = loginCheck.select("#login-error");
@@ -567,6 +611,7 @@ public final class Cas {
 
         active = true;
         refreshSession = false;
+        PipelineListeners.fireLoggedIn(this);
         //System.out.println(loginCheck);
         return true;
     }
@@ -582,12 +627,13 @@ public final class Cas {
         
         try {
             // logs out of CAS. closing the session
-            Jsoup.connect(CAS_LOGOUT).get();
+            Transport.get(Endpoint.LOGOUT, Jsoup.connect(Endpoints.casLogout()));
 
             val = true;
         }
         catch (IOException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
             val = false;
         }
         
@@ -0,0 +1,421 @@
+package com.vtaccess;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import com.vtaccess.event.PipelineListeners;
+import com.vtaccess.metrics.Counter;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.net.Priority;
+import com.vtaccess.net.RequestScheduler;
+import com.vtaccess.net.SingleFlight;
+
+/**
+ * Keeps the last catalog data CourseInfo fetched for each request, to serve in its place while banweb is
+ * down or slow, so that CourseInfo's latency stays flat even when banweb's doesn't.
+ *
+ * This is not a cache that saves fetches: every call still fetches fresh data, and gets it if it arrives in
+ * time. But if the data was fetched before, the fetch is made in the background, and the caller waits at most
+ * wait milliseconds for it. If it fails, e.g. because banweb's circuit is open, or is still running after that,
+ * the caller is served a copy of the old data at once, marked stale, while the fetch carries on revalidating
+ * it. Data that was never fetched can't be served stale, so those calls wait for their fetch, and fail with it.
+ *
+ * At most maxEntries requests' data is kept, the least recently used is dropped first, and data older than
+ * maxStale milliseconds is never served. The defaults can be set with the system properties
+ * vtaccess.catalog.entries, vtaccess.catalog.wait and vtaccess.catalog.maxStale.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class CatalogCache {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The system property holding the default most requests' data kept.
+     */
+    public static final String ENTRIES_PROPERTY = "vtaccess.catalog.entries";
+    /**
+     * The system property holding the default milliseconds waited for fresh data when there is stale data.
+     */
+    public static final String WAIT_PROPERTY = "vtaccess.catalog.wait";
+    /**
+     * The system property holding the default milliseconds after which data is too old to be served.
+     */
+    public static final String MAX_STALE_PROPERTY = "vtaccess.catalog.maxStale";
+    /**
+     * Runs the fetches that revalidate kept data.
+     */
+    private static final ExecutorService REVALIDATOR = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            Thread thread = new Thread(runnable, "vtaccess-revalidate");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    /**
+     * The cache CourseInfo uses.
+     */
+    private static final CatalogCache DEFAULT = new CatalogCache(MetricsRegistry.getDefault());
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The registry the hits, misses and stale answers are recorded into.
+     */
+    private final MetricsRegistry registry;
+    /**
+     * The kept data of each request, least recently used first. Guarded by this.
+     */
+    private final LinkedHashMap<String, Entry> entries;
+    /**
+     * A Counter of the calls served stale data.
+     */
+    private final Counter stale;
+    /**
+     * A Counter of the background fetches that failed.
+     */
+    private final Counter failedRevalidations;
+    /**
+     * The most requests' data kept.
+     */
+    private volatile int maxEntries;
+    /**
+     * The milliseconds waited for fresh data when there is stale data.
+     */
+    private volatile long wait;
+    /**
+     * The milliseconds after which data is too old to be served.
+     */
+    private volatile long maxStale;
+    /**
+     * False if nothing is kept, and every call waits for its fetch.
+     */
+    private volatile boolean enabled;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a cache with the default settings.
+     *
+     * @param registry the registry the hits, misses and stale answers are recorded into.
+     */
+    public CatalogCache(MetricsRegistry registry) {
+
+        this.registry = registry;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+
+                return size() > maxEntries;
+            }
+        };
+        stale = registry.counter("catalog.stale");
+        failedRevalidations = registry.counter("catalog.failedRevalidations");
+        reset();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @return the cache that CourseInfo uses.
+     */
+    public static CatalogCache getDefault() {
+
+        return DEFAULT;
+    }
+
+    /**
+     * Fetches the data of a request, or serves a copy of the data kept from before if the fetch fails
+     * or takes too long.
+     *
+     * @param key identifies the request, calls with equal keys must want the same data.
+     * @param fetch fetches fresh data.
+     * @param copier copies data, so that callers don't share what is kept.
+     * @param <V> the type of data.
+     * @return the fresh data, or a copy of the kept data marked stale.
+     *
+     * @throws IOException thrown if the fetch failed and there was no data to serve in its place.
+     */
+    public <V> V get(String key, SingleFlight.Call<V> fetch, Copier<V> copier) throws IOException {
+
+        if (!enabled) {
+            return fetch.call();
+        }
+
+        Entry entry = getEntry(key);
+        if (entry == null) {
+
+            registry.cacheMiss("catalog");
+            V fresh = fetch.call();
+            put(key, new Entry(copier.copy(fresh, System.currentTimeMillis(), false)));
+            return fresh;
+        }
+
+        registry.cacheHit("catalog");
+        Future<Object> revalidation = entry.revalidate(fetch, copier);
+        try {
+            @SuppressWarnings("unchecked")
+            V fresh = (V) revalidation.get(wait, TimeUnit.MILLISECONDS);
+            return copier.copy(fresh, System.currentTimeMillis(), false);
+        }
+        catch (TimeoutException e) {
+            //served stale below, the fetch carries on
+        }
+        catch (ExecutionException e) {
+            //served stale below, the failure was reported by the fetch
+        }
+        catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for " + key);
+        }
+
+        stale.increment();
+        @SuppressWarnings("unchecked")
+        V kept = (V) entry.value;
+        return copier.copy(kept, entry.fetched, true);
+    }
+
+    /**
+     * @param key identifies a request.
+     * @return the request's kept data, or null if there is none, or it is too old to be served.
+     */
+    private synchronized Entry getEntry(String key) {
+
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.fetched > maxStale) {
+
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Keeps a request's data, replacing any kept before.
+     *
+     * @param key identifies the request.
+     * @param entry the data.
+     */
+    private synchronized void put(String key, Entry entry) {
+
+        entries.put(key, entry);
+    }
+
+    /**
+     * Forgets all of the kept data.
+     */
+    public synchronized void clear() {
+
+        entries.clear();
+    }
+
+    /**
+     * @return the number of requests whose data is kept.
+     */
+    public synchronized int size() {
+
+        return entries.size();
+    }
+
+    /**
+     * Forgets all of the kept data, and returns the settings to their defaults.
+     */
+    public void reset() {
+
+        maxEntries = Integer.parseInt(System.getProperty(ENTRIES_PROPERTY, "1024"));
+        wait = Long.parseLong(System.getProperty(WAIT_PROPERTY, "2000"));
+        maxStale = Long.parseLong(System.getProperty(MAX_STALE_PROPERTY, "86400000"));
+        enabled = true;
+        clear();
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the most requests' data kept.
+     */
+    public int getMaxEntries() {
+
+        return maxEntries;
+    }
+
+    /**
+     * @param maxEntries the most requests' data kept, at least 1. Takes effect as data is next kept.
+     */
+    public void setMaxEntries(int maxEntries) {
+
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the milliseconds waited for fresh data when there is stale data.
+     */
+    public long getWait() {
+
+        return wait;
+    }
+
+    /**
+     * @param wait the milliseconds waited for fresh data when there is stale data.
+     */
+    public void setWait(long wait) {
+
+        if (wait < 0) {
+            throw new IllegalArgumentException("wait " + wait);
+        }
+        this.wait = wait;
+    }
+
+    /**
+     * @return the milliseconds after which data is too old to be served.
+     */
+    public long getMaxStale() {
+
+        return maxStale;
+    }
+
+    /**
+     * @param maxStale the milliseconds after which data is too old to be served.
+     */
+    public void setMaxStale(long maxStale) {
+
+        if (maxStale < 0) {
+            throw new IllegalArgumentException("maxStale " + maxStale);
+        }
+        this.maxStale = maxStale;
+    }
+
+    /**
+     * @return false if nothing is kept, and every call waits for its fetch.
+     */
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * @param enabled false to keep nothing, and have every call wait for its fetch.
+     */
+    public void setEnabled(boolean enabled) {
+
+        this.enabled = enabled;
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * Copies data, marking the copy stale if it is served in place of fresh data.
+     *
+     * @param <V> the type of data.
+     */
+    public interface Copier<V> {
+
+        /**
+         * @param value the data.
+         * @param fetched when the data was fetched, in milliseconds since the epoch.
+         * @param stale true if the copy is served in place of fresh data.
+         * @return a copy of the data that shares nothing mutable with it.
+         */
+        V copy(V value, long fetched, boolean stale);
+    }
+
+    /**
+     * The data kept for a request, and the fetch revalidating it.
+     */
+    private final class Entry {
+
+        /**
+         * The data, never handed out, only copies of it.
+         */
+        private volatile Object value;
+        /**
+         * When the data was fetched, in milliseconds since the epoch.
+         */
+        private volatile long fetched;
+        /**
+         * The fetch revalidating the data, null if none is running. Guarded by this.
+         */
+        private Future<Object> revalidation;
+
+        /**
+         * @param value the data, which mustn't be handed out.
+         */
+        Entry(Object value) {
+
+            this.value = value;
+            this.fetched = System.currentTimeMillis();
+        }
+
+        /**
+         * Starts a fetch of fresh data in the background, unless one is already running.
+         * The fresh data replaces the kept data when it arrives.
+         *
+         * @param fetch fetches fresh data.
+         * @param copier copies data.
+         * @param <V> the type of data.
+         * @return the fetch, whose result mustn't be changed.
+         */
+        synchronized <V> Future<Object> revalidate(final SingleFlight.Call<V> fetch, final Copier<V> copier) {
+
+            if (revalidation != null) {
+                return revalidation;
+            }
+
+            //the fetch is made for the caller, and keeps its priority
+            final Priority priority = RequestScheduler.getPriority();
+            FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>() {
+
+                @Override
+                public Object call() throws IOException {
+
+                    RequestScheduler.setPriority(priority);
+                    try {
+                        V fresh = fetch.call();
+                        value = copier.copy(fresh, System.currentTimeMillis(), false);
+                        fetched = System.currentTimeMillis();
+                        return fresh;
+                    }
+                    catch (IOException e) {
+                        failedRevalidations.increment();
+                        PipelineListeners.fireErrorCaught(e);
+                        throw e;
+                    }
+                    catch (RuntimeException e) {
+                        failedRevalidations.increment();
+                        PipelineListeners.fireErrorCaught(e);
+                        throw e;
+                    }
+                    finally {
+                        finished();
+                    }
+                }
+            });
+            revalidation = task;
+            REVALIDATOR.execute(task);
+            return task;
+        }
+
+        /**
+         * Lets the next call start a new fetch.
+         */
+        private synchronized void finished() {
+
+            revalidation = null;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.vtaccess;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.vtaccess.event.PipelineListeners;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseList;
+
+/**
+ * Looks up many Courses of a term at once, e.g. a student's whole cart, for a few timetable pages instead of a
+ * page per Course. Lookups are added, by subject and course number or by CRN, then execute plans and makes
+ * the fetches, and the results are read with getCourses and getCourse:
+ *
+ *      CourseBatch batch = new CourseBatch("201309", false);
+ *      batch.addCourse("CS", "2114").addCourse("CS", "2505").addCourse("MATH", "2214").addCrn("12345");
+ *      batch.execute();
+ *      CourseList software = batch.getCourses("CS", "2114");
+ *
+ * The plan groups the lookups by subject. A subject with at least subjectThreshold course numbers looked up
+ * is fetched as one page of the whole subject, and the others are fetched a course number at a time, using the
+ * timetable's own filter, as those pages are much smaller. Every lookup is then resolved from the rows read.
+ * A CRN is looked up in the CourseIndex first, then in the subject pages read, and only fetched on its own if
+ * neither has it. Each such CRN costs a request of its own, so a batch of only CRNs that aren't indexed costs
+ * a request per CRN, add their subjects and course numbers as well to read them a page at a time.
+ * Fetches go through CourseInfo, so they share the CatalogCache and coalesce with concurrent
+ * callers as CourseInfo's own do.
+ *
+ * The default subjectThreshold can be set with the system property vtaccess.batch.subjectThreshold.
+ * A CourseBatch isn't synchronized.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class CourseBatch {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The system property holding the default fewest course numbers of a subject fetched as a whole page.
+     */
+    public static final String SUBJECT_THRESHOLD_PROPERTY = "vtaccess.batch.subjectThreshold";
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The semesterCode of the term looked in.
+     */
+    private final String semesterCode;
+    /**
+     * True to only find Courses that are open.
+     */
+    private final boolean onlyOpen;
+    /**
+     * The fewest course numbers of a subject that are fetched as a page of the whole subject.
+     */
+    private int subjectThreshold;
+    /**
+     * The course numbers looked up in each subject, in the order they were added.
+     */
+    private final Map<String, Set<String>> numbersBySubject;
+    /**
+     * The CRNs looked up, in the order they were added.
+     */
+    private final Set<String> crns;
+    /**
+     * The Courses found for each subject and course number, keyed by getKey.
+     */
+    private final Map<String, CourseList> courses;
+    /**
+     * The Course found for each CRN.
+     */
+    private final Map<String, Course> crnCourses;
+    /**
+     * The lookups that couldn't be made.
+     */
+    private final List<String> missing;
+    /**
+     * The number of pages read by execute.
+     */
+    private int pageCount;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates an empty batch.
+     *
+     * @param semesterCode the semesterCode, YYYYMM, of the term to look in.
+     * @param onlyOpen true to only find Courses that are open.
+     */
+    public CourseBatch(String semesterCode, boolean onlyOpen) {
+
+        this.semesterCode = semesterCode;
+        this.onlyOpen = onlyOpen;
+        subjectThreshold = Math.max(1, Integer.parseInt(System.getProperty(SUBJECT_THRESHOLD_PROPERTY, "2")));
+        numbersBySubject = new LinkedHashMap<String, Set<String>>();
+        crns = new LinkedHashSet<String>();
+        courses = new HashMap<String, CourseList>();
+        crnCourses = new HashMap<String, Course>();
+        missing = new LinkedList<String>();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Adds a lookup of the Courses with a subject and course number. Invalid ones are ignored.
+     *
+     * @param subjectCode the 2-4 character subject code, e.g. CS.
+     * @param courseNumber the 4 digit course number, e.g. 2114.
+     * @return this CourseBatch.
+     */
+    public CourseBatch addCourse(String subjectCode, String courseNumber) {
+
+        if (CourseInfo.checkSubjectCodeFormat(subjectCode) && courseNumber != null
+                && CourseInfo.checkCourseNumberFormat(courseNumber)) {
+
+            Set<String> numbers = numbersBySubject.get(subjectCode);
+            if (numbers == null) {
+
+                numbers = new LinkedHashSet<String>();
+                numbersBySubject.put(subjectCode, numbers);
+            }
+            numbers.add(courseNumber);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a lookup of the Course with a CRN. Null is ignored.
+     *
+     * @param crn the CRN.
+     * @return this CourseBatch.
+     */
+    public CourseBatch addCrn(String crn) {
+
+        if (crn != null) {
+            crns.add(crn);
+        }
+        return this;
+    }
+
+    /**
+     * Makes every lookup added, fetching as few pages as the plan allows. Lookups that fail are listed
+     * as missing, the others are still made. Each call starts over, dropping the results of the last one,
+     * so a batch can be executed again, e.g. after adding lookups or to retry the missing ones.
+     *
+     * @return true if every lookup could be made, false if some are missing. False if the semesterCode is invalid.
+     */
+    public boolean execute() {
+
+        courses.clear();
+        crnCourses.clear();
+        missing.clear();
+        pageCount = 0;
+
+        if (!Semester.isSemesterCode(semesterCode)) {
+            return false;
+        }
+
+        for (String crn : crns) {
+
+            Course indexed = onlyOpen ? null : CourseIndex.getDefault().get(semesterCode, crn);
+            if (indexed != null) {
+                crnCourses.put(crn, indexed);
+            }
+        }
+
+        for (Map.Entry<String, Set<String>> subject : numbersBySubject.entrySet()) {
+
+            if (subject.getValue().size() >= subjectThreshold) {
+                readSubject(subject.getKey(), subject.getValue());
+            }
+            else {
+
+                for (String courseNumber : subject.getValue()) {
+                    readCourse(subject.getKey(), courseNumber);
+                }
+            }
+        }
+
+        for (String crn : crns) {
+
+            if (!crnCourses.containsKey(crn)) {
+                readCrn(crn);
+            }
+        }
+
+        return missing.isEmpty();
+    }
+
+    /**
+     * Helper method, reads the page of a whole subject and resolves its lookups.
+     *
+     * @param subjectCode the subject code.
+     * @param courseNumbers the course numbers looked up in the subject.
+     */
+    private void readSubject(String subjectCode, Set<String> courseNumbers) {
+
+        try {
+            pageCount++;
+            resolve(subjectCode, courseNumbers, CourseInfo.readSubject(semesterCode, subjectCode, true, onlyOpen));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
+            for (String courseNumber : courseNumbers) {
+                missing.add(subjectCode + " " + courseNumber);
+            }
+        }
+    }
+
+    /**
+     * Helper method, reads the page of one course number and resolves its lookup.
+     *
+     * @param subjectCode the subject code.
+     * @param courseNumber the course number.
+     */
+    private void readCourse(String subjectCode, String courseNumber) {
+
+        Set<String> courseNumbers = new LinkedHashSet<String>();
+        courseNumbers.add(courseNumber);
+        try {
+            pageCount++;
+            resolve(subjectCode, courseNumbers,
+                    CourseInfo.readCourses(semesterCode, subjectCode, courseNumber, onlyOpen));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
+            missing.add(subjectCode + " " + courseNumber);
+        }
+    }
+
+    /**
+     * Helper method, reads the page of one CRN and resolves its lookup.
+     *
+     * @param crn the CRN.
+     */
+    private void readCrn(String crn) {
+
+        try {
+            pageCount++;
+            CourseList rows = CourseInfo.readCrn(semesterCode, crn, onlyOpen);
+            for (Course course : rows) {
+
+                if (crn.equals(course.getCrn())) {
+
+                    crnCourses.put(crn, course);
+                    break;
+                }
+            }
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
+            missing.add(crn);
+        }
+    }
+
+    /**
+     * Helper method, resolves the lookups of a subject, and any CRNs looked up, from the rows of a page.
+     * Rows of other subjects or course numbers are skipped, so a page listing more than asked for is fine.
+     *
+     * @param subjectCode the subject code.
+     * @param courseNumbers the course numbers looked up in the subject.
+     * @param rows the Courses read from the page, in the order listed.
+     */
+    private void resolve(String subjectCode, Set<String> courseNumbers, CourseList rows) {
+
+        for (String courseNumber : courseNumbers) {
+
+            CourseList found = new CourseList();
+            found.setFetched(rows.getFetched());
+            found.setStale(rows.isStale());
+            courses.put(getKey(subjectCode, courseNumber), found);
+        }
+
+        for (Course course : rows) {
+
+            if (subjectCode.equals(course.getSubjectCode())) {
+
+                CourseList found = courses.get(getKey(subjectCode, course.getCourseNumber()));
+                if (found != null && courseNumbers.contains(course.getCourseNumber())) {
+                    found.add(course);
+                }
+            }
+
+            if (crns.contains(course.getCrn()) && !crnCourses.containsKey(course.getCrn())) {
+                crnCourses.put(course.getCrn(), course);
+            }
+        }
+    }
+
+    /**
+     * Gets the Courses found with a subject and course number.
+     *
+     * @param subjectCode the subject code.
+     * @param courseNumber the course number.
+     * @return a copy of the Courses found, empty if there are none, or null if they weren't looked up
+     *          or the lookup is missing.
+     */
+    public CourseList getCourses(String subjectCode, String courseNumber) {
+
+        CourseList found = courses.get(getKey(subjectCode, courseNumber));
+        return found == null ? null : new CourseList(found);
+    }
+
+    /**
+     * Gets the Course found with a CRN.
+     *
+     * @param crn the CRN.
+     * @return a copy of the Course found, or null if there is none, it wasn't looked up or the lookup is missing.
+     */
+    public Course getCourse(String crn) {
+
+        Course found = crnCourses.get(crn);
+        return found == null ? null : new Course(found);
+    }
+
+    /**
+     * @param subjectCode a subject code.
+     * @param courseNumber a course number.
+     * @return the key of the Courses found with the subject code and course number.
+     */
+    private static String getKey(String subjectCode, String courseNumber) {
+
+        return subjectCode + "|" + courseNumber;
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the fewest course numbers of a subject that are fetched as a page of the whole subject.
+     */
+    public int getSubjectThreshold() {
+
+        return subjectThreshold;
+    }
+
+    /**
+     * @param subjectThreshold the fewest course numbers of a subject that are fetched as a page of the
+     *          whole subject, at least 1. 1 fetches every subject whole.
+     * @return this CourseBatch.
+     */
+    public CourseBatch setSubjectThreshold(int subjectThreshold) {
+
+        if (subjectThreshold < 1) {
+            throw new IllegalArgumentException("subjectThreshold must be at least 1: " + subjectThreshold);
+        }
+        this.subjectThreshold = subjectThreshold;
+        return this;
+    }
+
+    /**
+     * @return the lookups that couldn't be made by the last execute, as "SUBJ NUMBER" or the CRN. Read only.
+     */
+    public List<String> getMissing() {
+
+        return Collections.unmodifiableList(missing);
+    }
+
+    /**
+     * @return the number of pages read by the last execute, whether from banweb or the CatalogCache.
+     */
+    public int getPageCount() {
+
+        return pageCount;
+    }
+}
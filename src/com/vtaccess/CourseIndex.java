@@ -0,0 +1,283 @@
+package com.vtaccess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CrnIndex;
+
+/**
+ * Indexes the Courses CourseInfo crawls, by term and CRN, so that CourseInfo.getCourse can answer from
+ * a subject or whole term crawled before instead of making a round trip to banweb for every CRN.
+ *
+ * Each term's Courses are kept in a List, their positions in a CrnIndex keyed by the CRN as an int, so a
+ * lookup hashes no strings and boxes nothing. A CRN read on more than one row, e.g. a section and its
+ * additional times, is indexed to its first row, as banweb lists it first. Crawling a subject again replaces
+ * the Courses of the CRNs crawled again. A section that is no longer listed stays indexed, and getCourse keeps
+ * returning it, until its term is dropped after maxAge, as a crawl, e.g. by a filtered TimetableQuery, may list
+ * only part of a subject. CRNs that aren't plain numbers are not indexed, and are always looked up on banweb.
+ *
+ * A miss doesn't mean there is no such Course, only that it wasn't crawled. The Courses are copied in and out,
+ * so neither those crawled nor those handed out are shared. At most maxTerms terms are indexed, the least
+ * recently used is dropped first, and a term indexed more than maxAge milliseconds ago is dropped, and indexed
+ * afresh by the next crawl. The defaults can be set with the system properties vtaccess.index.terms and
+ * vtaccess.index.maxAge.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class CourseIndex {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The system property holding the default most terms indexed.
+     */
+    public static final String TERMS_PROPERTY = "vtaccess.index.terms";
+    /**
+     * The system property holding the default milliseconds after which a term's index is dropped.
+     */
+    public static final String MAX_AGE_PROPERTY = "vtaccess.index.maxAge";
+    /**
+     * The index CourseInfo uses.
+     */
+    private static final CourseIndex DEFAULT = new CourseIndex(MetricsRegistry.getDefault());
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The index of each term, least recently used first. Guarded by this.
+     */
+    private final LinkedHashMap<String, Term> terms;
+    /**
+     * The registry the hits and misses are recorded into.
+     */
+    private final MetricsRegistry registry;
+    /**
+     * The most terms indexed.
+     */
+    private volatile int maxTerms;
+    /**
+     * The milliseconds after which a term's index is dropped.
+     */
+    private volatile long maxAge;
+    /**
+     * False if nothing is indexed, and every lookup misses.
+     */
+    private volatile boolean enabled;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates an empty index with the default settings.
+     *
+     * @param registry the registry the hits and misses are recorded into.
+     */
+    public CourseIndex(MetricsRegistry registry) {
+
+        this.registry = registry;
+        terms = new LinkedHashMap<String, Term>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Term> eldest) {
+
+                return size() > maxTerms;
+            }
+        };
+        reset();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @return the index CourseInfo uses.
+     */
+    public static CourseIndex getDefault() {
+
+        return DEFAULT;
+    }
+
+    /**
+     * Indexes crawled Courses, replacing those of the same CRNs indexed before.
+     *
+     * @param semesterCode the semesterCode of the Courses' term.
+     * @param courses the Courses, in the order banweb listed them.
+     */
+    public synchronized void index(String semesterCode, List<Course> courses) {
+
+        if (!enabled || semesterCode == null || courses == null) {
+            return;
+        }
+
+        Term term = getTerm(semesterCode);
+        if (term == null) {
+
+            term = new Term();
+            terms.put(semesterCode, term);
+        }
+
+        //last to first, so the first row of a CRN is the one left indexed
+        ListIterator<Course> rows = courses.listIterator(courses.size());
+        while (rows.hasPrevious()) {
+
+            Course course = rows.previous();
+            int crn = CrnIndex.toKey(course.getCrn());
+            if (crn == CrnIndex.NONE) {
+                continue;
+            }
+
+            int position = term.crns.get(crn);
+            if (position == CrnIndex.NONE) {
+
+                term.crns.put(crn, term.courses.size());
+                term.courses.add(new Course(course));
+            }
+            else {
+                term.courses.set(position, new Course(course));
+            }
+        }
+    }
+
+    /**
+     * Looks a Course up by CRN.
+     *
+     * @param semesterCode the semesterCode of the Course's term.
+     * @param crn the CRN of the Course.
+     * @return a copy of the Course, or null if it wasn't indexed.
+     */
+    public Course get(String semesterCode, String crn) {
+
+        int key = CrnIndex.toKey(crn);
+        Course course = null;
+        if (enabled && semesterCode != null && key != CrnIndex.NONE) {
+
+            synchronized (this) {
+
+                Term term = getTerm(semesterCode);
+                int position = term == null ? CrnIndex.NONE : term.crns.get(key);
+                if (position != CrnIndex.NONE) {
+                    course = new Course(term.courses.get(position));
+                }
+            }
+        }
+
+        if (course == null) {
+            registry.cacheMiss("index");
+        }
+        else {
+            registry.cacheHit("index");
+        }
+        return course;
+    }
+
+    /**
+     * @param semesterCode the semesterCode of a term.
+     * @return the number of the term's CRNs indexed.
+     */
+    public synchronized int size(String semesterCode) {
+
+        Term term = getTerm(semesterCode);
+        return term == null ? 0 : term.crns.size();
+    }
+
+    /**
+     * Gets the index of a term, dropping it if it is too old. Callers must hold this.
+     *
+     * @param semesterCode the semesterCode of the term.
+     * @return the index of the term, or null if it isn't indexed.
+     */
+    private Term getTerm(String semesterCode) {
+
+        Term term = terms.get(semesterCode);
+        if (term != null && System.currentTimeMillis() - term.created > maxAge) {
+
+            terms.remove(semesterCode);
+            return null;
+        }
+        return term;
+    }
+
+    /**
+     * Forgets all of the indexed Courses.
+     */
+    public synchronized void clear() {
+
+        terms.clear();
+    }
+
+    /**
+     * Forgets all of the indexed Courses, and returns the settings to their defaults.
+     */
+    public void reset() {
+
+        maxTerms = Math.max(1, Integer.parseInt(System.getProperty(TERMS_PROPERTY, "4")));
+        maxAge = Long.parseLong(System.getProperty(MAX_AGE_PROPERTY, "3600000"));
+        enabled = true;
+        clear();
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the most terms indexed.
+     */
+    public int getMaxTerms() {
+
+        return maxTerms;
+    }
+
+    /**
+     * @return the milliseconds after which a term's index is dropped.
+     */
+    public long getMaxAge() {
+
+        return maxAge;
+    }
+
+    /**
+     * @param maxAge the milliseconds after which a term's index is dropped.
+     */
+    public void setMaxAge(long maxAge) {
+
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return false if nothing is indexed, and every lookup misses.
+     */
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * @param enabled false to forget the indexed Courses and index nothing, true to index again.
+     */
+    public void setEnabled(boolean enabled) {
+
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * The indexed Courses of a term.
+     */
+    private static final class Term {
+
+        /**
+         * The position of each CRN's Course in courses.
+         */
+        private final CrnIndex crns = new CrnIndex();
+        /**
+         * The Courses, copies of those crawled.
+         */
+        private final List<Course> courses = new ArrayList<Course>();
+        /**
+         * When the term was first indexed.
+         */
+        private final long created = System.currentTimeMillis();
+    }
+}
@@ -2,6 +2,7 @@ package com.vtaccess;
 
 import java.io.IOException;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -9,8 +10,17 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import com.vtaccess.event.PipelineListeners;
 import com.vtaccess.exceptions.InvalidAreaException;
+import com.vtaccess.jfr.ParseEvent;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.net.Priority;
+import com.vtaccess.net.RequestScheduler;
+import com.vtaccess.net.SingleFlight;
+import com.vtaccess.net.Transport;
 import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseList;
+import com.vtaccess.schedule.StringPool;
 
 /**
  * CourseInformation class which provides static methods which allow users to
@@ -26,6 +36,10 @@ import com.vtaccess.schedule.Course;
  * However there are situations which warrant this, as you will not always have that information
  * at hand.
  * 
+ * While banweb is down or slow, the timetable Courses fetched before are served from the CatalogCache
+ * rather than waiting on banweb or returning null. Methods returning a CourseList mark it stale when
+ * they do, Courses returned on their own can't be marked.
+ * 
  * 
  * @author Ethan Gaebel (egaebel)
  */
@@ -33,16 +47,12 @@ public class CourseInfo {
 
     //~Constants----------------------------------------------
     /**
-     * The URL of the VT Course timetable.
+     * The URL of the VT Course timetable on the live server.
+     * Requests are made to Endpoints.timetable(), which may point somewhere else.
      */                                                  
     public static final String NO_LOGIN_TIMETABLE_URL = "https://banweb.banner.vt.edu/ssb/prod/HZSKVTSC.P_ProcRequest";
 
     //~Pop-Up Info. Box URL pieces~~~~~~~~~~~~~~~~~~~~~~~~~~~~
-    /**
-     * Part 1.
-     * The part of the URL that contains the meat of the whole thing. 
-     */
-    private static final String BEFORE_CRN = "https://banweb.banner.vt.edu/ssb/prod/HZSKVTSC.P_ProcComments?CRN=";
     /**
      * Part 2.
      * The part of the URL that comes after the CRN and right before the subject code.
@@ -68,6 +78,44 @@ public class CourseInfo {
      * The part of the URL that comes right after the year, and right before the exam number.
      */
     private static final String END_OF_URL = "&history=N";
+    /**
+     * Coalesces concurrent identical timetable requests, e.g. many users opening the same subject
+     * at registration time, into one fetch. Every caller of a shared fetch gets its own copies of the Courses.
+     */
+    private static final SingleFlight<CourseList> TIMETABLE_FLIGHTS = new SingleFlight<CourseList>("timetable",
+            new SingleFlight.Copier<CourseList>() {
+
+                @Override
+                public CourseList copy(CourseList courses) {
+
+                    return new CourseList(courses);
+                }
+            });
+    /**
+     * Copies the Courses kept by the CatalogCache, marking them stale when they are served in place of fresh ones.
+     */
+    private static final CatalogCache.Copier<CourseList> COURSES = new CatalogCache.Copier<CourseList>() {
+
+        @Override
+        public CourseList copy(CourseList courses, long fetched, boolean stale) {
+
+            CourseList copy = new CourseList(courses);
+            copy.setFetched(fetched);
+            copy.setStale(stale);
+            return copy;
+        }
+    };
+    /**
+     * Copies the subject codes kept by the CatalogCache.
+     */
+    private static final CatalogCache.Copier<List<String>> SUBJECT_CODES = new CatalogCache.Copier<List<String>>() {
+
+        @Override
+        public List<String> copy(List<String> subjectCodes, long fetched, boolean stale) {
+
+            return new ArrayList<String>(subjectCodes);
+        }
+    };
     
     //~Methods-------------------------------------------------
     /**
@@ -79,12 +127,33 @@ public class CourseInfo {
      * @param allowDuplicates boolean indicating if courses with the same name but different other properties
      *          should be allowed. True they're allowed, false they are not.
      *          
-     * @return List<Course> holds all the course objects that were read from the Element objects.
+     * @return CourseList holds all the course objects that were read from the Element objects.
+     */
+    protected static CourseList readRows(Elements rows, boolean allowDuplicates) {
+
+        return readRows(rows, allowDuplicates, null);
+    }
+
+    /**
+     * Takes in the rows from the HokieSpa timetable page, reads the courses from them into Course objects.
+     * The semesterCode labels the ParseEvent emitted for Flight Recorder, and picks the StringPool the
+     * Courses' Strings are canonicalized with.
+     * 
+     * @param rows Elements object of Jsoup that holds rows of the table from the timetable
+     * @param allowDuplicates boolean indicating if courses with the same name but different other properties
+     *          should be allowed. True they're allowed, false they are not.
+     * @param semesterCode the semesterCode the rows are from, may be null.
+     *          
+     * @return CourseList holds all the course objects that were read from the Element objects.
      */
-    protected static List<Course> readRows(Elements rows, boolean allowDuplicates) {
+    protected static CourseList readRows(Elements rows, boolean allowDuplicates, String semesterCode) {
         //System.out.println("rows:\n" + rows.toString() + "\n\n");
+        ParseEvent parseEvent = new ParseEvent();
+        parseEvent.begin();
+
         Elements cols;
-        List<Course> courses = new LinkedList<Course>();
+        CourseList courses = new CourseList();
+        StringPool pool = StringPool.forTerm(semesterCode);
         Course course;
         
         String crn = "";
@@ -213,17 +282,32 @@ public class CourseInfo {
                 if (additionalTime || allowDuplicates || courses.size() == 0 || ((courses.size() > 0) 
                         && !course.getCourseCode().equals(courses.get(courses.size() - 1).getCourseCode()))) {
                     
+                    course.canonicalize(pool);
                     courses.add(course);
+                    PipelineListeners.fireCourseEmitted(course);
                 }
             }
         }
         
+        parseEvent.end();
+        if (parseEvent.shouldCommit()) {
+
+            parseEvent.kind = ParseEvent.TIMETABLE_ROWS;
+            parseEvent.term = semesterCode;
+            parseEvent.subject = courses.isEmpty() ? null : courses.get(0).getSubjectCode();
+            parseEvent.rows = rows.size();
+            parseEvent.commit();
+        }
+
         return courses;
     }
     
     /**
      * Gets all of the Courses offered at Virginia Tech in a specified year & semester by the semesterCode.
      * 
+     * This is a crawl of every subject, so its requests have BULK Priority, and give way to any
+     * interactive requests made meanwhile.
+     * 
      * @param semesterCode thesemesterCode of the year+semester that holds the classes of interest. 
      *          The semesterCode must be in the format (YYYYMM) year followed by 2 digit month
      *          with no spaces.
@@ -231,71 +315,101 @@ public class CourseInfo {
      *          True to allow duplicates, false to dis-allow.
      * @param onlyOpen boolean switch that specifies if only courses that are currently open
      *          are desired. Pass true to only get courses that are open.
-     * @return a List of Course objects that holds all Courses offered at Virginia Tech. Or null if an exception occurs
+     * @return a CourseList that holds all Courses offered at Virginia Tech. If some subjects couldn't be
+     *          fetched the CourseList is incomplete, and lists them as missing.
+     *          Or null if the list of subjects couldn't be fetched.
      */
-    public static List<Course> getAllCourses (String semesterCode, boolean allowDuplicates, boolean onlyOpen) {
+    public static CourseList getAllCourses (String semesterCode, boolean allowDuplicates, boolean onlyOpen) {
         
         if (Semester.isSemesterCode(semesterCode)) {
+            
+            Priority previous = RequestScheduler.setPriority(Priority.BULK);
             try {
                 
-                List<Course> courses = new LinkedList<Course>();
-                
-                Document doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).get();
-                //get all of the options for subject code
-                Elements elements = doc.select(".one tbody").get(0).select("tr").get(4)
-                        .select("td").get(0).select("select option");
-    
-                //Course reference
-                Elements rows;
+                CourseList courses = new CourseList();
                 
                 //loop through all of the subject codes.
-                for (int i = 1; i < elements.size(); i++) {
+                for (String subjectCode : readSubjectCodes()) {
                     
-                    if (onlyOpen) {
-                        
-                        doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                                .data("TERMYEAR", semesterCode)
-                                .data("SCHDTYPE", "%")
-                                .data("SUBJ_CODE", elements.get(i).text().trim().split(" ")[0])
-                                .data("CORE_CODE", "AR%")
-                                .data("open_only", "on")
-                                .data("PRINT_FRIEND", "Y")
-                                .data("history", "N")
-                                .data("BTN_PRESSED", "Printer Friendly List")
-                                .timeout(0)
-                                .post();                    
+                    try {
+                        courses.addAll(readSubject(semesterCode, subjectCode, allowDuplicates, onlyOpen));
                     }
-                    else {
-                     
-                        doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                            .data("TERMYEAR", semesterCode)
-                            .data("SCHDTYPE", "%")
-                            .data("SUBJ_CODE", elements.get(i).text().trim().split(" ")[0])
-                            .data("CORE_CODE", "AR%")
-                            .data("PRINT_FRIEND", "Y")
-                            .data("history", "N")
-                            .data("BTN_PRESSED", "Printer Friendly List")
-                            .timeout(0)
-                            .post();
+                    catch (IOException e) {
+                        e.printStackTrace();
+                        PipelineListeners.fireErrorCaught(e);
+                        courses.addMissing(subjectCode, e);
                     }
-                    
-                    rows = doc.select("table").get(0).select("tr");
-                    
-                    courses.addAll(CourseInfo.readRows(rows, allowDuplicates));
                 }
                 
                 return courses;
             }
             catch (SocketTimeoutException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
             }
             catch (IOException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
+            }
+            finally {
+                RequestScheduler.setPriority(previous);
             }
         }
         return null;
     }
         
+    /**
+     * Fetches the codes of all of the subjects listed on the timetable. While banweb is down or slow
+     * the codes fetched before are served from the CatalogCache.
+     * 
+     * @return the subject codes.
+     * 
+     * @throws IOException thrown if the timetable couldn't be fetched, and there were no codes fetched before.
+     */
+    private static List<String> readSubjectCodes() throws IOException {
+        
+        return CatalogCache.getDefault().get("subjects", new SingleFlight.Call<List<String>>() {
+
+            @Override
+            public List<String> call() throws IOException {
+
+                Document doc = Transport.get(Endpoint.TIMETABLE, Jsoup.connect(Endpoints.timetable()));
+                //get all of the options for subject code
+                Elements elements = doc.select(".one tbody").get(0).select("tr").get(4)
+                        .select("td").get(0).select("select option");
+                
+                List<String> subjectCodes = new ArrayList<String>();
+                for (int i = 1; i < elements.size(); i++) {
+                    subjectCodes.add(elements.get(i).text().trim().split(" ")[0]);
+                }
+                return subjectCodes;
+            }
+        }, SUBJECT_CODES);
+    }
+    
+    /**
+     * Fetches timetable Courses, sharing the fetch with concurrent callers making the same request.
+     * While banweb is down or slow, the Courses fetched before are served from the CatalogCache, marked stale.
+     * 
+     * @param key identifies the request.
+     * @param fetch fetches and reads the Courses.
+     * @return the Courses, this caller's own copies.
+     * 
+     * @throws IOException thrown if the Courses couldn't be fetched, and there were none fetched before.
+     */
+    static CourseList readShared(final String key, final SingleFlight.Call<CourseList> fetch) 
+            throws IOException {
+        
+        return CatalogCache.getDefault().get(key, new SingleFlight.Call<CourseList>() {
+
+            @Override
+            public CourseList call() throws IOException {
+
+                return TIMETABLE_FLIGHTS.execute(key, fetch);
+            }
+        }, COURSES);
+    }
+    
     /**
      * Gets all of the Courses with the specified subject offered at Virginia Tech in 
      * a given term. User specifies if duplicates of course codes are allowed with the passed in boolean.
@@ -313,61 +427,101 @@ public class CourseInfo {
      * @return a List of Course objects that holds all Courses within the specified 
      *          subject offered at Virginia Tech. Or null if an exception occurs.
      */
-    public static List<Course> getAllCourses(String semesterCode, String subjectCode, boolean allowDuplicates, boolean onlyOpen) {
+    public static CourseList getAllCourses(String semesterCode, String subjectCode, boolean allowDuplicates, boolean onlyOpen) {
         
         if (Semester.isSemesterCode(semesterCode) && checkSubjectCodeFormat(subjectCode)) {
             try {
                 
-                List<Course> courses = new LinkedList<Course>();
-    
-                //loop variables
-                Elements rows;
-                Document doc;
-                //------------//
-                if (onlyOpen) {
-                    
-                    doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                            .data("TERMYEAR", semesterCode)
-                            .data("SCHDTYPE", "%")
-                            .data("SUBJ_CODE", subjectCode)
-                            .data("CORE_CODE", "AR%")
-                            .data("open_only", "on")
-                            .data("PRINT_FRIEND", "Y")
-                            .data("history", "N")
-                            .data("BTN_PRESSED", "Printer Friendly List")
-                            .timeout(0)
-                            .post();                    
-                }
-                else {
-                 
-                    doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                        .data("TERMYEAR", semesterCode)
-                        .data("SCHDTYPE", "%")
-                        .data("SUBJ_CODE", subjectCode)
-                        .data("CORE_CODE", "AR%")
-                        .data("PRINT_FRIEND", "Y")
-                        .data("history", "N")
-                        .data("BTN_PRESSED", "Printer Friendly List")
-                        .timeout(0)
-                        .post();
-                }
-                
-                rows = doc.select("table").get(0).select("tr");
-                
-                courses.addAll(CourseInfo.readRows(rows, allowDuplicates));
-                
-                return courses;
+                return readSubject(semesterCode, subjectCode, allowDuplicates, onlyOpen);
             }
             catch (SocketTimeoutException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
             }
             catch (IOException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
             }
         }
         return null;
     }
     
+    /**
+     * Fetches and reads all of the Courses with the specified subject offered in a given term.
+     * Concurrent calls for the same Courses share one fetch, see readShared.
+     * 
+     * @param semesterCode the semesterCode YYYYMM to get courses for.
+     * @param subjectCode the 2-4 digit Course subject whose Courses are to be returned.
+     * @param allowDuplicates true to allow duplicates, false to dis-allow.
+     * @param onlyOpen true to only get courses that are open.
+     * @return a List of the Courses.
+     * 
+     * @throws IOException thrown if the timetable couldn't be fetched.
+     */
+    static CourseList readSubject(final String semesterCode, final String subjectCode, 
+            final boolean allowDuplicates, final boolean onlyOpen) throws IOException {
+        
+        return readShared("subject|" + semesterCode + "|" + subjectCode + "|" + allowDuplicates 
+                + "|" + onlyOpen, new SingleFlight.Call<CourseList>() {
+
+                    @Override
+                    public CourseList call() throws IOException {
+
+                        return fetchSubject(semesterCode, subjectCode, allowDuplicates, onlyOpen);
+                    }
+                });
+    }
+    
+    /**
+     * Fetches and reads all of the Courses with the specified subject offered in a given term,
+     * without coalescing with other callers.
+     * 
+     * @param semesterCode the semesterCode YYYYMM to get courses for.
+     * @param subjectCode the 2-4 digit Course subject whose Courses are to be returned.
+     * @param allowDuplicates true to allow duplicates, false to dis-allow.
+     * @param onlyOpen true to only get courses that are open.
+     * @return a List of the Courses.
+     * 
+     * @throws IOException thrown if the timetable couldn't be fetched.
+     */
+    private static CourseList fetchSubject(String semesterCode, String subjectCode, boolean allowDuplicates, 
+            boolean onlyOpen) throws IOException {
+        
+        Document doc;
+        
+        if (onlyOpen) {
+            
+            doc = Transport.post(Endpoint.TIMETABLE, Jsoup.connect(Endpoints.timetable()).data("CAMPUS", "0")
+                    .data("TERMYEAR", semesterCode)
+                    .data("SCHDTYPE", "%")
+                    .data("SUBJ_CODE", subjectCode)
+                    .data("CORE_CODE", "AR%")
+                    .data("open_only", "on")
+                    .data("PRINT_FRIEND", "Y")
+                    .data("history", "N")
+                    .data("BTN_PRESSED", "Printer Friendly List")
+                    );                    
+        }
+        else {
+         
+            doc = Transport.post(Endpoint.TIMETABLE, Jsoup.connect(Endpoints.timetable()).data("CAMPUS", "0")
+                .data("TERMYEAR", semesterCode)
+                .data("SCHDTYPE", "%")
+                .data("SUBJ_CODE", subjectCode)
+                .data("CORE_CODE", "AR%")
+                .data("PRINT_FRIEND", "Y")
+                .data("history", "N")
+                .data("BTN_PRESSED", "Printer Friendly List")
+                );
+        }
+        
+        Elements rows = doc.select("table").get(0).select("tr");
+        
+        CourseList courses = CourseInfo.readRows(rows, allowDuplicates, semesterCode);
+        CourseIndex.getDefault().index(semesterCode, courses);
+        return courses;
+    }
+    
     /**
      * Gets all Courses with one of the specified subjects offered at Virginia Tech.
      * 
@@ -381,19 +535,25 @@ public class CourseInfo {
      * @return a List of Course objects that holds all Courses within the specified
      *          subjects offered at Virginia Tech. It is guaranteed that Courses of 
      *          a subject are grouped together. So you can check to see when a Course's 
-     *          subject identifier changes. 
+     *          subject identifier changes. If some subjects couldn't be fetched the CourseList
+     *          is incomplete, and lists them as missing. Invalid subjects are skipped.
      *          Or null if an invalid semesterCode was entered.
      */
-    public static LinkedList<Course> getAllCourses(String semesterCode, boolean allowDuplicates, boolean onlyOpen, String... subjects) {
+    public static CourseList getAllCourses(String semesterCode, boolean allowDuplicates, boolean onlyOpen, String... subjects) {
         
         if (Semester.isSemesterCode(semesterCode) && subjects != null) {
-            LinkedList<Course> courses = new LinkedList<Course>();
-            List<Course> tempCourses = null;
+            CourseList courses = new CourseList();
             for (String subject : subjects) {
                 
-                tempCourses = getAllCourses(semesterCode, subject, allowDuplicates, onlyOpen);
-                if (tempCourses != null) {
-                    courses.addAll(tempCourses);
+                if (checkSubjectCodeFormat(subject)) {
+                    try {
+                        courses.addAll(readSubject(semesterCode, subject, allowDuplicates, onlyOpen));
+                    }
+                    catch (IOException e) {
+                        e.printStackTrace();
+                        PipelineListeners.fireErrorCaught(e);
+                        courses.addMissing(subject, e);
+                    }
                 }
             }
             
@@ -416,63 +576,82 @@ public class CourseInfo {
      *          
      * @throws InvalidAreaException is thrown if the area String does not designate any valid area 
      */
-    public static List<Course> getAllAreaCourses(String semesterCode, boolean allowDuplicates, String area, boolean onlyOpen) throws InvalidAreaException {
+    public static CourseList getAllAreaCourses(String semesterCode, boolean allowDuplicates, String area, boolean onlyOpen) throws InvalidAreaException {
 
         if (Semester.isSemesterCode(semesterCode)) {
             try {
                 
-                List<Course> courses = new LinkedList<Course>();
-                
                 area = checkAreaFormat(area);
                 if (area != null) {
                 
-                    //loop variables
-                    Elements rows;
-                    Document doc;
-                    //------------//
-                    
-                    if (onlyOpen) {
-                        
-                        doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                                .data("TERMYEAR", semesterCode)
-                                .data("CORE_CODE", area)
-                                .data("history", "N")
-                                .data("PRINT_FRIEND", "Y")
-                                .data("BTN_PRESSED", "Printer Friendly List")
-                                .data("open_only", "on")
-                                .timeout(0)
-                                .post();                    
-                    }
-                    else {
-                     
-                        doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                            .data("TERMYEAR", semesterCode)
-                            .data("CORE_CODE", area)
-                            .data("history", "N")
-                            .data("PRINT_FRIEND", "Y")
-                            .data("BTN_PRESSED", "Printer Friendly List")
-                            .timeout(0)
-                            .post();
-                    }
-                        
-                    rows = doc.select("table").get(0).select("tr");
-                    
-                    courses.addAll(CourseInfo.readRows(rows, allowDuplicates));
-                    
-                    return courses;
+                    return readArea(semesterCode, area, allowDuplicates, onlyOpen);
                 }
             }
             catch (SocketTimeoutException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
             }
             catch (IOException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
             }
         }
         
         return null;
     }
     
+    /**
+     * Fetches and reads all of the Courses within an Area in the semesterCode.
+     * Concurrent calls for the same Courses share one fetch, see readShared.
+     * 
+     * @param semesterCode the year+semester to get courses from.
+     * @param area the checked Area code.
+     * @param allowDuplicates true to allow duplicates, false to dis-allow.
+     * @param onlyOpen true to only get courses that are open.
+     * @return a List of the Courses.
+     * 
+     * @throws IOException thrown if the timetable couldn't be fetched.
+     */
+    private static CourseList readArea(final String semesterCode, final String area, final boolean allowDuplicates, 
+            final boolean onlyOpen) throws IOException {
+        
+        return readShared("area|" + semesterCode + "|" + area + "|" + allowDuplicates + "|" + onlyOpen, 
+                new SingleFlight.Call<CourseList>() {
+
+                    @Override
+                    public CourseList call() throws IOException {
+
+                        Document doc;
+                    
+                        if (onlyOpen) {
+                        
+                            doc = Transport.post(Endpoint.TIMETABLE, Jsoup.connect(Endpoints.timetable()).data("CAMPUS", "0")
+                                    .data("TERMYEAR", semesterCode)
+                                    .data("CORE_CODE", area)
+                                    .data("history", "N")
+                                    .data("PRINT_FRIEND", "Y")
+                                    .data("BTN_PRESSED", "Printer Friendly List")
+                                    .data("open_only", "on")
+                                    );                    
+                        }
+                        else {
+                     
+                            doc = Transport.post(Endpoint.TIMETABLE, Jsoup.connect(Endpoints.timetable()).data("CAMPUS", "0")
+                                .data("TERMYEAR", semesterCode)
+                                .data("CORE_CODE", area)
+                                .data("history", "N")
+                                .data("PRINT_FRIEND", "Y")
+                                .data("BTN_PRESSED", "Printer Friendly List")
+                                );
+                        }
+                        
+                        Elements rows = doc.select("table").get(0).select("tr");
+                    
+                        return CourseInfo.readRows(rows, allowDuplicates, semesterCode);
+                    }
+                });
+    }
+    
     /**
      * Gets the Course object denoted by the crn, in the year/semester specified.
      * Will grab any course, open or closed.
@@ -494,6 +673,9 @@ public class CourseInfo {
      * Returns null if there does not exists a 
      * Course denoted by the passed in crn in the term. 
      * 
+     * Unless onlyOpen is true, a Course crawled before by getAllCourses is looked up in the CourseIndex
+     * instead of on banweb.
+     * 
      * @param semesterCode the year+semester, YYYYMM, that the Course is to be pulled from.
      * @param crn the crn of the Course desired.
      * @param onlyOpen boolean switch that specifies if only courses that are currently open
@@ -504,41 +686,16 @@ public class CourseInfo {
     public static Course getCourse(String semesterCode, String crn, boolean onlyOpen) {
         
         if (Semester.isSemesterCode(semesterCode) && crn != null) {
+            
+            //the index can't tell whether a Course is still open
+            Course indexed = onlyOpen ? null : CourseIndex.getDefault().get(semesterCode, crn);
+            if (indexed != null) {
+                return indexed;
+            }
+            
             try {
                 
-                Document doc;
-                
-                if (onlyOpen) {
-                    
-                    doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                            .data("TERMYEAR", semesterCode)
-                            .data("SCHDTYPE", "%")
-                            .data("crn", crn)
-                            .data("CORE_CODE", "AR%")
-                            .data("open_only", "on")
-                            .data("PRINT_FRIEND", "Y")
-                            .data("history", "N")
-                            .data("BTN_PRESSED", "Printer Friendly List")
-                            .timeout(0)
-                            .post();                    
-                }
-                else {
-                 
-                    doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                        .data("TERMYEAR", semesterCode)
-                        .data("SCHDTYPE", "%")
-                        .data("crn", crn)
-                        .data("CORE_CODE", "AR%")
-                        .data("PRINT_FRIEND", "Y")
-                        .data("history", "N")
-                        .data("BTN_PRESSED", "Printer Friendly List")
-                        .timeout(0)
-                        .post();
-                }
-                
-                Elements rows = doc.select("table").get(0).select("tr");
-                
-                List<Course> courses = CourseInfo.readRows(rows, false);
+                List<Course> courses = readCrn(semesterCode, crn, onlyOpen);
                 
                 if (courses.size() != 0) {
                     return courses.get(0);
@@ -549,14 +706,71 @@ public class CourseInfo {
             }
             catch (SocketTimeoutException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
             }
             catch (IOException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
             }
         }
         return null;
     }
     
+    /**
+     * Fetches and reads the Course denoted by the crn in the semesterCode.
+     * Concurrent calls for the same Course share one fetch, see readShared.
+     * 
+     * @param semesterCode the year+semester, YYYYMM, that the Course is to be pulled from.
+     * @param crn the crn of the Course.
+     * @param onlyOpen true to only get the Course if it is open.
+     * @return a List holding the Course, empty if there is none.
+     * 
+     * @throws IOException thrown if the timetable couldn't be fetched.
+     */
+    static CourseList readCrn(final String semesterCode, final String crn, final boolean onlyOpen) 
+            throws IOException {
+        
+        return readShared("crn|" + semesterCode + "|" + crn + "|" + onlyOpen, 
+                new SingleFlight.Call<CourseList>() {
+
+                    @Override
+                    public CourseList call() throws IOException {
+
+                        Document doc;
+                        
+                        if (onlyOpen) {
+                            
+                            doc = Transport.post(Endpoint.TIMETABLE, Jsoup.connect(Endpoints.timetable()).data("CAMPUS", "0")
+                                    .data("TERMYEAR", semesterCode)
+                                    .data("SCHDTYPE", "%")
+                                    .data("crn", crn)
+                                    .data("CORE_CODE", "AR%")
+                                    .data("open_only", "on")
+                                    .data("PRINT_FRIEND", "Y")
+                                    .data("history", "N")
+                                    .data("BTN_PRESSED", "Printer Friendly List")
+                                    );                    
+                        }
+                        else {
+                         
+                            doc = Transport.post(Endpoint.TIMETABLE, Jsoup.connect(Endpoints.timetable()).data("CAMPUS", "0")
+                                .data("TERMYEAR", semesterCode)
+                                .data("SCHDTYPE", "%")
+                                .data("crn", crn)
+                                .data("CORE_CODE", "AR%")
+                                .data("PRINT_FRIEND", "Y")
+                                .data("history", "N")
+                                .data("BTN_PRESSED", "Printer Friendly List")
+                                );
+                        }
+                        
+                        Elements rows = doc.select("table").get(0).select("tr");
+                        
+                        return CourseInfo.readRows(rows, false, semesterCode);
+                    }
+                });
+    }
+    
     /**
      * Gets a List of Course objects (Either open or closed) denoted by the subjectCode and 
      * courseNumber passed that are in the semesterCode specified.
@@ -569,7 +783,7 @@ public class CourseInfo {
      * @return a List of Course objects denoted by the subjectCode and courseNumber.
      *          Returns null if the course does not exist.
      */
-    public static List<Course> getCourses(String semesterCode, String subjectCode, String courseNumber) {
+    public static CourseList getCourses(String semesterCode, String subjectCode, String courseNumber) {
 
         return CourseInfo.getCourses(semesterCode, subjectCode, courseNumber, false);
     }
@@ -589,7 +803,7 @@ public class CourseInfo {
      * @return a List of Course objects denoted by the subjectCode and courseNumber.
      *          Returns null if the course does not exist or invalid values are passed.
      */
-    public static List<Course> getCourses(String semesterCode, String subjectCode, String courseNumber, boolean onlyOpen) {
+    public static CourseList getCourses(String semesterCode, String subjectCode, String courseNumber, boolean onlyOpen) {
         
         try {
 
@@ -597,52 +811,93 @@ public class CourseInfo {
                     && checkCourseNumberFormat(courseNumber)
                     && Semester.isSemesterCode(semesterCode)) {
 
-                //loop variables
-                Elements rows;
-                Document doc;
-                //------------//
-                
-                if (onlyOpen) {
-                    
-                    doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                            .data("TERMYEAR", semesterCode)
-                            .data("SUBJ_CODE", subjectCode)
-                            .data("CRSE_NUMBER", courseNumber)
-                            .data("CORE_CODE", "AR%")
-                            .data("open_only", "on")
-                            .data("history", "N")
-                            .data("PRINT_FRIEND", "Y")
-                            .data("BTN_PRESSED", "Printer Friendly List")
-                            .timeout(0)
-                            .post();
-                }
-                else {
-                    doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                            .data("TERMYEAR", semesterCode)
-                            .data("SUBJ_CODE", subjectCode)
-                            .data("CRSE_NUMBER", courseNumber)
-                            .data("CORE_CODE", "AR%")
-                            .data("history", "N")
-                            .data("PRINT_FRIEND", "Y")
-                            .data("BTN_PRESSED", "Printer Friendly List")
-                            .timeout(0)
-                            .post();
-                }
-                rows = doc.select("table").get(0).select("tr");
-                
-                return CourseInfo.readRows(rows, true);
+                return readCourses(semesterCode, subjectCode, courseNumber, onlyOpen);
             }
         }
         catch (SocketTimeoutException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         catch (IOException e) {
             e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
         }
         
         return null;
     }
 
+    /**
+     * Fetches and reads the Courses denoted by the subjectCode and courseNumber in the semesterCode.
+     * Concurrent calls for the same Courses share one fetch, see readShared.
+     * 
+     * @param semesterCode the year + semester to look in, YYYYMM.
+     * @param subjectCode the 2-4 character subject code identifying the Course.
+     * @param courseNumber the 4 digit courseNumber identifying the Course.
+     * @param onlyOpen true to only get courses that are open.
+     * @return a List of the Courses, empty if there are none.
+     * 
+     * @throws IOException thrown if the timetable couldn't be fetched.
+     */
+    static CourseList readCourses(final String semesterCode, final String subjectCode, 
+            final String courseNumber, final boolean onlyOpen) throws IOException {
+        
+        return readShared("courses|" + semesterCode + "|" + subjectCode + "|" + courseNumber 
+                + "|" + onlyOpen, new SingleFlight.Call<CourseList>() {
+
+                    @Override
+                    public CourseList call() throws IOException {
+
+                        return fetchCourses(semesterCode, subjectCode, courseNumber, onlyOpen);
+                    }
+                });
+    }
+    
+    /**
+     * Fetches and reads the Courses denoted by the subjectCode and courseNumber in the semesterCode,
+     * without coalescing with other callers.
+     * 
+     * @param semesterCode the year + semester to look in, YYYYMM.
+     * @param subjectCode the 2-4 character subject code identifying the Course.
+     * @param courseNumber the 4 digit courseNumber identifying the Course.
+     * @param onlyOpen true to only get courses that are open.
+     * @return a List of the Courses, empty if there are none.
+     * 
+     * @throws IOException thrown if the timetable couldn't be fetched.
+     */
+    private static CourseList fetchCourses(String semesterCode, String subjectCode, String courseNumber, 
+            boolean onlyOpen) throws IOException {
+        
+        Document doc;
+        
+        if (onlyOpen) {
+            
+            doc = Transport.post(Endpoint.TIMETABLE, Jsoup.connect(Endpoints.timetable()).data("CAMPUS", "0")
+                    .data("TERMYEAR", semesterCode)
+                    .data("SUBJ_CODE", subjectCode)
+                    .data("CRSE_NUMBER", courseNumber)
+                    .data("CORE_CODE", "AR%")
+                    .data("open_only", "on")
+                    .data("history", "N")
+                    .data("PRINT_FRIEND", "Y")
+                    .data("BTN_PRESSED", "Printer Friendly List")
+                    );
+        }
+        else {
+            doc = Transport.post(Endpoint.TIMETABLE, Jsoup.connect(Endpoints.timetable()).data("CAMPUS", "0")
+                    .data("TERMYEAR", semesterCode)
+                    .data("SUBJ_CODE", subjectCode)
+                    .data("CRSE_NUMBER", courseNumber)
+                    .data("CORE_CODE", "AR%")
+                    .data("history", "N")
+                    .data("PRINT_FRIEND", "Y")
+                    .data("BTN_PRESSED", "Printer Friendly List")
+                    );
+        }
+        Elements rows = doc.select("table").get(0).select("tr");
+        
+        return CourseInfo.readRows(rows, true, semesterCode);
+    }
+
     /**
      * Gets the Courses specified by the passed in subjectCode, courseNumber, and teacherName
      * in the specified semesterCode. Returns them in a List<Course>, if no Courses found, return null.
@@ -656,7 +911,7 @@ public class CourseInfo {
      * @return courses List of Course objects that are the specified Course, and taught by the
      *          specified teacher. Returns null if no courses are found.
      */
-    public static List<Course> getCourses(String semesterCode, String subjectCode, String courseNumber, String teacherName) {
+    public static CourseList getCourses(String semesterCode, String subjectCode, String courseNumber, String teacherName) {
         
         return CourseInfo.getCourses(semesterCode, subjectCode, courseNumber, teacherName, false);
     }
@@ -677,68 +932,16 @@ public class CourseInfo {
      * @return courses List of Course objects that are the specified Course, and taught by the
      *          specified teacher. Returns null if no courses are found, or if invalid parameters are passed (i.e. null ).
      */
-    public static List<Course> getCourses(String semesterCode, String subjectCode, String courseNumber, String teacherName, boolean onlyOpen) {
+    public static CourseList getCourses(String semesterCode, String subjectCode, String courseNumber, String teacherName, boolean onlyOpen) {
 
-        try {
-            
-            if (checkSubjectCodeFormat(subjectCode)
-                    && checkCourseNumberFormat(courseNumber)
-                    && Semester.isSemesterCode(semesterCode)
-                    && teacherName != null) {
-            
-                //loop variables
-                Elements rows;
-                Document doc;
-                //------------//
-                
-                if (onlyOpen) {
-                    
-                    doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                            .data("TERMYEAR", semesterCode)
-                            .data("SUBJ_CODE", subjectCode)
-                            .data("CRSE_NUMBER", courseNumber)
-                            .data("CORE_CODE", "AR%")
-                            .data("open_only", "on")
-                            .data("PRINT_FRIEND", "Y")
-                            .data("history", "N")
-                            .data("BTN_PRESSED", "Printer Friendly List")
-                            .timeout(0)
-                            .post();
-                }
-                else {
-                    
-                    doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
-                            .data("TERMYEAR", semesterCode)
-                            .data("SUBJ_CODE", subjectCode)
-                            .data("CRSE_NUMBER", courseNumber)
-                            .data("CORE_CODE", "AR%")
-                            .data("PRINT_FRIEND", "Y")
-                            .data("history", "N")
-                            .data("BTN_PRESSED", "Printer Friendly List")
-                            .timeout(0)
-                            .post();
-                }
-                    
-                rows = doc.select("table").get(0).select("tr");
-                
-                List<Course> tempCourses = CourseInfo.readRows(rows, true);
-                List<Course> courses = new LinkedList<Course>();
-                for (Course c : tempCourses) {
-                    
-                    if (c.getTeacherName().contains(teacherName)) {
-                        
-                        courses.add(c);
-                    }
-                }
-                
-                return courses;
-            }
-        }
-        catch (SocketTimeoutException e) {
-            e.printStackTrace();
-        }
-        catch (IOException e) {
-            e.printStackTrace();
+        if (checkSubjectCodeFormat(subjectCode)
+                && checkCourseNumberFormat(courseNumber)
+                && Semester.isSemesterCode(semesterCode)
+                && teacherName != null) {
+        
+            //the timetable can't filter by teacher, so only the teacher is matched locally
+            return new TimetableQuery(semesterCode).setSubjectCode(subjectCode).setCourseNumber(courseNumber)
+                    .setOnlyOpen(onlyOpen).setTeacherName(teacherName).execute();
         }
         
         return null;
@@ -760,7 +963,7 @@ public class CourseInfo {
      * @return a List of Course objects that comprise the prerequisites
      *          for the Course object passed in. Or null if there are invalid inputs.
      */
-    public static List<Course> getPrerequisites(Course course) {
+    public static CourseList getPrerequisites(Course course) {
         
         return getPrerequisites(course, false);
     }
@@ -778,10 +981,11 @@ public class CourseInfo {
      * 
      * @return a List of Course objects that comprise the prerequisites
      *          for the Course object passed in. The Courses within the List<Course>
-     *          are organized in alphabetical chunks by subject code name.
-     *          Returns null if no prerequisites were found, or if an IOException occurred.
+     *          are organized in alphabetical chunks by subject code name. If the prerequisites, or 
+     *          some of the prerequisite Courses, couldn't be fetched the CourseList is incomplete, 
+     *          and lists them as missing. Returns null if the Course is missing fields.
      */
-    public static List<Course> getPrerequisites(Course course, boolean allowDuplicates) {
+    public static CourseList getPrerequisites(Course course, boolean allowDuplicates) {
         
         if (course != null && course.hasURLFields()) {
             
@@ -790,13 +994,13 @@ public class CourseInfo {
             String year =semesterCode.substring(0, 4);
             String term = semesterCode.substring(4);
             
-            List<Course> courses = new LinkedList<Course>();
+            CourseList courses = new CourseList();
             try {
                 
-                Document prereqDoc = Jsoup.connect(BEFORE_CRN + course.getCrn()
+                Document prereqDoc = Transport.post(Endpoint.COMMENTS, Jsoup.connect(Endpoints.comments() + course.getCrn()
                         + BEFORE_TERM + term + BEFORE_YEAR + year 
                         + BEFORE_SUBJECT + course.getSubjectCode() + BEFORE_CRSE_NUM + course.getCourseNumber()
-                        + END_OF_URL).timeout(0).post();
+                        + END_OF_URL));
                 
                 String preReqText = "";
                 Elements rows;
@@ -807,6 +1011,9 @@ public class CourseInfo {
                 String preReqCourseNumber;
                 String curSemester;
                 
+                ParseEvent parseEvent = new ParseEvent();
+                parseEvent.begin();
+
                 //TODO: here is where the editing is!
                 //rows = prereqDoc.select("body center").get(1).select("table tbody tr").get(14).select("td").get(1).text().trim();
                 rows = prereqDoc.select("body center").get(1).select("table tbody tr");
@@ -823,6 +1030,7 @@ public class CourseInfo {
                 preReqText = preReqText.replaceAll("\\(MIN grade of [A-Z]?\\)", "");
                 preReqText = preReqText.replaceAll("\\(", "");
                 preReqText = preReqText.replaceAll("\\)", "");
+                commitPrerequisites(parseEvent, year + term, course, preReqText);
 
                 //If there are pre-reqs for the current course
                 if (!preReqText.contains("None")) {
@@ -840,7 +1048,17 @@ public class CourseInfo {
                         curSemester = Semester.previousSemesterCode(semesterCode);
                         for (int l = 0; l < 4; l++) {
                             
-                            preReqCourses = getCourses(curSemester, preReqSubjectCode, preReqCourseNumber);
+                            try {
+                                preReqCourses = checkSubjectCodeFormat(preReqSubjectCode) 
+                                        && checkCourseNumberFormat(preReqCourseNumber) 
+                                        ? readCourses(curSemester, preReqSubjectCode, preReqCourseNumber, false) : null;
+                            }
+                            catch (IOException e) {
+                                e.printStackTrace();
+                                PipelineListeners.fireErrorCaught(e);
+                                courses.addMissing(preReqSubjectCode + " " + preReqCourseNumber, e);
+                                break;
+                            }
                             
                             //if preReqCourses were found by getCourses
                             if (preReqCourses != null && preReqCourses.size() > 0) {
@@ -877,6 +1095,8 @@ public class CourseInfo {
             }
             catch (IOException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
+                courses.addMissing(course.getSubjectCode() + " " + course.getCourseNumber(), e);
                 return courses;
             }
         }
@@ -900,7 +1120,7 @@ public class CourseInfo {
      * @return a List of Course objects that comprise the prerequisites
      *          for the Course object passed in. Or null if there are invalid inputs.
      */
-    public static List<Course> getPrerequisites(String subjectCode, String courseNumber) {
+    public static CourseList getPrerequisites(String subjectCode, String courseNumber) {
         
         return getPrerequisites(subjectCode, courseNumber, false);
     }
@@ -918,9 +1138,11 @@ public class CourseInfo {
      *              this method will grab all 5, if it is false, it will grab one, arbitrarily.
      * 
      * @return a List of Course objects that comprise the prerequisites
-     *          for the Course object passed in. Or null if there are invalid inputs.
+     *          for the Course object passed in. If the Course, its prerequisites, or some of the prerequisite
+     *          Courses couldn't be fetched the CourseList is incomplete, and lists them as missing.
+     *          Or null if there are invalid inputs, or the Course wasn't found.
      */
-    public static List<Course> getPrerequisites(String subjectCode, String courseNumber, boolean allowDuplicates) {
+    public static CourseList getPrerequisites(String subjectCode, String courseNumber, boolean allowDuplicates) {
        
         
         if (checkSubjectCodeFormat(subjectCode) 
@@ -928,128 +1150,35 @@ public class CourseInfo {
             
             String semesterCode = Semester.getCurrentSemesterCode();
 
-            String year = semesterCode.substring(0, 4);
-            String term = semesterCode.substring(4);
-
             //get the course info for the passed in subjectCode and courseNumber
             List<Course> tempCourses = null;
             String curSemester = Semester.previousSemesterCode(semesterCode);
             for (int i = 0; i < 4; i++) {
                 
-                tempCourses = getCourses(curSemester, subjectCode, courseNumber);
+                try {
+                    tempCourses = readCourses(curSemester, subjectCode, courseNumber, false);
+                }
+                catch (IOException e) {
+                    e.printStackTrace();
+                    PipelineListeners.fireErrorCaught(e);
+                    
+                    CourseList courses = new CourseList();
+                    courses.addMissing(subjectCode + " " + courseNumber, e);
+                    return courses;
+                }
                 
                 //break when a course is found
-                if (tempCourses != null && tempCourses.size() > 0) {
+                if (tempCourses.size() > 0) {
                     break;
                 }
                 //increment semester
                 curSemester = Semester.nextSemesterCode(curSemester);
             }
-            Course course;
-            
-            //check grabbed courses for a found course
-            if (tempCourses != null && tempCourses.size() > 0) {
-                course = tempCourses.get(0);
-            }
-            else {
-                course = null;
-            }
             
             //a course was found? Has the right fields? Go grab the preReqs!!!!
-            if (course != null && course.hasURLFields()) {
+            if (tempCourses.size() > 0 && tempCourses.get(0).hasURLFields()) {
 
-                List<Course> courses = new LinkedList<Course>();
-                try {
-                    
-                    Document prereqDoc = Jsoup.connect(BEFORE_CRN + course.getCrn()
-                            + BEFORE_TERM + term + BEFORE_YEAR + year 
-                            + BEFORE_SUBJECT + course.getSubjectCode() + BEFORE_CRSE_NUM + course.getCourseNumber()
-                            + END_OF_URL).timeout(0).post();
-                    
-                    String preReqText = "";
-                    Elements rows;
-                    List<Course> preReqCourses = null;
-                    String[] preReqs;
-                    String[] preReqCodes;
-                    String preReqSubjectCode;
-                    String preReqCourseNumber;
-                    
-                    //TODO: here is where the editing is!
-                    //rows = prereqDoc.select("body center").get(1).select("table tbody tr").get(14).select("td").get(1).text().trim();
-                    rows = prereqDoc.select("body center").get(1).select("table tbody tr");
-                    for (Element row : rows) {
-                        
-                        if (row.select("td").get(0).text().trim().contains("Prerequisites:")) {
-                            
-                            preReqText = row.select("td").get(1).text().trim();
-                        }
-                    }
-
-                    //Format the preREqText appropriately
-                    preReqText = preReqText.replaceAll(" or ", ", ");
-                    preReqText = preReqText.replaceAll("\\(MIN grade of [A-Z]?\\)", "");
-                    preReqText = preReqText.replaceAll("\\(", "");
-                    preReqText = preReqText.replaceAll("\\)", "");
-
-                    //If there are pre-reqs for the current course
-                    if (!preReqText.contains("None")) {
-                        
-                        preReqs = preReqText.split(",");
-                        
-                        //loop over pre-reqs
-                        for (int m = 0; m < preReqs.length; m++) {
-                            
-                            preReqCodes = preReqs[m].trim().split(" ");
-                            preReqSubjectCode = preReqCodes[0];
-                            preReqCourseNumber = preReqCodes[1];
-                            
-                            //Loop over 4 semesters to find preReqCourses
-                            curSemester = Semester.previousSemesterCode(year + term);
-                            for (int l = 0; l < 4; l++) {
-                                
-                                preReqCourses = getCourses(curSemester, preReqSubjectCode, preReqCourseNumber);
-                                
-                                //if preReqCourses were found by getCourses
-                                if (preReqCourses != null && preReqCourses.size() > 0) {
-                                    
-                                    //if duplicates are allowed
-                                    if (allowDuplicates) {
-                                        courses.addAll(preReqCourses);
-                                    }
-                                    else {
-                                        courses.add(preReqCourses.get(0));
-                                    }
-                                    preReqCourses.clear();
-                                    break;
-                                }
-                                
-                                curSemester = Semester.nextSemesterCode(curSemester);
-                            }
-                        }
-                    
-                        //remove * Additional Time* courses from preReqCourses list
-                        Iterator<Course> it = courses.iterator();
-                        Course c;
-                        while (it.hasNext()) {
-                            
-                            c = it.next();
-                            
-                            if (c.getName().contains("Additional Time")) {
-                                it.remove();
-                            }
-                        }
-                    
-                    }
-                    return courses;
-                }
-                catch (SocketTimeoutException e) {
-                    e.printStackTrace();
-                    return courses;
-                }
-                catch (IOException e) {
-                    e.printStackTrace();
-                    return courses;
-                }
+                return getPrerequisites(tempCourses.get(0), allowDuplicates);
             }
         }
         
@@ -1177,7 +1306,7 @@ public class CourseInfo {
                     //loop through all of the subject codes passed in.
                     for (String subject : subjects) {
 
-                        doc = Jsoup.connect(NO_LOGIN_TIMETABLE_URL).data("CAMPUS", "0")
+                        doc = Transport.post(Endpoint.TIMETABLE, Jsoup.connect(Endpoints.timetable()).data("CAMPUS", "0")
                                 .data("TERMYEAR", semesterCode)
                                 .data("SCHDTYPE", "%")
                                 .data("SUBJ_CODE", subject)
@@ -1185,11 +1314,10 @@ public class CourseInfo {
                                 .data("PRINT_FRIEND", "Y")
                                 .data("history", "N")
                                 .data("BTN_PRESSED", "Printer Friendly List")
-                                .timeout(0)
-                                .post();
+                                );
     
                         rows = doc.select("table").get(0).select("tr");
-                        passedCourses = readRows(rows, allowDuplicates);
+                        passedCourses = readRows(rows, allowDuplicates, semesterCode);
                         //loop through all of the courses for a subject acquired form readRows (ex. CS, MATH) (all of them!)
                         for (Course p : passedCourses) {
                             
@@ -1217,9 +1345,11 @@ public class CourseInfo {
                 }
                 catch (SocketTimeoutException e) {
                     e.printStackTrace();
+                    PipelineListeners.fireErrorCaught(e);
                 }
                 catch (IOException e) {
                     e.printStackTrace();
+                    PipelineListeners.fireErrorCaught(e);
                 }
             }
         
@@ -1229,6 +1359,29 @@ public class CourseInfo {
     }
     */
     
+    /**
+     * Ends a ParseEvent for the prerequisites text of a Course, and fills in and commits it if
+     * it is being recorded.
+     * 
+     * @param parseEvent the event.
+     * @param semesterCode the semesterCode of the comments page.
+     * @param course the Course whose prerequisites were parsed.
+     * @param preReqText the formatted prerequisites text.
+     */
+    private static void commitPrerequisites(ParseEvent parseEvent, String semesterCode, Course course, String preReqText) {
+        
+        parseEvent.end();
+        if (parseEvent.shouldCommit()) {
+            
+            parseEvent.kind = ParseEvent.PREREQUISITES;
+            parseEvent.term = semesterCode;
+            parseEvent.subject = course.getSubjectCode();
+            parseEvent.rows = preReqText.contains("None") ? 0 : preReqText.split(",").length;
+            parseEvent.bytes = preReqText.length();
+            parseEvent.commit();
+        }
+    }
+    
     /**
      * Helper method. Takes in a String representing a courseNumber and checks to
      * see if it is valid. Valid only if courseNumber is 4 digits.
@@ -1236,7 +1389,7 @@ public class CourseInfo {
      * @param courseNumber String to check for validity.
      * @return true if the courseNumber is valid, false otherwise.
      */
-    private static boolean checkCourseNumberFormat(String courseNumber) {
+    static boolean checkCourseNumberFormat(String courseNumber) {
         
         if (courseNumber != null && courseNumber.length() >= 4) {
             
@@ -1264,7 +1417,7 @@ public class CourseInfo {
      * @param subjectCode the subjectCode to check.
      * @return true if subjectCode is valid, false otherwise.
      */
-    private static boolean checkSubjectCodeFormat(String subjectCode) {
+    static boolean checkSubjectCodeFormat(String subjectCode) {
 
         if (subjectCode != null 
                 && subjectCode.length() >= 2 
@@ -1289,7 +1442,7 @@ public class CourseInfo {
      *          
      * @throws InvalidAreaException thrown if the area String is not allowable
      */
-    private static String checkAreaFormat(String area) throws InvalidAreaException {
+    static String checkAreaFormat(String area) throws InvalidAreaException {
         
         if (area != null) {
             if (area.length() == 1 || area.length() == 2) {
@@ -0,0 +1,207 @@
+package com.vtaccess;
+
+/**
+ * Holds the base URLs of the Virginia Tech servers that Cas, CourseInfo and ScheduleScraper
+ * talk to. They default to the live CAS and banweb servers, and can be pointed somewhere else,
+ * such as a local server replaying recorded pages, either by calling the setters or by setting
+ * the system properties vtaccess.auth.base and vtaccess.banweb.base before this class is loaded.
+ *
+ * A base URL is the scheme, host and port only, e.g. "http://localhost:8080".
+ * Changes take effect on the next request made.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class Endpoints {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The base URL of the live CAS authentication server.
+     */
+    public static final String DEFAULT_AUTH_BASE = "https://auth.vt.edu";
+    /**
+     * The base URL of the live banweb server, which serves HokieSpa and the timetable.
+     */
+    public static final String DEFAULT_BANWEB_BASE = "https://banweb.banner.vt.edu";
+    /**
+     * The system property that the CAS base URL is initially read from.
+     */
+    public static final String AUTH_BASE_PROPERTY = "vtaccess.auth.base";
+    /**
+     * The system property that the banweb base URL is initially read from.
+     */
+    public static final String BANWEB_BASE_PROPERTY = "vtaccess.banweb.base";
+    /**
+     * The path on the CAS server to login to HokieSpa at.
+     */
+    private static final String HOKIESPA_LOGIN_PATH = "/login?service=https://webapps.banner.vt.edu/banner-cas-prod/authorized/banner/SelfService";
+    /**
+     * The path on the CAS server to logout of CAS entirely.
+     */
+    private static final String CAS_LOGOUT_PATH = "/logout";
+    /**
+     * The path on banweb of the Course timetable.
+     */
+    private static final String TIMETABLE_PATH = "/ssb/prod/HZSKVTSC.P_ProcRequest";
+    /**
+     * The path on banweb of the Course comments pop-up, followed by the Course's CRN.
+     */
+    private static final String COMMENTS_PATH = "/ssb/prod/HZSKVTSC.P_ProcComments?CRN=";
+    /**
+     * The path on banweb of the exam time pop-up, followed by the Course's CRN.
+     */
+    private static final String EXAM_TIME_PATH = "/ssb/prod/HZSKVTSC.P_ProcExamTime?CRN=";
+    /**
+     * The path on banweb of the page before the schedule detail page, where the cookies are updated.
+     * Followed by the term.
+     */
+    private static final String SCHEDULE_POPUP_PATH = "/ssb/prod/hzskstat.P_Popup?link_in=hzskschd.P_CrseSchdDetl&term_in=";
+    /**
+     * The path on banweb of the Courses tab on HokieSpa, followed by the term.
+     */
+    private static final String SCHEDULE_DETAIL_PATH = "/ssb/prod/hzskschd.P_DispCrseSchdDetl?term_in=";
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The base URL of the CAS server in use.
+     */
+    private static volatile String authBase = trim(System.getProperty(AUTH_BASE_PROPERTY, DEFAULT_AUTH_BASE));
+    /**
+     * The base URL of the banweb server in use.
+     */
+    private static volatile String banwebBase = trim(System.getProperty(BANWEB_BASE_PROPERTY, DEFAULT_BANWEB_BASE));
+
+    //~Constructors--------------------------------------------
+    /**
+     * Blocked, all methods are static.
+     */
+    private Endpoints() {
+
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Removes any trailing slashes from the passed base URL.
+     *
+     * @param base the base URL.
+     * @return the base URL without trailing slashes.
+     */
+    private static String trim(String base) {
+
+        while (base.endsWith("/")) {
+            base = base.substring(0, base.length() - 1);
+        }
+        return base;
+    }
+
+    /**
+     * Points both servers back at their live defaults.
+     */
+    public static void reset() {
+
+        authBase = DEFAULT_AUTH_BASE;
+        banwebBase = DEFAULT_BANWEB_BASE;
+    }
+
+    /**
+     * Indicates whether the CAS server is reached over SSL.
+     * Cas only grabs the server's certificate when it is.
+     *
+     * @return true if the CAS base URL is https, false otherwise.
+     */
+    public static boolean isAuthSecure() {
+
+        return authBase.startsWith("https:");
+    }
+
+    /**
+     * @return the URL to login to HokieSpa at.
+     */
+    static String hokiespaLogin() {
+
+        return authBase + HOKIESPA_LOGIN_PATH;
+    }
+
+    /**
+     * @return the URL to logout of CAS at.
+     */
+    static String casLogout() {
+
+        return authBase + CAS_LOGOUT_PATH;
+    }
+
+    /**
+     * @return the URL of the Course timetable.
+     */
+    public static String timetable() {
+
+        return banwebBase + TIMETABLE_PATH;
+    }
+
+    /**
+     * @return the URL of the Course comments pop-up, the CRN and remaining parameters must be appended.
+     */
+    static String comments() {
+
+        return banwebBase + COMMENTS_PATH;
+    }
+
+    /**
+     * @return the URL of the exam time pop-up, the CRN and remaining parameters must be appended.
+     */
+    static String examTime() {
+
+        return banwebBase + EXAM_TIME_PATH;
+    }
+
+    /**
+     * @return the URL of the page before the schedule detail page, the term must be appended.
+     */
+    static String schedulePopup() {
+
+        return banwebBase + SCHEDULE_POPUP_PATH;
+    }
+
+    /**
+     * @return the URL of the schedule detail page, the term must be appended.
+     */
+    static String scheduleDetail() {
+
+        return banwebBase + SCHEDULE_DETAIL_PATH;
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the base URL of the CAS server in use.
+     */
+    public static String getAuthBase() {
+
+        return authBase;
+    }
+
+    /**
+     * @param base the base URL of the CAS server to use, e.g. "http://localhost:8080".
+     *          Null to use the live server.
+     */
+    public static void setAuthBase(String base) {
+
+        authBase = (base == null) ? DEFAULT_AUTH_BASE : trim(base);
+    }
+
+    /**
+     * @return the base URL of the banweb server in use.
+     */
+    public static String getBanwebBase() {
+
+        return banwebBase;
+    }
+
+    /**
+     * @param base the base URL of the banweb server to use, e.g. "http://localhost:8080".
+     *          Null to use the live server.
+     */
+    public static void setBanwebBase(String base) {
+
+        banwebBase = (base == null) ? DEFAULT_BANWEB_BASE : trim(base);
+    }
+}
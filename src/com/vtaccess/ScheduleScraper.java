@@ -10,10 +10,16 @@ import org.jsoup.Connection.Method;
 import org.jsoup.Connection.Response;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
+import com.vtaccess.event.PipelineListeners;
 import com.vtaccess.exceptions.HokieSpaTimeoutException;
 import com.vtaccess.exceptions.WrongLoginException;
+import com.vtaccess.jfr.ParseEvent;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.net.SingleFlight;
+import com.vtaccess.net.Transport;
 import com.vtaccess.schedule.Course;
 import com.vtaccess.schedule.Schedule;
+import com.vtaccess.schedule.StringPool;
 
 /**
  * ScheduleScraper class that can be used to scrape the 
@@ -27,14 +33,6 @@ import com.vtaccess.schedule.Schedule;
 public class ScheduleScraper {
 
     //~Constants--------------------------------------------
-    /**
-     * The URL for the page before the HOKIESPA constant's URL where the cookies are updated.
-     */
-    private static final String HOKIESTOP = "https://banweb.banner.vt.edu/ssb/prod/hzskstat.P_Popup?link_in=hzskschd.P_CrseSchdDetl&term_in=";
-    /**
-     * The URL for the Courses tab on HokieSpa, minus the term (Term must be added to the end, in format yyyymm).
-     */
-    private static final String HOKIESPA = "https://banweb.banner.vt.edu/ssb/prod/hzskschd.P_DispCrseSchdDetl?term_in=";
     /**
      * The portion of the URL for the HokieSpa URL that goes at the end, the
      * term date is sandwiched in between, the main URL portion and this one.
@@ -55,11 +53,6 @@ public class ScheduleScraper {
     // ~Exam Time Constants---------------------------------------------------------------
     // The following static strings together with the correct variables make up
     // the appropriate URL to get exam times.
-    /**
-     * Final Exam URL part 1.
-     * Portion of the URL that is followed by the Course's CRN
-     */
-    private static final String BEFORE_CRN = "https://banweb.banner.vt.edu/ssb/prod/HZSKVTSC.P_ProcExamTime?CRN=";
     /**
      * Final Exam URL part 2.
      * Portion of the URL that is followed by the Course's subject.
@@ -85,6 +78,12 @@ public class ScheduleScraper {
      * Portion of the URL that is followed by the Exam's identification number.
      */
     private static final String BEFORE_EXAMNUM = "&EXAMNUM=";
+    /**
+     * Coalesces concurrent requests for the same exam's times, e.g. everyone in a large class loading
+     * their exam schedule at once, into one fetch. Shares the fields read from the exam page, each caller
+     * builds its own Course from them.
+     */
+    private static final SingleFlight<String[]> EXAM_FLIGHTS = new SingleFlight<String[]>("examTime", null);
     
     //~Data Fields-----------------------------------------------------------
     /**
@@ -193,28 +192,30 @@ public class ScheduleScraper {
                 if (cookies.get("IDMSESSID") != null) {
                     
                     // to get the cookies that are updated with the click
-                    Response hokieResp = Jsoup
-                            .connect(HOKIESTOP + semesterCode + ENDOFURL)
+                    Response hokieResp = Transport.execute(Endpoint.SCHEDULE_POPUP, Jsoup
+                            .connect(Endpoints.schedulePopup() + semesterCode + ENDOFURL)
                             .cookie("IDMSESSID", cookies.get("IDMSESSID"))
                             .cookie("SESSID", cookies.get("SESSID"))
                             .userAgent(AGENTS)
-                            .method(Method.GET)
-                            .execute();
+                            .method(Method.GET));
         
                     cookies.put("SESSID", hokieResp.cookies().get("SESSID"));
         
                     // go to the detailed schedule page
-                    Document hokieDoc = Jsoup.connect(HOKIESPA + semesterCode)
+                    Document hokieDoc = Transport.post(Endpoint.SCHEDULE_DETAIL, Jsoup.connect(Endpoints.scheduleDetail() + semesterCode)
                             .cookie("IDMSESSID", cookies.get("IDMSESSID"))
                             .cookie("SESSID", cookies.get("SESSID"))
                             .userAgent(AGENTS)
-                            .referrer(HOKIESTOP + semesterCode + ENDOFURL)
-                            .post();
+                            .referrer(Endpoints.schedulePopup() + semesterCode + ENDOFURL));
+                    
+                    ParseEvent parseEvent = new ParseEvent();
+                    parseEvent.begin();
                     
                     Elements courseTable = hokieDoc.select("body center table tbody");
                     Elements rows = courseTable.select("tr");
         
                     Elements cols;
+                    StringPool pool = StringPool.forTerm(semesterCode);
                     Course course;
                     String tempCrn;
                     String tempCourseCode;
@@ -292,9 +293,11 @@ public class ScheduleScraper {
         
                             // Teacher name
                             course.setTeacherName(cols.get(7).text());
+                            course.canonicalize(pool);
         
                             // days
                             schedule.setCourseInDays(course, cols.get(5).text());
+                            PipelineListeners.fireCourseEmitted(course);
                         }
                         // otherwise the row is normal, proceed
                         else {
@@ -379,6 +382,7 @@ public class ScheduleScraper {
         
                             // Teacher name
                             course.setTeacherName(cols.get(8).text());
+                            course.canonicalize(pool);
         
                             // days
                             if (cols.get(6).text().equals("(ARR)")
@@ -386,15 +390,18 @@ public class ScheduleScraper {
         
                                 // if days are tba or ARR (MOST LIKELY ONLINE CLASS!!!)
                                 schedule.setCourseInDays(course, "AnyDay");
+                                PipelineListeners.fireCourseEmitted(course);
                             }
                             else {
         
                                 // normal days
                                 schedule.setCourseInDays(course, cols.get(6).text());
+                                PipelineListeners.fireCourseEmitted(course);
                             }
                         }
                     }
                     
+                    commitTable(parseEvent, ParseEvent.SCHEDULE_TABLE, semesterCode, rows.size());
                     return true;
                 }
                 
@@ -402,18 +409,22 @@ public class ScheduleScraper {
             }
             catch (FileNotFoundException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
                 System.out.println("FILENOTFOUNDEXCEPT");
             }
             catch (SecurityException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
                 System.out.println("SECURITYEXCEPT");
             }
             catch (UnknownHostException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
                 System.out.println("UNKNOWNHOSTEXCEPT");
             }
             catch (IOException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
                 System.out.println("IOEXCEPT");
             }
         }
@@ -424,14 +435,16 @@ public class ScheduleScraper {
     /**
      * Get the final exam schedule for the specified semester and fill the
      * passed in List<Course> with Course objects representing the final
-     * exam dates, and names. returns false if there's an error, true otherwise
+     * exam dates, and names. returns false if there's an error, true otherwise.
+     * If only some of the exams couldn't be fetched, examList holds the ones that were,
+     * but false is still returned so the list isn't mistaken for the whole schedule.
      * 
      * @param semesterCode
      *            the numerical identifier of the semester, that is to be
      *            implanted into the URL, along with the year. (ex. YYYYMM)
      * @param examList
      *            the ArrayList>Course> to fill up for the user
-     * @return true if no errors, false if there are any IOExceptions
+     * @return true if every exam was retrieved, false if there are any IOExceptions
      */
     public boolean retrieveExamSchedule(String semesterCode,
             List<Course> examList) {
@@ -450,30 +463,32 @@ public class ScheduleScraper {
                 }
                 
                 // to get the cookies that are updated with the click
-                Response hokieResp = Jsoup
-                        .connect(HOKIESTOP + semesterCode + ENDOFURL)
+                Response hokieResp = Transport.execute(Endpoint.SCHEDULE_POPUP, Jsoup
+                        .connect(Endpoints.schedulePopup() + semesterCode + ENDOFURL)
                         .cookie("IDMSESSID", cookies.get("IDMSESSID"))
                         .cookie("SESSID", cookies.get("SESSID"))
                         .userAgent(AGENTS)
-                        .method(Method.GET)
-                        .execute();
+                        .method(Method.GET));
     
                 cookies.put("SESSID", hokieResp.cookies().get("SESSID"));
     
                 // go to the detailed schedule page
-                Document hokieDoc = Jsoup
-                        .connect(HOKIESPA + semesterCode + PRINT_FRIENDLY)
+                Document hokieDoc = Transport.post(Endpoint.SCHEDULE_DETAIL, Jsoup
+                        .connect(Endpoints.scheduleDetail() + semesterCode + PRINT_FRIENDLY)
                         .cookie("IDMSESSID", cookies.get("IDMSESSID"))
                         .cookie("SESSID", cookies.get("SESSID")).userAgent(AGENTS)
-                        .referrer(HOKIESTOP + semesterCode + ENDOFURL)
-                        .post();
+                        .referrer(Endpoints.schedulePopup() + semesterCode + ENDOFURL));
     
                 // the Elements that will get down to the needed fields
+                ParseEvent parseEvent = new ParseEvent();
+                parseEvent.begin();
+                
                 Elements table = hokieDoc.select("body table");
                 if (table.size() > 1) {
                     
                     Elements rows = table.get(1).select("tr");
                     Elements cols;
+                    boolean complete = true;
         
                     // the strings that will be used to construct the url for the pages
                     // holding the exam information
@@ -508,19 +523,25 @@ public class ScheduleScraper {
                                 additive = retrieveExamTimes(name, crn, course[0], course[1],
                                         semesterCode, examID, cookies);
                                 
-                                // check for null course
+                                // a null course means its exam couldn't be fetched
                                 if (additive != null) {
                                     examList.add(additive);
+                                    PipelineListeners.fireCourseEmitted(additive);
+                                }
+                                else {
+                                    complete = false;
                                 }
                             }
                         }
                     }
     
-                    return true;
+                    commitTable(parseEvent, ParseEvent.EXAM_TABLE, semesterCode, rows.size());
+                    return complete;
                 }
             }
             catch (IOException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
             }
         }
         
@@ -567,28 +588,16 @@ public class ScheduleScraper {
                     examID = "XXX";
                 }
                 
-                Document examDoc = Jsoup
-                        .connect(
-                                BEFORE_CRN + crn + BEFORE_SUBJECT + courseID
-                                        + BEFORE_CRSE_NUM + courseNum + BEFORE_TERM
-                                        + semesterCode.substring(4, 6) + BEFORE_YEAR 
-                                        + semesterCode.substring(0, 4)
-                                        + BEFORE_EXAMNUM + examID)
-                        .cookie("IDMSESSID", cookies.get("IDMSESSID"))
-                        .cookie("SESSID", cookies.get("SESSID"))
-                        .referrer(HOKIESTOP + semesterCode + ENDOFURL).get();
-    
-                Elements rows = examDoc.select("body table tr");
-                
-                String[] courseCode = Course.splitCourseCode(rows.get(2).text().substring(7).trim());
+                String[] fields = readExamTimes(crn, courseID, courseNum, semesterCode, examID, cookies);
     
                 // create the new course object
                 // name, subject code, course number, begin, end, date
-                course = new Course(name, courseCode[0], courseCode[1], rows.get(4).text().substring(11).trim(),
-                        rows.get(5).text().substring(9).trim(), rows.get(3).text().substring(10).trim());
+                course = new Course(name, fields[0], fields[1], fields[2], fields[3], fields[4]);
+                course.canonicalize(StringPool.forTerm(semesterCode));
             }
             catch (IOException e) {
                 e.printStackTrace();
+                PipelineListeners.fireErrorCaught(e);
     
                 // set course to null, must check for this when calling method,
                 // include in javadoc
@@ -601,6 +610,72 @@ public class ScheduleScraper {
         return null;
     }
     
+    /**
+     * Fetches and reads the times of an exam. Concurrent calls for the same exam share one fetch,
+     * made with the cookies of whichever caller came first.
+     * 
+     * @param crn course's CRN.
+     * @param courseID the courses 2-4 digit subject code.
+     * @param courseNum the course's number.
+     * @param semesterCode the numerical identifier of the semester. (ex. YYYYMM)
+     * @param examID the exam id code that VT uses, XXX for CTE.
+     * @param cookies the cookies of the CAS session.
+     * @return the subject code, course number, beginning time, ending time and date of the exam, 
+     *          which callers must not change.
+     * 
+     * @throws IOException thrown if the exam page couldn't be fetched.
+     */
+    private static String[] readExamTimes(final String crn, final String courseID, final String courseNum, 
+            final String semesterCode, final String examID, final Map<String, String> cookies) throws IOException {
+        
+        return EXAM_FLIGHTS.execute(crn + "|" + courseID + "|" + courseNum + "|" + semesterCode + "|" + examID, 
+                new SingleFlight.Call<String[]>() {
+            
+                    @Override
+                    public String[] call() throws IOException {
+                        
+                        Document examDoc = Transport.get(Endpoint.EXAM_TIME, Jsoup
+                                .connect(
+                                        Endpoints.examTime() + crn + BEFORE_SUBJECT + courseID
+                                                + BEFORE_CRSE_NUM + courseNum + BEFORE_TERM
+                                                + semesterCode.substring(4, 6) + BEFORE_YEAR 
+                                                + semesterCode.substring(0, 4)
+                                                + BEFORE_EXAMNUM + examID)
+                                .cookie("IDMSESSID", cookies.get("IDMSESSID"))
+                                .cookie("SESSID", cookies.get("SESSID"))
+                                .referrer(Endpoints.schedulePopup() + semesterCode + ENDOFURL));
+            
+                        Elements rows = examDoc.select("body table tr");
+                        
+                        String[] courseCode = Course.splitCourseCode(rows.get(2).text().substring(7).trim());
+                        
+                        return new String[] {courseCode[0], courseCode[1], rows.get(4).text().substring(11).trim(),
+                                rows.get(5).text().substring(9).trim(), rows.get(3).text().substring(10).trim()};
+                    }
+                });
+    }
+    
+    /**
+     * Ends a ParseEvent for the table of a schedule detail page, and fills in and commits it
+     * if it is being recorded.
+     * 
+     * @param parseEvent the event.
+     * @param kind the kind of table, SCHEDULE_TABLE or EXAM_TABLE.
+     * @param semesterCode the semesterCode of the schedule.
+     * @param rows the number of rows in the table.
+     */
+    private static void commitTable(ParseEvent parseEvent, String kind, String semesterCode, int rows) {
+        
+        parseEvent.end();
+        if (parseEvent.shouldCommit()) {
+            
+            parseEvent.kind = kind;
+            parseEvent.term = semesterCode;
+            parseEvent.rows = rows;
+            parseEvent.commit();
+        }
+    }
+    
     /**
      * Closes the CAS session stored within this class.
      * @return true if successful, false if an error occurred.
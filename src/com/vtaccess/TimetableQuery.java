@@ -0,0 +1,442 @@
+package com.vtaccess;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+import com.vtaccess.event.PipelineListeners;
+import com.vtaccess.exceptions.InvalidAreaException;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.net.SingleFlight;
+import com.vtaccess.net.Transport;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseList;
+
+/**
+ * A query of the timetable of a term. Each predicate set is pushed into the parameters POSTed to the timetable
+ * whenever its form has a field for it, so banweb returns only the matching rows and a smaller page is sent and
+ * parsed, and only the remainder is applied to the rows read:
+ *
+ *      CourseList found = new TimetableQuery("201309").setSubjectCode("CS").setCourseNumber("2114")
+ *              .setTeacherName("McQuain").setDays("TR").execute();
+ *
+ * Pushed into the POST: the subject code, course number, CRN, Area (CORE_CODE), schedule type, campus and open
+ * only. Applied to the rows read: the teacher's name, days, credits and building, which the form can't filter by.
+ *
+ * A query must have a subject code, CRN or Area, as banweb won't list a whole term at once. Queries are fetched
+ * through CourseInfo, so they share the CatalogCache and coalesce with concurrent equal queries, and the rows
+ * read are indexed in the CourseIndex.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class TimetableQuery {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The schedule type the timetable's form matches any schedule type with.
+     */
+    private static final String ANY_SCHEDULE_TYPE = "%";
+    /**
+     * The campus the timetable's form matches any campus with.
+     */
+    private static final String ANY_CAMPUS = "0";
+    /**
+     * The Area the timetable's form matches any Area, or none, with.
+     */
+    private static final String ANY_AREA = "AR%";
+    /**
+     * The name banweb gives the additional times of a Course, which are never dropped as duplicates.
+     */
+    private static final String ADDITIONAL_TIME = "* Additional Time *";
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The semesterCode of the term queried.
+     */
+    private final String semesterCode;
+    /**
+     * The subject code pushed to banweb, null if unset.
+     */
+    private String subjectCode;
+    /**
+     * The course number pushed to banweb, null if unset.
+     */
+    private String courseNumber;
+    /**
+     * The CRN pushed to banweb, null if unset.
+     */
+    private String crn;
+    /**
+     * The checked Area code pushed to banweb, null if unset.
+     */
+    private String area;
+    /**
+     * The schedule type code pushed to banweb.
+     */
+    private String scheduleType;
+    /**
+     * The campus code pushed to banweb.
+     */
+    private String campus;
+    /**
+     * True to only match open Courses, pushed to banweb.
+     */
+    private boolean onlyOpen;
+    /**
+     * Part of the teacher's name matched on the rows read, null if unset.
+     */
+    private String teacherName;
+    /**
+     * The letters of the days matched on the rows read, null if unset.
+     */
+    private String days;
+    /**
+     * The credits matched on the rows read, -1 if unset.
+     */
+    private int credits;
+    /**
+     * The building code matched on the rows read, null if unset.
+     */
+    private String building;
+    /**
+     * True to keep every section of a Course, false to keep the first only.
+     */
+    private boolean allowDuplicates;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a query of a term matching every Course, with duplicates allowed.
+     *
+     * @param semesterCode the semesterCode, YYYYMM, of the term.
+     */
+    public TimetableQuery(String semesterCode) {
+
+        this.semesterCode = semesterCode;
+        scheduleType = ANY_SCHEDULE_TYPE;
+        campus = ANY_CAMPUS;
+        credits = -1;
+        allowDuplicates = true;
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Runs the query.
+     *
+     * @return the Courses matching every predicate, in the order banweb lists them. Marked stale if served
+     *          from the CatalogCache. Or null if the query is invalid, or couldn't be fetched.
+     */
+    public CourseList execute() {
+
+        if (!isValid()) {
+            return null;
+        }
+
+        //with local predicates, duplicates can only be dropped once the others are filtered out
+        final boolean readDuplicates = allowDuplicates || hasLocalPredicates();
+        final Map<String, String> parameters = getParameters();
+        try {
+
+            CourseList rows = CourseInfo.readShared(getKey(parameters, readDuplicates),
+                    new SingleFlight.Call<CourseList>() {
+
+                        @Override
+                        public CourseList call() throws IOException {
+
+                            return fetch(parameters, readDuplicates);
+                        }
+                    });
+            return filter(rows);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
+        }
+        return null;
+    }
+
+    /**
+     * Helper method, fetches and reads the rows banweb returns for the parameters.
+     *
+     * @param parameters the parameters to POST.
+     * @param readDuplicates true to read every section of a Course, false to read the first only.
+     * @return the Courses read.
+     *
+     * @throws IOException thrown if the timetable couldn't be fetched.
+     */
+    private CourseList fetch(Map<String, String> parameters, boolean readDuplicates) throws IOException {
+
+        Connection connection = Jsoup.connect(Endpoints.timetable());
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            connection.data(parameter.getKey(), parameter.getValue());
+        }
+
+        Document doc = Transport.post(Endpoint.TIMETABLE, connection);
+        Elements rows = doc.select("table").get(0).select("tr");
+
+        CourseList courses = CourseInfo.readRows(rows, readDuplicates, semesterCode);
+        CourseIndex.getDefault().index(semesterCode, courses);
+        return courses;
+    }
+
+    /**
+     * Helper method, applies the local predicates to the rows read, then drops duplicates if they aren't allowed.
+     *
+     * @param rows the rows read, changed in place.
+     * @return rows.
+     */
+    private CourseList filter(CourseList rows) {
+
+        if (!hasLocalPredicates()) {
+            return rows;
+        }
+
+        Course kept = null;
+        Iterator<Course> it = rows.iterator();
+        while (it.hasNext()) {
+
+            Course course = it.next();
+            if (!matches(course)) {
+                it.remove();
+            }
+            else if (!allowDuplicates && kept != null && !course.getName().contains(ADDITIONAL_TIME)
+                    && course.getCourseCode().equals(kept.getCourseCode())) {
+                it.remove();
+            }
+            else {
+                kept = course;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Checks a Course against the local predicates.
+     *
+     * @param course the Course.
+     * @return true if the Course matches every local predicate, false otherwise.
+     */
+    public boolean matches(Course course) {
+
+        if (teacherName != null && (course.getTeacherName() == null || !course.getTeacherName().contains(teacherName))) {
+            return false;
+        }
+        if (days != null) {
+
+            if (course.getDays() == null) {
+                return false;
+            }
+            for (int i = 0; i < days.length(); i++) {
+
+                if (course.getDays().indexOf(days.charAt(i)) < 0) {
+                    return false;
+                }
+            }
+        }
+        if (credits >= 0 && course.getCredits() != credits) {
+            return false;
+        }
+        return building == null || building.equalsIgnoreCase(course.getBuilding());
+    }
+
+    /**
+     * Gets the parameters POSTed to the timetable, holding every server side predicate.
+     *
+     * @return the parameters, by name, in the order they are sent.
+     */
+    public Map<String, String> getParameters() {
+
+        Map<String, String> parameters = new LinkedHashMap<String, String>();
+        parameters.put("CAMPUS", campus);
+        parameters.put("TERMYEAR", semesterCode);
+        parameters.put("SCHDTYPE", scheduleType);
+        if (subjectCode != null) {
+            parameters.put("SUBJ_CODE", subjectCode);
+        }
+        if (courseNumber != null) {
+            parameters.put("CRSE_NUMBER", courseNumber);
+        }
+        if (crn != null) {
+            parameters.put("crn", crn);
+        }
+        parameters.put("CORE_CODE", area == null ? ANY_AREA : area);
+        if (onlyOpen) {
+            parameters.put("open_only", "on");
+        }
+        parameters.put("PRINT_FRIEND", "Y");
+        parameters.put("history", "N");
+        parameters.put("BTN_PRESSED", "Printer Friendly List");
+        return parameters;
+    }
+
+    /**
+     * @return true if the query has a valid term, and a subject code, CRN or Area, false otherwise.
+     */
+    public boolean isValid() {
+
+        return Semester.isSemesterCode(semesterCode) && (subjectCode != null || crn != null || area != null);
+    }
+
+    /**
+     * @return true if some predicates can't be pushed to banweb, and are applied to the rows read.
+     */
+    public boolean hasLocalPredicates() {
+
+        return teacherName != null || days != null || credits >= 0 || building != null;
+    }
+
+    /**
+     * Helper method, gets the key the CatalogCache keeps the rows of a query under.
+     *
+     * @param parameters the parameters POSTed.
+     * @param readDuplicates true if every section of a Course is read.
+     * @return the key.
+     */
+    private static String getKey(Map<String, String> parameters, boolean readDuplicates) {
+
+        StringBuilder key = new StringBuilder("query|").append(readDuplicates);
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            key.append('|').append(parameter.getKey()).append('=').append(parameter.getValue());
+        }
+        return key.toString();
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the semesterCode of the term queried.
+     */
+    public String getSemesterCode() {
+
+        return semesterCode;
+    }
+
+    /**
+     * @param subjectCode the 2-4 character subject code, e.g. CS, pushed to banweb. Invalid ones unset it.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setSubjectCode(String subjectCode) {
+
+        this.subjectCode = CourseInfo.checkSubjectCodeFormat(subjectCode) ? subjectCode : null;
+        return this;
+    }
+
+    /**
+     * @param courseNumber the 4 digit course number, e.g. 2114, pushed to banweb. Invalid ones unset it.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setCourseNumber(String courseNumber) {
+
+        this.courseNumber = courseNumber != null && CourseInfo.checkCourseNumberFormat(courseNumber)
+                ? courseNumber : null;
+        return this;
+    }
+
+    /**
+     * @param crn the CRN, pushed to banweb, null to unset it.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setCrn(String crn) {
+
+        this.crn = crn;
+        return this;
+    }
+
+    /**
+     * @param area the number of the Area, or 1W, pushed to banweb, null to unset it.
+     * @return this TimetableQuery.
+     *
+     * @throws InvalidAreaException thrown if the area doesn't designate any valid Area.
+     */
+    public TimetableQuery setArea(String area) throws InvalidAreaException {
+
+        this.area = area == null ? null : CourseInfo.checkAreaFormat(area);
+        return this;
+    }
+
+    /**
+     * @param scheduleType the timetable's code of a schedule type, e.g. L for lectures, pushed to banweb.
+     *          Null matches any.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setScheduleType(String scheduleType) {
+
+        this.scheduleType = scheduleType == null ? ANY_SCHEDULE_TYPE : scheduleType;
+        return this;
+    }
+
+    /**
+     * @param campus the timetable's code of a campus, pushed to banweb. Null matches any.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setCampus(String campus) {
+
+        this.campus = campus == null ? ANY_CAMPUS : campus;
+        return this;
+    }
+
+    /**
+     * @param onlyOpen true to only match Courses that are open, pushed to banweb.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setOnlyOpen(boolean onlyOpen) {
+
+        this.onlyOpen = onlyOpen;
+        return this;
+    }
+
+    /**
+     * @param teacherName part of the teacher's name, e.g. the last name, matched on the rows read.
+     *          Null to unset it.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setTeacherName(String teacherName) {
+
+        this.teacherName = teacherName;
+        return this;
+    }
+
+    /**
+     * @param days letters of days the Course must be on, e.g. TR, matched on the rows read. Null to unset it.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setDays(String days) {
+
+        this.days = days;
+        return this;
+    }
+
+    /**
+     * @param credits the number of credits the Course must be worth, matched on the rows read. -1 to unset it.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setCredits(int credits) {
+
+        this.credits = credits;
+        return this;
+    }
+
+    /**
+     * @param building the building code the Course must be in, e.g. TORG, matched on the rows read.
+     *          Null to unset it.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setBuilding(String building) {
+
+        this.building = building;
+        return this;
+    }
+
+    /**
+     * @param allowDuplicates true to keep every section of a Course, false to keep the first only.
+     * @return this TimetableQuery.
+     */
+    public TimetableQuery setAllowDuplicates(boolean allowDuplicates) {
+
+        this.allowDuplicates = allowDuplicates;
+        return this;
+    }
+}
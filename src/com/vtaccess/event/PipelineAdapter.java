@@ -0,0 +1,52 @@
+package com.vtaccess.event;
+
+import java.net.URL;
+import org.jsoup.nodes.Document;
+import com.vtaccess.Cas;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.schedule.Course;
+
+/**
+ * A PipelineListener that does nothing. Extend it and override only the calls you need.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public abstract class PipelineAdapter implements PipelineListener {
+
+    //~Methods-------------------------------------------------
+    @Override
+    public void requestStarted(Endpoint endpoint, URL url) {
+
+    }
+
+    @Override
+    public void requestEnded(Endpoint endpoint, URL url, long nanos, long bytes, Throwable error) {
+
+    }
+
+    @Override
+    public void pageParsed(Endpoint endpoint, URL url, Document page) {
+
+    }
+
+    @Override
+    public void courseEmitted(Course course) {
+
+    }
+
+    @Override
+    public void loggedIn(Cas cas) {
+
+    }
+
+    @Override
+    public void sessionRefreshed(Cas cas, boolean succeeded) {
+
+    }
+
+    @Override
+    public void errorCaught(Throwable error) {
+
+    }
+}
@@ -0,0 +1,79 @@
+package com.vtaccess.event;
+
+import java.net.URL;
+import org.jsoup.nodes.Document;
+import com.vtaccess.Cas;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.schedule.Course;
+
+/**
+ * Receives the activity of the scraping pipeline: every request made to the CAS and banweb servers,
+ * every page parsed, every Course read from a page, every login and refresh of a Cas session, and
+ * every error caught along the way. Register one with PipelineListeners.add.
+ * 
+ * Listeners are called on the thread doing the work, so they should return quickly; hand anything
+ * slow off to another thread. Extend PipelineAdapter to only receive some of the calls.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public interface PipelineListener {
+
+    /**
+     * Called before a request is sent.
+     * 
+     * @param endpoint the Endpoint the request is for.
+     * @param url the URL requested, null if it isn't known.
+     */
+    void requestStarted(Endpoint endpoint, URL url);
+    
+    /**
+     * Called after a request's response is read, or after it failed.
+     * 
+     * @param endpoint the Endpoint the request was for.
+     * @param url the URL requested, null if it isn't known.
+     * @param nanos the time the request took, in nanoseconds.
+     * @param bytes the bytes received.
+     * @param error what the request failed with, null if it succeeded.
+     */
+    void requestEnded(Endpoint endpoint, URL url, long nanos, long bytes, Throwable error);
+    
+    /**
+     * Called after a response is parsed into a page.
+     * 
+     * @param endpoint the Endpoint the page is from.
+     * @param url the URL of the page.
+     * @param page the parsed page, which must not be modified.
+     */
+    void pageParsed(Endpoint endpoint, URL url, Document page);
+    
+    /**
+     * Called for each Course read from a timetable, schedule or exam page.
+     * 
+     * @param course the Course.
+     */
+    void courseEmitted(Course course);
+    
+    /**
+     * Called after a Cas session logs in, including when it logs in again to refresh.
+     * 
+     * @param cas the Cas session.
+     */
+    void loggedIn(Cas cas);
+    
+    /**
+     * Called after a Cas session that timed out has tried to log in again.
+     * 
+     * @param cas the Cas session.
+     * @param succeeded true if the session was refreshed.
+     */
+    void sessionRefreshed(Cas cas, boolean succeeded);
+    
+    /**
+     * Called when an error is caught and handled by CourseInfo, ScheduleScraper or Cas,
+     * that is, when they give up and return null or false.
+     * 
+     * @param error the error.
+     */
+    void errorCaught(Throwable error);
+}
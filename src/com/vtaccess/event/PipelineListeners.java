@@ -0,0 +1,239 @@
+package com.vtaccess.event;
+
+import java.net.URL;
+import org.jsoup.nodes.Document;
+import com.vtaccess.Cas;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.schedule.Course;
+
+/**
+ * Holds the registered PipelineListeners, and calls them for CourseInfo, ScheduleScraper, Cas and Transport.
+ *
+ * The listeners are kept in an array that is replaced whenever one is added or removed, so calling them
+ * takes no lock and allocates nothing. With no listeners registered each fire method is a read of the array
+ * and an empty loop, so they are safe to leave on the hot paths. A listener that throws is reported and
+ * skipped, it never breaks the pipeline.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class PipelineListeners {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The listeners when none are registered.
+     */
+    private static final PipelineListener[] NONE = new PipelineListener[0];
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The registered listeners, replaced rather than modified.
+     */
+    private static volatile PipelineListener[] listeners = NONE;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Blocked, all methods are static.
+     */
+    private PipelineListeners() {
+
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Registers a listener. Registering the same listener twice makes it be called twice.
+     *
+     * @param listener the listener.
+     */
+    public static synchronized void add(PipelineListener listener) {
+
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is null");
+        }
+
+        PipelineListener[] added = new PipelineListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, added, 0, listeners.length);
+        added[listeners.length] = listener;
+        listeners = added;
+    }
+
+    /**
+     * Unregisters a listener, once if it was registered more than once.
+     *
+     * @param listener the listener.
+     * @return true if the listener was registered.
+     */
+    public static synchronized boolean remove(PipelineListener listener) {
+
+        for (int i = 0; i < listeners.length; i++) {
+
+            if (listeners[i] == listener) {
+
+                PipelineListener[] removed = listeners.length == 1 ? NONE : new PipelineListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, removed, 0, i);
+                System.arraycopy(listeners, i + 1, removed, i, listeners.length - i - 1);
+                listeners = removed;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Unregisters every listener.
+     */
+    public static synchronized void clear() {
+
+        listeners = NONE;
+    }
+
+    /**
+     * @return true if any listeners are registered.
+     */
+    public static boolean isListening() {
+
+        return listeners.length > 0;
+    }
+
+    /**
+     * See PipelineListener.requestStarted.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param url the URL requested, null if it isn't known.
+     */
+    public static void fireRequestStarted(Endpoint endpoint, URL url) {
+
+        PipelineListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+
+            try {
+                current[i].requestStarted(endpoint, url);
+            }
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * See PipelineListener.requestEnded.
+     *
+     * @param endpoint the Endpoint the request was for.
+     * @param url the URL requested, null if it isn't known.
+     * @param nanos the time the request took, in nanoseconds.
+     * @param bytes the bytes received.
+     * @param error what the request failed with, null if it succeeded.
+     */
+    public static void fireRequestEnded(Endpoint endpoint, URL url, long nanos, long bytes, Throwable error) {
+
+        PipelineListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+
+            try {
+                current[i].requestEnded(endpoint, url, nanos, bytes, error);
+            }
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * See PipelineListener.pageParsed.
+     *
+     * @param endpoint the Endpoint the page is from.
+     * @param url the URL of the page.
+     * @param page the parsed page.
+     */
+    public static void firePageParsed(Endpoint endpoint, URL url, Document page) {
+
+        PipelineListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+
+            try {
+                current[i].pageParsed(endpoint, url, page);
+            }
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * See PipelineListener.courseEmitted.
+     *
+     * @param course the Course.
+     */
+    public static void fireCourseEmitted(Course course) {
+
+        PipelineListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+
+            try {
+                current[i].courseEmitted(course);
+            }
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * See PipelineListener.loggedIn.
+     *
+     * @param cas the Cas session.
+     */
+    public static void fireLoggedIn(Cas cas) {
+
+        PipelineListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+
+            try {
+                current[i].loggedIn(cas);
+            }
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * See PipelineListener.sessionRefreshed.
+     *
+     * @param cas the Cas session.
+     * @param succeeded true if the session was refreshed.
+     */
+    public static void fireSessionRefreshed(Cas cas, boolean succeeded) {
+
+        PipelineListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+
+            try {
+                current[i].sessionRefreshed(cas, succeeded);
+            }
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * See PipelineListener.errorCaught.
+     *
+     * @param error the error.
+     */
+    public static void fireErrorCaught(Throwable error) {
+
+        PipelineListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+
+            try {
+                current[i].errorCaught(error);
+            }
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains the hooks into the scraping pipeline. Implement PipelineListener, or extend
+ * PipelineAdapter, and register it with PipelineListeners to be called on every request, parsed page,
+ * Course read, login, session refresh and caught error, e.g. to warm caches, log slow subjects or feed
+ * a dashboard. Nothing is allocated to call the listeners, and nothing at all is done when there are none.
+ */
+package com.vtaccess.event;
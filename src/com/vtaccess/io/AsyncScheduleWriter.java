@@ -0,0 +1,461 @@
+package com.vtaccess.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.Schedule;
+
+/**
+ * Write-behind persister for a ScheduleIO. Saves are turned into XML on the calling thread
+ * (so later changes to the Schedule objects cannot leak into a save), queued, and written
+ * to disk by a background thread every flush interval. Every AsyncScheduleWriter in the process shares
+ * that one background thread, so a writer per user doesn't cost a thread per user.
+ *
+ * Saves to the same File that are still waiting in the queue are coalesced: only the newest
+ * text is written, and the futures of every coalesced save complete once that text is on disk.
+ *
+ * A queued save of Schedules only takes over the ScheduleIO's schedulesFile once it is written: until then
+ * the journal of changed days is kept, and saveChanges on the ScheduleIO makes full saves instead.
+ *
+ * A writer only ever has the two Files of its ScheduleIO waiting, as saves to one File are coalesced, so
+ * the queue is bounded across all writers instead: at most maxPending Files, of every writer, may be
+ * waiting to be written. When that many are, a save to a File that isn't already waiting blocks until the
+ * background thread has written some out. The default can be set with the system property
+ * vtaccess.writer.maxPending, it is read once. Every save returns a CompletableFuture
+ * that completes with true once the text has been written and synced to the storage device,
+ * or completes exceptionally with the exception that prevented it. Each File is written to a
+ * temporary file that is then moved over it, so a crash during a flush leaves the previous save.
+ *
+ * Always call close() when done with this object, so that queued saves are written out.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class AsyncScheduleWriter {
+
+    //~Constants----------------------------------------------
+    /**
+     * The system property holding the most Files, of every writer, that may be waiting to be written.
+     */
+    public static final String MAX_PENDING_PROPERTY = "vtaccess.writer.maxPending";
+    /**
+     * The default number of milliseconds between flushes of the queue.
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 250;
+    /**
+     * The most Files, of every writer, that may be waiting to be written.
+     */
+    private static final int MAX_PENDING = 
+            Math.max(1, Integer.parseInt(System.getProperty(MAX_PENDING_PROPERTY, "4096")));
+    /**
+     * A permit for each File, of any writer, that may be waiting to be written.
+     */
+    private static final Semaphore PENDING_PERMITS = new Semaphore(MAX_PENDING);
+    /**
+     * The background thread every writer's pending saves are written by.
+     */
+    private static final ScheduledExecutorService FLUSHER = 
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+
+                    Thread thread = new Thread(runnable, "vtaccess-schedule-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    //~Data Fields--------------------------------------------
+    /**
+     * The ScheduleIO whose Files saves are written to.
+     */
+    private final ScheduleIO scheduleIO;
+    /**
+     * Saves that are waiting to be written, by the File they are to be written to.
+     * Guarded by lock.
+     */
+    private final Map<File, PendingWrite> pending;
+    /**
+     * Lock guarding pending and closed.
+     */
+    private final ReentrantLock lock;
+    /**
+     * Held while saves are taken off of the queue and written, so that they are written in the order
+     * they were queued, whichever thread writes them.
+     */
+    private final Object writeLock;
+    /**
+     * The periodic flush of this writer on the background thread.
+     */
+    private final ScheduledFuture<?> flushes;
+    /**
+     * True once close has been called. Guarded by lock.
+     */
+    private boolean closed;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a writer for the passed ScheduleIO using the default flush interval.
+     *
+     * @param scheduleIO the ScheduleIO whose Files are to be written to.
+     */
+    public AsyncScheduleWriter(ScheduleIO scheduleIO) {
+
+        this(scheduleIO, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates a writer for the passed ScheduleIO.
+     *
+     * @param scheduleIO the ScheduleIO whose Files are to be written to.
+     * @param flushIntervalMillis the number of milliseconds between flushes of the queue, at least 1.
+     */
+    public AsyncScheduleWriter(ScheduleIO scheduleIO, long flushIntervalMillis) {
+
+        if (scheduleIO == null || flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("A ScheduleIO, and a positive flush interval are required.");
+        }
+
+        this.scheduleIO = scheduleIO;
+
+        pending = new LinkedHashMap<File, PendingWrite>();
+        lock = new ReentrantLock();
+        writeLock = new Object();
+        closed = false;
+
+        flushes = FLUSHER.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+
+                writePending();
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Queues the passed in Schedule to be saved to the ScheduleIO's schedules File.
+     *
+     * @param schedule the user's schedule.
+     * @return a future completing with true once the save is on disk, or with false if schedule was null.
+     */
+    public CompletableFuture<Boolean> saveSchedule(Schedule schedule) {
+
+        return saveSchedules(schedule, null);
+    }
+
+    /**
+     * Queues the passed in Schedule, and the buddies' Schedules if any, to be saved
+     * to the ScheduleIO's schedules File.
+     *
+     * @param schedule the user's schedule.
+     * @param buddies the user's friends' schedules, may be null.
+     * @return a future completing with true once the save is on disk, or with false if schedule was null.
+     */
+    public CompletableFuture<Boolean> saveSchedules(Schedule schedule, List<Schedule> buddies) {
+
+        if (schedule == null || scheduleIO.getSchedulesFile() == null) {
+
+            return CompletableFuture.completedFuture(false);
+        }
+
+        String saveGeneration = ScheduleIO.newGeneration();
+        String text = ScheduleIO.schedulesToXML(schedule, buddies, saveGeneration);
+        
+        //the generation only switches, and the journal is only dropped, once the text is on disk
+        scheduleIO.markQueued(schedule, buddies, saveGeneration);
+
+        return enqueue(scheduleIO.getSchedulesFile(), "Schedules", text, saveGeneration, scheduleIO.isCompressed());
+    }
+
+    /**
+     * Queues the passed in finalsList to be saved to the ScheduleIO's exams File.
+     *
+     * @param finalsList the course List of final exam times/dates.
+     * @param semester the semester that the passed in finalsList pertains to.
+     * @return a future completing with true once the save is on disk, or with false if finalsList was null.
+     */
+    public CompletableFuture<Boolean> saveFinalsList(List<Course> finalsList, String semester) {
+
+        if (finalsList == null || scheduleIO.getExamsFile() == null) {
+
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return enqueue(scheduleIO.getExamsFile(), "ExamSchedule", ScheduleIO.finalsListToXML(finalsList, semester),
+                null, scheduleIO.isCompressed());
+    }
+
+    /**
+     * Writes every queued save now, without waiting for the flush interval.
+     *
+     * @return a future completing once every save queued before this call has been written.
+     */
+    public CompletableFuture<Void> flush() {
+
+        final CompletableFuture<Void> flushed = new CompletableFuture<Void>();
+
+        FLUSHER.execute(new Runnable() {
+
+            @Override
+            public void run() {
+
+                writePending();
+                flushed.complete(null);
+            }
+        });
+
+        return flushed;
+    }
+
+    /**
+     * @return the number of distinct Files waiting to be written.
+     */
+    public int getPendingCount() {
+
+        lock.lock();
+        try {
+            return pending.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of Files, of every writer, waiting to be written.
+     */
+    public static int getTotalPendingCount() {
+
+        return MAX_PENDING - PENDING_PERMITS.availablePermits();
+    }
+
+    /**
+     * Writes every queued save, and stops this writer's periodic flushes. The background thread is
+     * shared, and keeps running for the other writers. Saves made after this call complete exceptionally.
+     */
+    public void close() {
+
+        lock.lock();
+        try {
+            closed = true;
+        }
+        finally {
+            lock.unlock();
+        }
+
+        flushes.cancel(false);
+
+        //waits out a flush that is running, then writes anything queued before closed was set
+        writePending();
+    }
+
+    /**
+     * Adds a save to the queue, replacing a queued save to the same File.
+     * Blocks while maxPending Files, of every writer, are waiting and file isn't one of them.
+     *
+     * @param file the File to write to.
+     * @param tagName the master tag of the XML document.
+     * @param text the XML text to write between the master tags.
+     * @param generation the generation of a full save of Schedules, null for other Files.
+     * @param compress true to Deflate compress the file.
+     * @return a future completing once the text, or newer text for the same File, is on disk.
+     */
+    private CompletableFuture<Boolean> enqueue(File file, String tagName, String text, String generation,
+            boolean compress) {
+
+        CompletableFuture<Boolean> saved = new CompletableFuture<Boolean>();
+        boolean permitted = false;
+
+        lock.lock();
+        try {
+
+            //a File that is already waiting holds its permit, the newer save coalesces into it
+            while (!closed && !pending.containsKey(file) && !permitted) {
+
+                permitted = PENDING_PERMITS.tryAcquire();
+                if (!permitted) {
+
+                    //wait for a permit without blocking this writer's flushes
+                    lock.unlock();
+                    try {
+                        PENDING_PERMITS.acquire();
+                        permitted = true;
+                    }
+                    finally {
+                        lock.lock();
+                    }
+                }
+            }
+
+            if (closed) {
+
+                saved.completeExceptionally(new IOException("The AsyncScheduleWriter has been closed."));
+                return saved;
+            }
+
+            PendingWrite write = pending.get(file);
+            if (write == null) {
+
+                write = new PendingWrite(file);
+                pending.put(file, write);
+                permitted = false;
+            }
+
+            //the newest text wins, every caller waits on it
+            write.tagName = tagName;
+            write.text = text;
+            write.generation = generation;
+            write.compress = compress;
+            write.waiters.add(saved);
+        }
+        catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            saved.completeExceptionally(e);
+        }
+        finally {
+
+            //held by no File, e.g. the writer was closed while waiting for it
+            if (permitted) {
+                PENDING_PERMITS.release();
+            }
+            lock.unlock();
+        }
+
+        return saved;
+    }
+
+    /**
+     * Takes every queued save off of the queue and writes it, completing the waiting futures.
+     */
+    private void writePending() {
+
+        synchronized (writeLock) {
+
+            List<PendingWrite> batch;
+
+            lock.lock();
+            try {
+
+                if (pending.isEmpty()) {
+                    return;
+                }
+
+                batch = new ArrayList<PendingWrite>(pending.values());
+                pending.clear();
+            }
+            finally {
+                lock.unlock();
+            }
+
+            PENDING_PERMITS.release(batch.size());
+            writeBatch(batch);
+        }
+    }
+
+    /**
+     * Helper method, writes saves taken off of the queue, completing the waiting futures.
+     *
+     * @param batch the saves.
+     */
+    private void writeBatch(List<PendingWrite> batch) {
+
+        for (PendingWrite write : batch) {
+
+            try {
+
+                if (write.generation != null) {
+
+                    //a newer full save made meanwhile already holds everything this one did
+                    scheduleIO.writeQueuedSave(write.text, write.generation, write.compress);
+                }
+                else {
+                    ScheduleIO.writeXMLFile(write.text, write.tagName, write.file, write.compress, true);
+                }
+
+                for (CompletableFuture<Boolean> waiter : write.waiters) {
+                    waiter.complete(true);
+                }
+            }
+            catch (IOException e) {
+
+                fail(write, e);
+            }
+            catch (RuntimeException e) {
+
+                //escaping would cancel every later flush, leaving the waiters and enqueue hanging
+                e.printStackTrace();
+                fail(write, e);
+            }
+        }
+    }
+
+    /**
+     * Completes the futures waiting on a save that couldn't be written.
+     *
+     * @param write the save.
+     * @param cause what prevented the save.
+     */
+    private static void fail(PendingWrite write, Exception cause) {
+
+        for (CompletableFuture<Boolean> waiter : write.waiters) {
+            waiter.completeExceptionally(cause);
+        }
+    }
+
+    //~Nested Classes-------------------------------------------
+    /**
+     * A save waiting to be written, and the futures of everyone waiting on it.
+     */
+    private static final class PendingWrite {
+
+        /**
+         * The File to write to.
+         */
+        private final File file;
+        /**
+         * The master tag of the XML document.
+         */
+        private String tagName;
+        /**
+         * The newest XML text to write between the master tags.
+         */
+        private String text;
+        /**
+         * The generation of the newest text, if it is a full save of Schedules, null otherwise.
+         */
+        private String generation;
+        /**
+         * True to Deflate compress the file.
+         */
+        private boolean compress;
+        /**
+         * The futures of every save coalesced into this one.
+         */
+        private final List<CompletableFuture<Boolean>> waiters;
+
+        /**
+         * @param file the File to write to.
+         */
+        private PendingWrite(File file) {
+
+            this.file = file;
+            waiters = new ArrayList<CompletableFuture<Boolean>>(1);
+        }
+    }
+}
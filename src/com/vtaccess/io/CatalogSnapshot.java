@@ -0,0 +1,685 @@
+package com.vtaccess.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import com.vtaccess.Semester;
+import com.vtaccess.jfr.PersistEvent;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseList;
+
+/**
+ * Read only List of a whole term's Courses, loaded from a snapshot file written by write. Loading maps the
+ * file into memory and reads nothing else, so a term of thousands of sections is ready to serve in
+ * milliseconds, instead of after a crawl of every subject with CourseInfo.getAllCourses.
+ *
+ * The snapshot is columnar: each field of every Course is stored next to the same field of the others.
+ * The CRNs, credits, class sizes and begin and end times are fixed width int columns, read straight out
+ * of the mapped file by getCrn, getCredits and the like without making any Courses. The other fields are
+ * ints indexing a dictionary holding each distinct string once, decoded the first time it is read.
+ * A Course is only made when it is retrieved with get, and a new one each time, so callers may change it.
+ *
+ * Dates, which catalog Courses don't have, aren't kept, and Courses are made with the default time factor.
+ *
+ * The file is laid out, in big endian ints unless noted:
+ *
+ *      the 4 byte MAGIC header, the number of Courses, the number of strings, the time the Courses were
+ *          fetched as a long, 1 if they were stale else 0, and the index of the term's semesterCode.
+ *      the COLUMNS columns, each an int for every Course.
+ *      the offset of each string in the string data, and the offset of its end.
+ *      the string data, UTF-8.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class CatalogSnapshot extends AbstractList<Course> implements RandomAccess {
+
+    //~Constants----------------------------------------------
+    /**
+     * The header that marks a file as a snapshot. "VTS" followed by the format version, 1.
+     */
+    static final byte[] MAGIC = { 'V', 'T', 'S', 1 };
+    /**
+     * The bytes before the columns.
+     */
+    private static final int HEADER_LENGTH = MAGIC.length + 4 + 4 + 8 + 4 + 4;
+    /**
+     * The column of CRNs, the CRN when it is a plain number, else -1 - the index of its string,
+     * or NULL_CRN.
+     */
+    private static final int CRN = 0;
+    /**
+     * The column of credits.
+     */
+    private static final int CREDITS = 1;
+    /**
+     * The column of class sizes.
+     */
+    private static final int CLASS_SIZE = 2;
+    /**
+     * The column of begin times, as in the x of a Course's Point.
+     */
+    private static final int BEGIN = 3;
+    /**
+     * The column of end times, as in the y of a Course's Point.
+     */
+    private static final int END = 4;
+    /**
+     * The column of the strings of subject codes.
+     */
+    private static final int SUBJECT_CODE = 5;
+    /**
+     * The column of the strings of course numbers.
+     */
+    private static final int COURSE_NUMBER = 6;
+    /**
+     * The column of the strings of names.
+     */
+    private static final int NAME = 7;
+    /**
+     * The column of the strings of teachers' names.
+     */
+    private static final int TEACHER_NAME = 8;
+    /**
+     * The column of the strings of buildings.
+     */
+    private static final int BUILDING = 9;
+    /**
+     * The column of the strings of rooms.
+     */
+    private static final int ROOM = 10;
+    /**
+     * The column of the strings of days.
+     */
+    private static final int DAYS = 11;
+    /**
+     * The column of the strings of begin times.
+     */
+    private static final int BEGIN_TIME = 12;
+    /**
+     * The column of the strings of end times.
+     */
+    private static final int END_TIME = 13;
+    /**
+     * The number of columns.
+     */
+    private static final int COLUMNS = 14;
+    /**
+     * The index stored for a null string.
+     */
+    private static final int NULL = -1;
+    /**
+     * The value stored in the CRN column for a null CRN.
+     */
+    private static final int NULL_CRN = Integer.MIN_VALUE;
+    /**
+     * The charset of the string data.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * Size of the buffer placed around the file stream while writing.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    //~Data Fields--------------------------------------------
+    /**
+     * The mapped file, only ever read with absolute gets, so it can be shared between threads.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * The number of Courses.
+     */
+    private final int size;
+    /**
+     * The number of strings in the dictionary.
+     */
+    private final int stringCount;
+    /**
+     * The offset of the first column.
+     */
+    private final int columnsOffset;
+    /**
+     * The offset of the string offsets.
+     */
+    private final int stringOffsetsOffset;
+    /**
+     * The offset of the string data.
+     */
+    private final int stringDataOffset;
+    /**
+     * The strings decoded so far, by index.
+     */
+    private final AtomicReferenceArray<String> strings;
+    /**
+     * The term the Courses are from, as a semesterCode (YYYYMM).
+     */
+    private final String semesterCode;
+    /**
+     * When the Courses were fetched, in milliseconds since the epoch.
+     */
+    private final long fetched;
+    /**
+     * True if the Courses were stale when they were written.
+     */
+    private final boolean stale;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a list over a snapshot, checking its layout.
+     *
+     * @param buffer the snapshot.
+     * @param file the snapshot's file, for messages.
+     *
+     * @throws IOException thrown if the snapshot is corrupt.
+     */
+    private CatalogSnapshot(ByteBuffer buffer, File file) throws IOException {
+
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_LENGTH) {
+            throw new IOException(file + " is too short to be a catalog snapshot");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IOException(file + " isn't a catalog snapshot");
+            }
+        }
+
+        int offset = MAGIC.length;
+        size = buffer.getInt(offset);
+        stringCount = buffer.getInt(offset + 4);
+        fetched = buffer.getLong(offset + 8);
+        stale = buffer.getInt(offset + 16) != 0;
+        int termIndex = buffer.getInt(offset + 20);
+
+        columnsOffset = HEADER_LENGTH;
+        long offsetsAt = columnsOffset + (long) COLUMNS * size * 4;
+        long dataAt = offsetsAt + (stringCount + 1L) * 4;
+        if (size < 0 || stringCount < 0 || termIndex < 0 || termIndex >= stringCount || dataAt > buffer.capacity()
+                || dataAt + buffer.getInt((int) offsetsAt + stringCount * 4) != buffer.capacity()) {
+            throw new IOException(file + " is a corrupt catalog snapshot");
+        }
+        stringOffsetsOffset = (int) offsetsAt;
+        stringDataOffset = (int) dataAt;
+
+        strings = new AtomicReferenceArray<String>(stringCount);
+        semesterCode = getString(termIndex);
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Writes a term's Courses to a snapshot file, replacing the file if it exists. The snapshot is written to a
+     * temporary file that is then moved over the file, so CatalogSnapshots still mapping the old file keep
+     * reading it, rather than a file truncated under them.
+     *
+     * @param semesterCode the term the Courses are from, as a semesterCode (YYYYMM).
+     * @param courses the Courses, e.g. from CourseInfo.getAllCourses. If it is a CourseList, whether it is
+     *          stale and when it was fetched are kept too.
+     * @param file the file to write to.
+     *
+     * @throws IOException thrown if the file could not be written.
+     * @throws IllegalArgumentException thrown if semesterCode is null or isn't a valid semesterCode, as load 
+     *          would refuse the file. Nothing is written.
+     */
+    public static void write(String semesterCode, Collection<Course> courses, File file) throws IOException {
+
+        if (!Semester.isSemesterCode(semesterCode)) {
+            throw new IllegalArgumentException("Not a valid semesterCode: " + semesterCode);
+        }
+
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        boolean written = false;
+        try {
+            writeHelper(semesterCode, courses, file);
+            written = true;
+        }
+        finally {
+            commit(event, "writeSnapshot", file, semesterCode, courses.size(), written);
+        }
+    }
+
+    /**
+     * Does the work of write.
+     *
+     * @param semesterCode the term the Courses are from.
+     * @param courses the Courses.
+     * @param file the file to write to.
+     *
+     * @throws IOException thrown if the file could not be written.
+     */
+    private static void writeHelper(String semesterCode, Collection<Course> courses, File file) throws IOException {
+
+        int size = courses.size();
+        int[][] columns = new int[COLUMNS][size];
+        Map<String, Integer> indexes = new HashMap<String, Integer>();
+        List<byte[]> dictionary = new ArrayList<byte[]>();
+        int termIndex = intern(semesterCode, indexes, dictionary);
+
+        int row = 0;
+        for (Course course : courses) {
+
+            columns[CRN][row] = toCrnColumn(course.getCrn(), indexes, dictionary);
+            columns[CREDITS][row] = course.getCredits();
+            columns[CLASS_SIZE][row] = course.getClassSize();
+            columns[BEGIN][row] = course.getCoursePoint().x;
+            columns[END][row] = course.getCoursePoint().y;
+            columns[SUBJECT_CODE][row] = intern(course.getSubjectCode(), indexes, dictionary);
+            columns[COURSE_NUMBER][row] = intern(course.getCourseNumber(), indexes, dictionary);
+            columns[NAME][row] = intern(course.getName(), indexes, dictionary);
+            columns[TEACHER_NAME][row] = intern(course.getTeacherName(), indexes, dictionary);
+            columns[BUILDING][row] = intern(course.getBuilding(), indexes, dictionary);
+            columns[ROOM][row] = intern(course.getRoom(), indexes, dictionary);
+            columns[DAYS][row] = intern(course.getDays(), indexes, dictionary);
+            columns[BEGIN_TIME][row] = intern(course.getBeginTime(), indexes, dictionary);
+            columns[END_TIME][row] = intern(course.getEndTime(), indexes, dictionary);
+            row++;
+        }
+
+        boolean stale = false;
+        long fetched = System.currentTimeMillis();
+        if (courses instanceof CourseList) {
+
+            CourseList list = (CourseList) courses;
+            stale = list.isStale();
+            if (list.getFetched() > 0) {
+                fetched = list.getFetched();
+            }
+        }
+
+        File temp = ScheduleIO.tempFileFor(file);
+        boolean replaced = false;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE));
+        try {
+            out.write(MAGIC);
+            out.writeInt(size);
+            out.writeInt(dictionary.size());
+            out.writeLong(fetched);
+            out.writeInt(stale ? 1 : 0);
+            out.writeInt(termIndex);
+
+            for (int[] column : columns) {
+                for (int value : column) {
+                    out.writeInt(value);
+                }
+            }
+
+            int offset = 0;
+            for (byte[] string : dictionary) {
+
+                out.writeInt(offset);
+                offset += string.length;
+            }
+            out.writeInt(offset);
+            for (byte[] string : dictionary) {
+                out.write(string);
+            }
+            out.close();
+
+            ScheduleIO.replaceFile(temp, file);
+            replaced = true;
+        }
+        finally {
+            out.close();
+            if (!replaced) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Loads a snapshot file by mapping it into memory. Nothing is read from it until it is used.
+     *
+     * @param file the snapshot file written by write.
+     * @return the Courses in the snapshot, in the order they were written.
+     *
+     * @throws IOException thrown if the file could not be mapped, or isn't a snapshot.
+     */
+    public static CatalogSnapshot load(File file) throws IOException {
+
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        CatalogSnapshot snapshot = null;
+        try {
+
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                //the mapping stays valid after the channel is closed
+                FileChannel channel = raf.getChannel();
+                snapshot = new CatalogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+            }
+            finally {
+                raf.close();
+            }
+            return snapshot;
+        }
+        finally {
+            commit(event, "loadSnapshot", file, snapshot == null ? null : snapshot.semesterCode,
+                    snapshot == null ? 0 : snapshot.size, snapshot != null);
+        }
+    }
+
+    /**
+     * Makes the Course at the passed index, from the columns.
+     *
+     * @param index the index of the Course.
+     * @return a new Course, not shared with anyone.
+     */
+    @Override
+    public Course get(int index) {
+
+        checkIndex(index);
+
+        Course course = new Course(getCrn(index), getString(column(NAME, index)),
+                getSubjectCode(index), getCourseNumber(index), getCredits(index), getClassSize(index),
+                getString(column(TEACHER_NAME, index)), getString(column(BEGIN_TIME, index)),
+                getString(column(END_TIME, index)), getString(column(BUILDING, index)),
+                getString(column(ROOM, index)));
+        course.setDays(getString(column(DAYS, index)));
+        course.getCoursePoint().x = column(BEGIN, index);
+        course.getCoursePoint().y = column(END, index);
+        return course;
+    }
+
+    /**
+     * @return the number of Courses in the snapshot.
+     */
+    @Override
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Makes every Course in the snapshot.
+     *
+     * @return the Courses, marked as fetched when the snapshot's Courses were, and stale if they were.
+     */
+    public CourseList toCourseList() {
+
+        CourseList courses = new CourseList();
+        for (int i = 0; i < size; i++) {
+            courses.add(get(i));
+        }
+        courses.setFetched(fetched);
+        courses.setStale(stale);
+        return courses;
+    }
+
+    /**
+     * Finds a Course by CRN, reading only the CRN column.
+     *
+     * @param crn the CRN.
+     * @return the index of the first Course with the CRN, -1 if there is none.
+     */
+    public int indexOfCrn(String crn) {
+
+        for (int i = 0; i < size; i++) {
+
+            int value = column(CRN, i);
+            if (value >= 0 ? isCrn(crn, value) : value != NULL_CRN && crn.equals(getString(-1 - value))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param crn a CRN.
+     * @param value a plain number from the CRN column.
+     * @return true if the CRN is the number, written plainly.
+     */
+    private static boolean isCrn(String crn, int value) {
+
+        int length = crn.length();
+        if (length == 0 || length > 10 || (crn.charAt(0) == '0' && length > 1)) {
+            return false;
+        }
+
+        long parsed = 0;
+        for (int i = 0; i < length; i++) {
+
+            char c = crn.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            parsed = parsed * 10 + (c - '0');
+        }
+        return parsed == value;
+    }
+
+    /**
+     * @param index the index of a Course.
+     * @return the Course's CRN.
+     */
+    public String getCrn(int index) {
+
+        checkIndex(index);
+        int value = column(CRN, index);
+        if (value == NULL_CRN) {
+            return null;
+        }
+        return value >= 0 ? Integer.toString(value) : getString(-1 - value);
+    }
+
+    /**
+     * @param index the index of a Course.
+     * @return the Course's subject code.
+     */
+    public String getSubjectCode(int index) {
+
+        checkIndex(index);
+        return getString(column(SUBJECT_CODE, index));
+    }
+
+    /**
+     * @param index the index of a Course.
+     * @return the Course's course number.
+     */
+    public String getCourseNumber(int index) {
+
+        checkIndex(index);
+        return getString(column(COURSE_NUMBER, index));
+    }
+
+    /**
+     * @param index the index of a Course.
+     * @return the Course's credits.
+     */
+    public int getCredits(int index) {
+
+        checkIndex(index);
+        return column(CREDITS, index);
+    }
+
+    /**
+     * @param index the index of a Course.
+     * @return the Course's class size.
+     */
+    public int getClassSize(int index) {
+
+        checkIndex(index);
+        return column(CLASS_SIZE, index);
+    }
+
+    /**
+     * @param index the index of a Course.
+     * @return the Course's begin time, as in the x of its Point.
+     */
+    public int getBegin(int index) {
+
+        checkIndex(index);
+        return column(BEGIN, index);
+    }
+
+    /**
+     * @param index the index of a Course.
+     * @return the Course's end time, as in the y of its Point.
+     */
+    public int getEnd(int index) {
+
+        checkIndex(index);
+        return column(END, index);
+    }
+
+    /**
+     * @param column a column.
+     * @param index the index of a Course.
+     * @return the Course's value in the column.
+     */
+    private int column(int column, int index) {
+
+        return buffer.getInt(columnsOffset + (column * size + index) * 4);
+    }
+
+    /**
+     * Decodes a string of the dictionary, the first time it is read.
+     *
+     * @param index the index of the string, NULL for null.
+     * @return the string.
+     */
+    private String getString(int index) {
+
+        if (index == NULL) {
+            return null;
+        }
+
+        String string = strings.get(index);
+        if (string == null) {
+
+            int start = buffer.getInt(stringOffsetsOffset + index * 4);
+            int end = buffer.getInt(stringOffsetsOffset + index * 4 + 4);
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(stringDataOffset + start + i);
+            }
+            string = new String(bytes, UTF_8);
+            //threads racing to decode it decode the same string, and either may win
+            strings.compareAndSet(index, null, string);
+        }
+        return string;
+    }
+
+    /**
+     * @param index an index.
+     *
+     * @throws IndexOutOfBoundsException thrown if there is no Course at the index.
+     */
+    private void checkIndex(int index) {
+
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Adds a string to the dictionary being written, unless it is already in it.
+     *
+     * @param string the string, may be null.
+     * @param indexes the index of each string in the dictionary.
+     * @param dictionary the UTF-8 of each string, by index.
+     * @return the index of the string, NULL for null.
+     */
+    private static int intern(String string, Map<String, Integer> indexes, List<byte[]> dictionary) {
+
+        if (string == null) {
+            return NULL;
+        }
+
+        Integer index = indexes.get(string);
+        if (index == null) {
+
+            index = dictionary.size();
+            indexes.put(string, index);
+            dictionary.add(string.getBytes(UTF_8));
+        }
+        return index;
+    }
+
+    /**
+     * @param crn a CRN.
+     * @param indexes the index of each string in the dictionary.
+     * @param dictionary the UTF-8 of each string, by index.
+     * @return the CRN as a plain number, or if it isn't one, -1 - the index of its string, NULL_CRN for null.
+     */
+    private static int toCrnColumn(String crn, Map<String, Integer> indexes, List<byte[]> dictionary) {
+
+        if (crn != null && crn.length() > 0 && crn.length() < 10 && (crn.charAt(0) != '0' || crn.length() == 1)) {
+
+            boolean digits = true;
+            for (int i = 0; i < crn.length() && digits; i++) {
+                digits = crn.charAt(i) >= '0' && crn.charAt(i) <= '9';
+            }
+            if (digits) {
+                return Integer.parseInt(crn);
+            }
+        }
+
+        return crn == null ? NULL_CRN : -1 - intern(crn, indexes, dictionary);
+    }
+
+    /**
+     * Ends a PersistEvent, and fills in and commits it if it is being recorded.
+     *
+     * @param event the event.
+     * @param operation the method, e.g. "loadSnapshot".
+     * @param file the snapshot file.
+     * @param term the term of the snapshot, null if it isn't known.
+     * @param rows the number of Courses.
+     * @param succeeded false if the load or write failed.
+     */
+    private static void commit(PersistEvent event, String operation, File file, String term, int rows,
+            boolean succeeded) {
+
+        event.end();
+        if (event.shouldCommit()) {
+
+            event.operation = operation;
+            event.path = file.getPath();
+            event.term = term;
+            event.rows = rows;
+            event.bytes = file.length();
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the term the Courses are from, as a semesterCode (YYYYMM).
+     */
+    public String getSemesterCode() {
+
+        return semesterCode;
+    }
+
+    /**
+     * @return when the Courses were fetched, in milliseconds since the epoch.
+     */
+    public long getFetched() {
+
+        return fetched;
+    }
+
+    /**
+     * @return true if the Courses were stale when they were written.
+     */
+    public boolean isStale() {
+
+        return stale;
+    }
+}
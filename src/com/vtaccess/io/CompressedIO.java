@@ -0,0 +1,199 @@
+package com.vtaccess.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Class containing static methods to open streams on files that may be stored Deflate compressed.
+ *
+ * A compressed file starts with the 4 byte MAGIC header, followed by a zlib (Deflate) stream of the
+ * file's contents. Files without the header are read as they are, so uncompressed files written
+ * before compression was turned on keep loading, and the two kinds of files can be mixed freely.
+ *
+ * Only java.util.zip is used, no extra libraries are needed.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class CompressedIO {
+
+    //~Constants----------------------------------------------
+    /**
+     * The header that marks a file as compressed. "VTZ" followed by the format version, 1.
+     * No XML file can start with these bytes.
+     */
+    static final byte[] MAGIC = { 'V', 'T', 'Z', 1 };
+    /**
+     * Size of the buffers placed around the file streams.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Blocked, all methods are static.
+     */
+    private CompressedIO() {
+
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Opens a stream to write the passed in file. If compress is true the MAGIC header is written and
+     * everything written to the returned stream is compressed on the way to the file.
+     *
+     * Closing the returned stream finishes the compressed data and closes the file.
+     *
+     * @param file the file to write to.
+     * @param compress true to compress the file, false to write it as is.
+     * @return the stream to write the file's contents to.
+     *
+     * @throws IOException thrown if the file could not be opened.
+     */
+    public static OutputStream openOutput(File file, boolean compress) throws IOException {
+
+        return openOutput(new FileOutputStream(file), compress);
+    }
+
+    /**
+     * Wraps the passed in stream the same way openOutput(File, boolean) wraps a file.
+     *
+     * @param os the stream to write to.
+     * @param compress true to compress the contents, false to write them as is.
+     * @return the stream to write the contents to.
+     *
+     * @throws IOException thrown if the MAGIC header could not be written.
+     */
+    public static OutputStream openOutput(OutputStream os, boolean compress) throws IOException {
+
+        if (!compress) {
+
+            return new BufferedOutputStream(os, BUFFER_SIZE);
+        }
+
+        os.write(MAGIC);
+
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+        return new DeflaterOutputStream(os, deflater, BUFFER_SIZE) {
+
+            @Override
+            public void close() throws IOException {
+
+                try {
+                    super.close();
+                }
+                finally {
+                    //release the native memory right away instead of waiting on the GC
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Opens a stream to read the passed in file. If the file starts with the MAGIC header,
+     * the returned stream reads the uncompressed contents, otherwise it reads the file as is.
+     *
+     * @param file the file to read from.
+     * @return the stream to read the file's contents from.
+     *
+     * @throws IOException thrown if the file could not be opened.
+     */
+    public static InputStream openInput(File file) throws IOException {
+
+        return openInput(new FileInputStream(file));
+    }
+
+    /**
+     * Wraps the passed in stream the same way openInput(File) wraps a file.
+     *
+     * @param is the stream to read from.
+     * @return the stream to read the contents from.
+     *
+     * @throws IOException thrown if the start of the stream could not be read.
+     */
+    public static InputStream openInput(InputStream is) throws IOException {
+
+        BufferedInputStream buffered = new BufferedInputStream(is, BUFFER_SIZE);
+
+        if (!startsWithMagic(buffered)) {
+
+            return buffered;
+        }
+
+        final Inflater inflater = new Inflater();
+
+        return new InflaterInputStream(buffered, inflater, BUFFER_SIZE) {
+
+            @Override
+            public void close() throws IOException {
+
+                try {
+                    super.close();
+                }
+                finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Checks to see if the passed file starts with the MAGIC header.
+     *
+     * @param file the file to check.
+     * @return true if the file is compressed, false if it isn't, or if it can't be read.
+     */
+    public static boolean isCompressed(File file) {
+
+        try {
+
+            InputStream is = new BufferedInputStream(new FileInputStream(file), MAGIC.length);
+            try {
+                return startsWithMagic(is);
+            }
+            finally {
+                is.close();
+            }
+        }
+        catch (IOException e) {
+
+            return false;
+        }
+    }
+
+    /**
+     * Reads past the MAGIC header if the passed stream starts with it, otherwise
+     * leaves the stream where it was.
+     *
+     * @param is the stream to check, must support mark.
+     * @return true if the header was there and has been skipped, false otherwise.
+     *
+     * @throws IOException thrown if the stream could not be read.
+     */
+    private static boolean startsWithMagic(InputStream is) throws IOException {
+
+        is.mark(MAGIC.length);
+
+        for (int i = 0; i < MAGIC.length; i++) {
+
+            if (is.read() != (MAGIC[i] & 0xFF)) {
+
+                is.reset();
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
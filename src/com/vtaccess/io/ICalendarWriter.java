@@ -0,0 +1,712 @@
+package com.vtaccess.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.Date;
+import com.vtaccess.schedule.Day;
+import com.vtaccess.schedule.Schedule;
+
+/**
+ * Writes Schedules and exam schedules as iCalendar (RFC 5545) feeds straight to an OutputStream.
+ *
+ * Each Course in a Schedule becomes one weekly recurring event on the days of the week it is on,
+ * from the first of those days on or after the start of the term, until the end of the term. Courses
+ * in AnyDay, and Courses without times, have nothing to put on a calendar and are left out.
+ * Each exam becomes a single event on its Course's Date.
+ *
+ * Times are written as floating local times, so calendars show them in the local time of the viewer,
+ * which is the time they are at in Blacksburg for the users of VTAccess.
+ *
+ * Feeds written with a feed key are cached by that key, along with the Schedule or exams they were
+ * written from, held weakly, and their versions. Writing the feed again from the same Schedule or exams,
+ * while their versions are unchanged, copies the cached bytes instead of generating the feed again. Versions
+ * only count the changes made to one instance, so a different Schedule or exam under the same key is never
+ * served the cached feed, whatever its version. The number of cached feeds is bounded, the least
+ * recently written ones are dropped first. This object is safe to use from multiple threads.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class ICalendarWriter {
+
+    //~Constants----------------------------------------------
+    /**
+     * The default maximum number of feeds cached.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    /**
+     * The longest a content line may be, in bytes, before it is folded onto the next line.
+     */
+    private static final int MAX_LINE_BYTES = 75;
+    /**
+     * The line ending that iCalendar requires.
+     */
+    private static final byte[] CRLF = { '\r', '\n' };
+    /**
+     * Feeds are always UTF-8.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * The iCalendar names of the days of the week, in the order of Schedule.getDay.
+     * AnyDay has none.
+     */
+    private static final String[] BY_DAY = { "MO", "TU", "WE", "TH", "FR" };
+    /**
+     * The Calendar day of week of each of the days in BY_DAY.
+     */
+    private static final int[] CALENDAR_DAYS = { Calendar.MONDAY, Calendar.TUESDAY, Calendar.WEDNESDAY,
+            Calendar.THURSDAY, Calendar.FRIDAY };
+
+    //~Data Fields--------------------------------------------
+    /**
+     * The first day of classes of the term.
+     */
+    private final Date termStart;
+    /**
+     * The last day of classes of the term.
+     */
+    private final Date termEnd;
+    /**
+     * The cached feeds, by feed key, least recently written first. Guarded by itself.
+     */
+    private final Map<String, CachedFeed> cache;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a writer for Schedules of the term between the passed Dates, using the default cache size.
+     *
+     * @param termStart the first day of classes of the term.
+     * @param termEnd the last day of classes of the term.
+     */
+    public ICalendarWriter(Date termStart, Date termEnd) {
+
+        this(termStart, termEnd, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a writer for Schedules of the term between the passed Dates.
+     *
+     * @param termStart the first day of classes of the term.
+     * @param termEnd the last day of classes of the term.
+     * @param cacheSize the maximum number of feeds cached, 0 to cache none.
+     */
+    public ICalendarWriter(Date termStart, Date termEnd, final int cacheSize) {
+
+        if (termStart == null || termEnd == null || cacheSize < 0) {
+            throw new IllegalArgumentException("Term dates, and a cache size of at least 0 are required.");
+        }
+
+        this.termStart = termStart;
+        this.termEnd = termEnd;
+
+        cache = new LinkedHashMap<String, CachedFeed>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedFeed> eldest) {
+
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Writes the passed Schedule as a feed of weekly recurring events. Nothing is cached.
+     *
+     * @param schedule the Schedule to write.
+     * @param os the stream to write to, it is flushed but not closed.
+     *
+     * @throws IOException thrown if the stream could not be written to.
+     */
+    public void writeSchedule(Schedule schedule, OutputStream os) throws IOException {
+
+        BufferedOutputStream buffered = new BufferedOutputStream(os);
+        writeScheduleFeed(schedule, buffered);
+        buffered.flush();
+    }
+
+    /**
+     * Writes the passed Schedule as a feed of weekly recurring events, reusing the feed cached
+     * under feedKey if the Schedule hasn't changed since it was written.
+     *
+     * @param feedKey the key to cache the feed by, e.g. the user's id. Each key should always be
+     *          used for the same Schedule.
+     * @param schedule the Schedule to write.
+     * @param os the stream to write to, it is flushed but not closed.
+     *
+     * @throws IOException thrown if the stream could not be written to.
+     */
+    public void writeSchedule(String feedKey, Schedule schedule, OutputStream os) throws IOException {
+
+        List<Object> sources = new ArrayList<Object>(1);
+        sources.add(schedule);
+        long[] versions = { schedule.getVersion() };
+
+        if (writeCached(feedKey, sources, versions, os)) {
+
+            return;
+        }
+
+        TeeOutputStream tee = new TeeOutputStream(os);
+        writeScheduleFeed(schedule, tee);
+        tee.flush();
+
+        cache(feedKey, sources, versions, tee.getCopy());
+    }
+
+    /**
+     * Writes the passed exams as a feed of single events. Nothing is cached.
+     *
+     * @param exams the exam Courses to write, as filled by ScheduleScraper.retrieveExamSchedule.
+     * @param os the stream to write to, it is flushed but not closed.
+     *
+     * @throws IOException thrown if the stream could not be written to.
+     */
+    public void writeExams(List<Course> exams, OutputStream os) throws IOException {
+
+        BufferedOutputStream buffered = new BufferedOutputStream(os);
+        writeExamsFeed(exams, buffered);
+        buffered.flush();
+    }
+
+    /**
+     * Writes the passed exams as a feed of single events, reusing the feed cached under feedKey
+     * if the List holds the same exams, unchanged, as when it was written.
+     *
+     * @param feedKey the key to cache the feed by, e.g. the user's id and the semester. Each key
+     *          should always be used for the same List.
+     * @param exams the exam Courses to write, as filled by ScheduleScraper.retrieveExamSchedule.
+     * @param os the stream to write to, it is flushed but not closed.
+     *
+     * @throws IOException thrown if the stream could not be written to.
+     */
+    public void writeExams(String feedKey, List<Course> exams, OutputStream os) throws IOException {
+
+        //every exam, in order, so additions and removals miss the cache too
+        List<Object> sources = new ArrayList<Object>(exams);
+        long[] versions = new long[exams.size()];
+
+        for (int i = 0; i < versions.length; i++) {
+
+            versions[i] = exams.get(i).getVersion();
+        }
+
+        if (writeCached(feedKey, sources, versions, os)) {
+
+            return;
+        }
+
+        TeeOutputStream tee = new TeeOutputStream(os);
+        writeExamsFeed(exams, tee);
+        tee.flush();
+
+        cache(feedKey, sources, versions, tee.getCopy());
+    }
+
+    /**
+     * Drops the feed cached under the passed key, if any.
+     *
+     * @param feedKey the key the feed was cached by.
+     */
+    public void invalidate(String feedKey) {
+
+        synchronized (cache) {
+
+            cache.remove(feedKey);
+        }
+    }
+
+    /**
+     * Helper method, writes the cached feed for feedKey if it was written from the passed objects, 
+     * at the passed versions.
+     *
+     * @param feedKey the key the feed was cached by.
+     * @param sources the Schedule or exams the feed is for.
+     * @param versions the version of each of sources.
+     * @param os the stream to write to.
+     * @return true if the cached feed was written, false if there was none to write.
+     *
+     * @throws IOException thrown if the stream could not be written to.
+     */
+    private boolean writeCached(String feedKey, List<Object> sources, long[] versions, OutputStream os) 
+            throws IOException {
+
+        CachedFeed cached;
+
+        synchronized (cache) {
+
+            cached = cache.get(feedKey);
+        }
+
+        if (cached == null || !cached.isFor(sources, versions)) {
+
+            MetricsRegistry.getDefault().cacheMiss("icalendar");
+            return false;
+        }
+
+        MetricsRegistry.getDefault().cacheHit("icalendar");
+        os.write(cached.feed);
+        os.flush();
+
+        return true;
+    }
+
+    /**
+     * Helper method, caches a written feed.
+     *
+     * @param feedKey the key to cache the feed by.
+     * @param sources the Schedule or exams the feed was written from.
+     * @param versions the version of each of sources.
+     * @param feed the bytes of the feed.
+     */
+    private void cache(String feedKey, List<Object> sources, long[] versions, byte[] feed) {
+
+        CachedFeed cached = new CachedFeed(sources, versions, feed);
+
+        synchronized (cache) {
+
+            cache.put(feedKey, cached);
+        }
+    }
+
+    /**
+     * Helper method, writes the whole feed for a Schedule.
+     *
+     * @param schedule the Schedule to write.
+     * @param os the stream to write to.
+     *
+     * @throws IOException thrown if the stream could not be written to.
+     */
+    private void writeScheduleFeed(Schedule schedule, OutputStream os) throws IOException {
+
+        //the same Course is in each of its Days, collect the days of each Course
+        Map<Course, StringBuilder> courseDays = new IdentityHashMap<Course, StringBuilder>();
+        Map<Course, Integer> firstDays = new IdentityHashMap<Course, Integer>();
+
+        for (int k = 0; k < BY_DAY.length; k++) {
+
+            Day day = schedule.getDay(k);
+
+            for (int i = 0; i < day.size(); i++) {
+
+                Course course = day.getCourse(i);
+                StringBuilder byDay = courseDays.get(course);
+
+                if (byDay == null) {
+
+                    courseDays.put(course, new StringBuilder(BY_DAY[k]));
+                    firstDays.put(course, k);
+                }
+                else {
+
+                    byDay.append(',').append(BY_DAY[k]);
+                }
+            }
+        }
+
+        String stamp = formatStamp();
+
+        writeHeader(os, schedule.getWhosSchedule());
+
+        for (int k = 0; k < BY_DAY.length; k++) {
+
+            Day day = schedule.getDay(k);
+
+            for (int i = 0; i < day.size(); i++) {
+
+                Course course = day.getCourse(i);
+
+                //only write each Course once, on the first of its days
+                if (firstDays.get(course) == k && hasTimes(course)) {
+
+                    Calendar first = firstOnOrAfter(termStart, courseDays.get(course).toString());
+
+                    writeLine(os, "BEGIN", "VEVENT");
+                    writeLine(os, "UID", course.getCrn() + "-" + course.getCourseCode() + "-"
+                            + schedule.getWhosSchedule() + "@vtaccess");
+                    writeLine(os, "DTSTAMP", stamp);
+                    writeLine(os, "DTSTART", formatDateTime(first, course.getCoursePoint().getX(), course));
+                    writeLine(os, "DTEND", formatDateTime(first, course.getCoursePoint().getY(), course));
+                    writeLine(os, "RRULE", "FREQ=WEEKLY;BYDAY=" + courseDays.get(course)
+                            + ";UNTIL=" + formatDate(termEnd) + "T235959");
+                    writeCourseFields(os, course);
+                    writeLine(os, "END", "VEVENT");
+                }
+            }
+        }
+
+        writeLine(os, "END", "VCALENDAR");
+    }
+
+    /**
+     * Helper method, writes the whole feed for a List of exams.
+     *
+     * @param exams the exams to write.
+     * @param os the stream to write to.
+     *
+     * @throws IOException thrown if the stream could not be written to.
+     */
+    private void writeExamsFeed(List<Course> exams, OutputStream os) throws IOException {
+
+        String stamp = formatStamp();
+
+        writeHeader(os, "Final Exams");
+
+        for (Course exam : exams) {
+
+            Date date = exam.getDate();
+
+            //exams without a date or times have nothing to put on a calendar
+            if (date != null && date.getYear() != 0 && hasTimes(exam)) {
+
+                Calendar day = new GregorianCalendar(date.getYear(), date.getMonth() - 1, date.getDay());
+
+                writeLine(os, "BEGIN", "VEVENT");
+                writeLine(os, "UID", exam.getCrn() + "-" + exam.getCourseCode() + "-exam-"
+                        + formatDate(date) + "@vtaccess");
+                writeLine(os, "DTSTAMP", stamp);
+                writeLine(os, "DTSTART", formatDateTime(day, exam.getCoursePoint().getX(), exam));
+                writeLine(os, "DTEND", formatDateTime(day, exam.getCoursePoint().getY(), exam));
+                writeCourseFields(os, exam);
+                writeLine(os, "END", "VEVENT");
+            }
+        }
+
+        writeLine(os, "END", "VCALENDAR");
+    }
+
+    /**
+     * Helper method, writes the lines that start a feed.
+     *
+     * @param os the stream to write to.
+     * @param name the name of the calendar.
+     *
+     * @throws IOException thrown if the stream could not be written to.
+     */
+    private static void writeHeader(OutputStream os, String name) throws IOException {
+
+        writeLine(os, "BEGIN", "VCALENDAR");
+        writeLine(os, "VERSION", "2.0");
+        writeLine(os, "PRODID", "-//VTAccess//Schedule Feed//EN");
+        writeLine(os, "CALSCALE", "GREGORIAN");
+        writeLine(os, "X-WR-CALNAME", escape(name));
+    }
+
+    /**
+     * Helper method, writes the summary, location and description of a Course's event.
+     *
+     * @param os the stream to write to.
+     * @param course the Course of the event.
+     *
+     * @throws IOException thrown if the stream could not be written to.
+     */
+    private static void writeCourseFields(OutputStream os, Course course) throws IOException {
+
+        writeLine(os, "SUMMARY", escape(course.getCourseCode() + " " + course.getName()));
+        writeLine(os, "LOCATION", escape((course.getBuilding() + " " + course.getRoom()).trim()));
+        writeLine(os, "DESCRIPTION", escape("CRN: " + course.getCrn() + "\n" + course.getTeacherName().trim()));
+    }
+
+    /**
+     * Helper method, writes one content line, folding it onto following lines if it is longer than
+     * MAX_LINE_BYTES. Folds never split a multi-byte character.
+     *
+     * @param os the stream to write to.
+     * @param name the name of the property.
+     * @param value the value of the property, already escaped.
+     *
+     * @throws IOException thrown if the stream could not be written to.
+     */
+    private static void writeLine(OutputStream os, String name, String value) throws IOException {
+
+        byte[] line = (name + ":" + value).getBytes(UTF_8);
+        int start = 0;
+        int limit = MAX_LINE_BYTES;
+
+        while (line.length - start > limit) {
+
+            int end = start + limit;
+
+            //back up to the start of a character, continuation bytes are 10xxxxxx
+            while ((line[end] & 0xC0) == 0x80) {
+                end--;
+            }
+
+            os.write(line, start, end - start);
+            os.write(CRLF);
+            os.write(' ');
+
+            start = end;
+            //the leading space counts towards the length of the folded lines
+            limit = MAX_LINE_BYTES - 1;
+        }
+
+        os.write(line, start, line.length - start);
+        os.write(CRLF);
+    }
+
+    /**
+     * Escapes the characters iCalendar reserves in text values.
+     *
+     * @param text the text to escape.
+     * @return the escaped text.
+     */
+    static String escape(String text) {
+
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+
+        for (int i = 0; i < text.length(); i++) {
+
+            char character = text.charAt(i);
+
+            switch (character) {
+
+                case '\\': escaped.append("\\\\"); break;
+                case ';': escaped.append("\\;"); break;
+                case ',': escaped.append("\\,"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': break;
+                default: escaped.append(character);
+            }
+        }
+
+        return escaped.toString();
+    }
+
+    /**
+     * Checks to see if a Course has begin and end times to put on a calendar.
+     *
+     * @param course the Course to check.
+     * @return true if the Course has times, false otherwise.
+     */
+    private static boolean hasTimes(Course course) {
+
+        return course.getCoursePoint() != null && course.getCoursePoint().getY() > course.getCoursePoint().getX();
+    }
+
+    /**
+     * Finds the first day on or after the passed date that falls on one of the passed days of the week.
+     *
+     * @param start the date to start at.
+     * @param byDay the days of the week, as a comma separated list of BY_DAY names.
+     * @return the first matching day.
+     */
+    private static Calendar firstOnOrAfter(Date start, String byDay) {
+
+        Calendar day = new GregorianCalendar(start.getYear(), start.getMonth() - 1, start.getDay());
+
+        for (int i = 0; i < 7; i++) {
+
+            for (int k = 0; k < BY_DAY.length; k++) {
+
+                if (day.get(Calendar.DAY_OF_WEEK) == CALENDAR_DAYS[k] && byDay.contains(BY_DAY[k])) {
+
+                    return day;
+                }
+            }
+
+            day.add(Calendar.DAY_OF_MONTH, 1);
+        }
+
+        return day;
+    }
+
+    /**
+     * Formats a day and a Course time as an iCalendar local date-time, yyyyMMddTHHmmss.
+     *
+     * @param day the day.
+     * @param time the time as stored in the Course's coursePoint, hhmm times the Course's time factor.
+     * @param course the Course the time is from.
+     * @return the formatted date-time.
+     */
+    private static String formatDateTime(Calendar day, int time, Course course) {
+
+        int hhmm = time / Math.max(course.getTimeFactor(), 1);
+
+        StringBuilder formatted = new StringBuilder(15);
+        appendPadded(formatted, day.get(Calendar.YEAR), 4);
+        appendPadded(formatted, day.get(Calendar.MONTH) + 1, 2);
+        appendPadded(formatted, day.get(Calendar.DAY_OF_MONTH), 2);
+        formatted.append('T');
+        appendPadded(formatted, hhmm / 100, 2);
+        appendPadded(formatted, hhmm % 100, 2);
+        formatted.append("00");
+
+        return formatted.toString();
+    }
+
+    /**
+     * Formats a Date as an iCalendar date, yyyyMMdd.
+     *
+     * @param date the Date.
+     * @return the formatted date.
+     */
+    private static String formatDate(Date date) {
+
+        StringBuilder formatted = new StringBuilder(8);
+        appendPadded(formatted, date.getYear(), 4);
+        appendPadded(formatted, date.getMonth(), 2);
+        appendPadded(formatted, date.getDay(), 2);
+
+        return formatted.toString();
+    }
+
+    /**
+     * Formats the current time as an iCalendar UTC date-time, for DTSTAMP.
+     *
+     * @return the formatted date-time.
+     */
+    private static String formatStamp() {
+
+        Calendar now = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+
+        StringBuilder formatted = new StringBuilder(16);
+        appendPadded(formatted, now.get(Calendar.YEAR), 4);
+        appendPadded(formatted, now.get(Calendar.MONTH) + 1, 2);
+        appendPadded(formatted, now.get(Calendar.DAY_OF_MONTH), 2);
+        formatted.append('T');
+        appendPadded(formatted, now.get(Calendar.HOUR_OF_DAY), 2);
+        appendPadded(formatted, now.get(Calendar.MINUTE), 2);
+        appendPadded(formatted, now.get(Calendar.SECOND), 2);
+        formatted.append('Z');
+
+        return formatted.toString();
+    }
+
+    /**
+     * Appends a number zero padded to the passed number of digits.
+     *
+     * @param builder the builder to append to.
+     * @param number the number to append.
+     * @param digits the least number of digits to append.
+     */
+    private static void appendPadded(StringBuilder builder, int number, int digits) {
+
+        String value = String.valueOf(number);
+
+        for (int i = value.length(); i < digits; i++) {
+
+            builder.append('0');
+        }
+
+        builder.append(value);
+    }
+
+    //~Nested Classes-------------------------------------------
+    /**
+     * A written feed, and what it was written from at which versions. What it was written from is 
+     * held weakly, so a cached feed doesn't keep a Schedule no one else holds.
+     */
+    private static final class CachedFeed {
+
+        /**
+         * The Schedule or exams the feed was written from.
+         */
+        private final List<WeakReference<Object>> sources;
+        /**
+         * The version of each of sources when the feed was written.
+         */
+        private final long[] versions;
+        /**
+         * The bytes of the feed.
+         */
+        private final byte[] feed;
+
+        /**
+         * @param sources the Schedule or exams the feed was written from.
+         * @param versions the version of each of sources when the feed was written.
+         * @param feed the bytes of the feed.
+         */
+        private CachedFeed(List<Object> sources, long[] versions, byte[] feed) {
+
+            this.sources = new ArrayList<WeakReference<Object>>(sources.size());
+            for (Object source : sources) {
+
+                this.sources.add(new WeakReference<Object>(source));
+            }
+            this.versions = versions;
+            this.feed = feed;
+        }
+
+        /**
+         * @param others the Schedule or exams a feed is wanted for.
+         * @param otherVersions the version of each of others.
+         * @return true if this feed was written from the very same objects, at the same versions.
+         */
+        private boolean isFor(List<Object> others, long[] otherVersions) {
+
+            if (others.size() != sources.size()) {
+
+                return false;
+            }
+
+            for (int i = 0; i < versions.length; i++) {
+
+                if (sources.get(i).get() != others.get(i) || versions[i] != otherVersions[i]) {
+
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Buffered stream that writes through to another stream while keeping a copy of everything written.
+     */
+    private static final class TeeOutputStream extends BufferedOutputStream {
+
+        /**
+         * The copy of everything written.
+         */
+        private final ByteArrayOutputStream copy;
+
+        /**
+         * @param os the stream to write through to.
+         */
+        private TeeOutputStream(OutputStream os) {
+
+            super(os);
+            copy = new ByteArrayOutputStream(4096);
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+
+            super.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+
+            super.write(b, off, len);
+            copy.write(b, off, len);
+        }
+
+        /**
+         * @return a copy of everything written so far.
+         */
+        private byte[] getCopy() {
+
+            return copy.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.vtaccess.io;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.schedule.CoursePool;
+import com.vtaccess.schedule.Schedule;
+
+/**
+ * Read only List of Schedules loaded by ScheduleIO.loadSchedulesLazily. The first element is the
+ * user's Schedule, which is decoded up front, every following element is a friend's Schedule.
+ *
+ * Friends are held as the undecoded XML of their <Schedule> element, and are only decoded the first
+ * time they are retrieved with get. At most cacheSize decoded friends are kept, the least recently
+ * retrieved one is dropped when the limit is passed, and is decoded again if it is retrieved again.
+ * Keep a reference to any friend's Schedule that is being changed, otherwise the changes can be
+ * lost when it is dropped.
+ *
+ * Friends are decoded with the CoursePool the user's Schedule was loaded with, so they share its Courses. The
+ * pool holds them weakly, a dropped friend's Courses are freed along with it.
+ *
+ * The friends' names can be listed with getOwner without decoding any of them.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class LazyScheduleList extends AbstractList<Schedule> {
+
+    //~Constants----------------------------------------------
+    /**
+     * The default maximum number of decoded friends' Schedules kept.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    //~Data Fields--------------------------------------------
+    /**
+     * The user's Schedule.
+     */
+    private final Schedule owner;
+    /**
+     * The XML of each friend's <Schedule> element, in file order.
+     */
+    private final List<String> friendSegments;
+    /**
+     * The journal records saved for each friend's Schedule since its <Schedule> element was saved.
+     */
+    private final List<List<String>> friendDeltas;
+    /**
+     * The owner of each friend's Schedule, read without decoding the Schedule.
+     */
+    private final List<String> friendOwners;
+    /**
+     * The decoded friends' Schedules, by index in this List, least recently retrieved first.
+     * Guarded by this.
+     */
+    private final Map<Integer, Schedule> decoded;
+    /**
+     * The pool the friends' Courses are canonicalized with.
+     */
+    private final CoursePool courses;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a list using the default cache size.
+     *
+     * @param owner the user's Schedule.
+     * @param friendSegments the XML of each friend's <Schedule> element.
+     * @param friendDeltas the journal records for each friend's Schedule.
+     * @param courses the pool the friends' Courses are canonicalized with.
+     */
+    LazyScheduleList(Schedule owner, List<String> friendSegments, List<List<String>> friendDeltas, 
+            CoursePool courses) {
+
+        this(owner, friendSegments, friendDeltas, courses, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a list.
+     *
+     * @param owner the user's Schedule.
+     * @param friendSegments the XML of each friend's <Schedule> element.
+     * @param friendDeltas the journal records for each friend's Schedule.
+     * @param courses the pool the friends' Courses are canonicalized with.
+     * @param cacheSize the maximum number of decoded friends' Schedules kept, at least 1.
+     */
+    LazyScheduleList(Schedule owner, List<String> friendSegments, List<List<String>> friendDeltas, 
+            CoursePool courses, final int cacheSize) {
+
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("The cache size must be at least 1.");
+        }
+
+        this.owner = owner;
+        this.friendSegments = new ArrayList<String>(friendSegments);
+        this.friendDeltas = new ArrayList<List<String>>(friendDeltas);
+        this.courses = courses;
+
+        friendOwners = new ArrayList<String>(friendSegments.size());
+        for (String segment : friendSegments) {
+
+            friendOwners.add(ScheduleIO.readTag(segment, "Owner"));
+        }
+
+        decoded = new LinkedHashMap<Integer, Schedule>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Schedule> eldest) {
+
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Gets the Schedule at the passed index, decoding it if it is a friend's Schedule
+     * that isn't already decoded.
+     *
+     * @param index the index of the Schedule, 0 is the user's Schedule.
+     * @return the Schedule at index, or null if it could not be decoded.
+     */
+    @Override
+    public Schedule get(int index) {
+
+        if (index == 0) {
+
+            return owner;
+        }
+
+        String segment = friendSegments.get(index - 1);
+        List<String> deltas = friendDeltas.get(index - 1);
+
+        synchronized (this) {
+
+            Schedule friend = decoded.get(index);
+
+            if (friend == null) {
+
+                MetricsRegistry.getDefault().cacheMiss("lazySchedules");
+                friend = ScheduleIO.decodeSchedule(segment, deltas, courses);
+
+                if (friend != null) {
+                    decoded.put(index, friend);
+                }
+            }
+            else {
+                MetricsRegistry.getDefault().cacheHit("lazySchedules");
+            }
+
+            return friend;
+        }
+    }
+
+    /**
+     * @return the number of Schedules, the user's and all friends'.
+     */
+    @Override
+    public int size() {
+
+        return friendSegments.size() + 1;
+    }
+
+    /**
+     * Gets the name of the owner of the Schedule at the passed index without decoding it.
+     *
+     * @param index the index of the Schedule, 0 is the user's Schedule.
+     * @return the owner of the Schedule at index.
+     */
+    public String getOwner(int index) {
+
+        if (index == 0) {
+
+            return owner.getWhosSchedule();
+        }
+
+        return friendOwners.get(index - 1);
+    }
+
+    /**
+     * Checks to see if the Schedule at the passed index is decoded, without decoding it.
+     *
+     * @param index the index of the Schedule, 0 is the user's Schedule.
+     * @return true if the Schedule is held decoded, false otherwise.
+     */
+    public synchronized boolean isDecoded(int index) {
+
+        return index == 0 || decoded.containsKey(index);
+    }
+}
@@ -0,0 +1,736 @@
+package com.vtaccess.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.jsoup.Connection;
+import com.vtaccess.metrics.Counter;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.net.Endpoint;
+
+/**
+ * An archive on disk of the raw pages fetched from banweb, so that crawls can be parsed again after the
+ * parsers change without fetching them again, and terms that are over never need the network again.
+ * Transport records into it and replays from it, see Transport.setArchive.
+ *
+ * An archive is a directory holding two append-only files:
+ *
+ *      pages, each page's body once, Deflate compressed, addressed by the SHA-1 of the body. A page fetched
+ *          again unchanged isn't stored again.
+ *      index, a record for each request recorded, of the request's key, the SHA-1 of its page, and when it
+ *          was fetched. A request recorded again is appended again, and the last record wins.
+ *
+ * Both files are only ever appended to, so an archive is never rewritten, only grown. A record cut short by
+ * a crash is dropped when the archive is next opened. A request's key is its Endpoint, method, path, query
+ * and data, without its host or cookies, see getKey. So an archive recorded from one mirror replays for
+ * another, and holds the schedule pages of whoever was logged in while recording: keep one per user.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class PageArchive implements Closeable {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The name of the file holding the pages.
+     */
+    public static final String PAGES_FILE = "pages";
+    /**
+     * The name of the file holding the index of requests.
+     */
+    public static final String INDEX_FILE = "index";
+    /**
+     * The header of the pages file. "VTP" followed by the format version, 1.
+     */
+    static final byte[] PAGES_MAGIC = { 'V', 'T', 'P', 1 };
+    /**
+     * The header of the index file. "VTI" followed by the format version, 1.
+     */
+    static final byte[] INDEX_MAGIC = { 'V', 'T', 'I', 1 };
+    /**
+     * The bytes in a SHA-1.
+     */
+    private static final int HASH_LENGTH = 20;
+    /**
+     * The bytes before a page's body: its SHA-1, and its compressed and uncompressed lengths.
+     */
+    private static final int PAGE_HEADER_LENGTH = HASH_LENGTH + 8;
+    /**
+     * Size of the buffers placed around the files while they are read.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The directory holding the archive.
+     */
+    private final File directory;
+    /**
+     * Whether requests are recorded into the archive, or replayed from it.
+     */
+    private final Mode mode;
+    /**
+     * The pages file. Guarded by this.
+     */
+    private final RandomAccessFile pages;
+    /**
+     * The index file. Guarded by this.
+     */
+    private final RandomAccessFile index;
+    /**
+     * The offset of each page in the pages file, by the hex of its SHA-1. Guarded by this.
+     */
+    private final Map<String, Long> offsets;
+    /**
+     * The last record of each request, by key. Guarded by this.
+     */
+    private final Map<String, Record> records;
+    /**
+     * A Counter of the requests recorded.
+     */
+    private final Counter recorded;
+    /**
+     * A Counter of the requests recorded whose page was already stored.
+     */
+    private final Counter deduplicated;
+    /**
+     * A Counter of the requests answered from the archive.
+     */
+    private final Counter replayed;
+    /**
+     * A Counter of the requests replayed that weren't in the archive.
+     */
+    private final Counter missing;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Opens an archive, recording into the default MetricsRegistry.
+     *
+     * @param directory the directory holding the archive. Created when recording, if need be.
+     * @param mode whether requests are recorded into the archive, or replayed from it.
+     *
+     * @throws IOException thrown if the archive couldn't be opened, or doesn't exist and is to be replayed.
+     */
+    public PageArchive(File directory, Mode mode) throws IOException {
+
+        this(directory, mode, MetricsRegistry.getDefault());
+    }
+
+    /**
+     * Opens an archive, reading its index into memory.
+     *
+     * @param directory the directory holding the archive. Created when recording, if need be.
+     * @param mode whether requests are recorded into the archive, or replayed from it.
+     * @param registry the registry the requests recorded and replayed are recorded into.
+     *
+     * @throws IOException thrown if the archive couldn't be opened, or doesn't exist and is to be replayed.
+     */
+    public PageArchive(File directory, Mode mode, MetricsRegistry registry) throws IOException {
+
+        if (mode == null) {
+            throw new IllegalArgumentException("mode is null");
+        }
+        if (mode == Mode.RECORD && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("couldn't create " + directory);
+        }
+
+        this.directory = directory;
+        this.mode = mode;
+        offsets = new HashMap<String, Long>();
+        records = new HashMap<String, Record>();
+        recorded = registry.counter("archive.recorded");
+        deduplicated = registry.counter("archive.deduplicated");
+        replayed = registry.counter("archive.replayed");
+        missing = registry.counter("archive.missing");
+
+        String access = mode == Mode.RECORD ? "rw" : "r";
+        File pagesFile = new File(directory, PAGES_FILE);
+        File indexFile = new File(directory, INDEX_FILE);
+        pages = new RandomAccessFile(pagesFile, access);
+        try {
+            index = new RandomAccessFile(indexFile, access);
+            try {
+                long pagesEnd = loadPages(pagesFile);
+                long indexEnd = loadIndex(indexFile);
+                if (mode == Mode.RECORD) {
+
+                    //start a new archive, or drop the records a crash cut short
+                    start(pages, PAGES_MAGIC, pagesEnd);
+                    start(index, INDEX_MAGIC, indexEnd);
+                }
+            }
+            catch (IOException e) {
+                index.close();
+                throw e;
+            }
+        }
+        catch (IOException e) {
+            pages.close();
+            throw e;
+        }
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Makes the key a request is archived under: its Endpoint, method, path and query, and its data sorted,
+     * e.g. "timetable POST /ssb/prod/HZSKVTSC.P_ProcRequest CAMPUS=0&SUBJ_CODE=CS&TERMYEAR=201309".
+     * Neither the host nor the cookies are part of it.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param request the request.
+     * @return the key.
+     */
+    public static String getKey(Endpoint endpoint, Connection.Request request) {
+
+        List<String> data = new ArrayList<String>();
+        for (Connection.KeyVal keyVal : request.data()) {
+            data.add(keyVal.key() + "=" + keyVal.value());
+        }
+        Collections.sort(data);
+
+        StringBuilder key = new StringBuilder();
+        key.append(endpoint.getTag()).append(' ').append(request.method()).append(' ').append(request.url().getFile());
+        for (int i = 0; i < data.size(); i++) {
+            key.append(i == 0 ? ' ' : '&').append(data.get(i));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Records the page a request was answered with, storing the page unless it is already stored.
+     *
+     * @param key the request's key, see getKey.
+     * @param url the URL the page was fetched from, after any redirects.
+     * @param charset the page's charset, null if it wasn't given.
+     * @param body the page.
+     *
+     * @throws IOException thrown if the archive couldn't be written, or is being replayed.
+     */
+    public synchronized void put(String key, String url, String charset, byte[] body) throws IOException {
+
+        if (mode != Mode.RECORD) {
+            throw new IOException(directory + " is open for replay");
+        }
+
+        byte[] hash = hash(body);
+        String hex = toHex(hash);
+        if (offsets.containsKey(hex)) {
+            deduplicated.increment();
+        }
+        else {
+
+            byte[] compressed = deflate(body);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(PAGE_HEADER_LENGTH + compressed.length);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(hash);
+            out.writeInt(compressed.length);
+            out.writeInt(body.length);
+            out.write(compressed);
+
+            //written in one go, so that only a crash can leave part of a page
+            long offset = pages.length();
+            pages.seek(offset);
+            pages.write(bytes.toByteArray());
+            offsets.put(hex, offset);
+        }
+
+        Record record = new Record(hex, System.currentTimeMillis(), url, charset == null ? "" : charset);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(key);
+        out.write(hash);
+        out.writeLong(record.fetched);
+        out.writeUTF(record.url);
+        out.writeUTF(record.charset);
+
+        index.seek(index.length());
+        index.write(bytes.toByteArray());
+        records.put(key, record);
+        recorded.increment();
+    }
+
+    /**
+     * Reads the page a request was last answered with.
+     *
+     * @param key the request's key, see getKey.
+     * @return the page, or null if the request was never recorded.
+     *
+     * @throws IOException thrown if the page couldn't be read, or was corrupted.
+     */
+    public synchronized Page get(String key) throws IOException {
+
+        Record record = records.get(key);
+        if (record == null) {
+
+            missing.increment();
+            return null;
+        }
+
+        Long offset = offsets.get(record.hash);
+        if (offset == null) {
+            throw new IOException("the page of " + key + " is missing from " + directory);
+        }
+
+        pages.seek(offset);
+        byte[] hash = new byte[HASH_LENGTH];
+        pages.readFully(hash);
+        byte[] compressed = new byte[pages.readInt()];
+        byte[] body = new byte[pages.readInt()];
+        pages.readFully(compressed);
+        inflate(compressed, body);
+        if (!Arrays.equals(hash, hash(body)) || !record.hash.equals(toHex(hash))) {
+            throw new IOException("the page of " + key + " is corrupt in " + directory);
+        }
+
+        replayed.increment();
+        return new Page(record.url, record.charset.length() == 0 ? null : record.charset, record.fetched, body);
+    }
+
+    /**
+     * @param key a request's key, see getKey.
+     * @return true if the request was recorded.
+     */
+    public synchronized boolean contains(String key) {
+
+        return records.containsKey(key);
+    }
+
+    /**
+     * @return the number of requests recorded.
+     */
+    public synchronized int size() {
+
+        return records.size();
+    }
+
+    /**
+     * @return the number of distinct pages stored.
+     */
+    public synchronized int getPageCount() {
+
+        return offsets.size();
+    }
+
+    /**
+     * Closes the archive's files.
+     *
+     * @throws IOException thrown if the files couldn't be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+
+        try {
+            pages.close();
+        }
+        finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Reads where each page is in the pages file.
+     *
+     * @param file the pages file.
+     * @return the offset after the last whole page.
+     *
+     * @throws IOException thrown if the file couldn't be read, or isn't a pages file.
+     */
+    private long loadPages(File file) throws IOException {
+
+        long length = file.length();
+        if (length < PAGES_MAGIC.length) {
+            return 0;
+        }
+
+        DataInputStream in = open(file, PAGES_MAGIC);
+        long offset = PAGES_MAGIC.length;
+        try {
+            while (true) {
+
+                byte[] hash = new byte[HASH_LENGTH];
+                in.readFully(hash);
+                int compressed = in.readInt();
+                in.readInt();
+                if (compressed < 0 || compressed > length - offset - PAGE_HEADER_LENGTH) {
+                    break;
+                }
+                in.readFully(new byte[compressed]);
+
+                offsets.put(toHex(hash), offset);
+                offset += PAGE_HEADER_LENGTH + compressed;
+            }
+        }
+        catch (EOFException e) {
+            //the end of the file, or of the last whole page
+        }
+        finally {
+            in.close();
+        }
+        return offset;
+    }
+
+    /**
+     * Reads the last record of each request from the index file.
+     *
+     * @param file the index file.
+     * @return the offset after the last whole record.
+     *
+     * @throws IOException thrown if the file couldn't be read, or isn't an index file.
+     */
+    private long loadIndex(File file) throws IOException {
+
+        if (file.length() < INDEX_MAGIC.length) {
+            return 0;
+        }
+
+        final long[] read = new long[1];
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE) {
+
+            @Override
+            public synchronized int read() throws IOException {
+
+                int b = super.read();
+                if (b >= 0) {
+                    read[0]++;
+                }
+                return b;
+            }
+
+            @Override
+            public synchronized int read(byte[] b, int off, int len) throws IOException {
+
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    read[0] += n;
+                }
+                return n;
+            }
+        });
+        long offset = INDEX_MAGIC.length;
+        try {
+            checkMagic(in, INDEX_MAGIC, file);
+            while (true) {
+
+                String key = in.readUTF();
+                byte[] hash = new byte[HASH_LENGTH];
+                in.readFully(hash);
+                long fetched = in.readLong();
+                String url = in.readUTF();
+                String charset = in.readUTF();
+
+                records.put(key, new Record(toHex(hash), fetched, url, charset));
+                offset = read[0];
+            }
+        }
+        catch (EOFException e) {
+            //the end of the file, or of the last whole record
+        }
+        finally {
+            in.close();
+        }
+        return offset;
+    }
+
+    /**
+     * Opens a file to be read, checking its header.
+     *
+     * @param file the file.
+     * @param magic the header it must start with.
+     * @return the stream to read the rest of the file from.
+     *
+     * @throws IOException thrown if the file couldn't be opened, or has the wrong header.
+     */
+    private static DataInputStream open(File file, byte[] magic) throws IOException {
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        try {
+            checkMagic(in, magic, file);
+        }
+        catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * Reads past a file's header.
+     *
+     * @param in the stream of the file.
+     * @param magic the header it must start with.
+     * @param file the file, for the message.
+     *
+     * @throws IOException thrown if the file has the wrong header.
+     */
+    private static void checkMagic(DataInputStream in, byte[] magic, File file) throws IOException {
+
+        byte[] header = new byte[magic.length];
+        in.readFully(header);
+        if (!Arrays.equals(header, magic)) {
+            throw new IOException(file + " isn't part of a page archive");
+        }
+    }
+
+    /**
+     * Readies a file to be appended to, writing its header if it is new, and dropping anything after the
+     * last whole record.
+     *
+     * @param file the file.
+     * @param magic the file's header.
+     * @param end the offset after the last whole record, 0 for a new file, or one too short for a header.
+     *
+     * @throws IOException thrown if the file couldn't be written.
+     */
+    private static void start(RandomAccessFile file, byte[] magic, long end) throws IOException {
+
+        if (end < magic.length) {
+
+            file.setLength(0);
+            file.write(magic);
+        }
+        else if (file.length() > end) {
+            file.setLength(end);
+        }
+    }
+
+    /**
+     * @param body a page.
+     * @return the SHA-1 of the page.
+     */
+    private static byte[] hash(byte[] body) {
+
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(body);
+        }
+        catch (NoSuchAlgorithmException e) {
+            //every Java platform has SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param bytes some bytes.
+     * @return the bytes in lowercase hex.
+     */
+    private static String toHex(byte[] bytes) {
+
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @param body a page.
+     * @return the page, Deflate compressed.
+     */
+    private static byte[] deflate(byte[] body) {
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        }
+        finally {
+            //release the native memory right away instead of waiting on the GC
+            deflater.end();
+        }
+    }
+
+    /**
+     * @param compressed a page, Deflate compressed.
+     * @param body filled with the page, exactly as long as it.
+     *
+     * @throws IOException thrown if the page is corrupt.
+     */
+    private static void inflate(byte[] compressed, byte[] body) throws IOException {
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < body.length && !inflater.finished()) {
+
+                int n = inflater.inflate(body, length, body.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != body.length) {
+                throw new IOException("a page is cut short");
+            }
+        }
+        catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+        finally {
+            inflater.end();
+        }
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the directory holding the archive.
+     */
+    public File getDirectory() {
+
+        return directory;
+    }
+
+    /**
+     * @return whether requests are recorded into the archive, or replayed from it.
+     */
+    public Mode getMode() {
+
+        return mode;
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * What Transport does with an archive.
+     */
+    public enum Mode {
+
+        /**
+         * Requests are sent as usual, and their pages recorded into the archive.
+         */
+        RECORD,
+        /**
+         * Requests are answered from the archive alone, and fail if they weren't recorded.
+         */
+        REPLAY
+    }
+
+    /**
+     * A page read from the archive.
+     */
+    public static final class Page {
+
+        /**
+         * The URL the page was fetched from.
+         */
+        private final String url;
+        /**
+         * The page's charset, null if it wasn't given.
+         */
+        private final String charset;
+        /**
+         * When the page was fetched, in milliseconds since the epoch.
+         */
+        private final long fetched;
+        /**
+         * The page.
+         */
+        private final byte[] body;
+
+        /**
+         * @param url the URL the page was fetched from.
+         * @param charset the page's charset, null if it wasn't given.
+         * @param fetched when the page was fetched, in milliseconds since the epoch.
+         * @param body the page.
+         */
+        Page(String url, String charset, long fetched, byte[] body) {
+
+            this.url = url;
+            this.charset = charset;
+            this.fetched = fetched;
+            this.body = body;
+        }
+
+        /**
+         * @return the URL the page was fetched from.
+         */
+        public String getUrl() {
+
+            return url;
+        }
+
+        /**
+         * @return the page's charset, null if it wasn't given.
+         */
+        public String getCharset() {
+
+            return charset;
+        }
+
+        /**
+         * @return when the page was fetched, in milliseconds since the epoch.
+         */
+        public long getFetched() {
+
+            return fetched;
+        }
+
+        /**
+         * @return the page, which mustn't be changed.
+         */
+        public byte[] getBody() {
+
+            return body;
+        }
+    }
+
+    /**
+     * The last record of a request in the index.
+     */
+    private static final class Record {
+
+        /**
+         * The hex of the SHA-1 of the request's page.
+         */
+        final String hash;
+        /**
+         * When the page was fetched, in milliseconds since the epoch.
+         */
+        final long fetched;
+        /**
+         * The URL the page was fetched from.
+         */
+        final String url;
+        /**
+         * The page's charset, "" if it wasn't given.
+         */
+        final String charset;
+
+        /**
+         * @param hash the hex of the SHA-1 of the request's page.
+         * @param fetched when the page was fetched.
+         * @param url the URL the page was fetched from.
+         * @param charset the page's charset, "" if it wasn't given.
+         */
+        Record(String hash, long fetched, String url, String charset) {
+
+            this.hash = hash;
+            this.fetched = fetched;
+            this.url = url;
+            this.charset = charset;
+        }
+    }
+}
@@ -1,13 +1,22 @@
 package com.vtaccess.io;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.zip.DeflaterOutputStream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -17,9 +26,13 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import com.vtaccess.jfr.PersistEvent;
 import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CoursePool;
 import com.vtaccess.schedule.Date;
+import com.vtaccess.schedule.Day;
 import com.vtaccess.schedule.Schedule;
+import com.vtaccess.schedule.StringPool;
 
 /**
  * Class containing methods to write a Schedule object to a XML file.
@@ -30,38 +43,85 @@ import com.vtaccess.schedule.Schedule;
  * 
  * Methods which use these fields are non-static so it will be necessary to use this ScheduleIO as 
  * an instantiated object. All static methods require specifically inputted File objects, they do not rely on
- * any fields local to this Class.
+ * any fields local to this Class. The fields belong to each instance, so two ScheduleIO objects pointed at
+ * different files never share state.
  * 
  * The suggested method of using this object is to create toXML methods for objects that you want to be saved,
  * and then in the case where you have objects, within objects being saved, you can easily print them all
  * by having the upper level object holding the other objects call toXML on its lower objects.
  * 
+ * Saves can optionally be Deflate compressed (see setCompressed), loading detects compressed files
+ * automatically from their header.
+ * 
+ * saveChanges saves only the Days that changed since the last save or load, to a journal next to
+ * the schedules file, which loading applies on top of the last full save.
+ * 
  * @author Ethan Gaebel (egaebel)
  * 
  */
 public class ScheduleIO {
 
+    // ~Constants----------------------------------------------
+    /**
+     * The XML tags of the days of a Schedule, in the order of Schedule.getDay.
+     */
+    private static final String[] DAY_TAGS = { "Monday", "Tuesday", "Wednesday", "Thursday",
+            "Friday", "AnyDay" };
+    /**
+     * Suffix added to the schedules file name to get the name of its journal of changed days.
+     */
+    private static final String JOURNAL_SUFFIX = ".delta";
+
     // ~Data Fields--------------------------------------------
     /**
      * File used to store ExamSchedules.
      */
-    private static File examsFile;
+    private File examsFile;
     /**
      * The read in semester value.
      */
-    private static String semester;
+    private String semester;
     /**
      * The name of the examsFile.
      */
-    private static String examsFileName;
+    private String examsFileName;
     /**
      * File used to store schedules.
      */
-    private static File schedulesFile;
+    private File schedulesFile;
     /**
      * File name of the schedulesFile.
      */
-    private static String schedulesFileName;
+    private String schedulesFileName;
+    /**
+     * True if Schedules and exam schedules are to be saved Deflate compressed.
+     * Loading handles both compressed and uncompressed files regardless of this value.
+     */
+    private boolean compressed;
+    /**
+     * The generation written in the schedulesFile by the last full save or load, 
+     * null if this ScheduleIO hasn't saved or loaded one.
+     */
+    private String generation;
+    /**
+     * The owners of the Schedules in the schedulesFile, in file order, as of the last full save or load.
+     */
+    private List<String> savedOwners;
+    /**
+     * The length of the uncompressed XML in the schedulesFile as of the last full save or load, which
+     * the journal is compacted against, since a compressed schedulesFile is several times smaller.
+     */
+    private long savedLength;
+    /**
+     * The generation that the records in the journal belong to, null if the journal hasn't been 
+     * written or loaded by this ScheduleIO since the last full save.
+     */
+    private String journalGeneration;
+    /**
+     * The generation of the newest full save queued by an AsyncScheduleWriter that isn't in the
+     * schedulesFile yet, null if there is none.
+     */
+    private String pendingGeneration;
 
     // ~Constructors--------------------------------------------
     /**
@@ -150,24 +210,148 @@ public class ScheduleIO {
      * @param buddies the user's friends' schedules.
      * @return true if successful, false otherwise.
      */
-    public boolean saveSchedules(Schedule schedule, List<Schedule> buddies) {
+    public synchronized boolean saveSchedules(Schedule schedule, List<Schedule> buddies) {
+        
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        boolean saved = false;
         
         if (schedule != null && schedulesFile != null) {
+
+            String newGeneration = newGeneration();
+            String text = schedulesToXML(schedule, buddies, newGeneration);
             
-            String saveString = schedule.toXML();
-    
-            if (buddies != null && buddies.size() != 0) {
+            if (saveXMLFile(text, "Schedules", schedulesFile, compressed)) {
+                
+                markSaved(schedule, buddies, newGeneration);
+                savedLength = text.length();
+                
+                //the records in the journal belong to the old generation now
+                getJournalFile().delete();
+                saved = true;
+            }
+        }
+        
+        commit(event, "saveSchedules", schedulesFile, null, 
+                schedule == null ? 0 : 1 + (buddies == null ? 0 : buddies.size()), saved);
+        return saved;
+    }
     
-                for (Schedule friend : buddies) {
+    /**
+     * Saves only the Days of the passed in Schedules that have changed since they were last saved
+     * or loaded, by appending them to the journal file kept next to the schedulesFile. 
+     * 
+     * Falls back to a full save with saveSchedules when the journal can't be used: when nothing has
+     * been saved or loaded by this ScheduleIO yet, when Schedules were added, removed, reordered, 
+     * or renamed since then, when the journal has grown larger than the uncompressed schedulesFile, or while a full
+     * save queued by an AsyncScheduleWriter hasn't been written yet. 
+     * The journal is always written as plain XML, even when saves are compressed.
+     * 
+     * @param schedule the user's schedule.
+     * @param buddies the user's friends' schedules, may be null.
+     * @return true if successful, false otherwise.
+     */
+    public synchronized boolean saveChanges(Schedule schedule, List<Schedule> buddies) {
+        
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        boolean saved = saveChangesHelper(schedule, buddies);
+        commit(event, "saveChanges", getJournalFile(), null, 
+                schedule == null ? 0 : 1 + (buddies == null ? 0 : buddies.size()), saved);
+        
+        return saved;
+    }
     
-                    saveString = saveString + "\n" + friend.toXML();
+    /**
+     * Does the work of saveChanges.
+     * 
+     * @param schedule the user's schedule.
+     * @param buddies the user's friends' schedules, may be null.
+     * @return true if successful, false otherwise.
+     */
+    private boolean saveChangesHelper(Schedule schedule, List<Schedule> buddies) {
+        
+        if (schedule == null || schedulesFile == null) {
+            
+            return false;
+        }
+        
+        List<Schedule> schedules = new ArrayList<Schedule>();
+        schedules.add(schedule);
+        
+        if (buddies != null) {
+            schedules.addAll(buddies);
+        }
+        
+        //records journaled now would belong to a generation the schedulesFile doesn't have yet
+        boolean needsFullSave = generation == null || pendingGeneration != null || !schedulesFile.exists() 
+                || !ownersOf(schedules).equals(savedOwners);
+        
+        for (int i = 0; i < schedules.size() && !needsFullSave; i++) {
+            
+            needsFullSave = schedules.get(i).isOwnerDirty();
+        }
+        
+        if (needsFullSave) {
+            
+            return saveSchedules(schedule, buddies);
+        }
+        
+        StringBuilder records = new StringBuilder();
+        
+        for (int i = 0; i < schedules.size(); i++) {
+            
+            List<Day> dirtyDays = schedules.get(i).getDirtyDays();
+            
+            if (!dirtyDays.isEmpty()) {
+                
+                records.append("<Delta>\n<Generation>").append(generation).append("</Generation>")
+                        .append("\n<Index>").append(i).append("</Index>")
+                        .append("\n<Owner>").append(schedules.get(i).getWhosSchedule()).append("</Owner>");
+                
+                for (Day day : dirtyDays) {
+                    
+                    records.append(day.toXML());
                 }
+                
+                records.append("\n</Delta>\n");
             }
-
-            return saveXMLFile(saveString, "Schedules", schedulesFile);
         }
         
-        return false;
+        //nothing changed
+        if (records.length() == 0) {
+            
+            return true;
+        }
+        
+        File journal = getJournalFile();
+        boolean sameGeneration = generation.equals(journalGeneration);
+        
+        //compact the journal into the schedulesFile once it outgrows it, uncompressed
+        if (sameGeneration && journal.length() + records.length() > savedLength) {
+            
+            return saveSchedules(schedule, buddies);
+        }
+        
+        try {
+            
+            //start a fresh journal for a new generation
+            appendFile(records.toString(), journal, !sameGeneration);
+        }
+        catch (IOException e) {
+            
+            e.printStackTrace();
+            return false;
+        }
+        
+        journalGeneration = generation;
+        
+        for (Schedule changed : schedules) {
+            
+            changed.markClean();
+        }
+        
+        return true;
     }
     
     /**
@@ -179,23 +363,210 @@ public class ScheduleIO {
      */
     public boolean saveFinalsList(List<Course> finalsList, String semester) {
         
-        if (finalsList != null && schedulesFile != null) {
-             
-            StringBuilder saveString = new StringBuilder("");
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        boolean saved = false;
+        
+        if (finalsList != null && examsFile != null) {
             
-            //loop through all courses in finalsList arrayList, adding their xml
-            for (Course course : finalsList) {
-                
-                saveString.append(course.toXML() + "\n");
+            //always append the finalsList
+            saved = saveXMLFile(finalsListToXML(finalsList, semester), "ExamSchedule", examsFile, compressed);
+        }
+        
+        commit(event, "saveFinalsList", examsFile, semester, finalsList == null ? 0 : finalsList.size(), saved);
+        return saved;
+    }
+    
+    /**
+     * Loads the Schedules stored in this ScheduleIO's schedulesFile.
+     * 
+     * @return a List<Schedule> where the first element is the user's Schedule, and all 
+     *          following elements are the other Schedules in the file. Null if the file could not be read.
+     */
+    public synchronized List<Schedule> loadSchedules() {
+        
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        Document doc = parseFile(schedulesFile);
+        List<Schedule> loadedSchedules = null;
+        
+        if (doc != null) {
+            
+            loadedSchedules = loadSchedules(doc, schedulesFile, new CoursePool());
+            
+            generation = readGeneration(doc);
+            savedOwners = ownersOf(loadedSchedules);
+            savedLength = uncompressedLength(schedulesFile);
+            
+            //the loaded Schedules hold the journaled days, which only stay saved if the journal is kept
+            journalGeneration = getJournalFile().exists() ? generation : null;
+        }
+        
+        commit(event, "loadSchedules", schedulesFile, null, 
+                loadedSchedules == null ? 0 : loadedSchedules.size(), loadedSchedules != null);
+        return loadedSchedules;
+    }
+    
+    /**
+     * Loads the exam schedule stored in this ScheduleIO's examsFile, and sets this
+     * ScheduleIO's semester to the semester saved along with it.
+     * 
+     * @return the List<Course> of the user's final exams. Null if the file could not be read.
+     */
+    public List<Course> loadExams() {
+        
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        Document doc = parseFile(examsFile);
+        List<Course> exams = null;
+        String savedSemester = null;
+        
+        if (doc != null) {
+            
+            savedSemester = loadSemester(doc);
+            if (savedSemester != null) {
+                semester = savedSemester;
             }
             
-            saveString.append("<Semester>" + semester + "</Semester>\n");
+            exams = loadExams(doc);
+        }
+        
+        commit(event, "loadExams", examsFile, savedSemester, exams == null ? 0 : exams.size(), exams != null);
+        return exams;
+    }
+    
+    /**
+     * @return the File that Schedules are saved to/read from.
+     */
+    public File getSchedulesFile() {
+        
+        return schedulesFile;
+    }
+    
+    /**
+     * @return the File that the exam schedule is saved to/read from.
+     */
+    public File getExamsFile() {
+        
+        return examsFile;
+    }
+    
+    /**
+     * @return the File that changed Days are saved to by saveChanges, next to the schedulesFile.
+     */
+    public File getJournalFile() {
+        
+        return journalFor(schedulesFile);
+    }
+    
+    /**
+     * Records that the passed in Schedules were given to a full save of the passed in generation,
+     * marking them clean, so that following calls to saveChanges only save what changes after this.
+     * 
+     * @param schedule the user's schedule.
+     * @param buddies the user's friends' schedules, may be null.
+     * @param savedGeneration the generation written in the full save.
+     */
+    private void markSaved(Schedule schedule, List<Schedule> buddies, String savedGeneration) {
+        
+        List<Schedule> schedules = markClean(schedule, buddies);
+        
+        generation = savedGeneration;
+        savedOwners = ownersOf(schedules);
+        journalGeneration = null;
+        
+        //a queued full save is older than this one
+        pendingGeneration = null;
+    }
+    
+    /**
+     * Records that the passed in Schedules were queued by an AsyncScheduleWriter in a full save of the
+     * passed in generation, marking them clean. Until writeQueuedSave writes it, the schedulesFile and 
+     * its journal keep their generation, and saveChanges makes full saves rather than journaling.
+     * 
+     * @param schedule the user's schedule.
+     * @param buddies the user's friends' schedules, may be null.
+     * @param queuedGeneration the generation of the queued full save.
+     */
+    synchronized void markQueued(Schedule schedule, List<Schedule> buddies, String queuedGeneration) {
+        
+        savedOwners = ownersOf(markClean(schedule, buddies));
+        pendingGeneration = queuedGeneration;
+    }
+    
+    /**
+     * Writes a full save queued with markQueued to the schedulesFile, then switches to its generation
+     * and deletes the journal, which belonged to the generation it replaced. Nothing is written if
+     * a newer full save has been made or queued since.
+     * 
+     * @param text the XML text of the save, from schedulesToXML.
+     * @param queuedGeneration the generation of the save.
+     * @param compress true to compress the file.
+     * @return true if the save was written, false if it was superseded.
+     * 
+     * @throws IOException thrown if the file could not be written.
+     */
+    synchronized boolean writeQueuedSave(String text, String queuedGeneration, boolean compress) 
+            throws IOException {
+        
+        if (!queuedGeneration.equals(pendingGeneration)) {
+            
+            return false;
+        }
+        
+        writeXMLFile(text, "Schedules", schedulesFile, compress, true);
+        
+        generation = queuedGeneration;
+        savedLength = text.length();
+        journalGeneration = null;
+        pendingGeneration = null;
+        getJournalFile().delete();
+        
+        return true;
+    }
+    
+    /**
+     * Helper method, marks the passed in Schedules clean.
+     * 
+     * @param schedule the user's schedule.
+     * @param buddies the user's friends' schedules, may be null.
+     * @return the Schedules, the user's first.
+     */
+    private static List<Schedule> markClean(Schedule schedule, List<Schedule> buddies) {
+        
+        List<Schedule> schedules = new ArrayList<Schedule>();
+        schedules.add(schedule);
+        
+        if (buddies != null) {
+            schedules.addAll(buddies);
+        }
+        
+        for (Schedule saved : schedules) {
             
-            //always append the finalsList
-            return saveXMLFile(saveString.toString(), "ExamSchedule", examsFile);
+            saved.markClean();
         }
         
-        return false;
+        return schedules;
+    }
+    
+    /**
+     * @return true if saves are Deflate compressed, false if they are plain XML.
+     */
+    public boolean isCompressed() {
+        
+        return compressed;
+    }
+    
+    /**
+     * Sets whether saves are Deflate compressed. Compressed files are typically several times
+     * smaller than the plain XML. Loading detects compressed files on its own, so this can be 
+     * changed at any time without breaking files that were already saved.
+     * 
+     * @param compressed true to compress saves, false to save plain XML.
+     */
+    public void setCompressed(boolean compressed) {
+        
+        this.compressed = compressed;
     }
     
     /**
@@ -240,21 +611,31 @@ public class ScheduleIO {
      */
     public static boolean saveXMLFile(String textToAdd, String tagName, File fileToAdd) {
 
+        return saveXMLFile(textToAdd, tagName, fileToAdd, false);
+    }
+    
+    /**
+     * Saves passed in text to a passed in file, with the passed in master tagName, the same
+     * as saveXMLFile(String, String, File), optionally Deflate compressing the file.
+     * 
+     * Compressed files can be read with loadSchedules(File) and loadExams(File) like any other.
+     * 
+     * @param textToAdd
+     *            the text to be written to the XML file.
+     * @param tagName the master tag of the XML document.
+     * @param fileToAdd
+     *            the file to write to.
+     * @param compress true to compress the file, false to write plain XML.
+     * @return true if successful false otherwise
+     */
+    public static boolean saveXMLFile(String textToAdd, String tagName, File fileToAdd, boolean compress) {
+        
         boolean success = false;
 
-        // print xml formatting string and the xml to add
-        String text = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
-                + "<" + tagName + ">\n" + textToAdd + "\n</" + tagName + ">";
-        
         try {
-            // creates an output stream for the FILEIO's myFile
-            OutputStream os = new FileOutputStream(fileToAdd);
-
-            // copy bytes into file
-            os.write(text.getBytes());
-
-            // close down stream
-            os.close();
+            
+            writeXMLFile(textToAdd, tagName, fileToAdd, compress, false);
+            success = true;
         }
         catch (IOException e) {
             e.printStackTrace();
@@ -262,76 +643,506 @@ public class ScheduleIO {
 
         return success;
     }
-
-    //~ LOADING===============================================================================
+    
     /**
-     * Loads a schedule from a string of XML and returns it. 
+     * Writes passed in text to a passed in file, wrapped in the passed in master tagName, 
+     * in the same format as saveXMLFile. Unlike saveXMLFile, failures are thrown to the caller.
      * 
-     * @param xmlSchedule
-     *            Schedule String in XML representation.
+     * The text is streamed through to the file (and the compressor), no copy of the whole
+     * document is made. It is streamed to a temporary file that is then moved over fileToAdd,
+     * so a crash part way through leaves the previous file as it was.
      * 
-     * @return loadedSchedules a List<Schedule> that contains all loaded Scheduled in 
-     *          the xmlSchedule, and has the user's Schedule as the first element.
+     * @param textToAdd the text to be written to the XML file.
+     * @param tagName the master tag of the XML document.
+     * @param fileToAdd the file to write to.
+     * @param compress true to compress the file, false to write plain XML.
+     * @param sync true to force the written bytes to the storage device before returning.
+     * 
+     * @throws IOException thrown if the file could not be written.
      */
-    public static List<Schedule> loadSchedules(String xmlSchedule) {
-
+    static void writeXMLFile(String textToAdd, String tagName, File fileToAdd, 
+            boolean compress, boolean sync) throws IOException {
+        
+        //written next to fileToAdd then moved over it, so a failed write leaves the old file whole
+        File temp = tempFileFor(fileToAdd);
+        boolean replaced = false;
+        
         try {
-            // translate string into a Document object
-            DocumentBuilderFactory factory = DocumentBuilderFactory
-                    .newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-
-            InputSource inputter = new InputSource(
-                    new StringReader(xmlSchedule));
-
-            Document doc = builder.parse(inputter);
-
-            // normalize the text representation
-            doc.getDocumentElement().normalize();
-
-            return loadSchedules(doc);
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
-        catch (ParserConfigurationException e) {
-            e.printStackTrace();
+            
+            FileOutputStream fos = new FileOutputStream(temp);
+            OutputStream os = null;
+            Writer writer = null;
+    
+            try {
+                
+                os = CompressedIO.openOutput(fos, compress);
+                writer = new OutputStreamWriter(os, "UTF-8");
+                
+                // print xml formatting string and the xml to add
+                writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+                writer.write("<" + tagName + ">\n");
+                writer.write(textToAdd);
+                writer.write("\n</" + tagName + ">");
+                writer.flush();
+                
+                if (os instanceof DeflaterOutputStream) {
+                    ((DeflaterOutputStream) os).finish();
+                }
+                os.flush();
+                
+                if (sync) {
+                    fos.getFD().sync();
+                }
+            }
+            finally {
+                // close down stream
+                if (writer != null) {
+                    writer.close();
+                }
+                else if (os != null) {
+                    os.close();
+                }
+                else {
+                    fos.close();
+                }
+            }
+            
+            replaceFile(temp, fileToAdd);
+            replaced = true;
         }
-        catch (SAXException e) {
-            e.printStackTrace();
+        finally {
+            
+            if (!replaced) {
+                temp.delete();
+            }
         }
-
-        return null;
     }
-
+    
     /**
-     * Loads schedules from XML file passed in.
+     * Creates an empty temporary file in the same directory as the passed in file, 
+     * so that it can be moved over the file with replaceFile.
      * 
-     * @param file the File object that is to be read from.
-     * @return loadedSchedules a List<Schedule> where the 
-     *          first element is the user's Schedule, and all following
-     *          elements are the other Schedules in the file.
+     * @param file the file that the temporary file is to replace.
+     * @return the temporary file.
+     * 
+     * @throws IOException thrown if the temporary file could not be created.
      */
-    public static List<Schedule> loadSchedules(File file) {
-
+    static File tempFileFor(File file) throws IOException {
+        
+        return File.createTempFile(file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+    }
+    
+    /**
+     * Moves the passed in temporary file over the passed in file, atomically where the file system 
+     * supports it, so that readers see either the whole old file or the whole new one.
+     * 
+     * @param temp the temporary file, from tempFileFor.
+     * @param file the file to replace.
+     * 
+     * @throws IOException thrown if the file could not be replaced.
+     */
+    static void replaceFile(File temp, File file) throws IOException {
+        
         try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, 
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Builds the text saved between the <Schedules> tags: the user's Schedule followed
+     * by the XML of all of the buddies' Schedules.
+     * 
+     * @param schedule the user's schedule.
+     * @param buddies the user's friends' schedules, may be null.
+     * @return the XML text for the passed in Schedules.
+     */
+    static String schedulesToXML(Schedule schedule, List<Schedule> buddies) {
+        
+        return schedulesToXML(schedule, buddies, null);
+    }
+    
+    /**
+     * Builds the text saved between the <Schedules> tags, the same as schedulesToXML(Schedule, List), 
+     * preceded by the passed in generation. Only records in the journal with the same generation are 
+     * applied when the text is loaded.
+     * 
+     * @param schedule the user's schedule.
+     * @param buddies the user's friends' schedules, may be null.
+     * @param saveGeneration the generation of this save, may be null for none.
+     * @return the XML text for the passed in Schedules.
+     */
+    static String schedulesToXML(Schedule schedule, List<Schedule> buddies, String saveGeneration) {
+        
+        StringBuilder saveString = new StringBuilder();
+        
+        if (saveGeneration != null) {
+            
+            saveString.append("<Generation>").append(saveGeneration).append("</Generation>\n");
+        }
+        
+        saveString.append(schedule.toXML());
+        
+        if (buddies != null && buddies.size() != 0) {
+            
+            for (Schedule friend : buddies) {
+                
+                saveString.append("\n").append(friend.toXML());
+            }
+        }
+        
+        return saveString.toString();
+    }
+    
+    /**
+     * @return a new generation for a full save, different from every other one.
+     */
+    static String newGeneration() {
+        
+        return UUID.randomUUID().toString();
+    }
+    
+    /**
+     * Appends the passed in text to the passed in file, creating it if it doesn't exist.
+     * 
+     * @param text the text to append.
+     * @param file the file to append to.
+     * @param truncate true to replace the contents of the file instead of appending to them.
+     * 
+     * @throws IOException thrown if the file could not be written.
+     */
+    private static void appendFile(String text, File file, boolean truncate) throws IOException {
+        
+        //a replaced file is written aside and moved over, like writeXMLFile
+        File target = truncate ? tempFileFor(file) : file;
+        boolean written = false;
+        
+        try {
+            
+            OutputStream os = new FileOutputStream(target, !truncate);
+            
+            try {
+                os.write(text.getBytes("UTF-8"));
+            }
+            finally {
+                os.close();
+            }
+            
+            if (truncate) {
+                replaceFile(target, file);
+            }
+            written = true;
+        }
+        finally {
+            
+            if (truncate && !written) {
+                target.delete();
+            }
+        }
+    }
+    
+    /**
+     * Builds the text saved between the <ExamSchedule> tags: every Course in the 
+     * finalsList followed by the semester the exams pertain to.
+     * 
+     * @param finalsList the course List of final exam times/dates.
+     * @param semester the semester that the passed in finalsList pertains to.
+     * @return the XML text for the passed in exam schedule.
+     */
+    static String finalsListToXML(List<Course> finalsList, String semester) {
+        
+        StringBuilder saveString = new StringBuilder("");
+        
+        //loop through all courses in finalsList arrayList, adding their xml
+        for (Course course : finalsList) {
+            
+            saveString.append(course.toXML()).append("\n");
+        }
+        
+        saveString.append("<Semester>" + semester + "</Semester>\n");
+        
+        return saveString.toString();
+    }
 
+    /**
+     * Ends a PersistEvent, and fills in and commits it if it is being recorded.
+     * 
+     * @param event the event.
+     * @param operation the name of the method that loaded or saved.
+     * @param file the File loaded or saved, may be null.
+     * @param term the semester of the exams loaded or saved, null if it isn't known.
+     * @param rows the number of Schedules, or exams, loaded or saved.
+     * @param succeeded false if the load or save failed.
+     */
+    private static void commit(PersistEvent event, String operation, File file, String term, 
+            int rows, boolean succeeded) {
+        
+        event.end();
+        if (event.shouldCommit()) {
+            
+            event.operation = operation;
+            event.path = file == null ? null : file.getPath();
+            event.term = term;
+            event.rows = rows;
+            event.bytes = file == null ? 0 : file.length();
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+    
+    //~ LOADING===============================================================================
+    /**
+     * Loads a schedule from a string of XML and returns it. 
+     * 
+     * @param xmlSchedule
+     *            Schedule String in XML representation.
+     * 
+     * @return loadedSchedules a List<Schedule> that contains all loaded Scheduled in 
+     *          the xmlSchedule, and has the user's Schedule as the first element.
+     */
+    public static List<Schedule> loadSchedules(String xmlSchedule) {
+
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        List<Schedule> loadedSchedules = null;
+        
+        try {
             // translate string into a Document object
             DocumentBuilderFactory factory = DocumentBuilderFactory
                     .newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new FileInputStream(file));
 
-            // if the file isn't empty
-            if (doc.getDocumentElement() != null) {
+            InputSource inputter = new InputSource(
+                    new StringReader(xmlSchedule));
 
-                // normalize the text representation
-                doc.getDocumentElement().normalize();
+            Document doc = builder.parse(inputter);
+
+            // normalize the text representation
+            doc.getDocumentElement().normalize();
 
-                // returns result of load
-                return loadSchedules(doc);
+            loadedSchedules = loadSchedules(doc, null, new CoursePool());
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        catch (ParserConfigurationException e) {
+            e.printStackTrace();
+        }
+        catch (SAXException e) {
+            e.printStackTrace();
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            
+            event.operation = "loadSchedules";
+            event.rows = loadedSchedules == null ? 0 : loadedSchedules.size();
+            event.bytes = xmlSchedule == null ? 0 : xmlSchedule.length();
+            event.succeeded = loadedSchedules != null;
+            event.commit();
+        }
+        
+        return loadedSchedules;
+    }
+
+    /**
+     * Loads schedules from XML file passed in.
+     * 
+     * @param file the File object that is to be read from.
+     * @return loadedSchedules a List<Schedule> where the 
+     *          first element is the user's Schedule, and all following
+     *          elements are the other Schedules in the file.
+     */
+    public static List<Schedule> loadSchedules(File file) {
+
+        return loadSchedules(file, new CoursePool());
+    }
+
+    /**
+     * Loads schedules from XML file passed in, sharing the Courses of its Schedules through the passed in 
+     * CoursePool. Schedules are saved without their term, so only pass the same CoursePool to loads of one term.
+     * 
+     * @param file the File object that is to be read from.
+     * @param courses the pool the loaded Courses are canonicalized with.
+     * @return loadedSchedules a List<Schedule> where the 
+     *          first element is the user's Schedule, and all following
+     *          elements are the other Schedules in the file.
+     */
+    public static List<Schedule> loadSchedules(File file, CoursePool courses) {
+
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        Document doc = parseFile(file);
+        
+        // null if error thrown, or if file DNE
+        List<Schedule> loadedSchedules = doc == null ? null : loadSchedules(doc, file, courses);
+        
+        commit(event, "loadSchedules", file, null, 
+                loadedSchedules == null ? 0 : loadedSchedules.size(), loadedSchedules != null);
+        return loadedSchedules;
+    }
+
+    /**
+     * Loads the Schedules stored in this ScheduleIO's schedulesFile lazily, 
+     * see loadSchedulesLazily(File).
+     * 
+     * @return a LazyScheduleList where the first element is the user's Schedule, and all 
+     *          following elements are the other Schedules in the file. Null if the file could not be read.
+     */
+    public LazyScheduleList loadSchedulesLazily() {
+        
+        return loadSchedulesLazily(schedulesFile);
+    }
+    
+    /**
+     * Loads schedules from the XML file passed in, only decoding the user's Schedule right away.
+     * 
+     * The friends' Schedules are kept as their undecoded XML, each one is decoded the first
+     * time it is retrieved from the returned List, and a bounded number of decoded friends are
+     * kept around (see LazyScheduleList). The friends' names are available without decoding anything.
+     * 
+     * @param file the File object that is to be read from.
+     * @return a LazyScheduleList where the first element is the user's Schedule, and all following
+     *          elements are the other Schedules in the file. Null if the file could not be read.
+     */
+    public static LazyScheduleList loadSchedulesLazily(File file) {
+        
+        return loadSchedulesLazily(file, new CoursePool());
+    }
+    
+    /**
+     * Loads schedules from the XML file passed in lazily, see loadSchedulesLazily(File), sharing the Courses 
+     * of its Schedules through the passed in CoursePool. The returned List keeps the pool to decode friends 
+     * with. Schedules are saved without their term, so only pass the same CoursePool to loads of one term.
+     * 
+     * @param file the File object that is to be read from.
+     * @param courses the pool the loaded Courses are canonicalized with.
+     * @return a LazyScheduleList where the first element is the user's Schedule, and all following
+     *          elements are the other Schedules in the file. Null if the file could not be read.
+     */
+    public static LazyScheduleList loadSchedulesLazily(File file, CoursePool courses) {
+        
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        LazyScheduleList loadedSchedules = loadSchedulesLazilyHelper(file, courses);
+        commit(event, "loadSchedulesLazily", file, null, 
+                loadedSchedules == null ? 0 : loadedSchedules.size(), loadedSchedules != null);
+        
+        return loadedSchedules;
+    }
+    
+    /**
+     * Does the work of loadSchedulesLazily.
+     * 
+     * @param file the File object that is to be read from.
+     * @param courses the pool the loaded Courses are canonicalized with.
+     * @return a LazyScheduleList, null if the file could not be read.
+     */
+    private static LazyScheduleList loadSchedulesLazilyHelper(File file, CoursePool courses) {
+        
+        String text = readFile(file);
+        
+        if (text == null) {
+            
+            return null;
+        }
+        
+        //cut the text up into <Schedule> segments without parsing them
+        List<String> segments = cutSegments(text, "Schedule");
+        
+        if (segments.isEmpty()) {
+            
+            return null;
+        }
+        
+        //the changed days saved since, for each Schedule
+        List<List<String>> deltas = new ArrayList<List<String>>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            
+            deltas.add(new ArrayList<String>(0));
+        }
+        
+        String journal = readFile(journalFor(file));
+        String fileGeneration = readTag(text.substring(0, text.indexOf("<Schedule>")), "Generation");
+        
+        if (journal != null && fileGeneration != null) {
+            
+            for (String record : cutSegments(journal, "Delta")) {
+                
+                int index = deltaIndex(record, fileGeneration, segments.size());
+                
+                if (index != -1 && readTag(segments.get(index), "Owner").equals(readTag(record, "Owner"))) {
+                    
+                    deltas.get(index).add(record);
+                }
+            }
+        }
+        
+        Schedule owner = decodeSchedule(segments.get(0), deltas.get(0), courses);
+        
+        if (owner == null) {
+            
+            return null;
+        }
+        
+        return new LazyScheduleList(owner, segments.subList(1, segments.size()), 
+                deltas.subList(1, deltas.size()), courses);
+    }
+    
+    /**
+     * Decodes a single <Schedule> segment of XML into a Schedule, applies the passed in 
+     * journal records to it, and marks it clean.
+     * 
+     * @param xmlSchedule the text of one <Schedule> element.
+     * @param deltas the text of the <Delta> records for this Schedule, in the order they were saved.
+     * @param courses the pool the decoded Courses are canonicalized with.
+     * @return the decoded Schedule, or null if the text could not be parsed.
+     */
+    static Schedule decodeSchedule(String xmlSchedule, List<String> deltas, CoursePool courses) {
+        
+        Element scheduleEl = parseElement(xmlSchedule);
+        
+        if (scheduleEl == null) {
+            
+            return null;
+        }
+        
+        Schedule schedule = loadSchedule(scheduleEl, courses);
+        
+        for (String delta : deltas) {
+            
+            Element deltaEl = parseElement(delta);
+            
+            if (deltaEl != null) {
+                
+                applyDelta(deltaEl, schedule, courses);
             }
         }
+        
+        schedule.markClean();
+        
+        return schedule;
+    }
+    
+    /**
+     * Parses a piece of XML text holding a single element.
+     * 
+     * @param xml the text of the element.
+     * @return the parsed element, or null if the text could not be parsed.
+     */
+    private static Element parseElement(String xml) {
+        
+        try {
+            
+            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            Document doc = builder.parse(new InputSource(new StringReader(xml)));
+            doc.getDocumentElement().normalize();
+            
+            return doc.getDocumentElement();
+        }
         catch (IOException e) {
             e.printStackTrace();
         }
@@ -341,28 +1152,100 @@ public class ScheduleIO {
         catch (SAXException e) {
             e.printStackTrace();
         }
-       
-        // return null if error thrown, or if file DNE
+        
         return null;
     }
+    
+    /**
+     * Cuts the passed in text up into the text of each of its elements with the passed in
+     * tag name, without parsing it. The elements must not be nested in each other.
+     * 
+     * @param text the text to cut up.
+     * @param tagName the tag name of the elements.
+     * @return the text of each element, in the order they appear.
+     */
+    private static List<String> cutSegments(String text, String tagName) {
+        
+        List<String> segments = new ArrayList<String>();
+        String openTag = "<" + tagName + ">";
+        String closeTag = "</" + tagName + ">";
+        int begin = text.indexOf(openTag);
+        
+        while (begin != -1) {
+            
+            int end = text.indexOf(closeTag, begin);
+            
+            if (end == -1) {
+                
+                break;
+            }
+            
+            end += closeTag.length();
+            segments.add(text.substring(begin, end));
+            begin = text.indexOf(openTag, end);
+        }
+        
+        return segments;
+    }
+    
+    /**
+     * Pulls the text of the first element with the passed in tag name out of a piece of XML, 
+     * without parsing it.
+     * 
+     * @param xml the XML text to search.
+     * @param tagName the tag name of the element.
+     * @return the trimmed text of the element, or null if there is no such element.
+     */
+    static String readTag(String xml, String tagName) {
+        
+        int begin = xml.indexOf("<" + tagName + ">");
+        int end = xml.indexOf("</" + tagName + ">");
+        
+        if (begin == -1 || end < begin) {
+            
+            return null;
+        }
+        
+        return xml.substring(begin + tagName.length() + 2, end).trim();
+    }
+    
+    /**
+     * Checks a <Delta> record from the journal against the schedules it would be applied to.
+     * 
+     * @param record the text of the <Delta> record.
+     * @param fileGeneration the generation of the schedules file.
+     * @param numScheds the number of Schedules in the schedules file.
+     * @return the index of the Schedule the record is for, or -1 if the record doesn't apply.
+     */
+    private static int deltaIndex(String record, String fileGeneration, int numScheds) {
+        
+        String index = readTag(record, "Index");
+        
+        if (!fileGeneration.equals(readTag(record, "Generation")) || index == null 
+                || index.length() == 0 || !isNumber(index)) {
+            
+            return -1;
+        }
+        
+        int value = Integer.parseInt(index);
+        
+        return value < numScheds ? value : -1;
+    }
 
     /**
      * Loads all schedules contained in the passed in doc, returns a List<Schedule> where
      * the first element is the user's Schedule and all other elements are friends Schedules.
      * 
-     * Load each element in schedule by XML tag.
-     * 
      * @param doc the document from which to read the schedules from.
+     * @param file the file the document was read from, null if none.
+     * @param courses the pool the loaded Courses are canonicalized with.
      * @return loadedSchedules a List<Schedule> where the first element is the user's Schedule
      *                          all other indices hold "friends" Schedule objects. 
      */
-    private static List<Schedule> loadSchedules(Document doc) {
+    private static List<Schedule> loadSchedules(Document doc, File file, CoursePool courses) {
 
         //List of Schedules that hold the user's Schedule, and all other Schedules held in the doc
         List<Schedule> loadedSchedules = new ArrayList<Schedule>();
-        
-        //Schedule object that will hold the user's Schedule
-        Schedule loadedSchedule = new Schedule();
 
         // Find base tag of <Schedules>
         NodeList theSchedules = doc.getElementsByTagName("Schedules");
@@ -373,61 +1256,135 @@ public class ScheduleIO {
         // get all of the Schedule tagged objects (get schedule)
         NodeList schedules = theSchedulesEl.getElementsByTagName("Schedule");
 
-        // record number of schedules for testing
-        int numScheds = schedules.getLength();
-
-        // set user's schedule values//----------------------------------
-        Node scheduleNode = schedules.item(0);
-
-        Element scheduleEl = (Element) scheduleNode;
-
-        // set the owner of this schedule (should always be My Schedule)
-        NodeList oneOwnerList = scheduleEl.getElementsByTagName("Owner");
-        Element ownerEl = (Element) oneOwnerList.item(0);
-
-        NodeList ownerFNList = ownerEl.getChildNodes();
-
-        String ownerName = ownerFNList.item(0).getNodeValue().trim().toString();
+        // the user's schedule comes first, followed by the friends' schedules
+        for (int j = 0; j < schedules.getLength(); j++) {
 
-        loadedSchedule.setWhosSchedule(ownerName);
+            loadedSchedules.add(loadSchedule((Element) schedules.item(j), courses));
+        }
+        
+        // apply the days changed since, then everything is as it was saved
+        String journal = readFile(journalFor(file));
+        String fileGeneration = readGeneration(doc);
+        
+        if (journal != null && fileGeneration != null) {
+            
+            for (String record : cutSegments(journal, "Delta")) {
+                
+                int index = deltaIndex(record, fileGeneration, loadedSchedules.size());
+                
+                if (index != -1) {
+                    
+                    Schedule schedule = loadedSchedules.get(index);
+                    Element deltaEl = parseElement(record);
+                    
+                    if (deltaEl != null && schedule.getWhosSchedule().equals(readTag(record, "Owner"))) {
+                        
+                        applyDelta(deltaEl, schedule, courses);
+                    }
+                }
+            }
+        }
+        
+        for (Schedule schedule : loadedSchedules) {
+            
+            schedule.markClean();
+        }
 
-        // ~VARIABLES USED WITHIN BIG LOOP BELOW----------------
-        // holds list of elements tagged by "Course"
-        NodeList courseList;
-        int numCourses;
-        Element courseEl = null;
+        return loadedSchedules;
+    }
+    
+    /**
+     * Helper method, replaces the Days of the passed in Schedule with the Days saved in a 
+     * <Delta> record of the journal.
+     * 
+     * @param deltaEl the <Delta> Element.
+     * @param schedule the Schedule the record was saved for.
+     * @param courses the pool the loaded Courses are canonicalized with.
+     */
+    private static void applyDelta(Element deltaEl, Schedule schedule, CoursePool courses) {
+        
+        for (int k = 0; k < DAY_TAGS.length; k++) {
+            
+            NodeList dayList = deltaEl.getElementsByTagName(DAY_TAGS[k]);
+            
+            if (dayList.getLength() > 0) {
+                
+                Day savedDay = new Day(DAY_TAGS[k]);
+                loadDay((Element) dayList.item(0), savedDay, courses);
+                schedule.getDay(k).setList(savedDay.getList());
+            }
+        }
+    }
+    
+    /**
+     * Helper method, reads the generation saved along with the Schedules.
+     * 
+     * @param doc the Document object holding the Schedules.
+     * @return the generation in the Document, or null if none was saved.
+     */
+    private static String readGeneration(Document doc) {
+        
+        NodeList generationList = doc.getElementsByTagName("Generation");
+        
+        if (generationList.getLength() > 0) {
+            
+            return generationList.item(0).getTextContent().trim();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Helper method, lists the owners of the passed in Schedules.
+     * 
+     * @param schedules the Schedules.
+     * @return the owner of each Schedule, in order.
+     */
+    private static List<String> ownersOf(List<Schedule> schedules) {
+        
+        List<String> owners = new ArrayList<String>(schedules.size());
+        
+        for (Schedule schedule : schedules) {
+            
+            owners.add(schedule.getWhosSchedule());
+        }
+        
+        return owners;
+    }
+    
+    /**
+     * Helper method, gets the journal file kept next to the passed in schedules file.
+     * 
+     * @param file the schedules file.
+     * @return the journal file, or null if file is null.
+     */
+    private static File journalFor(File file) {
+        
+        if (file == null) {
+            
+            return null;
+        }
+        
+        return new File(file.getPath() + JOURNAL_SUFFIX);
+    }
 
-        // Day setting
-        NodeList dayList;
-        Element dayEl;
+    /**
+     * Helper method, loads a single Schedule, its owner and all of its days' Courses, 
+     * from the passed in <Schedule> Element.
+     * 
+     * @param scheduleEl the <Schedule> Element to load.
+     * @param courses the pool the loaded Courses are canonicalized with.
+     * @return the loaded Schedule.
+     */
+    private static Schedule loadSchedule(Element scheduleEl, CoursePool courses) {
 
-        // creates an array with the String values of the days of the week
-        // used as input for .getElementsByTagName
-        String[] days = { "Monday", "Tuesday", "Wednesday", "Thursday",
-                "Friday", "AnyDay" };
+        Schedule loadedSchedule = new Schedule();
 
-        // values used to create a new course object
-        // NodeList used for Name, teacher, room, time, building element lists
-        // Element used for grabbing the correct element from the NodeList
-        // (always 0)
-        NodeList theList = null;
-        Element theEl = null;
+        // set the owner of this schedule
+        NodeList oneOwnerList = scheduleEl.getElementsByTagName("Owner");
+        Element ownerEl = (Element) oneOwnerList.item(0);
 
-        // ---------------------------------------------------
-        String name = "";
-        String teacher = "";
-        String beginTime = "";
-        String endTime = "";
-        String building = "";
-        String room = "";
-        
-        String subjectCode = "";
-        String courseNumber = "";
-        String crn = "";
-        String credits = "";
-        String daysOfCourse = "";
-        String classSize = "";
-        // -----------------------------------------------------//
+        loadedSchedule.setWhosSchedule(ownerEl.getChildNodes().item(0).getNodeValue().trim());
 
         // loops through the days of loadedSchedule
         // then loops through the List of Course objects retrieving courseName,
@@ -435,323 +1392,75 @@ public class ScheduleIO {
         for (int k = 0; k < loadedSchedule.size(); k++) {
 
             // Day setting
-            dayList = scheduleEl.getElementsByTagName(days[k]);
-            dayEl = (Element) dayList.item(0);
-
-            // Course searches
-            courseList = dayEl.getElementsByTagName("Course");
-            numCourses = courseList.getLength();
-
-            // if there are indeed courses on the current day
-            if (numCourses > 0) {
-
-                // loops through current course object extracting name, teacher,
-                // time, building etc....
-                for (int i = 0; i < courseList.getLength(); i++) {
-
-                    // selects the correct course in the day via i
-                    courseEl = (Element) courseList.item(i);
-
-                    // Checks to see if there is in fact a course here
-                    if (((Element) courseEl.getElementsByTagName("Name")
-                            .item(0)).getChildNodes().getLength() != 0) {
-
-                        // Finds each element in a course by Tag and assigns it
-                        // to a variable
-                        // reuses variables
-                        theList = courseEl.getElementsByTagName("Name");
-                        theEl = (Element) theList.item(0);
-                        name = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-
-                        theList = courseEl.getElementsByTagName("Teacher");
-                        theEl = (Element) theList.item(0);
-                        teacher = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-
-                        theList = courseEl.getElementsByTagName("BeginTime");
-                        theEl = (Element) theList.item(0);
-                        beginTime = theEl.getChildNodes().item(0)
-                                .getNodeValue().trim().toString();
-
-                        theList = courseEl.getElementsByTagName("EndTime");
-                        theEl = (Element) theList.item(0);
-                        endTime = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-
-                        theList = courseEl.getElementsByTagName("Building");
-                        theEl = (Element) theList.item(0);
-                        building = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-
-                        theList = courseEl.getElementsByTagName("Room");
-                        theEl = (Element) theList.item(0);
-                        room = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-                        
-                        theList = courseEl.getElementsByTagName("Crn");
-                        theEl = (Element) theList.item(0);
-                        crn = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-                        
-                        theList = courseEl.getElementsByTagName("SubjectCode");
-                        theEl = (Element) theList.item(0);
-                        subjectCode = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-                        
-                        theList = courseEl.getElementsByTagName("CourseNumber");
-                        theEl = (Element) theList.item(0);
-                        courseNumber = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-
-                        theList = courseEl.getElementsByTagName("Credits");
-                        theEl = (Element) theList.item(0);
-                        credits = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-                        
-                        theList = courseEl.getElementsByTagName("Days");
-                        theEl = (Element) theList.item(0);
-                        daysOfCourse = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-                        
-                        theList = courseEl.getElementsByTagName("ClassSize");
-                        theEl = (Element) theList.item(0);
-                        classSize = theEl.getChildNodes().item(0).getNodeValue()
-                                .trim().toString();
-                        
-                        loadedSchedule.getDay(k).addCourse(crn, name, subjectCode, 
-                                courseNumber, credits, classSize, 
-                                teacher, beginTime, endTime,
-                                building, room, daysOfCourse);
-                    }
-                    else {
+            NodeList dayList = scheduleEl.getElementsByTagName(DAY_TAGS[k]);
+            loadDay((Element) dayList.item(0), loadedSchedule.getDay(k), courses);
+        }
 
-                        continue;
-                    }
+        return loadedSchedule;
+    }
 
-                }// end loop through courses for day
-            }
-            else {
+    /**
+     * Helper method, loads all of the Courses in the passed in day Element into the passed in Day.
+     * 
+     * @param dayEl the day Element to load, e.g. <Monday>.
+     * @param day the Day to add the Courses to.
+     * @param courses the pool the loaded Courses are canonicalized with.
+     */
+    private static void loadDay(Element dayEl, Day day, CoursePool courses) {
 
-                System.out.println("No courses added from xml on " + days[k]);
-            }
+        // Course searches
+        NodeList courseList = dayEl.getElementsByTagName("Course");
 
-        }// end loop through days
+        // if there are indeed courses on the current day
+        if (courseList.getLength() > 0) {
 
-        loadedSchedules.add(loadedSchedule);
-        
-        // if there is more than one schedule in the passed doc....
-        if (numScheds > 1) {
+            // loops through current course object extracting name, teacher,
+            // time, building etc....
+            for (int i = 0; i < courseList.getLength(); i++) {
+
+                // selects the correct course in the day via i
+                Element courseEl = (Element) courseList.item(i);
+
+                // Checks to see if there is in fact a course here
+                if (((Element) courseEl.getElementsByTagName("Name")
+                        .item(0)).getChildNodes().getLength() != 0) {
 
-            //load them into the loadedSchedules List<Schedule>.
-            loadFriendsSchedulesFromFile(theSchedulesEl, numScheds, loadedSchedules);
+                    day.addCourse(getTagValue(courseEl, "Crn"), 
+                            getTagValue(courseEl, "Name"), getTagValue(courseEl, "SubjectCode"), 
+                            getTagValue(courseEl, "CourseNumber"), getTagValue(courseEl, "Credits"), 
+                            getTagValue(courseEl, "ClassSize"), getTagValue(courseEl, "Teacher"), 
+                            getTagValue(courseEl, "BeginTime"), getTagValue(courseEl, "EndTime"),
+                            getTagValue(courseEl, "Building"), getTagValue(courseEl, "Room"), 
+                            getTagValue(courseEl, "Days"));
+                }
+            }// end loop through courses for day
+            
+            // Schedules aren't saved with their term, so they share the pools of no term
+            StringPool pool = StringPool.forTerm(null);
+            for (Course course : day.getList()) {
+                
+                course.canonicalize(pool);
+            }
+            courses.canonicalize(null, day);
         }
+        else {
 
-        // returns the first schedule in the Document
-        return loadedSchedules;
+            System.out.println("No courses added from xml on " + day.getThisDay());
+        }
     }
 
     /**
-     * Helper method, loops through the remainder of theSchedulesEl Element loading all of the other schedules
-     * into a List<Schedule>.
+     * Helper method, gets the trimmed text of the first child Element with the passed in tag name.
      * 
-     * @param theSchedulesEl the schedule Element that holds all of the friendsSchedules
-     * @param numScheds the number of schedules
-     * @param schedulesList a List of Schedule objects for the loaded friends schedules to be placed in
+     * @param parentEl the Element to search in.
+     * @param tagName the tag name of the child Element.
+     * @return the trimmed text of the child Element.
      */
-    private static void loadFriendsSchedulesFromFile(Element theSchedulesEl, int numScheds, List<Schedule> schedulesList) {
+    private static String getTagValue(Element parentEl, String tagName) {
 
-        // FRIEND'S SCHEDULE RETRIEVAL//
-        // IF there are more schedules to
-        // get//--------------------------------------------
-        // get them and add them to the list in the same fashion
-        // as the user's schedule was
-        if (numScheds > 1) {
+        Element theEl = (Element) parentEl.getElementsByTagName(tagName).item(0);
 
-            // get all of the Schedule tagged objects (get schedule)
-            NodeList schedules = theSchedulesEl
-                    .getElementsByTagName("Schedule");
-
-            // set up variables to hold users schedules values (used in j loop)
-            Node scheduleNode;
-            Element scheduleEl;
-
-            // holds list of elements tagged by "Course"
-            NodeList courseList;
-            int numCourses;
-            Element courseEl = null;
-
-            // Day setting
-            NodeList dayList;
-            Element dayEl;
-
-            // creates an array with the String values of the days of the week
-            // used as input for .getElementsByTagName
-            String[] days = { "Monday", "Tuesday", "Wednesday", "Thursday",
-                    "Friday", "AnyDay" };
-
-            // values used to create a new course object
-            // NodeList used for Name, teacher, room, time, building element
-            // lists
-            // Element used for grabbing the correct element from the NodeList
-            // (always 0)
-            NodeList theList = null;
-            Element theEl = null;
-
-            // ---------------------------------------------------
-            String name = "";
-            String teacher = "";
-            String beginTime = "";
-            String endTime = "";
-            String building = "";
-            String room = "";
-
-            String subjectCode = "";
-            String courseNumber = "";
-            String crn = "";
-            String credits = "";
-            String daysOfCourse = "";
-            String classSize = "";
-            // ---------------------------------------------------
-            
-            // allocates space for new schedule object
-            Schedule friendSched;
-
-            // loops through all schedules
-            for (int j = 1; j < numScheds; j++) {
-
-                // switches scheduleEl to new schedule object on each iteration
-                scheduleNode = schedules.item(j);
-                scheduleEl = (Element) scheduleNode;
-
-                // creates new schedule object and resets theDay array to refer
-                // to the friend's schedule
-                friendSched = new Schedule();
-
-                // set the owner of this schedule
-                NodeList oneOwnerList = scheduleEl
-                        .getElementsByTagName("Owner");
-                Element ownerEl = (Element) oneOwnerList.item(0);
-                NodeList ownerFNList = ownerEl.getChildNodes();
-
-                // sets the name of the friendSched object to the proper name
-                //String ownerName = "a friend";// ;
-                friendSched.setWhosSchedule(ownerFNList.item(0).getNodeValue().trim().toString());
-
-                // loops through the array theDay
-                // gets courses from that day
-                // then loops through the arraylist of courses retrieving
-                // courseName, teacherName etc
-                for (int k = 0; k < friendSched.size(); k++) {
-
-                    // Day setting
-                    dayList = scheduleEl.getElementsByTagName(days[k]);
-                    dayEl = (Element) dayList.item(0);
-
-                    // Course searches
-                    courseList = dayEl.getElementsByTagName("Course");
-                    numCourses = courseList.getLength();
-
-                    // if there are indeed courses on the current day
-                    if (numCourses > 0) {
-
-                        // loops through current course object extracting name,
-                        // teacher, time, building etc....
-                        for (int i = 0; i < courseList.getLength(); i++) {
-
-                            // selects the correct course in the day via i
-                            courseEl = (Element) courseList.item(i);
-
-                            // Checks to see if there is in fact a course here
-                            if (((Element) courseEl
-                                    .getElementsByTagName("Name").item(0))
-                                    .getChildNodes().getLength() != 0) {
-
-
-                                // Finds each element in a course by Tag and assigns it
-                                // to a variable
-                                // reuses variables
-                                theList = courseEl.getElementsByTagName("Name");
-                                theEl = (Element) theList.item(0);
-                                name = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-
-                                theList = courseEl.getElementsByTagName("Teacher");
-                                theEl = (Element) theList.item(0);
-                                teacher = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-
-                                theList = courseEl.getElementsByTagName("BeginTime");
-                                theEl = (Element) theList.item(0);
-                                beginTime = theEl.getChildNodes().item(0)
-                                        .getNodeValue().trim().toString();
-
-                                theList = courseEl.getElementsByTagName("EndTime");
-                                theEl = (Element) theList.item(0);
-                                endTime = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-
-                                theList = courseEl.getElementsByTagName("Building");
-                                theEl = (Element) theList.item(0);
-                                building = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-
-                                theList = courseEl.getElementsByTagName("Room");
-                                theEl = (Element) theList.item(0);
-                                room = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-                                
-                                theList = courseEl.getElementsByTagName("Crn");
-                                theEl = (Element) theList.item(0);
-                                crn = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-                                
-                                theList = courseEl.getElementsByTagName("SubjectCode");
-                                theEl = (Element) theList.item(0);
-                                subjectCode = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-                                
-                                theList = courseEl.getElementsByTagName("CourseNumber");
-                                theEl = (Element) theList.item(0);
-                                courseNumber = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-
-                                theList = courseEl.getElementsByTagName("Credits");
-                                theEl = (Element) theList.item(0);
-                                credits = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-                                
-                                theList = courseEl.getElementsByTagName("Days");
-                                theEl = (Element) theList.item(0);
-                                daysOfCourse = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-                                
-                                theList = courseEl.getElementsByTagName("ClassSize");
-                                theEl = (Element) theList.item(0);
-                                classSize = theEl.getChildNodes().item(0).getNodeValue()
-                                        .trim().toString();
-                                
-                                friendSched.getDay(k).addCourse(crn, name, subjectCode, 
-                                        courseNumber, credits, classSize, 
-                                        teacher, beginTime, endTime,
-                                        building, room, daysOfCourse);
-                                
-                            }
-                            else {
-
-                                continue;
-                            }
-                        }// end loop through courses for day
-                    }
-                    else {
-
-                        System.out.println("No courses added from xml on " + days[k]);
-                    }
-                }// end loop through days
-                
-            }// end loop through all schedules
-            
-        }// end if more than 1 schedule
+        return theEl.getChildNodes().item(0).getNodeValue().trim();
     }
     
     /**
@@ -763,13 +1472,41 @@ public class ScheduleIO {
      */
     public static List<Course> loadExams(File file) {
 
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        Document doc = parseFile(file);
+        
+        // null if error thrown, or if file DNE
+        List<Course> exams = doc == null ? null : loadExams(doc);
+        
+        commit(event, "loadExams", file, event.isEnabled() && doc != null ? loadSemester(doc) : null, 
+                exams == null ? 0 : exams.size(), exams != null);
+        return exams;
+    }
+    
+    /**
+     * Reads in a file and converts it to a normalized Document object.
+     * 
+     * @param file the file to read from.
+     * @return the Document read from the file, or null if there was an error or the file was empty.
+     */
+    private static Document parseFile(File file) {
+        
         try {
 
             // translate string into a Document object
             DocumentBuilderFactory factory = DocumentBuilderFactory
                     .newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new FileInputStream(file));
+            InputStream is = CompressedIO.openInput(file);
+            Document doc;
+            
+            try {
+                doc = builder.parse(is);
+            }
+            finally {
+                is.close();
+            }
 
             // if the file isn't empty
             if (doc.getDocumentElement() != null) {
@@ -777,24 +1514,94 @@ public class ScheduleIO {
                 // normalize the text representation
                 doc.getDocumentElement().normalize();
 
-                // returns result of load
-                return loadExams(doc);
+                return doc;
             }
         }
         catch (IOException e) {
-            // TODO Auto-generated catch block
             e.printStackTrace();
         }
         catch (ParserConfigurationException e) {
-            // TODO Auto-generated catch block
             e.printStackTrace();
         }
         catch (SAXException e) {
-            // TODO Auto-generated catch block
             e.printStackTrace();
         }
 
-        // return null if error thrown, or if file DNE
+        return null;
+    }
+    
+    /**
+     * Finds the length of the text of a file once uncompressed, reading it through only if it is compressed.
+     * 
+     * @param file the file to measure.
+     * @return the length of the file's text, or 0 if it couldn't be read.
+     */
+    private static long uncompressedLength(File file) {
+        
+        if (!CompressedIO.isCompressed(file)) {
+            
+            return file.length();
+        }
+        
+        String text = readFile(file);
+        return text == null ? 0 : text.length();
+    }
+    
+    /**
+     * Reads in the whole text of a file, compressed or not.
+     * 
+     * @param file the file to read from.
+     * @return the text of the file, or null if there was an error or the file doesn't exist.
+     */
+    private static String readFile(File file) {
+        
+        if (file == null || !file.exists()) {
+            
+            return null;
+        }
+        
+        try {
+            
+            Reader reader = new InputStreamReader(CompressedIO.openInput(file), "UTF-8");
+            StringBuilder text = new StringBuilder((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+            char[] buffer = new char[8192];
+            
+            try {
+                
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    
+                    text.append(buffer, 0, read);
+                }
+            }
+            finally {
+                reader.close();
+            }
+            
+            return text.toString();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Helper method, reads the semester saved along with an exam schedule.
+     * 
+     * @param doc the Document object holding the exam schedule.
+     * @return the semester in the Document, or null if none was saved.
+     */
+    private static String loadSemester(Document doc) {
+        
+        NodeList semesterList = doc.getElementsByTagName("Semester");
+        
+        if (semesterList.getLength() > 0 && semesterList.item(0).getTextContent() != null) {
+            
+            return semesterList.item(0).getTextContent().trim();
+        }
+        
         return null;
     }
     
@@ -807,6 +1614,9 @@ public class ScheduleIO {
     private static List<Course> loadExams (Document doc) {
      
         List<Course> finalsList = new ArrayList<Course>();
+        String term = loadSemester(doc);
+        StringPool pool = StringPool.forTerm(term);
+        CoursePool courses = new CoursePool();
         
         NodeList examSchedule = doc.getElementsByTagName("ExamSchedule");
         
@@ -815,13 +1625,6 @@ public class ScheduleIO {
         Element examEl = (Element) examScheduleNode;
         NodeList examList = examEl.getElementsByTagName("Course");
         
-        NodeList semesterList = examEl.getElementsByTagName("Semester");
-        
-        if(semesterList.getLength() > 0 && semesterList.item(0).getNodeValue() != null) {
-
-            semester = semesterList.item(0).getNodeValue().trim().toString();
-        }
-        
         //~Loop Elements===========================
         // values used to create a new course object
         // NodeList used for Name, teacher, room, time, building element lists
@@ -936,8 +1739,10 @@ public class ScheduleIO {
                     numCredits = 0;
                 }
                 
-                finalsList.add(new Course(crn, name, subjectCode, courseNumber, 
-                        numCredits, teacher, beginTime, endTime, new Date(date), building, room, daysOfCourse));
+                Course exam = new Course(crn, name, subjectCode, courseNumber, 
+                        numCredits, teacher, beginTime, endTime, new Date(date), building, room, daysOfCourse);
+                exam.canonicalize(pool);
+                finalsList.add(courses.canonicalize(term, exam));
             }
         }
         
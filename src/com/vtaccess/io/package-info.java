@@ -1,7 +1,14 @@
 /**
  * This package provides classes for inputting and outputting objects and strings in a pre-formatted way.
  * ScheduleIO, provides the user with methods to save and load Schedules, and Schedule Lists, and a List of
- * Final Exams in a standardized way. SecureIO provides a semi-secure facility to write usernames
+ * Final Exams in a standardized way. AsyncScheduleWriter queues those saves and writes them from a
+ * background thread shared by every writer, so callers never wait on the disk. CompressedIO opens Deflate compressed
+ * streams for ScheduleIO's files and tells them apart from plain XML files. LazyScheduleList holds
+ * Schedules loaded lazily, decoding friends' Schedules only when they are retrieved. ICalendarWriter
+ * streams Schedules and exam schedules out as iCalendar feeds. PageArchive keeps the raw pages fetched from
+ * banweb in an append-only archive on disk, for Transport to replay them from without the network.
+ * CatalogSnapshot writes a whole term's Courses to a columnar file, and loads them back by mapping it into
+ * memory, making Courses only as they are retrieved. SecureIO provides a semi-secure facility to write usernames
  * and passwords to file. (This is really only good enough to provide protection from on site 
  * username & password theft (where someone opens the file and reads it); it will not stand
  * up to any attempts to crack it, and should not be used in situations where a system is
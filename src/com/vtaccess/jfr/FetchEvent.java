@@ -0,0 +1,51 @@
+package com.vtaccess.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event spanning one request to the CAS or banweb servers, from sending it
+ * to reading the whole response. Emitted by Transport.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+@Name("com.vtaccess.Fetch")
+@Label("VTAccess Fetch")
+@Category({ "VTAccess", "Network" })
+@Description("A request to the CAS or banweb servers")
+@StackTrace(false)
+public final class FetchEvent extends jdk.jfr.Event {
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The tag of the Endpoint requested, e.g. "timetable".
+     */
+    @Label("Endpoint")
+    public String endpoint;
+    /**
+     * The term requested, as a semesterCode (YYYYMM), if the request names one.
+     */
+    @Label("Term")
+    public String term;
+    /**
+     * The subject requested, e.g. "CS", if the request names one.
+     */
+    @Label("Subject")
+    public String subject;
+    /**
+     * The bytes received.
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+    /**
+     * False if the request failed.
+     */
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,73 @@
+package com.vtaccess.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event spanning the parsing of a page, or of part of one: the HTML of a
+ * response, the rows of a timetable, the table of a schedule, or the text of prerequisites.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+@Name("com.vtaccess.Parse")
+@Label("VTAccess Parse")
+@Category({ "VTAccess", "Parsing" })
+@Description("Parsing of a page fetched from the CAS or banweb servers")
+@StackTrace(false)
+public final class ParseEvent extends jdk.jfr.Event {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The kind of the parsing of a timetable's rows into Courses.
+     */
+    public static final String TIMETABLE_ROWS = "timetableRows";
+    /**
+     * The kind of the parsing of a schedule detail page's table into a Schedule.
+     */
+    public static final String SCHEDULE_TABLE = "scheduleTable";
+    /**
+     * The kind of the parsing of a print friendly schedule's table into exams.
+     */
+    public static final String EXAM_TABLE = "examTable";
+    /**
+     * The kind of the parsing of a comments page's prerequisites text.
+     */
+    public static final String PREREQUISITES = "prerequisites";
+    /**
+     * The kind of the parsing of a response's HTML, followed by the Endpoint's tag.
+     */
+    public static final String PAGE = "page.";
+
+    //~Data Fields---------------------------------------------
+    /**
+     * What was parsed, one of the kinds above.
+     */
+    @Label("Kind")
+    public String kind;
+    /**
+     * The term of what was parsed, as a semesterCode (YYYYMM), if known.
+     */
+    @Label("Term")
+    public String term;
+    /**
+     * The subject of what was parsed, e.g. "CS", if known.
+     */
+    @Label("Subject")
+    public String subject;
+    /**
+     * The number of rows parsed, or of prerequisites found.
+     */
+    @Label("Rows")
+    public int rows;
+    /**
+     * The bytes parsed, if known.
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,55 @@
+package com.vtaccess.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event spanning a load or save done by ScheduleIO or CatalogSnapshot.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+@Name("com.vtaccess.Persist")
+@Label("VTAccess Persist")
+@Category({ "VTAccess", "Storage" })
+@Description("A load or save of Schedules or exams")
+@StackTrace(false)
+public final class PersistEvent extends jdk.jfr.Event {
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The ScheduleIO or CatalogSnapshot method, e.g. "saveSchedules".
+     */
+    @Label("Operation")
+    public String operation;
+    /**
+     * The path of the file loaded or saved, if any.
+     */
+    @Label("Path")
+    public String path;
+    /**
+     * The term of the exams loaded or saved, as a semesterCode (YYYYMM), if known.
+     */
+    @Label("Term")
+    public String term;
+    /**
+     * The number of Schedules, exams, or Courses loaded or saved.
+     */
+    @Label("Rows")
+    public int rows;
+    /**
+     * The size of the file, or of the XML, loaded or saved.
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+    /**
+     * False if the load or save failed.
+     */
+    @Label("Succeeded")
+    public boolean succeeded;
+}
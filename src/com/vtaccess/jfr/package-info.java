@@ -0,0 +1,9 @@
+/**
+ * This package contains the Flight Recorder events VTAccess emits: a FetchEvent for every request to the CAS
+ * and banweb servers, a ParseEvent for parsing a page or its timetable rows, schedule table or prerequisites,
+ * and a PersistEvent for every load and save done by ScheduleIO and CatalogSnapshot. Each is tagged with the
+ * endpoint or operation, and the term and subject when known, so a recording shows where time goes stage by stage.
+ * The events cost next to nothing unless a recording has them enabled, e.g. with
+ * -XX:StartFlightRecording or jcmd JFR.start.
+ */
+package com.vtaccess.jfr;
@@ -0,0 +1,62 @@
+package com.vtaccess.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count that only goes up, such as the number of requests made or bytes received.
+ * Many threads can add to it at once without contending.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class Counter {
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The count.
+     */
+    private final LongAdder count;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a Counter at 0, not registered anywhere.
+     * Get one from a MetricsRegistry to have it reported.
+     */
+    public Counter() {
+
+        count = new LongAdder();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Adds one.
+     */
+    public void increment() {
+
+        count.increment();
+    }
+
+    /**
+     * @param amount the amount to add, at least 0.
+     */
+    public void add(long amount) {
+
+        count.add(amount);
+    }
+
+    /**
+     * @return the count.
+     */
+    public long get() {
+
+        return count.sum();
+    }
+
+    /**
+     * Sets the count back to 0.
+     */
+    void reset() {
+
+        count.reset();
+    }
+}
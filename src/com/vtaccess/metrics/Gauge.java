@@ -0,0 +1,61 @@
+package com.vtaccess.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A value that goes up and down, such as the number of requests in flight.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class Gauge {
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The value.
+     */
+    private final AtomicLong value;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a Gauge at 0, not registered anywhere.
+     * Get one from a MetricsRegistry to have it reported.
+     */
+    public Gauge() {
+
+        value = new AtomicLong();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Adds one.
+     */
+    public void increment() {
+
+        value.incrementAndGet();
+    }
+
+    /**
+     * Subtracts one.
+     */
+    public void decrement() {
+
+        value.decrementAndGet();
+    }
+
+    /**
+     * @param newValue the value to set.
+     */
+    public void set(long newValue) {
+
+        value.set(newValue);
+    }
+
+    /**
+     * @return the value.
+     */
+    public long get() {
+
+        return value.get();
+    }
+}
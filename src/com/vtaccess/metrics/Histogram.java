@@ -0,0 +1,166 @@
+package com.vtaccess.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A log-linear histogram of values such as latencies in microseconds or sizes in bytes,
+ * which many threads can record into at once without locking.
+ *
+ * Values below 128 have a bucket each; above that, each power of two is split into 64 buckets,
+ * so any percentile read back is within about 1.5% of the recorded value. Memory is fixed at
+ * a few thousand buckets no matter how many values are recorded.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class Histogram {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The number of values below which every value has its own bucket.
+     */
+    private static final int LINEAR = 128;
+    /**
+     * The number of buckets each power of two above LINEAR is split into.
+     */
+    private static final int SUB_BUCKETS = 64;
+    /**
+     * The number of buckets, enough for any positive long.
+     */
+    private static final int BUCKETS = LINEAR + (63 - 6) * SUB_BUCKETS;
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The number of values recorded in each bucket.
+     */
+    private final AtomicLongArray counts;
+    /**
+     * The sum of the values recorded.
+     */
+    private final LongAdder sum;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates an empty histogram, not registered anywhere.
+     * Get one from a MetricsRegistry to have it reported.
+     */
+    public Histogram() {
+
+        counts = new AtomicLongArray(BUCKETS);
+        sum = new LongAdder();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @param value a value, at least 0.
+     * @return the index of the bucket holding the value.
+     */
+    private static int bucketOf(long value) {
+
+        if (value < LINEAR) {
+            return (int) value;
+        }
+
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - 6;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) ((value >> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * @param bucket the index of a bucket.
+     * @return the least value held in the bucket.
+     */
+    private static long valueOf(int bucket) {
+
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+
+        int shift = (bucket - LINEAR) / SUB_BUCKETS + 1;
+        long mantissa = (bucket - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return mantissa << shift;
+    }
+
+    /**
+     * Records one value.
+     *
+     * @param value the value, such as a latency in microseconds. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(value));
+        sum.add(value);
+    }
+
+    /**
+     * @return the number of values recorded.
+     */
+    public long getCount() {
+
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return the mean of the values recorded, 0 if nothing was recorded.
+     */
+    public double getMean() {
+
+        long count = getCount();
+        return (count == 0) ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Gets the value at the passed percentile of the recorded values.
+     *
+     * @param percentile the percentile, e.g. 99.9.
+     * @return the least value of the bucket holding the percentile, 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return valueOf(i);
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return the least value of the highest bucket with a value recorded, 0 if nothing was recorded.
+     */
+    public long getMax() {
+
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+
+            if (counts.get(i) > 0) {
+                return valueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Empties the histogram.
+     */
+    public void reset() {
+
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+    }
+}
@@ -0,0 +1,228 @@
+package com.vtaccess.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds named Counters, Gauges and Histograms. Asking for a name that doesn't exist yet
+ * creates it, so call sites can simply ask for what they record into.
+ *
+ * Names are dotted, the kind of measurement followed by what it is tagged with, e.g.
+ * "fetch.latency.timetable". VTAccess records into the default registry:
+ *      fetch.requests.ENDPOINT, fetch.errors.ENDPOINT - Counters of requests made, and failed.
+ *      fetch.bytes.ENDPOINT - a Counter of bytes received.
+ *      fetch.retries.ENDPOINT, fetch.deadlines.ENDPOINT - Counters of retried attempts, and of requests that ran
+ *              out of time.
+ *      fetch.exhausted.ENDPOINT - a Counter of requests that failed every attempt allowed before their deadline.
+ *      fetch.hedges.ENDPOINT, fetch.hedgeWins.ENDPOINT - Counters of hedged attempts, and of races their duplicate won.
+ *      fetch.inflight.ENDPOINT - a Gauge of requests waiting on a response.
+ *      fetch.latency.ENDPOINT, parse.latency.ENDPOINT - Histograms of microseconds spent fetching, and parsing.
+ *      cache.hits.CACHE, cache.misses.CACHE - Counters of lookups in each cache, see getHitRate.
+ *      governor.limit.HOST - a Gauge of the RequestGovernor's in flight limit for each host.
+ *      governor.waits.HOST - a Counter of requests that waited for the RequestGovernor.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class MetricsRegistry {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The registry that VTAccess records into.
+     */
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The Counters, by name.
+     */
+    private final ConcurrentMap<String, Counter> counters;
+    /**
+     * The Gauges, by name.
+     */
+    private final ConcurrentMap<String, Gauge> gauges;
+    /**
+     * The Histograms, by name.
+     */
+    private final ConcurrentMap<String, Histogram> histograms;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates an empty registry.
+     */
+    public MetricsRegistry() {
+
+        counters = new ConcurrentHashMap<String, Counter>();
+        gauges = new ConcurrentHashMap<String, Gauge>();
+        histograms = new ConcurrentHashMap<String, Histogram>();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @return the registry that VTAccess records into.
+     */
+    public static MetricsRegistry getDefault() {
+
+        return DEFAULT;
+    }
+
+    /**
+     * @param name the name of the Counter.
+     * @return the Counter with the name, created if it doesn't exist.
+     */
+    public Counter counter(String name) {
+
+        Counter counter = counters.get(name);
+        if (counter == null) {
+
+            counter = new Counter();
+            Counter existing = counters.putIfAbsent(name, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * @param name the name of the Gauge.
+     * @return the Gauge with the name, created if it doesn't exist.
+     */
+    public Gauge gauge(String name) {
+
+        Gauge gauge = gauges.get(name);
+        if (gauge == null) {
+
+            gauge = new Gauge();
+            Gauge existing = gauges.putIfAbsent(name, gauge);
+            if (existing != null) {
+                gauge = existing;
+            }
+        }
+        return gauge;
+    }
+
+    /**
+     * @param name the name of the Histogram.
+     * @return the Histogram with the name, created if it doesn't exist.
+     */
+    public Histogram histogram(String name) {
+
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+
+            histogram = new Histogram();
+            Histogram existing = histograms.putIfAbsent(name, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Records a lookup in a cache that found what it was looking for.
+     *
+     * @param cache the name of the cache.
+     */
+    public void cacheHit(String cache) {
+
+        counter("cache.hits." + cache).increment();
+    }
+
+    /**
+     * Records a lookup in a cache that did not find what it was looking for.
+     *
+     * @param cache the name of the cache.
+     */
+    public void cacheMiss(String cache) {
+
+        counter("cache.misses." + cache).increment();
+    }
+
+    /**
+     * @param cache the name of the cache.
+     * @return the fraction of lookups in the cache that were hits, 0 if there were none.
+     */
+    public double getHitRate(String cache) {
+
+        long hits = counter("cache.hits." + cache).get();
+        long misses = counter("cache.misses." + cache).get();
+        return (hits + misses == 0) ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Sets every Counter back to 0 and empties every Histogram. Gauges are left alone,
+     * since they track things that are still going on.
+     */
+    public void reset() {
+
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Formats every metric, one per line, sorted by name. Histograms show their count, mean,
+     * p50, p99, p999 and max.
+     *
+     * @return the metrics.
+     */
+    @Override
+    public String toString() {
+
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Counter> counter : new TreeMap<String, Counter>(counters).entrySet()) {
+
+            builder.append(counter.getKey()).append(' ').append(counter.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Gauge> gauge : new TreeMap<String, Gauge>(gauges).entrySet()) {
+
+            builder.append(gauge.getKey()).append(' ').append(gauge.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(histograms).entrySet()) {
+
+            Histogram histogram = entry.getValue();
+            builder.append(entry.getKey())
+                    .append(" count=").append(histogram.getCount())
+                    .append(" mean=").append(Math.round(histogram.getMean()))
+                    .append(" p50=").append(histogram.getPercentile(50))
+                    .append(" p99=").append(histogram.getPercentile(99))
+                    .append(" p999=").append(histogram.getPercentile(99.9))
+                    .append(" max=").append(histogram.getMax())
+                    .append('\n');
+        }
+        return builder.toString();
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the Counters, by name. Unmodifiable.
+     */
+    public Map<String, Counter> getCounters() {
+
+        return Collections.unmodifiableMap(counters);
+    }
+
+    /**
+     * @return the Gauges, by name. Unmodifiable.
+     */
+    public Map<String, Gauge> getGauges() {
+
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    /**
+     * @return the Histograms, by name. Unmodifiable.
+     */
+    public Map<String, Histogram> getHistograms() {
+
+        return Collections.unmodifiableMap(histograms);
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * This package contains a lightweight metrics registry. MetricsRegistry holds named Counters, Gauges and
+ * log-linear Histograms, and its default registry is recorded into by VTAccess: the latency, bytes, parse time
+ * and failures of every request, by endpoint, and the hits and misses of its caches.
+ * Read it with MetricsRegistry.getDefault() to see where time goes.
+ */
+package com.vtaccess.metrics;
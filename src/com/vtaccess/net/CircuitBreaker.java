@@ -0,0 +1,363 @@
+package com.vtaccess.net;
+
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.vtaccess.metrics.Counter;
+import com.vtaccess.metrics.Gauge;
+import com.vtaccess.metrics.MetricsRegistry;
+
+/**
+ * Stops Transport from waiting on a host that is down, such as banweb during its maintenance windows.
+ * Every host gets a circuit, which is:
+ *
+ *      CLOSED while the host is answering. Requests go through, and once failureThreshold of them in a row
+ *          have failed the circuit opens.
+ *      OPEN for cooldown milliseconds after that. Requests fail at once with a CircuitOpenException, without
+ *          being sent, so callers can fall back to cached data instead of waiting out their deadlines.
+ *      HALF_OPEN once the cooldown is over. One request, the probe, is let through, and the rest fail as if
+ *          the circuit were open. The circuit closes if the probe succeeds, and opens again if it fails.
+ *
+ * Only the probe moves a circuit out of OPEN or HALF_OPEN. A request let through while the circuit was still
+ * closed may end after it opened, its result is then ignored, so a late success can't close the circuit
+ * before its cooldown is over.
+ *
+ * A request fails, as far as a circuit is concerned, if it couldn't be retried into succeeding: it timed out,
+ * couldn't connect, or the server answered with an error of its own (5xx, 408 or 429). Being refused a page
+ * the server does have, e.g. a 404, is an answer, and counts as success.
+ *
+ * The defaults can be set with the system properties vtaccess.breaker.failures and vtaccess.breaker.cooldown.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class CircuitBreaker {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The system property holding the default failures in a row that open a circuit.
+     */
+    public static final String FAILURES_PROPERTY = "vtaccess.breaker.failures";
+    /**
+     * The system property holding the default milliseconds a circuit stays open.
+     */
+    public static final String COOLDOWN_PROPERTY = "vtaccess.breaker.cooldown";
+    /**
+     * The value of a circuit's state gauge when it is closed.
+     */
+    public static final int CLOSED = 0;
+    /**
+     * The value of a circuit's state gauge when it is open.
+     */
+    public static final int OPEN = 1;
+    /**
+     * The value of a circuit's state gauge when it is half open.
+     */
+    public static final int HALF_OPEN = 2;
+    /**
+     * The breaker Transport uses.
+     */
+    private static final CircuitBreaker DEFAULT = new CircuitBreaker(MetricsRegistry.getDefault());
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The registry the states and rejections are recorded into.
+     */
+    private final MetricsRegistry registry;
+    /**
+     * The circuit of each host, by authority (host:port).
+     */
+    private final ConcurrentMap<String, Circuit> circuits;
+    /**
+     * The failures in a row that open a circuit.
+     */
+    private volatile int failureThreshold;
+    /**
+     * The milliseconds a circuit stays open before letting a probe through.
+     */
+    private volatile long cooldown;
+    /**
+     * False if circuits never open.
+     */
+    private volatile boolean enabled;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a breaker with the default thresholds.
+     *
+     * @param registry the registry the states and rejections are recorded into.
+     */
+    public CircuitBreaker(MetricsRegistry registry) {
+
+        this.registry = registry;
+        circuits = new ConcurrentHashMap<String, Circuit>();
+        reset();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @return the breaker that Transport uses.
+     */
+    public static CircuitBreaker getDefault() {
+
+        return DEFAULT;
+    }
+
+    /**
+     * @param url the URL to be requested.
+     * @return the circuit of the url's host, or null if the breaker is turned off.
+     */
+    public Circuit getCircuit(URL url) {
+
+        return enabled ? getCircuit(url.getAuthority()) : null;
+    }
+
+    /**
+     * @param authority the host, and port if any, e.g. "banweb.banner.vt.edu".
+     * @return the circuit of the host, created closed if it doesn't exist.
+     */
+    public Circuit getCircuit(String authority) {
+
+        Circuit circuit = circuits.get(authority);
+        if (circuit == null) {
+
+            circuit = new Circuit(authority);
+            Circuit existing = circuits.putIfAbsent(authority, circuit);
+            if (existing != null) {
+                circuit = existing;
+            }
+        }
+        return circuit;
+    }
+
+    /**
+     * @param url a URL.
+     * @return true if requests to the url's host are being failed without being sent.
+     */
+    public boolean isOpen(URL url) {
+
+        Circuit circuit = circuits.get(url.getAuthority());
+        return enabled && circuit != null && circuit.getState() != CLOSED;
+    }
+
+    /**
+     * Closes and forgets every circuit, and returns the settings to their defaults.
+     */
+    public void reset() {
+
+        circuits.clear();
+        failureThreshold = Integer.parseInt(System.getProperty(FAILURES_PROPERTY, "5"));
+        cooldown = Long.parseLong(System.getProperty(COOLDOWN_PROPERTY, "30000"));
+        enabled = true;
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the failures in a row that open a circuit.
+     */
+    public int getFailureThreshold() {
+
+        return failureThreshold;
+    }
+
+    /**
+     * @return the milliseconds a circuit stays open before letting a probe through.
+     */
+    public long getCooldown() {
+
+        return cooldown;
+    }
+
+    /**
+     * Sets when every circuit opens, and for how long.
+     *
+     * @param failureThreshold the failures in a row that open a circuit, at least 1.
+     * @param cooldown the milliseconds a circuit stays open before letting a probe through.
+     */
+    public void setThresholds(int failureThreshold, long cooldown) {
+
+        if (failureThreshold < 1 || cooldown < 0) {
+            throw new IllegalArgumentException("failureThreshold " + failureThreshold + ", cooldown " + cooldown);
+        }
+        this.failureThreshold = failureThreshold;
+        this.cooldown = cooldown;
+    }
+
+    /**
+     * @return false if circuits never open.
+     */
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * @param enabled false to never fail requests without sending them.
+     */
+    public void setEnabled(boolean enabled) {
+
+        this.enabled = enabled;
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * The circuit of one host.
+     */
+    public final class Circuit {
+
+        /**
+         * The host, and port if any.
+         */
+        private final String authority;
+        /**
+         * CLOSED, OPEN or HALF_OPEN.
+         */
+        private int state;
+        /**
+         * The requests that have failed in a row.
+         */
+        private int failures;
+        /**
+         * When the circuit last opened, in nanoseconds.
+         */
+        private long opened;
+        /**
+         * True while the probe of a half open circuit is in flight.
+         */
+        private boolean probing;
+        /**
+         * A Gauge of the state.
+         */
+        private final Gauge stateGauge;
+        /**
+         * A Counter of the requests failed without being sent.
+         */
+        private final Counter rejections;
+
+        /**
+         * @param authority the host, and port if any.
+         */
+        private Circuit(String authority) {
+
+            this.authority = authority;
+            this.state = CLOSED;
+            this.stateGauge = registry.gauge("breaker.state." + authority);
+            this.rejections = registry.counter("breaker.rejections." + authority);
+            stateGauge.set(CLOSED);
+        }
+
+        /**
+         * Checks that a request may be sent, letting through the probe if the cooldown is over. Must be
+         * followed by a call to succeeded, failed or abandoned once the request is over, passing back
+         * what this returned.
+         *
+         * @return true if the request is the probe of a half open circuit, false if the circuit is closed.
+         *
+         * @throws CircuitOpenException thrown if the request mustn't be sent.
+         */
+        public synchronized boolean allow() throws CircuitOpenException {
+
+            if (state == OPEN && System.nanoTime() - opened >= cooldown * 1000000L) {
+                setState(HALF_OPEN);
+            }
+            if (state == CLOSED) {
+                return false;
+            }
+            if (state == HALF_OPEN && !probing) {
+
+                probing = true;
+                return true;
+            }
+
+            rejections.increment();
+            throw new CircuitOpenException(authority, Math.max(0,
+                    cooldown - (System.nanoTime() - opened) / 1000000L));
+        }
+
+        /**
+         * Records that a request got an answer. The probe closes the circuit, other requests only count
+         * while it is closed.
+         *
+         * @param probe what allow returned for the request.
+         */
+        public synchronized void succeeded(boolean probe) {
+
+            if (probe) {
+
+                probing = false;
+                failures = 0;
+                setState(CLOSED);
+            }
+            else if (state == CLOSED) {
+                failures = 0;
+            }
+        }
+
+        /**
+         * Records that a request failed, opening the circuit if it was the probe, or if it was one too many.
+         * Other requests only count while the circuit is closed.
+         *
+         * @param probe what allow returned for the request.
+         */
+        public synchronized void failed(boolean probe) {
+
+            if (probe || state == CLOSED) {
+
+                failures++;
+                if (probe || failures >= failureThreshold) {
+
+                    probing = false;
+                    opened = System.nanoTime();
+                    setState(OPEN);
+                }
+            }
+        }
+
+        /**
+         * Records that a request ended without an answer either way, e.g. it was interrupted,
+         * leaving the circuit as it is. An abandoned probe lets the next request probe instead.
+         *
+         * @param probe what allow returned for the request.
+         */
+        public synchronized void abandoned(boolean probe) {
+
+            if (probe) {
+                probing = false;
+            }
+        }
+
+        /**
+         * @param newState the new state.
+         */
+        private void setState(int newState) {
+
+            state = newState;
+            stateGauge.set(newState);
+        }
+
+        /**
+         * @return the host, and port if any.
+         */
+        public String getAuthority() {
+
+            return authority;
+        }
+
+        /**
+         * @return CLOSED, OPEN or HALF_OPEN. An open circuit whose cooldown is over stays OPEN until
+         *          a request lets the probe through.
+         */
+        public synchronized int getState() {
+
+            return state;
+        }
+
+        /**
+         * @return the requests that have failed in a row.
+         */
+        public synchronized int getFailures() {
+
+            return failures;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.vtaccess.net;
+
+import java.io.IOException;
+
+/**
+ * Thrown by Transport in place of sending a request to a host whose circuit is open, because
+ * the host has been failing. The request can be tried again once the cooldown is over.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class CircuitOpenException extends IOException {
+
+    //~Constants----------------------------------------------
+    private static final long serialVersionUID = 1L;
+
+    //~Data Fields--------------------------------------------
+    /**
+     * The host, and port if any.
+     */
+    private final String authority;
+    /**
+     * The milliseconds left until a probe is let through.
+     */
+    private final long retryAfter;
+
+    //~Constructors--------------------------------------------
+    /**
+     * @param authority the host, and port if any.
+     * @param retryAfter the milliseconds left until a probe is let through.
+     */
+    public CircuitOpenException(String authority, long retryAfter) {
+
+        super("the circuit to " + authority + " is open, retry after " + retryAfter + " ms");
+        this.authority = authority;
+        this.retryAfter = retryAfter;
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the host, and port if any.
+     */
+    public String getAuthority() {
+
+        return authority;
+    }
+
+    /**
+     * @return the milliseconds left until a probe is let through, 0 if one may be already.
+     */
+    public long getRetryAfter() {
+
+        return retryAfter;
+    }
+}
@@ -0,0 +1,79 @@
+package com.vtaccess.net;
+
+/**
+ * The kinds of pages VTAccess requests from the CAS and banweb servers.
+ * Every request made through Transport is tagged with one, so that it is measured by endpoint.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public enum Endpoint {
+
+    /**
+     * The CAS login form, and logging in with it.
+     */
+    LOGIN("login", false),
+    /**
+     * Logging out of CAS.
+     */
+    LOGOUT("logout", false),
+    /**
+     * The Course timetable, its search page and its listings.
+     */
+    TIMETABLE("timetable", true),
+    /**
+     * The Course comments pop-up, holding prerequisites.
+     */
+    COMMENTS("comments", true),
+    /**
+     * The exam time pop-up of a Course.
+     */
+    EXAM_TIME("examTime", true),
+    /**
+     * The HokieSpa page visited before the schedule detail page, to update the cookies.
+     */
+    SCHEDULE_POPUP("schedulePopup", true),
+    /**
+     * The HokieSpa schedule detail page, plain or print friendly.
+     */
+    SCHEDULE_DETAIL("scheduleDetail", true);
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The name the endpoint's metrics are tagged with.
+     */
+    private final String tag;
+    /**
+     * True if the endpoint's requests can safely be repeated.
+     */
+    private final boolean idempotent;
+
+    //~Constructors--------------------------------------------
+    /**
+     * @param tag the name the endpoint's metrics are tagged with.
+     * @param idempotent true if the endpoint's requests can safely be repeated.
+     */
+    private Endpoint(String tag, boolean idempotent) {
+
+        this.tag = tag;
+        this.idempotent = idempotent;
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the name the endpoint's metrics are tagged with, e.g. "timetable".
+     */
+    public String getTag() {
+
+        return tag;
+    }
+
+    /**
+     * @return true if the endpoint's requests can safely be repeated, so are retried and hedged.
+     *          Logging in and out are not, CAS login tickets can only be used once.
+     */
+    public boolean isIdempotent() {
+
+        return idempotent;
+    }
+}
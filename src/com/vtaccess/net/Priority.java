@@ -0,0 +1,63 @@
+package com.vtaccess.net;
+
+/**
+ * The priority classes of requests, which the RequestScheduler shares a host's capacity between.
+ * Each request takes the priority of the thread making it, see RequestScheduler.setPriority.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public enum Priority {
+
+    /**
+     * Requests a user is waiting on, such as getCourse and retrieveSchedule. The default.
+     */
+    INTERACTIVE("interactive", 16),
+    /**
+     * Requests made ahead of a user needing them, such as warming or revalidating cached data.
+     */
+    PREFETCH("prefetch", 4),
+    /**
+     * Crawls of the whole catalog, and other background work that can wait.
+     * Held back while any interactive requests are waiting.
+     */
+    BULK("bulk", 1);
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The name the priority's metrics are tagged with.
+     */
+    private final String tag;
+    /**
+     * The share of a host's capacity the priority gets by default, relative to the others.
+     */
+    private final int weight;
+
+    //~Constructors--------------------------------------------
+    /**
+     * @param tag the name the priority's metrics are tagged with.
+     * @param weight the share of a host's capacity the priority gets by default.
+     */
+    private Priority(String tag, int weight) {
+
+        this.tag = tag;
+        this.weight = weight;
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the name the priority's metrics are tagged with, e.g. "bulk".
+     */
+    public String getTag() {
+
+        return tag;
+    }
+
+    /**
+     * @return the share of a host's capacity the priority gets by default, relative to the others.
+     */
+    public int getWeight() {
+
+        return weight;
+    }
+}
@@ -0,0 +1,535 @@
+package com.vtaccess.net;
+
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import com.vtaccess.metrics.Counter;
+import com.vtaccess.metrics.Gauge;
+import com.vtaccess.metrics.MetricsRegistry;
+
+/**
+ * Paces the requests Transport makes, so that parallel crawls don't overload the CAS and banweb
+ * servers and get throttled. Every host gets two limits, and a request waits until both allow it:
+ *
+ *      a limit on the requests in flight, adjusted AIMD style. It grows by one for every limit's worth of
+ *          requests that come back quickly, and is halved when a request fails, or takes longer than
+ *          latencyTolerance times the host's unloaded latency (and at least 20 milliseconds longer).
+ *          It stays between minInFlight and maxInFlight. Hedged duplicates of a request ignore it.
+ *      a token bucket, allowing at most rate requests a second, with bursts of up to burst requests.
+ *
+ * The unloaded latency of a host is the fastest request seen, creeping up slowly towards slower ones, so that
+ * it follows a server that has really become slower.
+ *
+ * Which of the requests waiting on a host takes a free slot is decided by the host's RequestScheduler,
+ * by the requests' Priorities.
+ *
+ * The defaults can be set with the system properties vtaccess.governor.rate, vtaccess.governor.burst and
+ * vtaccess.governor.maxInFlight. A rate of 0 turns the token bucket off.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class RequestGovernor {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The system property holding the default requests a second allowed to each host.
+     */
+    public static final String RATE_PROPERTY = "vtaccess.governor.rate";
+    /**
+     * The system property holding the default burst of requests allowed to each host.
+     */
+    public static final String BURST_PROPERTY = "vtaccess.governor.burst";
+    /**
+     * The system property holding the default most requests in flight to each host.
+     */
+    public static final String MAX_IN_FLIGHT_PROPERTY = "vtaccess.governor.maxInFlight";
+    /**
+     * The in flight limit a host starts at.
+     */
+    private static final int INITIAL_IN_FLIGHT = 4;
+    /**
+     * How much of the way towards a slower request the unloaded latency creeps, as a divisor.
+     */
+    private static final long BASELINE_DRIFT = 64;
+    /**
+     * How much slower than the unloaded latency a request must also be to count as slow, in nanoseconds,
+     * so that the jitter of a fast server isn't mistaken for load.
+     */
+    private static final long MIN_SLOWDOWN = 20 * 1000000L;
+    /**
+     * The governor Transport uses.
+     */
+    private static final RequestGovernor DEFAULT = new RequestGovernor(MetricsRegistry.getDefault());
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The registry the limits and waits are recorded into.
+     */
+    private final MetricsRegistry registry;
+    /**
+     * The limits of each host, by authority (host:port).
+     */
+    private final ConcurrentMap<String, Host> hosts;
+    /**
+     * Requests a second allowed to each host, 0 if unlimited.
+     */
+    private volatile double rate;
+    /**
+     * The most requests each host's token bucket holds.
+     */
+    private volatile int burst;
+    /**
+     * The lowest the in flight limit goes.
+     */
+    private volatile int minInFlight;
+    /**
+     * The highest the in flight limit goes.
+     */
+    private volatile int maxInFlight;
+    /**
+     * How many times slower than the unloaded latency a request can be before the limit is lowered.
+     */
+    private volatile double latencyTolerance;
+    /**
+     * False if requests aren't paced at all.
+     */
+    private volatile boolean enabled;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a governor with the default limits.
+     *
+     * @param registry the registry the limits and waits are recorded into.
+     */
+    public RequestGovernor(MetricsRegistry registry) {
+
+        this.registry = registry;
+        hosts = new ConcurrentHashMap<String, Host>();
+        reset();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @return the governor that Transport uses.
+     */
+    public static RequestGovernor getDefault() {
+
+        return DEFAULT;
+    }
+
+    /**
+     * Waits until a request to the url's host is allowed, and counts it as in flight.
+     * Must be followed by a call to release on the returned Host. Transport does this for every
+     * request it makes, call it only to pace requests made some other way.
+     *
+     * @param url the URL to be requested.
+     * @return the Host, or null if the governor is turned off.
+     *
+     * @throws InterruptedException thrown if interrupted while waiting.
+     */
+    public Host acquire(URL url) throws InterruptedException {
+
+        return acquire(url, false);
+    }
+
+    /**
+     * Waits until a request to the url's host is allowed, and counts it as in flight.
+     * Must be followed by a call to release on the returned Host.
+     *
+     * @param url the URL to be requested.
+     * @param hedge true if the request duplicates one that is slow to answer. It only waits for a token,
+     *          the in flight limit would keep it waiting on the very request it is meant to get around.
+     * @return the Host, or null if the governor is turned off.
+     *
+     * @throws InterruptedException thrown if interrupted while waiting.
+     */
+    public Host acquire(URL url, boolean hedge) throws InterruptedException {
+
+        return acquire(url, hedge, RequestScheduler.getPriority());
+    }
+
+    /**
+     * Waits until a request to the url's host is allowed, and its turn comes, and counts it as in flight.
+     * Must be followed by a call to release on the returned Host.
+     *
+     * @param url the URL to be requested.
+     * @param hedge true if the request duplicates one that is slow to answer, see acquire(URL, boolean).
+     * @param priority the request's Priority.
+     * @return the Host, or null if the governor is turned off.
+     *
+     * @throws InterruptedException thrown if interrupted while waiting.
+     */
+    public Host acquire(URL url, boolean hedge, Priority priority) throws InterruptedException {
+
+        if (!enabled) {
+            return null;
+        }
+
+        Host host = getHost(url.getAuthority());
+        host.acquire(hedge, priority);
+        return host;
+    }
+
+    /**
+     * @param authority the host, and port if any, e.g. "banweb.banner.vt.edu".
+     * @return the limits of the host, created if they don't exist.
+     */
+    public Host getHost(String authority) {
+
+        Host host = hosts.get(authority);
+        if (host == null) {
+
+            host = new Host(authority);
+            Host existing = hosts.putIfAbsent(authority, host);
+            if (existing != null) {
+                host = existing;
+            }
+        }
+        return host;
+    }
+
+    /**
+     * Forgets every host's limits, and returns the settings to their defaults.
+     */
+    public void reset() {
+
+        hosts.clear();
+        rate = Double.parseDouble(System.getProperty(RATE_PROPERTY, "10"));
+        burst = Integer.parseInt(System.getProperty(BURST_PROPERTY, "10"));
+        minInFlight = 1;
+        maxInFlight = Integer.parseInt(System.getProperty(MAX_IN_FLIGHT_PROPERTY, "16"));
+        latencyTolerance = 2.0;
+        enabled = true;
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the requests a second allowed to each host, 0 if unlimited.
+     */
+    public double getRate() {
+
+        return rate;
+    }
+
+    /**
+     * @return the most requests each host's token bucket holds.
+     */
+    public int getBurst() {
+
+        return burst;
+    }
+
+    /**
+     * Sets the token bucket of every host.
+     *
+     * @param rate the requests a second allowed to each host, 0 if unlimited.
+     * @param burst the most requests allowed at once after a quiet spell, at least 1.
+     */
+    public void setRate(double rate, int burst) {
+
+        if (rate < 0 || burst < 1) {
+            throw new IllegalArgumentException("rate " + rate + ", burst " + burst);
+        }
+        this.rate = rate;
+        this.burst = burst;
+    }
+
+    /**
+     * @return the lowest the in flight limit goes.
+     */
+    public int getMinInFlight() {
+
+        return minInFlight;
+    }
+
+    /**
+     * @return the highest the in flight limit goes.
+     */
+    public int getMaxInFlight() {
+
+        return maxInFlight;
+    }
+
+    /**
+     * Sets the bounds of every host's in flight limit.
+     *
+     * @param minInFlight the lowest the limit goes, at least 1.
+     * @param maxInFlight the highest the limit goes, at least minInFlight.
+     */
+    public void setInFlightBounds(int minInFlight, int maxInFlight) {
+
+        if (minInFlight < 1 || maxInFlight < minInFlight) {
+            throw new IllegalArgumentException("minInFlight " + minInFlight + ", maxInFlight " + maxInFlight);
+        }
+        this.minInFlight = minInFlight;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * @return how many times slower than the unloaded latency a request can be before the limit is lowered.
+     */
+    public double getLatencyTolerance() {
+
+        return latencyTolerance;
+    }
+
+    /**
+     * @param latencyTolerance how many times slower than the unloaded latency a request can be before the
+     *          limit is lowered, more than 1.
+     */
+    public void setLatencyTolerance(double latencyTolerance) {
+
+        if (latencyTolerance <= 1) {
+            throw new IllegalArgumentException("latencyTolerance " + latencyTolerance);
+        }
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * @return false if requests aren't paced at all.
+     */
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * @param enabled false to stop pacing requests, e.g. when many simulated users share one process.
+     */
+    public void setEnabled(boolean enabled) {
+
+        this.enabled = enabled;
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * The limits of one host, and the requests in flight to it.
+     */
+    public final class Host {
+
+        /**
+         * The host, and port if any.
+         */
+        private final String authority;
+        /**
+         * The current in flight limit, fractional so that it can grow by less than one a request.
+         */
+        private double limit;
+        /**
+         * The requests in flight.
+         */
+        private int inFlight;
+        /**
+         * The tokens in the bucket.
+         */
+        private double tokens;
+        /**
+         * When the bucket was last refilled, in nanoseconds.
+         */
+        private long refilled;
+        /**
+         * The latency of the host when not loaded, in nanoseconds, 0 until a request succeeds.
+         */
+        private long baseline;
+        /**
+         * When the limit was last lowered, in nanoseconds.
+         */
+        private long lowered;
+        /**
+         * A Gauge of the in flight limit.
+         */
+        private final Gauge limitGauge;
+        /**
+         * A Counter of the requests that had to wait.
+         */
+        private final Counter waits;
+        /**
+         * Decides which waiting request takes the next free slot.
+         */
+        private final RequestScheduler scheduler;
+
+        /**
+         * @param authority the host, and port if any.
+         */
+        private Host(String authority) {
+
+            this.authority = authority;
+            limit = Math.min(INITIAL_IN_FLIGHT, maxInFlight);
+            tokens = burst;
+            refilled = System.nanoTime();
+            lowered = refilled;
+            limitGauge = registry.gauge("governor.limit." + authority);
+            waits = registry.counter("governor.waits." + authority);
+            scheduler = new RequestScheduler(registry);
+            limitGauge.set((long) limit);
+        }
+
+        /**
+         * Waits until both limits allow a request, then takes a token and counts the request as in flight.
+         * The request has the current thread's Priority.
+         *
+         * @throws InterruptedException thrown if interrupted while waiting.
+         */
+        public void acquire() throws InterruptedException {
+
+            acquire(false, RequestScheduler.getPriority());
+        }
+
+        /**
+         * Waits until the limits allow a request, then takes a token and counts the request as in flight.
+         * The request has the current thread's Priority.
+         *
+         * @param hedge true to only wait for a token, ignoring the in flight limit and the queue.
+         *
+         * @throws InterruptedException thrown if interrupted while waiting.
+         */
+        public void acquire(boolean hedge) throws InterruptedException {
+
+            acquire(hedge, RequestScheduler.getPriority());
+        }
+
+        /**
+         * Waits until the limits allow a request, and its turn comes, then takes a token and counts the
+         * request as in flight.
+         *
+         * @param hedge true to only wait for a token, ignoring the in flight limit and the queue.
+         * @param priority the request's Priority.
+         *
+         * @throws InterruptedException thrown if interrupted while waiting.
+         */
+        public synchronized void acquire(boolean hedge, Priority priority) throws InterruptedException {
+
+            RequestScheduler.Ticket ticket = hedge ? null : scheduler.enqueue(priority);
+            boolean admitted = false;
+            boolean waited = false;
+            try {
+                while (true) {
+
+                    long now = System.nanoTime();
+                    double currentRate = rate;
+                    if (currentRate > 0) {
+                        tokens = Math.min(burst, tokens + (now - refilled) * currentRate / 1e9);
+                    }
+                    else {
+                        tokens = burst;
+                    }
+                    refilled = now;
+
+                    boolean underLimit = hedge || (inFlight < (int) limit && scheduler.isNext(ticket));
+                    if (underLimit && tokens >= 1) {
+
+                        tokens -= 1;
+                        inFlight++;
+                        if (ticket != null) {
+                            scheduler.admit(ticket);
+                        }
+                        admitted = true;
+                        if (waited) {
+                            waits.increment();
+                        }
+                        return;
+                    }
+
+                    waited = true;
+                    if (!underLimit) {
+
+                        //woken up by release, or by the request ahead being sent
+                        wait();
+                    }
+                    else {
+
+                        long untilToken = (long) ((1 - tokens) * 1e9 / currentRate) + 1;
+                        TimeUnit.NANOSECONDS.timedWait(this, untilToken);
+                    }
+                }
+            }
+            finally {
+
+                if (ticket != null && !admitted) {
+                    scheduler.cancel(ticket);
+                }
+                //the next request in the queue may now go
+                notifyAll();
+            }
+        }
+
+        /**
+         * Counts a request as no longer in flight, and adjusts the limit by how it went.
+         *
+         * @param nanos the time the request took, in nanoseconds.
+         * @param failed true if the request failed.
+         */
+        public synchronized void release(long nanos, boolean failed) {
+
+            inFlight--;
+
+            if (!failed && (baseline == 0 || nanos < baseline)) {
+                baseline = nanos;
+            }
+            else if (!failed) {
+                baseline += (nanos - baseline) / BASELINE_DRIFT;
+            }
+
+            long now = System.nanoTime();
+            if (failed || (nanos > baseline * latencyTolerance && nanos - baseline > MIN_SLOWDOWN)) {
+
+                //lower the limit at most once a round trip, a burst of slow requests is one signal
+                if (now - lowered > baseline) {
+
+                    limit = Math.max(minInFlight, limit / 2);
+                    lowered = now;
+                }
+            }
+            else {
+                limit = Math.min(maxInFlight, limit + 1 / limit);
+            }
+            limit = Math.max(minInFlight, Math.min(maxInFlight, limit));
+
+            limitGauge.set((long) limit);
+            notifyAll();
+        }
+
+        /**
+         * @return the host, and port if any.
+         */
+        public String getAuthority() {
+
+            return authority;
+        }
+
+        /**
+         * @return the current in flight limit.
+         */
+        public synchronized int getLimit() {
+
+            return (int) limit;
+        }
+
+        /**
+         * @return the requests in flight.
+         */
+        public synchronized int getInFlight() {
+
+            return inFlight;
+        }
+
+        /**
+         * @return the latency of the host when not loaded, in nanoseconds, 0 until a request succeeds.
+         */
+        public synchronized long getBaseline() {
+
+            return baseline;
+        }
+
+        /**
+         * @param priority a Priority.
+         * @return the requests of the priority waiting for their turn.
+         */
+        public synchronized int getWaiting(Priority priority) {
+
+            return scheduler.getWaiting(priority);
+        }
+    }
+}
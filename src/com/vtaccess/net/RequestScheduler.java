@@ -0,0 +1,263 @@
+package com.vtaccess.net;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import com.vtaccess.metrics.Histogram;
+import com.vtaccess.metrics.MetricsRegistry;
+
+/**
+ * Decides which of the requests waiting on a host goes next, so that background crawls don't crowd out
+ * the requests users are waiting on. Every request has a Priority, taken from the thread making it:
+ *
+ *      the priorities share the host's capacity by weighted fair queuing. Each waiting request is stamped
+ *          with a virtual finish time, 1 / weight after the later of its priority's last request and the
+ *          request last sent, and the request with the earliest is sent first. So under contention each
+ *          priority gets its weight's share of requests, and none is starved.
+ *      BULK requests are held back entirely while any INTERACTIVE requests are waiting. A crawl is preempted
+ *          at request boundaries: the request it has in flight finishes, its next one waits.
+ *
+ * The RequestGovernor keeps a scheduler for each host, and asks it whether a request may take a free slot.
+ * A thread's priority is set with setPriority, and the weights with setWeight.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class RequestScheduler {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The priority of each thread's requests.
+     */
+    private static final ThreadLocal<Priority> PRIORITY = new ThreadLocal<Priority>() {
+
+        @Override
+        protected Priority initialValue() {
+
+            return Priority.INTERACTIVE;
+        }
+    };
+    /**
+     * The Priorities, by ordinal.
+     */
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The weight of each Priority, by ordinal, replaced rather than modified.
+     */
+    private static volatile double[] weights = defaultWeights();
+    /**
+     * The waiting requests of each Priority, by ordinal, oldest first.
+     */
+    private final List<LinkedList<Ticket>> queues;
+    /**
+     * The virtual finish time of the last request queued of each Priority, by ordinal.
+     */
+    private final double[] lastFinish;
+    /**
+     * The virtual finish time of the last request sent.
+     */
+    private double virtualTime;
+    /**
+     * Histograms of the microseconds requests of each Priority waited in the queue, by ordinal.
+     */
+    private final Histogram[] queued;
+
+    //~Constructors--------------------------------------------
+    /**
+     * @param registry the registry the time waited is recorded into.
+     */
+    RequestScheduler(MetricsRegistry registry) {
+
+        queues = new ArrayList<LinkedList<Ticket>>(PRIORITIES.length);
+        lastFinish = new double[PRIORITIES.length];
+        queued = new Histogram[PRIORITIES.length];
+        for (int i = 0; i < PRIORITIES.length; i++) {
+
+            queues.add(new LinkedList<Ticket>());
+            queued[i] = registry.histogram("scheduler.queued." + PRIORITIES[i].getTag());
+        }
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @return the priority of the current thread's requests, INTERACTIVE unless it was set.
+     */
+    public static Priority getPriority() {
+
+        return PRIORITY.get();
+    }
+
+    /**
+     * Sets the priority of the current thread's requests. Restore the returned priority when done:
+     *
+     *      Priority previous = RequestScheduler.setPriority(Priority.BULK);
+     *      try {
+     *          ...
+     *      }
+     *      finally {
+     *          RequestScheduler.setPriority(previous);
+     *      }
+     *
+     * @param priority the priority.
+     * @return the priority the thread had before.
+     */
+    public static Priority setPriority(Priority priority) {
+
+        if (priority == null) {
+            throw new IllegalArgumentException("priority is null");
+        }
+
+        Priority previous = PRIORITY.get();
+        PRIORITY.set(priority);
+        return previous;
+    }
+
+    /**
+     * @param priority a Priority.
+     * @return the share of a host's capacity the priority gets, relative to the others.
+     */
+    public static double getWeight(Priority priority) {
+
+        return weights[priority.ordinal()];
+    }
+
+    /**
+     * Sets the share of a host's capacity a priority gets. Takes effect for requests queued after.
+     *
+     * @param priority the Priority.
+     * @param weight the share, relative to the other priorities, more than 0.
+     */
+    public static synchronized void setWeight(Priority priority, double weight) {
+
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("weight " + weight);
+        }
+
+        double[] changed = weights.clone();
+        changed[priority.ordinal()] = weight;
+        weights = changed;
+    }
+
+    /**
+     * Returns every priority's weight to its default.
+     */
+    public static synchronized void resetWeights() {
+
+        weights = defaultWeights();
+    }
+
+    /**
+     * @return the default weight of each Priority, by ordinal.
+     */
+    private static double[] defaultWeights() {
+
+        double[] defaults = new double[PRIORITIES.length];
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            defaults[i] = PRIORITIES[i].getWeight();
+        }
+        return defaults;
+    }
+
+    /**
+     * Queues a request. Must be followed by a call to admit once it is sent, or cancel if it gives up.
+     *
+     * @param priority the request's Priority.
+     * @return the request's place in the queue.
+     */
+    Ticket enqueue(Priority priority) {
+
+        int i = priority.ordinal();
+        double finish = Math.max(virtualTime, lastFinish[i]) + 1 / weights[i];
+        lastFinish[i] = finish;
+
+        Ticket ticket = new Ticket(priority, finish);
+        queues.get(i).add(ticket);
+        return ticket;
+    }
+
+    /**
+     * @param ticket a queued request.
+     * @return true if the request is the one to send next.
+     */
+    boolean isNext(Ticket ticket) {
+
+        boolean interactiveWaiting = !queues.get(Priority.INTERACTIVE.ordinal()).isEmpty();
+        Ticket next = null;
+        for (int i = 0; i < queues.size(); i++) {
+
+            if (queues.get(i).isEmpty() || (interactiveWaiting && PRIORITIES[i] == Priority.BULK)) {
+                continue;
+            }
+
+            Ticket head = queues.get(i).getFirst();
+            if (next == null || head.finish < next.finish) {
+                next = head;
+            }
+        }
+        return next == ticket;
+    }
+
+    /**
+     * Takes a request out of the queue as it is sent.
+     *
+     * @param ticket the request.
+     */
+    void admit(Ticket ticket) {
+
+        queues.get(ticket.priority.ordinal()).remove(ticket);
+        virtualTime = Math.max(virtualTime, ticket.finish);
+        queued[ticket.priority.ordinal()].record((System.nanoTime() - ticket.queued) / 1000);
+    }
+
+    /**
+     * Takes a request out of the queue without it being sent, e.g. because its thread was interrupted.
+     *
+     * @param ticket the request.
+     */
+    void cancel(Ticket ticket) {
+
+        queues.get(ticket.priority.ordinal()).remove(ticket);
+    }
+
+    /**
+     * @param priority a Priority.
+     * @return the requests of the priority waiting.
+     */
+    int getWaiting(Priority priority) {
+
+        return queues.get(priority.ordinal()).size();
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * A request's place in the queue.
+     */
+    static final class Ticket {
+
+        /**
+         * The request's Priority.
+         */
+        private final Priority priority;
+        /**
+         * The request's virtual finish time.
+         */
+        private final double finish;
+        /**
+         * When the request was queued, in nanoseconds.
+         */
+        private final long queued;
+
+        /**
+         * @param priority the request's Priority.
+         * @param finish the request's virtual finish time.
+         */
+        Ticket(Priority priority, double finish) {
+
+            this.priority = priority;
+            this.finish = finish;
+            this.queued = System.nanoTime();
+        }
+    }
+}
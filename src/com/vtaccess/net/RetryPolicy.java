@@ -0,0 +1,220 @@
+package com.vtaccess.net;
+
+import java.util.Random;
+
+/**
+ * How long Transport waits on a request, and what it does when the request fails or is slow.
+ *
+ * A request gets a deadline, and each attempt at it a timeout, cut short so that no attempt outlives the
+ * deadline. Requests to idempotent Endpoints are attempted up to maxAttempts times, waiting a random time
+ * of up to backoff * 2^(attempt - 1) milliseconds, and at most maxBackoff, before each retry. If a hedge
+ * percentile is set, an attempt still waiting after that percentile of its Endpoint's latency is raced
+ * against a duplicate, and whichever answers first is used.
+ *
+ * RetryPolicies can't be changed, the with methods return changed copies.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class RetryPolicy {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The policy of requests to idempotent Endpoints: a 45 second deadline, 15 second attempts,
+     * 3 attempts, backing off from 250 milliseconds up to 4 seconds, and no hedging.
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(45000, 15000, 3, 250, 4000, 0);
+    /**
+     * The policy of requests that mustn't be repeated, such as logging in: one 30 second attempt.
+     */
+    public static final RetryPolicy ONCE = new RetryPolicy(30000, 30000, 1, 0, 0, 0);
+    /**
+     * The fewest requests an Endpoint must have made before its latency is trusted for hedging.
+     */
+    public static final int MIN_HEDGE_SAMPLES = 20;
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The milliseconds a request may take in total, retries included.
+     */
+    private final long deadline;
+    /**
+     * The milliseconds one attempt may take.
+     */
+    private final int attemptTimeout;
+    /**
+     * The most attempts made.
+     */
+    private final int maxAttempts;
+    /**
+     * The milliseconds the first retry waits at most.
+     */
+    private final long backoff;
+    /**
+     * The milliseconds any retry waits at most.
+     */
+    private final long maxBackoff;
+    /**
+     * The percentile of latency after which an attempt is hedged, 0 if attempts aren't hedged.
+     */
+    private final double hedgePercentile;
+
+    //~Constructors--------------------------------------------
+    /**
+     * @param deadline the milliseconds a request may take in total, retries included.
+     * @param attemptTimeout the milliseconds one attempt may take.
+     * @param maxAttempts the most attempts made, at least 1.
+     * @param backoff the milliseconds the first retry waits at most.
+     * @param maxBackoff the milliseconds any retry waits at most.
+     * @param hedgePercentile the percentile of latency after which an attempt is hedged, e.g. 95,
+     *          0 to not hedge.
+     */
+    public RetryPolicy(long deadline, int attemptTimeout, int maxAttempts, long backoff, long maxBackoff,
+            double hedgePercentile) {
+
+        if (deadline <= 0 || attemptTimeout <= 0 || maxAttempts < 1 || backoff < 0 || maxBackoff < backoff
+                || hedgePercentile < 0 || hedgePercentile >= 100) {
+            throw new IllegalArgumentException("deadline " + deadline + ", attemptTimeout " + attemptTimeout
+                    + ", maxAttempts " + maxAttempts + ", backoff " + backoff + ", maxBackoff " + maxBackoff
+                    + ", hedgePercentile " + hedgePercentile);
+        }
+
+        this.deadline = deadline;
+        this.attemptTimeout = attemptTimeout;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Picks how long to wait before a retry, anywhere from nothing up to the backoff for the attempt,
+     * so that clients that failed together don't retry together.
+     *
+     * @param attempt the attempt about to be made, 2 for the first retry.
+     * @param random the source of the jitter.
+     * @return the milliseconds to wait.
+     */
+    public long getBackoff(int attempt, Random random) {
+
+        long ceiling = backoff << Math.min(attempt - 2, 30);
+        if (ceiling > maxBackoff || ceiling < 0) {
+            ceiling = maxBackoff;
+        }
+        return ceiling == 0 ? 0 : (long) (random.nextDouble() * (ceiling + 1));
+    }
+
+    /**
+     * @param newDeadline the milliseconds a request may take in total, retries included.
+     * @return a copy of this policy with the deadline.
+     */
+    public RetryPolicy withDeadline(long newDeadline) {
+
+        return new RetryPolicy(newDeadline, (int) Math.min(attemptTimeout, newDeadline), maxAttempts, backoff,
+                maxBackoff, hedgePercentile);
+    }
+
+    /**
+     * @param newAttemptTimeout the milliseconds one attempt may take.
+     * @return a copy of this policy with the attempt timeout.
+     */
+    public RetryPolicy withAttemptTimeout(int newAttemptTimeout) {
+
+        return new RetryPolicy(deadline, newAttemptTimeout, maxAttempts, backoff, maxBackoff, hedgePercentile);
+    }
+
+    /**
+     * @param newMaxAttempts the most attempts made, at least 1.
+     * @return a copy of this policy with the attempts.
+     */
+    public RetryPolicy withMaxAttempts(int newMaxAttempts) {
+
+        return new RetryPolicy(deadline, attemptTimeout, newMaxAttempts, backoff, maxBackoff, hedgePercentile);
+    }
+
+    /**
+     * @param newBackoff the milliseconds the first retry waits at most.
+     * @param newMaxBackoff the milliseconds any retry waits at most.
+     * @return a copy of this policy with the backoff.
+     */
+    public RetryPolicy withBackoff(long newBackoff, long newMaxBackoff) {
+
+        return new RetryPolicy(deadline, attemptTimeout, maxAttempts, newBackoff, newMaxBackoff, hedgePercentile);
+    }
+
+    /**
+     * @param newHedgePercentile the percentile of latency after which an attempt is hedged, e.g. 95,
+     *          0 to not hedge.
+     * @return a copy of this policy with the hedging.
+     */
+    public RetryPolicy withHedging(double newHedgePercentile) {
+
+        return new RetryPolicy(deadline, attemptTimeout, maxAttempts, backoff, maxBackoff, newHedgePercentile);
+    }
+
+    @Override
+    public String toString() {
+
+        return "RetryPolicy [deadline=" + deadline + ", attemptTimeout=" + attemptTimeout
+                + ", maxAttempts=" + maxAttempts + ", backoff=" + backoff + ", maxBackoff=" + maxBackoff
+                + ", hedgePercentile=" + hedgePercentile + "]";
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the milliseconds a request may take in total, retries included.
+     */
+    public long getDeadline() {
+
+        return deadline;
+    }
+
+    /**
+     * @return the milliseconds one attempt may take.
+     */
+    public int getAttemptTimeout() {
+
+        return attemptTimeout;
+    }
+
+    /**
+     * @return the most attempts made.
+     */
+    public int getMaxAttempts() {
+
+        return maxAttempts;
+    }
+
+    /**
+     * @return the milliseconds the first retry waits at most.
+     */
+    public long getBackoff() {
+
+        return backoff;
+    }
+
+    /**
+     * @return the milliseconds any retry waits at most.
+     */
+    public long getMaxBackoff() {
+
+        return maxBackoff;
+    }
+
+    /**
+     * @return the percentile of latency after which an attempt is hedged, 0 if attempts aren't hedged.
+     */
+    public double getHedgePercentile() {
+
+        return hedgePercentile;
+    }
+
+    /**
+     * @return true if attempts are hedged.
+     */
+    public boolean isHedged() {
+
+        return hedgePercentile > 0;
+    }
+}
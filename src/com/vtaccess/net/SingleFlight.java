@@ -0,0 +1,257 @@
+package com.vtaccess.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import com.vtaccess.metrics.Counter;
+import com.vtaccess.metrics.MetricsRegistry;
+
+/**
+ * Coalesces concurrent identical requests, so that callers asking for the same thing at the same time
+ * share one fetch rather than each making their own.
+ *
+ * The first caller with a key, the leader, makes the call. Callers with the same key that arrive while it
+ * is in flight, the followers, wait for it and get its result, or the exception it failed with. Once the
+ * call finishes the key is forgotten, so nothing is cached: the next caller makes a new call.
+ *
+ * Results are often mutable, so a SingleFlight can be given a Copier. When a call was shared, every
+ * caller, the leader included, gets its own copy of the result, and no caller sees the changes of another.
+ * When it wasn't shared the leader gets the result itself, and pays nothing for the copy.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ * @param <V> the type of result.
+ */
+public final class SingleFlight<V> {
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The calls in flight, by key.
+     */
+    private final ConcurrentMap<String, Flight<V>> flights;
+    /**
+     * Copies shared results, null if they are handed out as they are.
+     */
+    private final Copier<V> copier;
+    /**
+     * A Counter of the calls that were made.
+     */
+    private final Counter calls;
+    /**
+     * A Counter of the callers that shared another caller's call rather than making their own.
+     */
+    private final Counter shared;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a SingleFlight that records into the default MetricsRegistry.
+     *
+     * @param name the name of the SingleFlight, used to name its metrics,
+     *          singleflight.calls.NAME and singleflight.shared.NAME.
+     * @param copier copies shared results, or null to hand them to every caller as they are.
+     */
+    public SingleFlight(String name, Copier<V> copier) {
+
+        this(name, copier, MetricsRegistry.getDefault());
+    }
+
+    /**
+     * @param name the name of the SingleFlight, used to name its metrics,
+     *          singleflight.calls.NAME and singleflight.shared.NAME.
+     * @param copier copies shared results, or null to hand them to every caller as they are.
+     * @param registry the MetricsRegistry to record into.
+     */
+    public SingleFlight(String name, Copier<V> copier, MetricsRegistry registry) {
+
+        this.flights = new ConcurrentHashMap<String, Flight<V>>();
+        this.copier = copier;
+        this.calls = registry.counter("singleflight.calls." + name);
+        this.shared = registry.counter("singleflight.shared." + name);
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Makes the call, or if a call with the same key is in flight, waits for it and shares its result.
+     *
+     * @param key identifies the request, callers with equal keys must want the same result.
+     * @param call makes the request, used only if no call with the key is in flight.
+     * @return the result, or a copy of it if the call was shared and there is a Copier.
+     *
+     * @throws IOException thrown if the call, this caller's or the one it shared, failed.
+     */
+    public V execute(String key, Call<V> call) throws IOException {
+
+        while (true) {
+
+            Flight<V> flight = new Flight<V>(call);
+            Flight<V> leader = flights.putIfAbsent(key, flight);
+
+            if (leader == null) {
+
+                calls.increment();
+                try {
+                    flight.task.run();
+                }
+                finally {
+                    flights.remove(key, flight);
+                }
+                return flight.land() ? copy(flight.get()) : flight.get();
+            }
+            else if (leader.join()) {
+
+                shared.increment();
+                return copy(leader.get());
+            }
+            //else the leader landed between being found and being joined, try again
+        }
+    }
+
+    /**
+     * @return the number of calls in flight.
+     */
+    public int getInFlight() {
+
+        return flights.size();
+    }
+
+    /**
+     * Copies a shared result.
+     *
+     * @param value the result.
+     * @return the copy, or the result itself if there is no Copier or it is null.
+     */
+    private V copy(V value) {
+
+        return copier == null || value == null ? value : copier.copy(value);
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * A request that can be coalesced.
+     *
+     * @param <V> the type of result.
+     */
+    public interface Call<V> {
+
+        /**
+         * Makes the request.
+         *
+         * @return the result.
+         *
+         * @throws IOException thrown if the request failed.
+         */
+        V call() throws IOException;
+    }
+
+    /**
+     * Copies results, so that callers sharing a call don't share changes to its result.
+     *
+     * @param <V> the type of result.
+     */
+    public interface Copier<V> {
+
+        /**
+         * @param value the result, never null.
+         * @return a copy of the result that shares nothing mutable with it.
+         */
+        V copy(V value);
+    }
+
+    /**
+     * A call in flight, and the followers that joined it.
+     *
+     * @param <V> the type of result.
+     */
+    private static final class Flight<V> {
+
+        /**
+         * Makes the call, and holds its result.
+         */
+        private final FutureTask<V> task;
+        /**
+         * The followers that joined the call.
+         */
+        private int followers;
+        /**
+         * True once the leader has finished the call, after which no followers can join.
+         */
+        private boolean landed;
+
+        /**
+         * @param call the call.
+         */
+        Flight(final Call<V> call) {
+
+            this.task = new FutureTask<V>(new Callable<V>() {
+
+                @Override
+                public V call() throws IOException {
+
+                    return call.call();
+                }
+            });
+        }
+
+        /**
+         * Joins the call as a follower.
+         *
+         * @return true if joined, false if the leader had already finished it.
+         */
+        synchronized boolean join() {
+
+            if (landed) {
+                return false;
+            }
+
+            followers++;
+            return true;
+        }
+
+        /**
+         * Marks the call as finished, so that no more followers can join.
+         *
+         * @return true if any followers joined, and the result is shared.
+         */
+        synchronized boolean land() {
+
+            landed = true;
+            return followers > 0;
+        }
+
+        /**
+         * Waits for the call to finish.
+         *
+         * @return the result.
+         *
+         * @throws IOException thrown if the call failed, or if the wait was interrupted.
+         */
+        V get() throws IOException {
+
+            try {
+                return task.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting for a shared call");
+            }
+            catch (ExecutionException e) {
+
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,876 @@
+package com.vtaccess.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.Connection.Method;
+import org.jsoup.Connection.Response;
+import org.jsoup.nodes.Document;
+import com.vtaccess.event.PipelineListeners;
+import com.vtaccess.io.PageArchive;
+import com.vtaccess.jfr.FetchEvent;
+import com.vtaccess.jfr.ParseEvent;
+import com.vtaccess.metrics.Counter;
+import com.vtaccess.metrics.Gauge;
+import com.vtaccess.metrics.Histogram;
+import com.vtaccess.metrics.MetricsRegistry;
+
+/**
+ * Every request that VTAccess makes to the CAS and banweb servers goes through here.
+ * Callers build a Jsoup Connection as usual, and hand it over to be executed along with
+ * the Endpoint it is for. Requests wait for the default RequestGovernor to allow them, taking turns by
+ * the Priority of the thread making them, and are given a deadline, retried and hedged as their
+ * Endpoint's RetryPolicy says. They fail at once while the default CircuitBreaker has their host's
+ * circuit open. The time taken, bytes received, time spent parsing and any failures are recorded into
+ * the default MetricsRegistry, tagged by endpoint, emitted as FetchEvents and ParseEvents when Flight
+ * Recorder is recording them, and passed on to the PipelineListeners.
+ *
+ * The pages fetched with get and post from idempotent Endpoints can be recorded into a PageArchive, or
+ * replayed from one without using the network at all, see setArchive. Requests made with execute,
+ * such as logging in, are never archived, as their responses carry credentials and sessions.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class Transport {
+
+    //~Constants-----------------------------------------------
+    /**
+     * Runs the duplicate attempts of hedged requests, and the attempts they race.
+     */
+    private static final ExecutorService HEDGER = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+
+            Thread thread = new Thread(runnable, "vtaccess-hedge");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    /**
+     * The source of each thread's backoff jitter.
+     */
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+
+        @Override
+        protected Random initialValue() {
+
+            return new Random();
+        }
+    };
+    /**
+     * The RetryPolicy of each Endpoint, by ordinal.
+     */
+    private static final RetryPolicy[] POLICIES = new RetryPolicy[Endpoint.values().length];
+    static {
+
+        resetPolicies();
+    }
+    /**
+     * The metrics of each Endpoint, by ordinal.
+     */
+    private static final EndpointMetrics[] METRICS;
+    static {
+
+        Endpoint[] endpoints = Endpoint.values();
+        METRICS = new EndpointMetrics[endpoints.length];
+        for (int i = 0; i < endpoints.length; i++) {
+            METRICS[i] = new EndpointMetrics(MetricsRegistry.getDefault(), endpoints[i].getTag());
+        }
+    }
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The archive pages are recorded into or replayed from, null for none.
+     */
+    private static volatile PageArchive archive;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Blocked, all methods are static.
+     */
+    private Transport() {
+
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Executes a request under its Endpoint's RetryPolicy, and reads its whole response.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param connection the request, ready to be executed.
+     * @return the response, with its body read.
+     *
+     * @throws IOException thrown if every attempt at the request failed, or its deadline passed.
+     */
+    public static Response execute(Endpoint endpoint, Connection connection) throws IOException {
+
+        return execute(endpoint, connection, POLICIES[endpoint.ordinal()]);
+    }
+
+    /**
+     * Executes a request under the passed RetryPolicy, and reads its whole response. Requests to
+     * Endpoints that aren't idempotent are only attempted once, and never hedged. Requests to a host
+     * whose circuit is open fail at once, see CircuitBreaker.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param connection the request, ready to be executed.
+     * @param policy the deadline, retries and hedging of the request.
+     * @return the response, with its body read.
+     *
+     * @throws IOException thrown if every attempt at the request failed, or its deadline passed.
+     *          A CircuitOpenException if the request wasn't sent.
+     */
+    public static Response execute(Endpoint endpoint, Connection connection, RetryPolicy policy) throws IOException {
+
+        CircuitBreaker.Circuit circuit = CircuitBreaker.getDefault().getCircuit(connection.request().url());
+        if (circuit == null) {
+            return executeAttempts(endpoint, connection, policy);
+        }
+
+        boolean probe = circuit.allow();
+        try {
+            Response response = executeAttempts(endpoint, connection, policy);
+            circuit.succeeded(probe);
+            return response;
+        }
+        catch (IOException e) {
+
+            if (isRetryable(e)) {
+                circuit.failed(probe);
+            }
+            else if (e instanceof InterruptedIOException) {
+                circuit.abandoned(probe);
+            }
+            else {
+                //the server answered, if only to refuse
+                circuit.succeeded(probe);
+            }
+            throw e;
+        }
+        catch (RuntimeException e) {
+
+            circuit.abandoned(probe);
+            throw e;
+        }
+    }
+
+    /**
+     * Makes the attempts at a request that its RetryPolicy allows, until one succeeds.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param connection the request, ready to be executed.
+     * @param policy the deadline, retries and hedging of the request.
+     * @return the response, with its body read.
+     *
+     * @throws IOException thrown if every attempt at the request failed, the last attempt's failure,
+     *          or a SocketTimeoutException if its deadline passed.
+     */
+    private static Response executeAttempts(Endpoint endpoint, Connection connection, RetryPolicy policy)
+            throws IOException {
+
+        EndpointMetrics metrics = METRICS[endpoint.ordinal()];
+        Priority priority = RequestScheduler.getPriority();
+        long deadline = System.nanoTime() + policy.getDeadline() * 1000000L;
+        int attempts = endpoint.isIdempotent() ? policy.getMaxAttempts() : 1;
+        IOException failure = null;
+        boolean outOfTime = false;
+
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+
+            if (attempt > 1) {
+
+                metrics.retries.increment();
+                sleep(Math.min(policy.getBackoff(attempt, RANDOM.get()), (deadline - System.nanoTime()) / 1000000L));
+            }
+
+            long remaining = (deadline - System.nanoTime()) / 1000000L;
+            if (remaining <= 0) {
+
+                outOfTime = true;
+                break;
+            }
+            int timeout = (int) Math.min(policy.getAttemptTimeout(), remaining);
+
+            try {
+                if (policy.isHedged() && endpoint.isIdempotent()) {
+                    return executeHedged(endpoint, connection, timeout, policy.getHedgePercentile(), priority);
+                }
+                return executeOnce(endpoint, connection, timeout, false, priority);
+            }
+            catch (IOException e) {
+
+                failure = e;
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+
+                //an attempt cut short by the deadline timed out because of it
+                if (timeout < policy.getAttemptTimeout() && e instanceof SocketTimeoutException) {
+
+                    outOfTime = true;
+                    break;
+                }
+            }
+        }
+
+        //the attempts ran out before the time did, the last one's failure is the answer
+        if (!outOfTime) {
+
+            metrics.exhausted.increment();
+            throw failure;
+        }
+
+        metrics.deadlines.increment();
+        SocketTimeoutException timedOut = new SocketTimeoutException(endpoint.getTag() + " request to "
+                + connection.request().url() + " ran out of its deadline of " + policy.getDeadline() + " ms");
+        timedOut.initCause(failure);
+        throw timedOut;
+    }
+
+    /**
+     * Executes one attempt at a request, racing it against a duplicate if it is still waiting after the
+     * passed percentile of its Endpoint's latency.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param connection the request, ready to be executed.
+     * @param timeout the milliseconds the attempt may take.
+     * @param percentile the percentile of latency after which the attempt is hedged.
+     * @param priority the Priority of the request, the attempts are made on other threads.
+     * @return the response of whichever of the attempt and its duplicate succeeded first.
+     *
+     * @throws IOException thrown if the attempt, and its duplicate, failed.
+     */
+    private static Response executeHedged(final Endpoint endpoint, final Connection connection, final int timeout,
+            double percentile, final Priority priority) throws IOException {
+
+        EndpointMetrics metrics = METRICS[endpoint.ordinal()];
+        long hedgeAfter = metrics.latency.getCount() < RetryPolicy.MIN_HEDGE_SAMPLES
+                ? timeout : metrics.latency.getPercentile(percentile) / 1000;
+        if (hedgeAfter >= timeout) {
+            return executeOnce(endpoint, connection, timeout, false, priority);
+        }
+
+        CompletionService<Response> attempts = new ExecutorCompletionService<Response>(HEDGER);
+        Future<Response> first = attempts.submit(new Callable<Response>() {
+
+            @Override
+            public Response call() throws IOException {
+
+                return executeOnce(endpoint, connection, timeout, false, priority);
+            }
+        });
+        Future<Response> second = null;
+
+        try {
+            Future<Response> done = attempts.poll(hedgeAfter, TimeUnit.MILLISECONDS);
+            if (done == null) {
+
+                metrics.hedges.increment();
+                //a connection can't be executed twice at once, so the duplicate is a copy
+                final Connection duplicate = connection.newRequest();
+                second = attempts.submit(new Callable<Response>() {
+
+                    @Override
+                    public Response call() throws IOException {
+
+                        return executeOnce(endpoint, duplicate, (int) Math.max(1, timeout - hedgeAfter), true,
+                                priority);
+                    }
+                });
+                done = attempts.take();
+            }
+
+            try {
+                Response response = done.get();
+                if (done == second) {
+                    metrics.hedgeWins.increment();
+                }
+                return response;
+            }
+            catch (ExecutionException e) {
+
+                //the other attempt may still succeed
+                if (second == null) {
+                    throw e;
+                }
+                Future<Response> other = attempts.take();
+                Response response = other.get();
+                if (other == second) {
+                    metrics.hedgeWins.increment();
+                }
+                return response;
+            }
+        }
+        catch (ExecutionException e) {
+
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for " + connection.request().url());
+        }
+        finally {
+
+            first.cancel(true);
+            if (second != null) {
+                second.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Executes one attempt at a request, and reads its whole response.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param connection the request, ready to be executed.
+     * @param timeout the milliseconds the attempt may take.
+     * @param hedge true if the attempt duplicates one that is slow to answer.
+     * @param priority the Priority of the request.
+     * @return the response, with its body read.
+     *
+     * @throws IOException thrown if the attempt failed.
+     */
+    private static Response executeOnce(Endpoint endpoint, Connection connection, int timeout, boolean hedge,
+            Priority priority) throws IOException {
+
+        connection.timeout(timeout);
+        URL url = connection.request().url();
+        RequestGovernor.Host host;
+        try {
+            host = RequestGovernor.getDefault().acquire(url, hedge, priority);
+        }
+        catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting to request " + url);
+        }
+
+        FetchEvent event = new FetchEvent();
+        event.begin();
+        long start = begin(endpoint, url);
+        try {
+            Response response = connection.execute();
+            int bytes = response.bodyAsBytes().length;
+            release(host, start, false);
+            end(endpoint, url, start, bytes, null);
+            commit(event, endpoint, connection.request(), bytes, true);
+            return response;
+        }
+        catch (IOException e) {
+            release(host, start, true);
+            end(endpoint, url, start, 0, e);
+            commit(event, endpoint, connection.request(), 0, false);
+            throw e;
+        }
+        catch (RuntimeException e) {
+            release(host, start, true);
+            end(endpoint, url, start, 0, e);
+            commit(event, endpoint, connection.request(), 0, false);
+            throw e;
+        }
+    }
+
+    /**
+     * Decides if a failed attempt is worth repeating. Being interrupted, and being refused by the
+     * server, except for timing out or being asked to slow down, are not.
+     *
+     * @param e what the attempt failed with.
+     * @return true if the request can be attempted again.
+     */
+    private static boolean isRetryable(IOException e) {
+
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+            return false;
+        }
+        if (e instanceof HttpStatusException) {
+
+            int status = ((HttpStatusException) e).getStatusCode();
+            return status >= 500 || status == 408 || status == 429;
+        }
+        return true;
+    }
+
+    /**
+     * Waits before a retry.
+     *
+     * @param millis the milliseconds to wait.
+     *
+     * @throws InterruptedIOException thrown if interrupted while waiting.
+     */
+    private static void sleep(long millis) throws InterruptedIOException {
+
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted backing off");
+        }
+    }
+
+    /**
+     * Hands a request's host back to the RequestGovernor.
+     *
+     * @param host the Host returned by acquire, null if the governor is turned off.
+     * @param start the start time of the request.
+     * @param failed true if the request failed.
+     */
+    private static void release(RequestGovernor.Host host, long start, boolean failed) {
+
+        if (host != null) {
+            host.release(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Ends a FetchEvent, and fills in and commits it if it is being recorded.
+     *
+     * @param event the event.
+     * @param endpoint the Endpoint the request was for.
+     * @param request the request.
+     * @param bytes the bytes received.
+     * @param succeeded false if the request failed.
+     */
+    private static void commit(FetchEvent event, Endpoint endpoint, Connection.Request request, long bytes, boolean succeeded) {
+
+        event.end();
+        if (event.shouldCommit()) {
+
+            event.endpoint = endpoint.getTag();
+            event.term = getTerm(request);
+            event.subject = getSubject(request);
+            event.bytes = bytes;
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    /**
+     * Executes a request as a GET, and parses its response.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param connection the request, ready to be executed.
+     * @return the parsed page.
+     *
+     * @throws IOException thrown if the request failed, or is being replayed and wasn't recorded.
+     */
+    public static Document get(Endpoint endpoint, Connection connection) throws IOException {
+
+        connection.method(Method.GET);
+        return fetch(endpoint, connection);
+    }
+
+    /**
+     * Executes a request as a POST, and parses its response.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param connection the request, ready to be executed.
+     * @return the parsed page.
+     *
+     * @throws IOException thrown if the request failed, or is being replayed and wasn't recorded.
+     */
+    public static Document post(Endpoint endpoint, Connection connection) throws IOException {
+
+        connection.method(Method.POST);
+        return fetch(endpoint, connection);
+    }
+
+    /**
+     * Executes a request, or replays it from the archive, and parses its response.
+     * Pages fetched while recording are added to the archive.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param connection the request, ready to be executed, with its method set.
+     * @return the parsed page.
+     *
+     * @throws IOException thrown if the request failed, or is being replayed and wasn't recorded.
+     */
+    private static Document fetch(Endpoint endpoint, Connection connection) throws IOException {
+
+        PageArchive current = archive;
+        if (current == null || !endpoint.isIdempotent()) {
+            return parse(endpoint, execute(endpoint, connection));
+        }
+
+        String key = PageArchive.getKey(endpoint, connection.request());
+        if (current.getMode() == PageArchive.Mode.REPLAY) {
+
+            PageArchive.Page page = current.get(key);
+            if (page == null) {
+                throw new IOException(endpoint.getTag() + " request " + key + " isn't in the archive "
+                        + current.getDirectory());
+            }
+            return parse(endpoint, page);
+        }
+
+        Response response = execute(endpoint, connection);
+        try {
+            current.put(key, response.url().toExternalForm(), response.charset(), response.bodyAsBytes());
+        }
+        catch (IOException e) {
+            //the page was still fetched, only not kept
+            e.printStackTrace();
+            PipelineListeners.fireErrorCaught(e);
+        }
+        return parse(endpoint, response);
+    }
+
+    /**
+     * Parses a response, recording the time taken.
+     *
+     * @param endpoint the Endpoint the response is from.
+     * @param response the response.
+     * @return the parsed page.
+     *
+     * @throws IOException thrown if the response could not be parsed.
+     */
+    public static Document parse(Endpoint endpoint, Response response) throws IOException {
+
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Document document = response.parse();
+        parsed(endpoint, response.url(), document, response.bodyAsBytes().length, event, start);
+        return document;
+    }
+
+    /**
+     * Parses a page replayed from the archive, recording the time taken.
+     *
+     * @param endpoint the Endpoint the page is from.
+     * @param page the page.
+     * @return the parsed page.
+     *
+     * @throws IOException thrown if the page could not be parsed.
+     */
+    private static Document parse(Endpoint endpoint, PageArchive.Page page) throws IOException {
+
+        URL url;
+        try {
+            url = new URL(page.getUrl());
+        }
+        catch (MalformedURLException e) {
+            throw new IOException("the archive holds a bad URL " + page.getUrl(), e);
+        }
+
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Document document = Jsoup.parse(new ByteArrayInputStream(page.getBody()), page.getCharset(), page.getUrl());
+        parsed(endpoint, url, document, page.getBody().length, event, start);
+        return document;
+    }
+
+    /**
+     * Records the time taken parsing a page, and tells the PipelineListeners.
+     *
+     * @param endpoint the Endpoint the page is from.
+     * @param url the URL the page was fetched from.
+     * @param document the parsed page.
+     * @param bytes the size of the page.
+     * @param event the ParseEvent begun before parsing.
+     * @param start the time parsing started.
+     */
+    private static void parsed(Endpoint endpoint, URL url, Document document, long bytes, ParseEvent event,
+            long start) {
+
+        METRICS[endpoint.ordinal()].parseLatency.record((System.nanoTime() - start) / 1000);
+
+        event.end();
+        if (event.shouldCommit()) {
+
+            event.kind = ParseEvent.PAGE + endpoint.getTag();
+            event.bytes = bytes;
+            event.commit();
+        }
+        PipelineListeners.firePageParsed(endpoint, url, document);
+    }
+
+    /**
+     * Records the start of a request that isn't made through execute, such as fetching CAS's
+     * SSL certificate. Must be followed by a call to end.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @return the start time, to pass to end.
+     */
+    public static long begin(Endpoint endpoint) {
+
+        return begin(endpoint, null);
+    }
+
+    /**
+     * Records the start of a request, and tells the PipelineListeners.
+     *
+     * @param endpoint the Endpoint the request is for.
+     * @param url the URL requested, null if it isn't known.
+     * @return the start time, to pass to end.
+     */
+    private static long begin(Endpoint endpoint, URL url) {
+
+        PipelineListeners.fireRequestStarted(endpoint, url);
+        EndpointMetrics metrics = METRICS[endpoint.ordinal()];
+        metrics.requests.increment();
+        metrics.inFlight.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the end of a request.
+     *
+     * @param endpoint the Endpoint the request was for.
+     * @param start the start time returned by begin.
+     * @param bytes the bytes received.
+     * @param error what the request failed with, null if it succeeded.
+     */
+    public static void end(Endpoint endpoint, long start, long bytes, Throwable error) {
+
+        end(endpoint, null, start, bytes, error);
+    }
+
+    /**
+     * Records the end of a request, and tells the PipelineListeners.
+     *
+     * @param endpoint the Endpoint the request was for.
+     * @param url the URL requested, null if it isn't known.
+     * @param start the start time returned by begin.
+     * @param bytes the bytes received.
+     * @param error what the request failed with, null if it succeeded.
+     */
+    private static void end(Endpoint endpoint, URL url, long start, long bytes, Throwable error) {
+
+        long nanos = System.nanoTime() - start;
+        EndpointMetrics metrics = METRICS[endpoint.ordinal()];
+        metrics.latency.record(nanos / 1000);
+        metrics.inFlight.decrement();
+        metrics.bytes.add(bytes);
+        if (error != null) {
+            metrics.errors.increment();
+        }
+        PipelineListeners.fireRequestEnded(endpoint, url, nanos, bytes, error);
+    }
+
+    /**
+     * @param endpoint an Endpoint.
+     * @return the RetryPolicy of requests to the Endpoint.
+     */
+    public static RetryPolicy getPolicy(Endpoint endpoint) {
+
+        return POLICIES[endpoint.ordinal()];
+    }
+
+    /**
+     * Sets the RetryPolicy of requests to an Endpoint, e.g. to hedge timetable requests:
+     * setPolicy(Endpoint.TIMETABLE, RetryPolicy.DEFAULT.withHedging(95)).
+     *
+     * @param endpoint an Endpoint.
+     * @param policy the RetryPolicy of requests to the Endpoint.
+     */
+    public static void setPolicy(Endpoint endpoint, RetryPolicy policy) {
+
+        if (policy == null) {
+            throw new IllegalArgumentException("policy is null");
+        }
+        POLICIES[endpoint.ordinal()] = policy;
+    }
+
+    /**
+     * Sets every Endpoint's RetryPolicy back to its default, RetryPolicy.DEFAULT for idempotent
+     * Endpoints and RetryPolicy.ONCE for the others.
+     */
+    public static void resetPolicies() {
+
+        for (Endpoint endpoint : Endpoint.values()) {
+            POLICIES[endpoint.ordinal()] = endpoint.isIdempotent() ? RetryPolicy.DEFAULT : RetryPolicy.ONCE;
+        }
+    }
+
+    /**
+     * @return the archive pages are recorded into or replayed from, null for none.
+     */
+    public static PageArchive getArchive() {
+
+        return archive;
+    }
+
+    /**
+     * Sets the archive the pages fetched with get and post are recorded into, or replayed from,
+     * depending on its Mode, e.g. to parse a crawl again without the network:
+     * setArchive(new PageArchive(new File("201309"), PageArchive.Mode.REPLAY)).
+     *
+     * @param archive the archive, null to stop recording or replaying. The caller closes it.
+     */
+    public static void setArchive(PageArchive archive) {
+
+        Transport.archive = archive;
+    }
+
+    /**
+     * Gets the term a request is for, from whichever parameter the page takes it in.
+     *
+     * @param request the request.
+     * @return the term as a semesterCode (YYYYMM), null if the request doesn't name one.
+     */
+    public static String getTerm(Connection.Request request) {
+
+        String term = getParam(request, "TERMYEAR");
+        if (term == null) {
+            term = getParam(request, "term_in");
+        }
+        if (term == null) {
+
+            String year = getParam(request, "YEAR");
+            String month = getParam(request, "TERM");
+            if (year != null && month != null) {
+                term = year + month;
+            }
+        }
+        return term;
+    }
+
+    /**
+     * Gets the subject a request is for, from whichever parameter the page takes it in.
+     *
+     * @param request the request.
+     * @return the subject code, null if the request doesn't name one.
+     */
+    public static String getSubject(Connection.Request request) {
+
+        String subject = getParam(request, "SUBJ_CODE");
+        if (subject == null) {
+            subject = getParam(request, "SUBJ");
+        }
+        if (subject == null) {
+            subject = getParam(request, "SUBJECT");
+        }
+        return subject;
+    }
+
+    /**
+     * Gets a parameter of a request, from its data or its URL's query.
+     *
+     * @param request the request.
+     * @param name the name of the parameter.
+     * @return the parameter's value, null if the request doesn't have it.
+     */
+    private static String getParam(Connection.Request request, String name) {
+
+        for (Connection.KeyVal keyVal : request.data()) {
+
+            if (keyVal.key().equals(name)) {
+                return keyVal.value();
+            }
+        }
+
+        String query = request.url().getQuery();
+        if (query != null) {
+
+            for (String pair : query.split("&")) {
+
+                if (pair.startsWith(name) && pair.length() > name.length() && pair.charAt(name.length()) == '=') {
+                    return pair.substring(name.length() + 1);
+                }
+            }
+        }
+        return null;
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * The metrics of one Endpoint, looked up once so requests don't look them up by name.
+     */
+    private static final class EndpointMetrics {
+
+        /**
+         * The number of requests made.
+         */
+        final Counter requests;
+        /**
+         * The number of requests that failed.
+         */
+        final Counter errors;
+        /**
+         * The bytes received.
+         */
+        final Counter bytes;
+        /**
+         * The number of attempts that were retries.
+         */
+        final Counter retries;
+        /**
+         * The number of requests that ran out of time.
+         */
+        final Counter deadlines;
+        /**
+         * The number of requests that failed every attempt they were allowed with time left.
+         */
+        final Counter exhausted;
+        /**
+         * The number of attempts that were raced against a duplicate.
+         */
+        final Counter hedges;
+        /**
+         * The number of races the duplicate won.
+         */
+        final Counter hedgeWins;
+        /**
+         * The number of requests waiting on a response.
+         */
+        final Gauge inFlight;
+        /**
+         * The microseconds taken by each request, including reading the response.
+         */
+        final Histogram latency;
+        /**
+         * The microseconds taken parsing each response.
+         */
+        final Histogram parseLatency;
+
+        /**
+         * @param registry the registry to record into.
+         * @param tag the Endpoint's tag.
+         */
+        EndpointMetrics(MetricsRegistry registry, String tag) {
+
+            requests = registry.counter("fetch.requests." + tag);
+            errors = registry.counter("fetch.errors." + tag);
+            bytes = registry.counter("fetch.bytes." + tag);
+            retries = registry.counter("fetch.retries." + tag);
+            deadlines = registry.counter("fetch.deadlines." + tag);
+            exhausted = registry.counter("fetch.exhausted." + tag);
+            hedges = registry.counter("fetch.hedges." + tag);
+            hedgeWins = registry.counter("fetch.hedgeWins." + tag);
+            inFlight = registry.gauge("fetch.inflight." + tag);
+            latency = registry.histogram("fetch.latency." + tag);
+            parseLatency = registry.histogram("parse.latency." + tag);
+        }
+    }
+}
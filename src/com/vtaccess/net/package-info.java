@@ -0,0 +1,9 @@
+/**
+ * This package contains the single path that every request to the CAS and banweb servers takes.
+ * Transport executes Jsoup requests tagged with the Endpoint they are for, paced by the
+ * RequestGovernor's per host limits, and records them into the default MetricsRegistry. The RequestScheduler
+ * shares each host between the Priorities of requests, so background crawls wait behind interactive requests.
+ * SingleFlight coalesces concurrent identical requests into one, and the CircuitBreaker fails requests
+ * at once while their host is down.
+ */
+package com.vtaccess.net;
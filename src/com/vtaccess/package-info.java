@@ -4,6 +4,11 @@
  * and it can be used to pull user schedule from any past/current term, or exam schedule.
  * CourseInfo requires no login information, and can be used to pull all sorts of information
  * about courses offered in particular semesters from the timetable.
+ * CatalogCache keeps the catalog data CourseInfo fetched, to serve stale while banweb is down or slow.
+ * CourseIndex indexes the Courses CourseInfo crawled by CRN, so getCourse can answer without banweb.
+ * CourseBatch looks up many Courses at once, grouping them by subject to fetch as few pages as it can.
+ * TimetableQuery pushes what predicates it can into the timetable's form, and applies the rest to the rows read.
+ * Endpoints holds the base URLs of the CAS and banweb servers, so they can be pointed at a local stand-in.
  * Semester provides several static methods that can be used to validate and operate on semesterCodes.
  *      NOTE: A semesterCode is a string of the format- YYYYMM, where month is either 09, 01, 06, 07. These
  *          values are all encapsulated as public constants within Semester, so it should never be necessary to
@@ -0,0 +1,630 @@
+package com.vtaccess.schedule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A query over the Courses of a term held in a CourseCatalog, e.g. "3 credit CS or MATH sections only on TR
+ * between 10:00 and 14:00 in TORG or MCB":
+ *
+ *      int[] found = new CatalogQuery().setSubjects("CS", "MATH").setCredits(3)
+ *              .setDays(CatalogQuery.TUESDAY | CatalogQuery.THURSDAY).setTimes(1000, 1400)
+ *              .setBuildings("TORG", "MCB").run(catalog);
+ *
+ * Every predicate set must match. Within one, e.g. the subjects, any value matches. Predicates of any other
+ * kind are added with where, and a CatalogQuery is itself a CourseCatalog.Filter, so queries can be combined
+ * with anyOf and not.
+ *
+ * run plans the query before scanning. The subjects and buildings each have postings in the CourseCatalog,
+ * listing the Courses of every value, so the planner counts the Courses listed for the values asked for, and
+ * scans only those of whichever is fewest, or the whole catalog if neither was set. When the Courses to scan
+ * are at least parallelThreshold, the scan is split across the common ForkJoinPool, so Filters added with
+ * where must then be safe to call from several threads. The default parallelThreshold can be set with the
+ * system property vtaccess.query.parallelThreshold.
+ *
+ * The timetable lists neither the seats left in a section nor its Area, so there are no predicates for them.
+ * Load the CourseCatalog from CourseInfo.getAllCourses with onlyOpen, or from getAllAreaCourses, instead.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class CatalogQuery implements CourseCatalog.Filter {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The system property holding the default fewest Courses scanned in parallel.
+     */
+    public static final String PARALLEL_THRESHOLD_PROPERTY = "vtaccess.query.parallelThreshold";
+    /**
+     * The bits of each day in a days mask.
+     */
+    public static final int MONDAY = 1;
+    public static final int TUESDAY = 1 << 1;
+    public static final int WEDNESDAY = 1 << 2;
+    public static final int THURSDAY = 1 << 3;
+    public static final int FRIDAY = 1 << 4;
+    public static final int SATURDAY = 1 << 5;
+    public static final int SUNDAY = 1 << 6;
+    /**
+     * The letters of the days, in the order of their bits.
+     */
+    private static final String DAY_LETTERS = "MTWRFSU";
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The subject codes matched, null if unset.
+     */
+    private Set<String> subjects;
+    /**
+     * The lowest course number matched, -1 if unset.
+     */
+    private int minNumber;
+    /**
+     * The highest course number matched, -1 if unset.
+     */
+    private int maxNumber;
+    /**
+     * The fewest credits matched, -1 if unset.
+     */
+    private int minCredits;
+    /**
+     * The most credits matched, -1 if unset.
+     */
+    private int maxCredits;
+    /**
+     * The days a Course may be on, 0 if unset.
+     */
+    private int days;
+    /**
+     * The earliest adjusted beginning time matched, -1 if unset.
+     */
+    private int earliest;
+    /**
+     * The latest adjusted ending time matched, -1 if unset.
+     */
+    private int latest;
+    /**
+     * The building codes matched, null if unset.
+     */
+    private Set<String> buildings;
+    /**
+     * Part of the teacher's name matched, null if unset.
+     */
+    private String teacherName;
+    /**
+     * The Filters added with where.
+     */
+    private final List<CourseCatalog.Filter> filters;
+    /**
+     * The fewest Courses scanned in parallel.
+     */
+    private int parallelThreshold;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a query matching every Course.
+     */
+    public CatalogQuery() {
+
+        minNumber = -1;
+        maxNumber = -1;
+        minCredits = -1;
+        maxCredits = -1;
+        earliest = -1;
+        latest = -1;
+        filters = new ArrayList<CourseCatalog.Filter>();
+        parallelThreshold = Math.max(1, Integer.parseInt(System.getProperty(PARALLEL_THRESHOLD_PROPERTY, "16384")));
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Runs the query over a catalog.
+     *
+     * @param catalog the catalog.
+     * @return the indexes of the Courses matched, in order.
+     */
+    public int[] run(CourseCatalog catalog) {
+
+        int[] candidates;
+        switch (plan(catalog)) {
+            case SUBJECTS:
+                candidates = union(catalog, subjects, true);
+                break;
+            case BUILDINGS:
+                candidates = union(catalog, buildings, false);
+                break;
+            default:
+                candidates = null;
+                break;
+        }
+
+        int count = candidates == null ? catalog.size() : candidates.length;
+        if (count == 0) {
+            return new int[0];
+        }
+        if (count >= parallelThreshold) {
+            return ForkJoinPool.commonPool().invoke(new Scan(catalog, candidates, 0, count, getChunk(count)));
+        }
+        return scan(catalog, candidates, 0, count);
+    }
+
+    /**
+     * Runs the query over a catalog.
+     *
+     * @param catalog the catalog.
+     * @return new Courses, of the Courses matched, in order.
+     */
+    public List<Course> list(CourseCatalog catalog) {
+
+        int[] found = run(catalog);
+        List<Course> courses = new ArrayList<Course>(found.length);
+        for (int index : found) {
+            courses.add(catalog.get(index));
+        }
+        return courses;
+    }
+
+    /**
+     * Picks the fewest Courses the query can be answered by scanning.
+     *
+     * @param catalog the catalog the query is run over.
+     * @return the Courses that are scanned.
+     */
+    public Plan plan(CourseCatalog catalog) {
+
+        int bySubjects = subjects == null ? Integer.MAX_VALUE : count(catalog, subjects, true);
+        int byBuildings = buildings == null ? Integer.MAX_VALUE : count(catalog, buildings, false);
+
+        if (bySubjects == Integer.MAX_VALUE && byBuildings == Integer.MAX_VALUE) {
+            return Plan.SCAN;
+        }
+        return bySubjects <= byBuildings ? Plan.SUBJECTS : Plan.BUILDINGS;
+    }
+
+    /**
+     * Checks a Course against every predicate of this query.
+     *
+     * @param course a View of the Course.
+     * @return true if the Course matches, false otherwise.
+     */
+    @Override
+    public boolean accept(CourseCatalog.View course) {
+
+        if (subjects != null && !subjects.contains(course.getSubjectCode())) {
+            return false;
+        }
+        if (minNumber >= 0 || maxNumber >= 0) {
+
+            int number = toNumber(course.getCourseNumber());
+            if (number < 0 || (minNumber >= 0 && number < minNumber) || (maxNumber >= 0 && number > maxNumber)) {
+                return false;
+            }
+        }
+        if ((minCredits >= 0 && course.getCredits() < minCredits)
+                || (maxCredits >= 0 && course.getCredits() > maxCredits)) {
+            return false;
+        }
+        if (days != 0) {
+
+            int mask = toDaysMask(course.getDays());
+            if (mask == 0 || (mask & ~days) != 0) {
+                return false;
+            }
+        }
+        if (earliest >= 0 || latest >= 0) {
+
+            if ((course.getBegin() == 0 && course.getEnd() == 0)
+                    || (earliest >= 0 && course.getBegin() < earliest) || (latest >= 0 && course.getEnd() > latest)) {
+                return false;
+            }
+        }
+        if (buildings != null && !buildings.contains(course.getBuilding())) {
+            return false;
+        }
+        if (teacherName != null && (course.getTeacherName() == null
+                || !course.getTeacherName().contains(teacherName))) {
+            return false;
+        }
+        for (CourseCatalog.Filter filter : filters) {
+
+            if (!filter.accept(course)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a predicate of any kind, which must match as well as the others.
+     *
+     * @param filter the predicate.
+     * @return this CatalogQuery.
+     */
+    public CatalogQuery where(CourseCatalog.Filter filter) {
+
+        filters.add(filter);
+        return this;
+    }
+
+    /**
+     * Combines Filters, e.g. CatalogQuerys, into one matching any of them.
+     *
+     * @param filters the Filters.
+     * @return a Filter accepting the Courses any of filters accepts.
+     */
+    public static CourseCatalog.Filter anyOf(final CourseCatalog.Filter... filters) {
+
+        return new CourseCatalog.Filter() {
+
+            @Override
+            public boolean accept(CourseCatalog.View course) {
+
+                for (CourseCatalog.Filter filter : filters) {
+
+                    if (filter.accept(course)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Negates a Filter.
+     *
+     * @param filter the Filter.
+     * @return a Filter accepting the Courses filter rejects.
+     */
+    public static CourseCatalog.Filter not(final CourseCatalog.Filter filter) {
+
+        return new CourseCatalog.Filter() {
+
+            @Override
+            public boolean accept(CourseCatalog.View course) {
+
+                return !filter.accept(course);
+            }
+        };
+    }
+
+    /**
+     * Reads the letters of days, e.g. "MWF", as a days mask.
+     *
+     * @param days the letters of the days, may be null.
+     * @return the days mask, 0 if there are no days in it, e.g. for "TBA".
+     */
+    public static int toDaysMask(String days) {
+
+        int mask = 0;
+        if (days != null) {
+
+            for (int i = 0; i < days.length(); i++) {
+
+                int day = DAY_LETTERS.indexOf(days.charAt(i));
+                if (day >= 0) {
+                    mask |= 1 << day;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Helper method, scans some of the Courses on this thread.
+     *
+     * @param catalog the catalog.
+     * @param candidates the indexes of the Courses to scan, null for all of them.
+     * @param from the first position in candidates scanned.
+     * @param to the position in candidates after the last scanned.
+     * @return the indexes of the Courses matched, in order.
+     */
+    private int[] scan(CourseCatalog catalog, int[] candidates, int from, int to) {
+
+        int[] found = new int[Math.min(to - from, 64)];
+        int count = 0;
+        CourseCatalog.View view = catalog.view(candidates == null ? from : candidates[from]);
+        for (int i = from; i < to; i++) {
+
+            view.moveTo(candidates == null ? i : candidates[i]);
+            if (accept(view)) {
+
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = view.getIndex();
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Helper method, gets the number of Courses each parallel task scans, enough for a few tasks per thread.
+     *
+     * @param count the number of Courses scanned.
+     * @return the number of Courses each task scans.
+     */
+    private int getChunk(int count) {
+
+        return Math.max(1024, count / (4 * ForkJoinPool.getCommonPoolParallelism()));
+    }
+
+    /**
+     * Helper method, counts the Courses listed in postings for some values.
+     *
+     * @param catalog the catalog.
+     * @param values the subject codes or building codes.
+     * @param bySubject true for subject codes, false for building codes.
+     * @return the number of Courses listed.
+     */
+    private static int count(CourseCatalog catalog, Set<String> values, boolean bySubject) {
+
+        int count = 0;
+        for (String value : values) {
+            count += (bySubject ? catalog.subjectRows(value) : catalog.buildingRows(value)).length;
+        }
+        return count;
+    }
+
+    /**
+     * Helper method, merges the Courses listed in postings for some values. A Course has one subject code
+     * and one building, so the lists don't overlap.
+     *
+     * @param catalog the catalog.
+     * @param values the subject codes or building codes.
+     * @param bySubject true for subject codes, false for building codes.
+     * @return the indexes of the Courses listed, in order.
+     */
+    private static int[] union(CourseCatalog catalog, Set<String> values, boolean bySubject) {
+
+        int[] merged = new int[count(catalog, values, bySubject)];
+        int count = 0;
+        for (String value : values) {
+
+            int[] rows = bySubject ? catalog.subjectRows(value) : catalog.buildingRows(value);
+            System.arraycopy(rows, 0, merged, count, rows.length);
+            count += rows.length;
+        }
+        if (values.size() > 1) {
+            Arrays.sort(merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Helper method, reads the number of a course number, e.g. 2114 from "2114".
+     *
+     * @param courseNumber the course number, may be null.
+     * @return the number of its leading digits, -1 if there are none.
+     */
+    private static int toNumber(String courseNumber) {
+
+        int number = -1;
+        if (courseNumber != null) {
+
+            for (int i = 0; i < courseNumber.length() && i < 9; i++) {
+
+                char c = courseNumber.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                number = (number < 0 ? 0 : number * 10) + (c - '0');
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Helper method, copies values into a Set.
+     *
+     * @param values the values, null or none to unset the predicate.
+     * @return the Set, or null if there are no values.
+     */
+    private static Set<String> toSet(String... values) {
+
+        if (values == null || values.length == 0) {
+            return null;
+        }
+        return new LinkedHashSet<String>(Arrays.asList(values));
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @param subjects the subject codes matched, e.g. "CS". None to unset it.
+     * @return this CatalogQuery.
+     */
+    public CatalogQuery setSubjects(String... subjects) {
+
+        this.subjects = toSet(subjects);
+        return this;
+    }
+
+    /**
+     * @param minNumber the lowest course number matched, -1 for no lowest.
+     * @param maxNumber the highest course number matched, -1 for no highest.
+     * @return this CatalogQuery.
+     */
+    public CatalogQuery setNumbers(int minNumber, int maxNumber) {
+
+        this.minNumber = minNumber;
+        this.maxNumber = maxNumber;
+        return this;
+    }
+
+    /**
+     * @param credits the credits matched, -1 to unset it.
+     * @return this CatalogQuery.
+     */
+    public CatalogQuery setCredits(int credits) {
+
+        return setCredits(credits, credits);
+    }
+
+    /**
+     * @param minCredits the fewest credits matched, -1 for no fewest.
+     * @param maxCredits the most credits matched, -1 for no most.
+     * @return this CatalogQuery.
+     */
+    public CatalogQuery setCredits(int minCredits, int maxCredits) {
+
+        this.minCredits = minCredits;
+        this.maxCredits = maxCredits;
+        return this;
+    }
+
+    /**
+     * @param days a days mask, e.g. TUESDAY | THURSDAY, of the days a Course may be on. Courses on any other
+     *          day, or on no days at all, aren't matched. 0 to unset it.
+     * @return this CatalogQuery.
+     */
+    public CatalogQuery setDays(int days) {
+
+        this.days = days;
+        return this;
+    }
+
+    /**
+     * @param earliest the earliest adjusted beginning time matched, e.g. 1000 for 10:00AM, -1 for no earliest.
+     * @param latest the latest adjusted ending time matched, e.g. 1400 for 2:00PM, -1 for no latest.
+     *          Courses without times, e.g. ARR, aren't matched while either is set.
+     * @return this CatalogQuery.
+     */
+    public CatalogQuery setTimes(int earliest, int latest) {
+
+        this.earliest = earliest;
+        this.latest = latest;
+        return this;
+    }
+
+    /**
+     * @param buildings the building codes matched, e.g. "TORG". None to unset it.
+     * @return this CatalogQuery.
+     */
+    public CatalogQuery setBuildings(String... buildings) {
+
+        this.buildings = toSet(buildings);
+        return this;
+    }
+
+    /**
+     * @param teacherName part of the teacher's name matched, e.g. the last name. Null to unset it.
+     * @return this CatalogQuery.
+     */
+    public CatalogQuery setTeacherName(String teacherName) {
+
+        this.teacherName = teacherName;
+        return this;
+    }
+
+    /**
+     * @return the fewest Courses scanned in parallel.
+     */
+    public int getParallelThreshold() {
+
+        return parallelThreshold;
+    }
+
+    /**
+     * @param parallelThreshold the fewest Courses scanned in parallel, at least 1.
+     * @return this CatalogQuery.
+     */
+    public CatalogQuery setParallelThreshold(int parallelThreshold) {
+
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("parallelThreshold must be at least 1: " + parallelThreshold);
+        }
+        this.parallelThreshold = parallelThreshold;
+        return this;
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * The Courses a query is answered by scanning.
+     */
+    public enum Plan {
+
+        /**
+         * The Courses listed in the subject postings for the subjects matched.
+         */
+        SUBJECTS,
+        /**
+         * The Courses listed in the building postings for the buildings matched.
+         */
+        BUILDINGS,
+        /**
+         * Every Course.
+         */
+        SCAN
+    }
+
+    /**
+     * Scans part of the Courses, splitting it in two and scanning the halves in parallel while it is
+     * more than chunk Courses.
+     */
+    private final class Scan extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The catalog.
+         */
+        private final CourseCatalog catalog;
+        /**
+         * The indexes of the Courses to scan, null for all of them.
+         */
+        private final int[] candidates;
+        /**
+         * The first position in candidates scanned.
+         */
+        private final int from;
+        /**
+         * The position in candidates after the last scanned.
+         */
+        private final int to;
+        /**
+         * The most Courses scanned without splitting.
+         */
+        private final int chunk;
+
+        /**
+         * Creates a task scanning Courses from to to.
+         *
+         * @param catalog the catalog.
+         * @param candidates the indexes of the Courses to scan, null for all of them.
+         * @param from the first position in candidates scanned.
+         * @param to the position in candidates after the last scanned.
+         * @param chunk the most Courses scanned without splitting.
+         */
+        private Scan(CourseCatalog catalog, int[] candidates, int from, int to, int chunk) {
+
+            this.catalog = catalog;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected int[] compute() {
+
+            if (to - from <= chunk) {
+                return scan(catalog, candidates, from, to);
+            }
+
+            int middle = (from + to) >>> 1;
+            Scan left = new Scan(catalog, candidates, from, middle, chunk);
+            left.fork();
+            int[] right = new Scan(catalog, candidates, middle, to, chunk).compute();
+            int[] found = left.join();
+
+            int[] joined = Arrays.copyOf(found, found.length + right.length);
+            System.arraycopy(right, 0, joined, found.length, right.length);
+            return joined;
+        }
+    }
+}
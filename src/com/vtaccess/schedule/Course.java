@@ -94,6 +94,11 @@ public class Course {
      * Note: It can be useful to adjust time integers in some algorithms. 
      */
     protected int timeFactor;
+    /**
+     * The number of changes made to this Course through its setters.
+     * Used by Day and Schedule to tell which parts of a Schedule need to be saved.
+     */
+    protected long version;
 
     // ~Constructors-------------------------------------------------
     
@@ -121,6 +126,8 @@ public class Course {
         teacherName = "";
         classSize = -1;
         credits = -1;
+        
+        version = 0;
     }
     
     /**
@@ -315,7 +322,76 @@ public class Course {
         this.room = room;
     }
     
+    /**
+     * Copy constructor, the copy shares nothing that can be changed with the original,
+     * so either can be changed without affecting the other.
+     * 
+     * @param other the Course to copy.
+     */
+    public Course(Course other) {
+        
+        this();
+        
+        crn = other.crn;
+        name = other.name;
+        subjectCode = other.subjectCode;
+        courseNumber = other.courseNumber;
+        
+        credits = other.credits;
+        classSize = other.classSize;
+        teacherName = other.teacherName;
+        
+        beginTime = other.beginTime;
+        endTime = other.endTime;
+        coursePoint = new Point(other.coursePoint.x, other.coursePoint.y);
+        timeFactor = other.timeFactor;
+        
+        date = other.date == null ? null : new Date(other.date);
+        
+        days = other.days;
+        building = other.building;
+        room = other.room;
+    }
+    
     // ~Methods------------------------------------------------------
+    /**
+     * Marks this Course as changed. Called by every setter, subclasses that change
+     * fields directly should call it too.
+     */
+    protected void touch() {
+        
+        version++;
+    }
+    
+    /**
+     * @return the number of changes made to this Course, which only grows.
+     */
+    public long getVersion() {
+        
+        return version;
+    }
+
+    /**
+     * Replaces each of this Course's Strings with the equal instance held by the passed pool, so that
+     * Courses parsed from the same term share them. Nothing this Course holds changes value, so it
+     * isn't marked as changed.
+     *
+     * @param pool the pool of this Course's term.
+     */
+    public void canonicalize(StringPool pool) {
+
+        days = pool.canonicalize(days);
+        crn = pool.canonicalize(crn);
+        subjectCode = pool.canonicalize(subjectCode);
+        courseNumber = pool.canonicalize(courseNumber);
+        beginTime = pool.canonicalize(beginTime);
+        endTime = pool.canonicalize(endTime);
+        name = pool.canonicalize(name);
+        teacherName = pool.canonicalize(teacherName);
+        building = pool.canonicalize(building);
+        room = pool.canonicalize(room);
+    }
+
     /**
      * Takes in a course code in the format: XX->XXXX-nnnn or XX->XXXX nnnn and splits it into
      * a two element String array where the subject code (the first portion) 
@@ -400,7 +476,8 @@ public class Course {
      *            the beginning time of the course.
      */
     public void setBeginTime(String begin) {
-        
+
+        touch();
         int adjustedTime = 0;
         
         if (begin != null) {
@@ -469,6 +546,7 @@ public class Course {
      */
     public void setEndTime(String end) {
 
+        touch();
         int adjustedTime = 0;
         
         if (end != null) {
@@ -587,6 +665,7 @@ public class Course {
      */
     public void setName(String name) {
 
+        touch();
         if (name != null && !name.equals("")) {
             name = name.replaceAll("&", "and");
             this.name = name;
@@ -613,6 +692,7 @@ public class Course {
      */
     public void setTeacherName(String teacherName) {
 
+        touch();
         if (teacherName != null && !teacherName.equals("") && !teacherName.equals("null")) {
             
             this.teacherName = teacherName;
@@ -637,6 +717,7 @@ public class Course {
      */
     public void setBuilding(String building) {
 
+        touch();
         if (building != null && !building.equals("")) {
             
             this.building = building;
@@ -662,6 +743,7 @@ public class Course {
      */
     public void setRoom(String room) {
 
+        touch();
         if (room != null && !room.equals("") && !room.equals("null")) {
 
             this.room = room;
@@ -695,6 +777,7 @@ public class Course {
      */
     public void setDate(Date date) {
 
+        touch();
         if (date != null) {
             
             this.date = date;
@@ -718,6 +801,7 @@ public class Course {
      */
     public void setTimeFactor(int timeFactor) {
 
+        touch();
         this.timeFactor = timeFactor;
     }
 
@@ -878,6 +962,7 @@ public class Course {
      */
     public void setSubjectCode(String subjectCode) {
 
+        touch();
         this.subjectCode = subjectCode;
     }
 
@@ -894,6 +979,7 @@ public class Course {
      */
     public void setCourseNumber(String courseNumber) {
 
+        touch();
         this.courseNumber = courseNumber;
     }
 
@@ -910,6 +996,7 @@ public class Course {
      */
     public void setCrn(String crn) {
 
+        touch();
         this.crn = crn;
     }
     
@@ -935,6 +1022,7 @@ public class Course {
      */
     public void setCredits(int credits) {
 
+        touch();
         this.credits = credits;
     }
 
@@ -951,6 +1039,7 @@ public class Course {
      */
     public void setDays(String days) {
 
+        touch();
         this.days = days;
     }
 
@@ -967,6 +1056,7 @@ public class Course {
      */
     public void setClassSize(int classSize) {
 
+        touch();
         this.classSize = classSize;
     }
 }
\ No newline at end of file
@@ -0,0 +1,716 @@
+package com.vtaccess.schedule;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A whole term's Courses, held in primitive arrays rather than as Course objects. Each field is an array
+ * with an element for every Course: the CRNs, credits, class sizes and begin and end times as ints, and
+ * the other fields as ints indexing a dictionary holding each distinct string once. A term of thousands of
+ * sections takes a few flat arrays instead of thousands of Courses, Points and Strings, and scans over a
+ * field read one array front to back.
+ *
+ * The Courses are read through Views, flyweights with the getters of Course over one index at a time.
+ * A View can be moved from Course to Course, so a scan makes no objects at all:
+ *
+ *      CourseCatalog.View view = catalog.view(0);
+ *      for (int i = 0; i < catalog.size(); i++) {
+ *          total += view.moveTo(i).getCredits();
+ *      }
+ *
+ * filter does the same for a Filter. bySubject and byBuilding read postings listing the Courses of each
+ * subject code and building, built the first time they are needed, and indexOfCrn looks its int up in a
+ * CrnIndex. CatalogQuery plans queries over these.
+ * As a List, get makes a new Course each time, so callers may change it.
+ *
+ * Courses can only be added. A CourseCatalog isn't synchronized: fill it on one thread, then share it.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class CourseCatalog extends AbstractList<Course> implements RandomAccess {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The index stored for a null string.
+     */
+    private static final int NULL = -1;
+    /**
+     * The value stored for a null CRN.
+     */
+    private static final int NULL_CRN = Integer.MIN_VALUE;
+    /**
+     * The capacity of a CourseCatalog created without one.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The number of Courses.
+     */
+    private int size;
+    /**
+     * The CRN of each Course when it is a plain number, else -1 - the index of its string, or NULL_CRN.
+     */
+    private int[] crns;
+    /**
+     * The credits of each Course.
+     */
+    private int[] credits;
+    /**
+     * The class size of each Course.
+     */
+    private int[] classSizes;
+    /**
+     * The begin time of each Course, as in the x of its Point.
+     */
+    private int[] begins;
+    /**
+     * The end time of each Course, as in the y of its Point.
+     */
+    private int[] ends;
+    /**
+     * The index of the subject code of each Course.
+     */
+    private int[] subjectCodes;
+    /**
+     * The index of the course number of each Course.
+     */
+    private int[] courseNumbers;
+    /**
+     * The index of the name of each Course.
+     */
+    private int[] names;
+    /**
+     * The index of the teacher's name of each Course.
+     */
+    private int[] teacherNames;
+    /**
+     * The index of the building of each Course.
+     */
+    private int[] buildings;
+    /**
+     * The index of the room of each Course.
+     */
+    private int[] rooms;
+    /**
+     * The index of the days of each Course.
+     */
+    private int[] days;
+    /**
+     * The index of the begin time of each Course.
+     */
+    private int[] beginTimes;
+    /**
+     * The index of the end time of each Course.
+     */
+    private int[] endTimes;
+    /**
+     * Each distinct string, by index.
+     */
+    private final List<String> strings;
+    /**
+     * The index of each distinct string.
+     */
+    private final Map<String, Integer> indexes;
+    /**
+     * The index of the first Course of each value in crns.
+     */
+    private final CrnIndex crnIndex;
+    /**
+     * The indexes of the Courses of each subject code, by the index of its string. Built when first needed,
+     * dropped when a Course is added.
+     */
+    private volatile int[][] subjectPostings;
+    /**
+     * The indexes of the Courses in each building, by the index of its string. Built when first needed,
+     * dropped when a Course is added.
+     */
+    private volatile int[][] buildingPostings;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates an empty CourseCatalog.
+     */
+    public CourseCatalog() {
+
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty CourseCatalog with room for some Courses.
+     *
+     * @param capacity the number of Courses there is room for before the arrays grow.
+     */
+    public CourseCatalog(int capacity) {
+
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity " + capacity);
+        }
+
+        crns = new int[capacity];
+        credits = new int[capacity];
+        classSizes = new int[capacity];
+        begins = new int[capacity];
+        ends = new int[capacity];
+        subjectCodes = new int[capacity];
+        courseNumbers = new int[capacity];
+        names = new int[capacity];
+        teacherNames = new int[capacity];
+        buildings = new int[capacity];
+        rooms = new int[capacity];
+        days = new int[capacity];
+        beginTimes = new int[capacity];
+        endTimes = new int[capacity];
+        strings = new ArrayList<String>();
+        indexes = new HashMap<String, Integer>();
+        crnIndex = new CrnIndex(capacity);
+    }
+
+    /**
+     * Creates a CourseCatalog holding some Courses, e.g. a term from CourseInfo.getAllCourses.
+     *
+     * @param courses the Courses.
+     */
+    public CourseCatalog(Collection<Course> courses) {
+
+        this(courses.size());
+        for (Course course : courses) {
+            add(course);
+        }
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Adds the fields of a Course. The Course itself isn't kept.
+     *
+     * @param course the Course.
+     * @return true.
+     */
+    @Override
+    public boolean add(Course course) {
+
+        if (size == crns.length) {
+            grow();
+        }
+
+        crns[size] = toCrn(course.getCrn());
+        crnIndex.putIfAbsent(crns[size], size);
+        credits[size] = course.getCredits();
+        classSizes[size] = course.getClassSize();
+        begins[size] = course.getCoursePoint().x;
+        ends[size] = course.getCoursePoint().y;
+        subjectCodes[size] = intern(course.getSubjectCode());
+        courseNumbers[size] = intern(course.getCourseNumber());
+        names[size] = intern(course.getName());
+        teacherNames[size] = intern(course.getTeacherName());
+        buildings[size] = intern(course.getBuilding());
+        rooms[size] = intern(course.getRoom());
+        days[size] = intern(course.getDays());
+        beginTimes[size] = intern(course.getBeginTime());
+        endTimes[size] = intern(course.getEndTime());
+        size++;
+        modCount++;
+        subjectPostings = null;
+        buildingPostings = null;
+        return true;
+    }
+
+    /**
+     * Makes room for more Courses, half again as many.
+     */
+    private void grow() {
+
+        int capacity = Math.max(DEFAULT_CAPACITY, crns.length + (crns.length >> 1));
+        crns = Arrays.copyOf(crns, capacity);
+        credits = Arrays.copyOf(credits, capacity);
+        classSizes = Arrays.copyOf(classSizes, capacity);
+        begins = Arrays.copyOf(begins, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        subjectCodes = Arrays.copyOf(subjectCodes, capacity);
+        courseNumbers = Arrays.copyOf(courseNumbers, capacity);
+        names = Arrays.copyOf(names, capacity);
+        teacherNames = Arrays.copyOf(teacherNames, capacity);
+        buildings = Arrays.copyOf(buildings, capacity);
+        rooms = Arrays.copyOf(rooms, capacity);
+        days = Arrays.copyOf(days, capacity);
+        beginTimes = Arrays.copyOf(beginTimes, capacity);
+        endTimes = Arrays.copyOf(endTimes, capacity);
+    }
+
+    /**
+     * Makes the Course at the passed index.
+     *
+     * @param index the index of the Course.
+     * @return a new Course, not shared with anyone.
+     */
+    @Override
+    public Course get(int index) {
+
+        return view(index).toCourse();
+    }
+
+    /**
+     * @return the number of Courses.
+     */
+    @Override
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * @param index the index of a Course.
+     * @return a View of the Course, which can be moved to the others.
+     */
+    public View view(int index) {
+
+        return new View().moveTo(index);
+    }
+
+    /**
+     * Finds the Courses a Filter accepts, passing it the same View moved from Course to Course.
+     *
+     * @param filter the Filter.
+     * @return the indexes of the Courses accepted, in order.
+     */
+    public int[] filter(Filter filter) {
+
+        int[] found = new int[Math.min(size, DEFAULT_CAPACITY)];
+        int count = 0;
+        View view = new View();
+        for (int i = 0; i < size; i++) {
+
+            view.index = i;
+            if (filter.accept(view)) {
+
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, Math.max(DEFAULT_CAPACITY, count * 2));
+                }
+                found[count++] = i;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Finds the Courses of a subject, from postings listing the Courses of every subject code, built by
+     * the first call.
+     *
+     * @param subjectCode the subject code, e.g. "CS".
+     * @return the indexes of the Courses of the subject, in order.
+     */
+    public int[] bySubject(String subjectCode) {
+
+        return subjectRows(subjectCode).clone();
+    }
+
+    /**
+     * Finds the Courses in a building.
+     *
+     * @param building the building code, e.g. "TORG".
+     * @return the indexes of the Courses in the building, in order.
+     */
+    public int[] byBuilding(String building) {
+
+        return buildingRows(building).clone();
+    }
+
+    /**
+     * Gets the Courses of a subject from the subject postings, building them if need be.
+     *
+     * @param subjectCode the subject code.
+     * @return the indexes of the Courses of the subject, in order. Shared, so not to be changed.
+     */
+    int[] subjectRows(String subjectCode) {
+
+        int[][] postings = subjectPostings;
+        if (postings == null) {
+
+            synchronized (this) {
+
+                postings = subjectPostings;
+                if (postings == null) {
+                    postings = subjectPostings = buildPostings(subjectCodes);
+                }
+            }
+        }
+        return getPostings(postings, subjectCode);
+    }
+
+    /**
+     * Gets the Courses in a building from the building postings, building them if need be.
+     *
+     * @param building the building code.
+     * @return the indexes of the Courses in the building, in order. Shared, so not to be changed.
+     */
+    int[] buildingRows(String building) {
+
+        int[][] postings = buildingPostings;
+        if (postings == null) {
+
+            synchronized (this) {
+
+                postings = buildingPostings;
+                if (postings == null) {
+                    postings = buildingPostings = buildPostings(buildings);
+                }
+            }
+        }
+        return getPostings(postings, building);
+    }
+
+    /**
+     * @param postings the postings of a field.
+     * @param string a value of the field.
+     * @return the indexes of the Courses with the value, in order.
+     */
+    private int[] getPostings(int[][] postings, String string) {
+
+        Integer index = string == null ? null : indexes.get(string);
+        if (index == null || index >= postings.length) {
+            return new int[0];
+        }
+        return postings[index];
+    }
+
+    /**
+     * Lists, for each string, the indexes of the Courses holding it in a field, counting them in one pass
+     * and filling them in a second.
+     *
+     * @param column the field, as indexes of strings.
+     * @return the indexes of the Courses holding each string, by the index of the string.
+     */
+    private int[][] buildPostings(int[] column) {
+
+        int[] counts = new int[strings.size()];
+        for (int i = 0; i < size; i++) {
+
+            if (column[i] != NULL) {
+                counts[column[i]]++;
+            }
+        }
+
+        int[][] postings = new int[counts.length][];
+        for (int j = 0; j < counts.length; j++) {
+
+            postings[j] = new int[counts[j]];
+            counts[j] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+
+            if (column[i] != NULL) {
+                postings[column[i]][counts[column[i]]++] = i;
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * Finds a Course by CRN, looking its int up in a CrnIndex instead of comparing strings.
+     *
+     * @param crn the CRN.
+     * @return the index of the first Course with the CRN, -1 if there is none.
+     */
+    public int indexOfCrn(String crn) {
+
+        int value;
+        if (isPlainNumber(crn)) {
+            value = Integer.parseInt(crn);
+        }
+        else {
+
+            Integer index = indexes.get(crn);
+            if (index == null) {
+                return -1;
+            }
+            value = -1 - index;
+        }
+
+        return crnIndex.get(value);
+    }
+
+    /**
+     * @return the number of distinct strings held.
+     */
+    public int getStringCount() {
+
+        return strings.size();
+    }
+
+    /**
+     * @param string a string, may be null.
+     * @return the index of the string, added to the dictionary if it isn't already in it, NULL for null.
+     */
+    private int intern(String string) {
+
+        if (string == null) {
+            return NULL;
+        }
+
+        Integer index = indexes.get(string);
+        if (index == null) {
+
+            index = strings.size();
+            indexes.put(string, index);
+            strings.add(string);
+        }
+        return index;
+    }
+
+    /**
+     * @param index the index of a string, NULL for null.
+     * @return the string.
+     */
+    private String getString(int index) {
+
+        return index == NULL ? null : strings.get(index);
+    }
+
+    /**
+     * @param crn a CRN.
+     * @return the CRN as a plain number, or if it isn't one, -1 - the index of its string, NULL_CRN for null.
+     */
+    private int toCrn(String crn) {
+
+        if (crn == null) {
+            return NULL_CRN;
+        }
+        return isPlainNumber(crn) ? Integer.parseInt(crn) : -1 - intern(crn);
+    }
+
+    /**
+     * @param crn a CRN.
+     * @return true if the CRN is a number that fits an int, without leading zeros, so it reads back the same.
+     */
+    private static boolean isPlainNumber(String crn) {
+
+        int length = crn == null ? 0 : crn.length();
+        if (length == 0 || length > 9 || (crn.charAt(0) == '0' && length > 1)) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+
+            if (crn.charAt(i) < '0' || crn.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * Decides which Courses a scan finds.
+     */
+    public interface Filter {
+
+        /**
+         * @param course a View of the Course, only valid until accept returns.
+         * @return true if the Course is wanted.
+         */
+        boolean accept(View course);
+    }
+
+    /**
+     * A flyweight over one of the Courses, with the getters of Course. Reads straight from the arrays,
+     * so it makes nothing but the Point and Course asked for.
+     */
+    public final class View {
+
+        /**
+         * The index of the Course viewed.
+         */
+        private int index;
+
+        /**
+         * Creates a View of the first Course, to be moved before it is read.
+         */
+        private View() {
+
+        }
+
+        /**
+         * Moves the View to another Course.
+         *
+         * @param index the index of the Course.
+         * @return this View.
+         */
+        public View moveTo(int index) {
+
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * @return the index of the Course viewed.
+         */
+        public int getIndex() {
+
+            return index;
+        }
+
+        /**
+         * @return the crn
+         */
+        public String getCrn() {
+
+            int value = crns[index];
+            if (value == NULL_CRN) {
+                return null;
+            }
+            return value >= 0 ? Integer.toString(value) : getString(-1 - value);
+        }
+
+        /**
+         * @return the subjectCode
+         */
+        public String getSubjectCode() {
+
+            return getString(subjectCodes[index]);
+        }
+
+        /**
+         * @return the courseNumber
+         */
+        public String getCourseNumber() {
+
+            return getString(courseNumbers[index]);
+        }
+
+        /**
+         * @return the Course code of the Course in the format:
+         *          <subjectCode>-<courseNumber>
+         */
+        public String getCourseCode() {
+
+            return getSubjectCode() + "-" + getCourseNumber();
+        }
+
+        /**
+         * @return the name
+         */
+        public String getName() {
+
+            return getString(names[index]);
+        }
+
+        /**
+         * @return the teacherName
+         */
+        public String getTeacherName() {
+
+            return getString(teacherNames[index]);
+        }
+
+        /**
+         * @return the credits
+         */
+        public int getCredits() {
+
+            return credits[index];
+        }
+
+        /**
+         * @return the classSize
+         */
+        public int getClassSize() {
+
+            return classSizes[index];
+        }
+
+        /**
+         * @return the days
+         */
+        public String getDays() {
+
+            return getString(days[index]);
+        }
+
+        /**
+         * @return beginTime
+         */
+        public String getBeginTime() {
+
+            return getString(beginTimes[index]);
+        }
+
+        /**
+         * @return endTime
+         */
+        public String getEndTime() {
+
+            return getString(endTimes[index]);
+        }
+
+        /**
+         * @return the adjusted beginning time, as in the x of the Course's Point.
+         */
+        public int getBegin() {
+
+            return begins[index];
+        }
+
+        /**
+         * @return the adjusted ending time, as in the y of the Course's Point.
+         */
+        public int getEnd() {
+
+            return ends[index];
+        }
+
+        /**
+         * @return a new Point holding the adjusted beginning and ending times.
+         */
+        public Point getCoursePoint() {
+
+            return new Point(begins[index], ends[index]);
+        }
+
+        /**
+         * @return the building
+         */
+        public String getBuilding() {
+
+            return getString(buildings[index]);
+        }
+
+        /**
+         * @return the room
+         */
+        public String getRoom() {
+
+            return getString(rooms[index]);
+        }
+
+        /**
+         * @return a new Course with the fields of the Course viewed.
+         */
+        public Course toCourse() {
+
+            Course course = new Course(getCrn(), getName(), getSubjectCode(), getCourseNumber(), getCredits(),
+                    getClassSize(), getTeacherName(), getBeginTime(), getEndTime(), getBuilding(), getRoom());
+            course.setDays(getDays());
+            course.getCoursePoint().x = begins[index];
+            course.getCoursePoint().y = ends[index];
+            return course;
+        }
+
+        /**
+         * @return the Course viewed, as Course.toString shows it.
+         */
+        @Override
+        public String toString() {
+
+            return toCourse().toString();
+        }
+    }
+}
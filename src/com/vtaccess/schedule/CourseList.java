@@ -0,0 +1,173 @@
+package com.vtaccess.schedule;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A List of Courses gathered from more than one request, that knows whether every request succeeded.
+ *
+ * When some of the requests fail, the Courses from the others are still returned, but the CourseList
+ * is marked incomplete, and lists what is missing, e.g. the subjects that couldn't be fetched.
+ * Check isComplete before acting on the absence of a Course.
+ *
+ * A CourseList served from the CatalogCache while banweb was down or slow is marked stale, and
+ * getFetched tells how old it is.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class CourseList extends LinkedList<Course> {
+
+    //~Constants-----------------------------------------------
+    private static final long serialVersionUID = 1L;
+
+    //~Data Fields---------------------------------------------
+    /**
+     * What is missing from this List, e.g. "CS" for a subject that couldn't be fetched.
+     * Empty if nothing is missing.
+     */
+    private final List<String> missing;
+    /**
+     * The last error that left something missing, null if nothing is missing.
+     */
+    private Throwable lastError;
+    /**
+     * True if the Courses were served in place of fresh ones that couldn't be fetched in time.
+     */
+    private boolean stale;
+    /**
+     * When the Courses were fetched, in milliseconds since the epoch. The oldest, if they were
+     * gathered from more than one request.
+     */
+    private long fetched;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates an empty, complete CourseList.
+     */
+    public CourseList() {
+
+        missing = new LinkedList<String>();
+        lastError = null;
+        stale = false;
+        fetched = System.currentTimeMillis();
+    }
+
+    /**
+     * Copy constructor, copies every Course, so that either CourseList can be changed
+     * without affecting the other.
+     *
+     * @param other the CourseList to copy.
+     */
+    public CourseList(CourseList other) {
+
+        this();
+
+        for (Course course : other) {
+            add(new Course(course));
+        }
+        missing.addAll(other.missing);
+        lastError = other.lastError;
+        stale = other.stale;
+        fetched = other.fetched;
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Records that part of this List couldn't be fetched, marking it incomplete.
+     *
+     * @param what what is missing, e.g. a subject code.
+     * @param error the error that left it missing.
+     */
+    public void addMissing(String what, Throwable error) {
+
+        missing.add(what);
+        lastError = error;
+    }
+
+    /**
+     * Adds all of the passed in Courses. If they are a CourseList, anything missing from it is added too,
+     * and this List is marked stale if it is, whatever type the caller holds it as.
+     *
+     * @param courses the Courses to add.
+     * @return true if this List changed.
+     */
+    @Override
+    public boolean addAll(Collection<? extends Course> courses) {
+
+        if (courses instanceof CourseList) {
+
+            CourseList other = (CourseList) courses;
+            missing.addAll(other.missing);
+            if (other.lastError != null) {
+                lastError = other.lastError;
+            }
+            stale |= other.stale;
+            fetched = Math.min(fetched, other.fetched);
+        }
+
+        return super.addAll(courses);
+    }
+
+    /**
+     * @return true if every request succeeded, false if this List is missing Courses.
+     */
+    public boolean isComplete() {
+
+        return missing.isEmpty();
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return what is missing from this List, e.g. the subjects that couldn't be fetched.
+     *          Empty if this List is complete.
+     */
+    public List<String> getMissing() {
+
+        return Collections.unmodifiableList(missing);
+    }
+
+    /**
+     * @return the last error that left something missing, null if this List is complete.
+     */
+    public Throwable getLastError() {
+
+        return lastError;
+    }
+
+    /**
+     * @return true if the Courses were served in place of fresh ones that couldn't be fetched in time,
+     *          e.g. while banweb was down.
+     */
+    public boolean isStale() {
+
+        return stale;
+    }
+
+    /**
+     * @param stale true if the Courses are served in place of fresh ones.
+     */
+    public void setStale(boolean stale) {
+
+        this.stale = stale;
+    }
+
+    /**
+     * @return when the Courses were fetched, in milliseconds since the epoch. The oldest, if they
+     *          were gathered from more than one request.
+     */
+    public long getFetched() {
+
+        return fetched;
+    }
+
+    /**
+     * @param fetched when the Courses were fetched, in milliseconds since the epoch.
+     */
+    public void setFetched(long fetched) {
+
+        this.fetched = fetched;
+    }
+}
@@ -0,0 +1,301 @@
+package com.vtaccess.schedule;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Canonicalizes the Courses of loaded Schedules, so that a section that appears in many Schedules, e.g. in a
+ * user's and in each of their friends', is held by one Course instead of by a copy for every Schedule and
+ * every Day it is on. Memory then grows with the number of distinct sections rather than with enrollments.
+ *
+ * Courses are keyed by their CRN and term, when the term is known. A CRN can stand for more than one Course,
+ * e.g. a section and its additional times, so a Course is only replaced by a pooled one that has the same value
+ * in every field. Courses without a CRN are never pooled.
+ *
+ * The pooled Courses are shared: a change made to one, through its setters, is seen by every Schedule
+ * holding it, and marks each of them dirty. Callers that edit a Course of one Schedule only should replace it
+ * with a copy first.
+ *
+ * There is no pool shared by the whole process, each pool is scoped to the load that creates it, so Courses are
+ * only shared between the Schedules loaded together. ScheduleIO pools each load separately, unless the caller
+ * passes the same pool to several loads, see ScheduleIO.loadSchedules(File, CoursePool).
+ *
+ * The pool only holds its Courses weakly, a Course no Schedule holds anymore can be collected, and its CRN is
+ * dropped from the pool the next time the pool is used.
+ *
+ * At most maxEntries CRNs are pooled, once the pool is full, even after dropping the collected Courses, new
+ * sections are passed through as is and counted, see getBypassed. The default can be set with the system
+ * property vtaccess.courses.entries.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class CoursePool {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The system property holding the default most CRNs pooled.
+     */
+    public static final String ENTRIES_PROPERTY = "vtaccess.courses.entries";
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The pooled Courses of each CRN and term. Each array is replaced, never changed, when a Course is added
+     * or dropped.
+     */
+    private final ConcurrentHashMap<String, PooledCourse[]> sections;
+    /**
+     * The pooled Courses that have been collected, and still have to be dropped from sections.
+     */
+    private final ReferenceQueue<Course> collected;
+    /**
+     * The number of new sections passed through because the pool was full.
+     */
+    private final LongAdder bypassed;
+    /**
+     * The most CRNs pooled.
+     */
+    private volatile int maxEntries;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates an empty pool with the default settings.
+     */
+    public CoursePool() {
+
+        sections = new ConcurrentHashMap<String, PooledCourse[]>();
+        collected = new ReferenceQueue<Course>();
+        bypassed = new LongAdder();
+        reset();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Gets the pooled Course equal in every field to the passed one, pooling the passed one if there is none.
+     *
+     * @param semesterCode the semesterCode of the Course's term, null if it isn't known.
+     * @param course the Course to canonicalize, may be null.
+     * @return the pooled Course, or course itself if it has no CRN or the pool is full.
+     */
+    public Course canonicalize(String semesterCode, Course course) {
+
+        if (course == null || course.getCrn() == null || course.getCrn().isEmpty()) {
+            return course;
+        }
+
+        expunge();
+        String key = (semesterCode == null ? "" : semesterCode) + "|" + course.getCrn();
+        while (true) {
+
+            PooledCourse[] pooled = sections.get(key);
+            if (pooled == null) {
+
+                if (sections.size() >= maxEntries) {
+                    bypassed.increment();
+                    return course;
+                }
+                if (sections.putIfAbsent(key, new PooledCourse[] { new PooledCourse(key, course, collected) }) 
+                        == null) {
+                    return course;
+                }
+                continue;
+            }
+
+            // the collected Courses are left out of the copy
+            PooledCourse[] added = new PooledCourse[pooled.length + 1];
+            int live = 0;
+            for (PooledCourse ref : pooled) {
+
+                Course other = ref.get();
+                if (other != null) {
+                    if (isSameSection(course, other)) {
+                        return other;
+                    }
+                    added[live++] = ref;
+                }
+            }
+
+            added[live] = new PooledCourse(key, course, collected);
+            if (sections.replace(key, pooled, Arrays.copyOf(added, live + 1))) {
+                return course;
+            }
+        }
+    }
+
+    /**
+     * Replaces each Course of the passed Day with its pooled Course. The Day isn't marked as changed.
+     *
+     * @param semesterCode the semesterCode of the Day's term, null if it isn't known.
+     * @param day the Day whose Courses to canonicalize.
+     */
+    public void canonicalize(String semesterCode, Day day) {
+
+        for (int i = 0; i < day.getList().size(); i++) {
+
+            day.getList().set(i, canonicalize(semesterCode, day.getList().get(i)));
+        }
+    }
+
+    /**
+     * @return the number of CRNs pooled, not counting those whose Courses have all been collected.
+     */
+    public int size() {
+
+        expunge();
+        return sections.size();
+    }
+
+    /**
+     * Forgets all of the pooled Courses, and returns the settings to their defaults.
+     */
+    public void reset() {
+
+        maxEntries = Math.max(1, Integer.parseInt(System.getProperty(ENTRIES_PROPERTY, "65536")));
+        sections.clear();
+        while (collected.poll() != null) {
+            // the Courses are already forgotten
+        }
+        bypassed.reset();
+    }
+
+    /**
+     * Helper method, drops each pooled Course that has been collected since the last call.
+     */
+    private void expunge() {
+
+        Reference<? extends Course> ref;
+        while ((ref = collected.poll()) != null) {
+            drop((PooledCourse) ref);
+        }
+    }
+
+    /**
+     * Helper method, drops a collected Course from the pool, and its CRN if it was the CRN's last Course.
+     *
+     * @param ref the collected Course's reference.
+     */
+    private void drop(PooledCourse ref) {
+
+        while (true) {
+
+            PooledCourse[] pooled = sections.get(ref.key);
+            int index = -1;
+            for (int i = 0; pooled != null && i < pooled.length; i++) {
+                if (pooled[i] == ref) {
+                    index = i;
+                }
+            }
+            // already left out when a Course was added, or the pool was reset
+            if (index == -1) {
+                return;
+            }
+
+            if (pooled.length == 1) {
+                if (sections.remove(ref.key, pooled)) {
+                    return;
+                }
+                continue;
+            }
+
+            PooledCourse[] kept = new PooledCourse[pooled.length - 1];
+            System.arraycopy(pooled, 0, kept, 0, index);
+            System.arraycopy(pooled, index + 1, kept, index, kept.length - index);
+            if (sections.replace(ref.key, pooled, kept)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Helper method, checks that two Courses hold the same value in every field.
+     *
+     * @param course a Course.
+     * @param other another Course.
+     * @return true if course and other are the same section, false otherwise.
+     */
+    private static boolean isSameSection(Course course, Course other) {
+
+        return equal(course.crn, other.crn)
+                && equal(course.subjectCode, other.subjectCode)
+                && equal(course.courseNumber, other.courseNumber)
+                && equal(course.name, other.name)
+                && equal(course.teacherName, other.teacherName)
+                && course.credits == other.credits
+                && course.getClassSize() == other.getClassSize()
+                && equal(course.days, other.days)
+                && equal(course.beginTime, other.beginTime)
+                && equal(course.endTime, other.endTime)
+                && equal(course.building, other.building)
+                && equal(course.room, other.room)
+                && course.timeFactor == other.timeFactor
+                && (course.date == null ? other.date == null
+                        : other.date != null && course.date.compareTo(other.date) == 0);
+    }
+
+    /**
+     * Helper method, checks that two Strings are equal, or both null.
+     *
+     * @param one a String, may be null.
+     * @param other another String, may be null.
+     * @return true if the Strings are equal, false otherwise.
+     */
+    private static boolean equal(String one, String other) {
+
+        return one == null ? other == null : one.equals(other);
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the most CRNs pooled.
+     */
+    public int getMaxEntries() {
+
+        return maxEntries;
+    }
+
+    /**
+     * @return the number of new sections passed through as is because the pool was full.
+     */
+    public long getBypassed() {
+
+        return bypassed.sum();
+    }
+
+    /**
+     * @param maxEntries the most CRNs pooled, at least 1. Takes effect as Courses are next pooled.
+     */
+    public void setMaxEntries(int maxEntries) {
+
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    //~Nested Classes------------------------------------------
+    /**
+     * A pooled Course, held weakly, along with the key it is pooled under.
+     */
+    private static final class PooledCourse extends WeakReference<Course> {
+
+        /**
+         * The CRN and term the Course is pooled under.
+         */
+        private final String key;
+
+        /**
+         * @param key the CRN and term the Course is pooled under.
+         * @param course the pooled Course.
+         * @param queue the queue the reference is put on once the Course is collected.
+         */
+        PooledCourse(String key, Course course, ReferenceQueue<Course> queue) {
+
+            super(course, queue);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.vtaccess.schedule;
+
+import java.util.Arrays;
+
+/**
+ * Maps CRNs, as ints, to the positions of their Courses, e.g. in a CourseCatalog or in a List of a term's
+ * Courses. CRNs are numbers, so rather than boxing them as keys of a HashMap the keys and positions are held
+ * in two int arrays, and a key is found by open addressing: hashed to a slot, then probed slot by slot until
+ * it, or an empty slot, is found. A lookup is a few array reads, and the index makes no objects as it grows.
+ *
+ * The arrays are kept at most half full, doubling when they fill, so probes stay short. Positions can be
+ * replaced but not removed. A CrnIndex isn't synchronized.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class CrnIndex {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The position returned for a CRN that isn't indexed, and held by empty slots.
+     */
+    public static final int NONE = -1;
+    /**
+     * The number of slots of a CrnIndex created without a capacity. A power of two.
+     */
+    private static final int DEFAULT_SLOTS = 64;
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The CRN in each slot.
+     */
+    private int[] keys;
+    /**
+     * The position in each slot, NONE if the slot is empty.
+     */
+    private int[] positions;
+    /**
+     * The number of CRNs indexed.
+     */
+    private int size;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates an empty CrnIndex.
+     */
+    public CrnIndex() {
+
+        this(DEFAULT_SLOTS / 2);
+    }
+
+    /**
+     * Creates an empty CrnIndex with room for some CRNs.
+     *
+     * @param capacity the number of CRNs there is room for before the arrays grow.
+     */
+    public CrnIndex(int capacity) {
+
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity " + capacity);
+        }
+
+        int slots = DEFAULT_SLOTS;
+        while (slots < capacity * 2) {
+            slots <<= 1;
+        }
+        keys = new int[slots];
+        positions = new int[slots];
+        Arrays.fill(positions, NONE);
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Reads a CRN as the int it is indexed by.
+     *
+     * @param crn a CRN, may be null.
+     * @return the CRN as an int, or NONE if it isn't a number that fits an int without leading zeros,
+     *          and so can't be read back the same from the int.
+     */
+    public static int toKey(String crn) {
+
+        int length = crn == null ? 0 : crn.length();
+        if (length == 0 || length > 9 || (crn.charAt(0) == '0' && length > 1)) {
+            return NONE;
+        }
+        for (int i = 0; i < length; i++) {
+
+            if (crn.charAt(i) < '0' || crn.charAt(i) > '9') {
+                return NONE;
+            }
+        }
+        return Integer.parseInt(crn);
+    }
+
+    /**
+     * Gets the position of a CRN.
+     *
+     * @param crn the CRN.
+     * @return the position of the CRN, NONE if it isn't indexed.
+     */
+    public int get(int crn) {
+
+        return positions[find(crn)];
+    }
+
+    /**
+     * Indexes a CRN at a position, replacing the position it had.
+     *
+     * @param crn the CRN.
+     * @param position the position of the CRN, at least 0.
+     * @return the position the CRN had, NONE if it wasn't indexed.
+     */
+    public int put(int crn, int position) {
+
+        return put(crn, position, true);
+    }
+
+    /**
+     * Indexes a CRN at a position, unless it is already indexed.
+     *
+     * @param crn the CRN.
+     * @param position the position of the CRN, at least 0.
+     * @return the position the CRN has, NONE if it wasn't indexed and now has the passed position.
+     */
+    public int putIfAbsent(int crn, int position) {
+
+        return put(crn, position, false);
+    }
+
+    /**
+     * @return the number of CRNs indexed.
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Helper method, indexes a CRN at a position.
+     *
+     * @param crn the CRN.
+     * @param position the position of the CRN, at least 0.
+     * @param replace true to replace the position the CRN has, false to keep it.
+     * @return the position the CRN had, NONE if it wasn't indexed.
+     */
+    private int put(int crn, int position, boolean replace) {
+
+        if (position < 0) {
+            throw new IllegalArgumentException("position " + position);
+        }
+
+        int slot = find(crn);
+        int previous = positions[slot];
+        if (previous == NONE) {
+
+            keys[slot] = crn;
+            positions[slot] = position;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+        else if (replace) {
+            positions[slot] = position;
+        }
+        return previous;
+    }
+
+    /**
+     * Helper method, finds the slot holding a CRN.
+     *
+     * @param crn the CRN.
+     * @return the slot holding the CRN, or the empty slot it would go in.
+     */
+    private int find(int crn) {
+
+        int mask = keys.length - 1;
+        int slot = hash(crn) & mask;
+        while (positions[slot] != NONE && keys[slot] != crn) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Helper method, doubles the number of slots and puts every CRN in its new slot.
+     */
+    private void grow() {
+
+        int[] oldKeys = keys;
+        int[] oldPositions = positions;
+        keys = new int[oldKeys.length * 2];
+        positions = new int[oldKeys.length * 2];
+        Arrays.fill(positions, NONE);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+
+            if (oldPositions[i] != NONE) {
+
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                positions[slot] = oldPositions[i];
+            }
+        }
+    }
+
+    /**
+     * Helper method, spreads CRNs, which are mostly close together, over the slots.
+     *
+     * @param crn the CRN.
+     * @return the hash of the CRN.
+     */
+    private static int hash(int crn) {
+
+        int hash = crn * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
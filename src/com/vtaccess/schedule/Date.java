@@ -92,6 +92,22 @@ public class Date {
         year = 0;
     }
 
+    /**
+     * Copy constructor.
+     * 
+     * @param other the Date to copy.
+     */
+    public Date(Date other) {
+
+        strMonth = other.strMonth;
+        strDay = other.strDay;
+        strYear = other.strYear;
+
+        month = other.month;
+        day = other.day;
+        year = other.year;
+    }
+
     /**
      * Takes a date in long form: (typed out month) day, year as well as a
      * dateType specifier, that does not require a valid value it is present to
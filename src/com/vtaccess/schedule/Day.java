@@ -12,6 +12,13 @@ import java.util.List;
  */
 public class Day {
 
+    // ~Constants--------------------------------------------------------------
+    /**
+     * The bits of a version stamp that count changes to Courses, the bits above them count
+     * changes to Lists of Courses.
+     */
+    static final long COURSE_CHANGES = 0xFFFFFFFFL;
+
     // ~Data Fields------------------------------------------------------------
     /**
      * holds a list of Courses in a given day
@@ -22,6 +29,17 @@ public class Day {
      * the String designating what day of the week this day is
      */
     protected String thisDay;
+    
+    /**
+     * The number of changes made to this Day's List of Courses.
+     * Changes made to the List returned by getList are not tracked.
+     */
+    protected long version;
+    
+    /**
+     * The version of this Day when it was last saved, see markClean.
+     */
+    private long cleanVersion;
 
     // ~Constructors------------------------------------------------------------
     /**
@@ -31,6 +49,9 @@ public class Day {
 
         daily = new ArrayList<Course>();
         this.thisDay = thisDay;
+        
+        version = 0;
+        cleanVersion = -1;
     }
 
     // ~Methods------------------------------------------------------------
@@ -51,6 +72,7 @@ public class Day {
                 building, room);
 
         daily.add(addingCourse);
+        touch();
     }
 
     /**
@@ -99,8 +121,10 @@ public class Day {
         Course addingCourse = new Course(crn, name, subjectCode, courseNumber, 
                 numCredits, numStudents, teacherName, beginTime, endTime,
                 building, room);
+        addingCourse.setDays(days);
 
         daily.add(addingCourse);
+        touch();
     }
     
     /**
@@ -112,6 +136,7 @@ public class Day {
     public void addCourse(Course newCourse) {
 
         daily.add(newCourse);
+        touch();
     }
 
     /**
@@ -122,7 +147,10 @@ public class Day {
      */
     public void removeCourse(Course remove) {
 
-        daily.remove(remove);
+        if (daily.remove(remove)) {
+            
+            touch();
+        }
     }
 
     /**
@@ -173,6 +201,7 @@ public class Day {
                     course = daily.get(j);
                     daily.set(j, daily.get(j - 1));
                     daily.set(j - 1, course);
+                    touch();
                 }
                 
                 //decrement j
@@ -190,6 +219,7 @@ public class Day {
     public void setList(List<Course> theList) {
 
         daily = new ArrayList<Course>(theList);
+        touch();
     }
 
     /**
@@ -212,6 +242,7 @@ public class Day {
     public void setThisDay(String thisDay) {
 
         this.thisDay = thisDay;
+        touch();
     }
     
     /**
@@ -224,6 +255,52 @@ public class Day {
         return thisDay;
     }
 
+    /**
+     * Gets the version stamp of this Day, which grows with every change made either to its List 
+     * of Courses or to one of the Courses in it. The bits above COURSE_CHANGES count the changes
+     * to the List, so a removed Course can't take the stamp back to an earlier one.
+     * 
+     * @return the version stamp.
+     */
+    public long getVersion() {
+        
+        long courseChanges = 0;
+        
+        for (Course course : daily) {
+            
+            courseChanges += course.getVersion();
+        }
+        
+        return (version << 32) | (courseChanges & COURSE_CHANGES);
+    }
+    
+    /**
+     * Checks to see if this Day has changed since it was last marked clean.
+     * A Day that has never been marked clean is dirty.
+     * 
+     * @return true if this Day has changed, false otherwise.
+     */
+    public boolean isDirty() {
+        
+        return getVersion() > cleanVersion;
+    }
+    
+    /**
+     * Marks this Day as saved, it is not dirty until it, or one of its Courses, changes again.
+     */
+    public void markClean() {
+        
+        cleanVersion = getVersion();
+    }
+    
+    /**
+     * Marks this Day's List of Courses as changed.
+     */
+    protected void touch() {
+        
+        version++;
+    }
+
     /**
      * Tells what day of the week this day object represents. 
      * 
@@ -52,6 +52,20 @@ public class Schedule {
      * Calendar object used to get what today's day is.
      */
     private Calendar cal;
+    /**
+     * The number of changes made to the owner of this Schedule.
+     * Changes to the Days are tracked by the Days themselves.
+     */
+    private long version;
+    /**
+     * The version of the owner when this Schedule was last saved, see markClean.
+     */
+    private long cleanVersion = -1;
+    /**
+     * The List changes counted by the Days replaced in this Schedule, plus one per Day replaced,
+     * so that getVersion keeps growing when a Day is replaced by one with fewer changes.
+     */
+    private long replacedChanges;
 
     // ~Constructor----------------------------------------------
     /**
@@ -150,6 +164,7 @@ public class Schedule {
     public void setWhosSchedule(String name) {
 
         whosSchedule = name;
+        version++;
     }
 
     /**
@@ -569,6 +584,12 @@ public class Schedule {
      */
     public void arrayToDays(Day[] days) {
 
+        Day[] replaced = daysToArray();
+        for (int i = 0; i < replaced.length; i++) {
+            
+            touchDay(replaced[i], days[i]);
+        }
+        
         monday = days[0];
         tuesday = days[1];
         wednesday = days[2];
@@ -589,6 +610,103 @@ public class Schedule {
         friday.sortCourses();
     }
     
+    /**
+     * Gets the version stamp of this Schedule, which grows with every change made to its owner, 
+     * any of its Days, or any of their Courses. It is built like Day.getVersion.
+     * 
+     * @return the version stamp.
+     */
+    public long getVersion() {
+        
+        long changes = version + replacedChanges;
+        long courseChanges = 0;
+        
+        for (Day day : daysToArray()) {
+            
+            if (day != null) {
+                
+                long dayVersion = day.getVersion();
+                changes += dayVersion >>> 32;
+                courseChanges += dayVersion & Day.COURSE_CHANGES;
+            }
+        }
+        
+        return (changes << 32) | (courseChanges & Day.COURSE_CHANGES);
+    }
+    
+    /**
+     * Checks to see if anything in this Schedule has changed since it was last marked clean.
+     * 
+     * @return true if this Schedule has changed, false otherwise.
+     */
+    public boolean isDirty() {
+        
+        return isOwnerDirty() || !getDirtyDays().isEmpty();
+    }
+    
+    /**
+     * Checks to see if the owner of this Schedule has changed since it was last marked clean.
+     * A Schedule that has never been marked clean has a dirty owner. 
+     * 
+     * @return true if the owner has changed, false otherwise.
+     */
+    public boolean isOwnerDirty() {
+        
+        return version > cleanVersion;
+    }
+    
+    /**
+     * Gets the Days that have changed since this Schedule was last marked clean.
+     * 
+     * @return a List of the changed Days, in the order of daysToArray. Empty if none have changed.
+     */
+    public List<Day> getDirtyDays() {
+        
+        List<Day> dirty = new LinkedList<Day>();
+        
+        for (Day day : daysToArray()) {
+            
+            if (day.isDirty()) {
+                
+                dirty.add(day);
+            }
+        }
+        
+        return dirty;
+    }
+    
+    /**
+     * Marks this Schedule and all of its Days as saved.
+     */
+    public void markClean() {
+        
+        cleanVersion = version;
+        
+        for (Day day : daysToArray()) {
+            
+            day.markClean();
+        }
+    }
+    
+    /**
+     * Helper method, marks a Day that was put into this Schedule as changed.
+     * 
+     * @param replaced the Day it replaces, may be null.
+     * @param day the Day, may be null.
+     */
+    private void touchDay(Day replaced, Day day) {
+        
+        if (replaced != null && replaced != day) {
+            
+            replacedChanges += 1 + (replaced.getVersion() >>> 32);
+        }
+        
+        if (day != null) {
+            
+            day.touch();
+        }
+    }
+    
     /**
      * Returns the number of Day objects contained in this Schedule.
      * Should be overriden if extending Schedule, so that it may function
@@ -729,6 +847,7 @@ public class Schedule {
      */
     public void setMonday(Day monday) {
 
+        touchDay(this.monday, monday);
         this.monday = monday;
     }
 
@@ -746,6 +865,7 @@ public class Schedule {
      */
     public void setTuesday(Day tuesday) {
 
+        touchDay(this.tuesday, tuesday);
         this.tuesday = tuesday;
     }
 
@@ -763,6 +883,7 @@ public class Schedule {
      */
     public void setWednesday(Day wednesday) {
 
+        touchDay(this.wednesday, wednesday);
         this.wednesday = wednesday;
     }
 
@@ -780,6 +901,7 @@ public class Schedule {
      */
     public void setThursday(Day thursday) {
 
+        touchDay(this.thursday, thursday);
         this.thursday = thursday;
     }
 
@@ -797,6 +919,7 @@ public class Schedule {
      */
     public void setFriday(Day friday) {
 
+        touchDay(this.friday, friday);
         this.friday = friday;
     }
 
@@ -814,6 +937,7 @@ public class Schedule {
      */
     public void setAnyDay(Day anyDay) {
 
+        touchDay(this.anyDay, anyDay);
         this.anyDay = anyDay;
     }
 
@@ -0,0 +1,171 @@
+package com.vtaccess.schedule;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizes the Strings read into Courses, so that the values repeated across a term's catalog, e.g.
+ * subject codes, building codes, teachers' names, "N/A", "TBA" and days such as "MWF", are each held by one
+ * String instead of by a fresh one for every row they were parsed from.
+ *
+ * Pools are scoped per term, see forTerm, so the values of a term are dropped with it rather than kept
+ * for as long as the process runs, the way String.intern would keep them. A pool holds at most maxEntries
+ * values, once it is full it still hands back the values it holds, but new values are passed through as is.
+ * At most maxTerms terms' pools are kept, the least recently used is dropped first. The defaults can be set
+ * with the system properties vtaccess.strings.entries and vtaccess.strings.terms.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class StringPool {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The system property holding the most values a pool holds.
+     */
+    public static final String ENTRIES_PROPERTY = "vtaccess.strings.entries";
+    /**
+     * The system property holding the most terms' pools kept.
+     */
+    public static final String TERMS_PROPERTY = "vtaccess.strings.terms";
+    /**
+     * The key of the pool used for values whose term isn't known.
+     */
+    private static final String NO_TERM = "";
+    /**
+     * The pool of each term, least recently used first. Guarded by itself.
+     */
+    private static final LinkedHashMap<String, StringPool> TERMS =
+            new LinkedHashMap<String, StringPool>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StringPool> eldest) {
+
+            return size() > maxTerms;
+        }
+    };
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The most terms' pools kept.
+     */
+    private static volatile int maxTerms;
+    /**
+     * The most values a pool created by forTerm holds.
+     */
+    private static volatile int defaultMaxEntries;
+    /**
+     * The canonical instance of each value held, keyed by itself.
+     */
+    private final ConcurrentHashMap<String, String> values;
+    /**
+     * The most values this pool holds.
+     */
+    private final int maxEntries;
+
+    static {
+        reset();
+    }
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates an empty pool.
+     *
+     * @param maxEntries the most values the pool holds, at least 1.
+     */
+    public StringPool(int maxEntries) {
+
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        values = new ConcurrentHashMap<String, String>();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Gets the pool of the passed term, creating it if it isn't kept.
+     *
+     * @param semesterCode the semesterCode of the term, null if it isn't known.
+     * @return the pool of the term.
+     */
+    public static StringPool forTerm(String semesterCode) {
+
+        String key = semesterCode == null ? NO_TERM : semesterCode;
+        synchronized (TERMS) {
+
+            StringPool pool = TERMS.get(key);
+            if (pool == null) {
+                pool = new StringPool(defaultMaxEntries);
+                TERMS.put(key, pool);
+            }
+            return pool;
+        }
+    }
+
+    /**
+     * Drops every term's pool, and returns the settings to their defaults.
+     */
+    public static void reset() {
+
+        maxTerms = Math.max(1, Integer.parseInt(System.getProperty(TERMS_PROPERTY, "4")));
+        defaultMaxEntries = Math.max(1, Integer.parseInt(System.getProperty(ENTRIES_PROPERTY, "65536")));
+        synchronized (TERMS) {
+            TERMS.clear();
+        }
+    }
+
+    /**
+     * Gets the canonical instance of the passed value, the first equal value passed in while this pool
+     * had room for it.
+     *
+     * @param value the value to canonicalize, may be null.
+     * @return the canonical instance of value, value itself if it is new and this pool is full, or null if
+     *          value is null.
+     */
+    public String canonicalize(String value) {
+
+        if (value == null) {
+            return null;
+        }
+
+        String canonical = values.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (values.size() >= maxEntries) {
+            return value;
+        }
+
+        canonical = values.putIfAbsent(value, value);
+        return canonical == null ? value : canonical;
+    }
+
+    /**
+     * @return the number of values held.
+     */
+    public int size() {
+
+        return values.size();
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the most values this pool holds.
+     */
+    public int getMaxEntries() {
+
+        return maxEntries;
+    }
+
+    /**
+     * @return the most terms' pools kept.
+     */
+    public static int getMaxTerms() {
+
+        return maxTerms;
+    }
+}
@@ -1,5 +1,8 @@
 /**
  * Package that contains objects that make up a Schedule, such as a Schedule, a Day, a Course,
- * and a Date.
+ * and a Date. CourseList and CourseCatalog hold the Courses of a term, the latter in primitive arrays
+ * read through flyweight Views, and CatalogQuery plans and runs queries over a CourseCatalog.
+ * StringPool canonicalizes the Strings Courses are read with, per term, and CoursePool the Courses
+ * of loaded Schedules. CrnIndex maps numeric CRNs to positions by open addressing.
  */
-package com.vtaccess.schedule;
\ No newline at end of file
+package com.vtaccess.schedule;
@@ -0,0 +1,122 @@
+package test.vtaccess;
+
+import com.vtaccess.CatalogCache;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.net.CircuitBreaker;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.net.RetryPolicy;
+import com.vtaccess.net.Transport;
+import com.vtaccess.schedule.CourseList;
+import test.vtaccess.server.ReplayServerTestCase;
+
+/**
+ * Offline tests of serving stale catalog data from the CatalogCache while the local replay server is down or slow.
+ * No login information needed. Run from the root of the project so that tests/fixtures can be found.
+ */
+public class CatalogCacheTest extends ReplayServerTestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+
+    //~Data Fields--------------------------------------------
+    private MetricsRegistry metrics;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        metrics = MetricsRegistry.getDefault();
+        metrics.reset();
+        Transport.setPolicy(Endpoint.TIMETABLE, RetryPolicy.DEFAULT.withMaxAttempts(1));
+        CatalogCache.getDefault().reset();
+    }
+
+    //~Methods-------------------------------------------------
+    public void testFreshDataIsNotStale() {
+
+        CourseList courses = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        assertFalse(courses.isStale());
+
+        courses = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        assertFalse(courses.isStale());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(0, metrics.counter("catalog.stale").get());
+    }
+
+    public void testServesStaleWhenDown() {
+
+        CourseList fresh = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        server.failNext(1);
+
+        long served = System.currentTimeMillis();
+        CourseList stale = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        assertTrue(stale.isStale());
+        assertEquals(fresh, stale);
+        assertTrue(stale.getFetched() <= served);
+        assertEquals(1, metrics.counter("catalog.stale").get());
+    }
+
+    public void testServesStaleWhenSlow() throws Exception {
+
+        CatalogCache.getDefault().setWait(200);
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        server.stallNext(1, 1000);
+
+        long start = System.nanoTime();
+        CourseList stale = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        assertTrue(System.nanoTime() - start < 800 * 1000000L);
+        assertTrue(stale.isStale());
+
+        //the stalled fetch carried on in the background, and revalidated the kept data
+        Thread.sleep(1200);
+        server.failNext(1);
+        CourseList revalidated = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        assertTrue(revalidated.isStale());
+        assertTrue(revalidated.getFetched() > stale.getFetched());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    public void testServesStaleAtOnceWhileCircuitIsOpen() {
+
+        CircuitBreaker.getDefault().setThresholds(1, 60000);
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        server.failNext(1);
+        assertTrue(CourseInfo.getAllCourses(SEMESTER, "CS", true, false).isStale());
+
+        long start = System.nanoTime();
+        assertTrue(CourseInfo.getAllCourses(SEMESTER, "CS", true, false).isStale());
+        assertTrue(System.nanoTime() - start < 100 * 1000000L);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    public void testStaleSubjectsMarkTheirCrawl() {
+
+        CourseList fresh = CourseInfo.getAllCourses(SEMESTER, true, false, "MATH", "CS");
+        assertFalse(fresh.isStale());
+        server.failNext(1);
+
+        CourseList crawl = CourseInfo.getAllCourses(SEMESTER, true, false, "MATH", "CS");
+        assertTrue(crawl.isStale());
+        assertTrue(crawl.isComplete());
+        assertEquals(fresh.size(), crawl.size());
+    }
+
+    public void testNothingToServe() {
+
+        server.failNext(1);
+
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertEquals(0, CatalogCache.getDefault().size());
+    }
+
+    public void testTooOldToServe() throws Exception {
+
+        CatalogCache.getDefault().setMaxStale(50);
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        Thread.sleep(100);
+        server.failNext(1);
+
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+    }
+}
@@ -0,0 +1,94 @@
+package test.vtaccess;
+
+import java.util.Arrays;
+import java.util.List;
+import com.vtaccess.schedule.CatalogQuery;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseCatalog;
+import junit.framework.TestCase;
+
+/**
+ * Tests of CatalogQuery planning and running queries over a CourseCatalog.
+ */
+public class CatalogQueryTest extends TestCase {
+
+    //~Data Fields--------------------------------------------
+    private List<Course> courses;
+    private CourseCatalog catalog;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        courses = CourseFixtures.sections();
+        catalog = new CourseCatalog(courses);
+    }
+
+    //~Methods-------------------------------------------------
+    public void testPlans() {
+
+        assertEquals(CatalogQuery.Plan.SCAN, new CatalogQuery().setCredits(3).plan(catalog));
+        assertEquals(CatalogQuery.Plan.SUBJECTS, new CatalogQuery().setSubjects("MATH").plan(catalog));
+        assertEquals(CatalogQuery.Plan.BUILDINGS,
+                new CatalogQuery().setSubjects("CS").setBuildings("TORG").plan(catalog));
+        assertEquals(CatalogQuery.Plan.SUBJECTS,
+                new CatalogQuery().setSubjects("ECE").setBuildings("MCB").plan(catalog));
+    }
+
+    public void testPredicates() {
+
+        assertRun(new int[] { 0, 1, 3 }, new CatalogQuery().setSubjects("CS"));
+        assertRun(new int[] { 0, 1, 2, 3, 4 }, new CatalogQuery().setSubjects("CS", "MATH"));
+        assertRun(new int[] { 0, 1, 2 }, new CatalogQuery().setNumbers(1000, 2199));
+        assertRun(new int[] { 2 }, new CatalogQuery().setCredits(4));
+        assertRun(new int[] { 1, 3, 4 },
+                new CatalogQuery().setDays(CatalogQuery.TUESDAY | CatalogQuery.THURSDAY));
+        assertRun(new int[] { 2, 4 }, new CatalogQuery().setTimes(1000, 1300));
+        assertRun(new int[] { 0, 1, 2 }, new CatalogQuery().setBuildings("MCB"));
+        assertRun(new int[] { 1, 3 }, new CatalogQuery().setTeacherName("Jon"));
+        assertRun(new int[] { 1 }, new CatalogQuery().setSubjects("CS").setCredits(3)
+                .setDays(CatalogQuery.toDaysMask("TR")).setTimes(1200, -1).setBuildings("MCB"));
+        assertRun(new int[0], new CatalogQuery().setSubjects("ECE"));
+    }
+
+    public void testComposition() {
+
+        CatalogQuery math = new CatalogQuery().setSubjects("MATH");
+        CatalogQuery jones = new CatalogQuery().setTeacherName("Jones");
+
+        assertTrue(Arrays.equals(new int[] { 1, 2, 3, 4 }, catalog.filter(CatalogQuery.anyOf(math, jones))));
+        assertRun(new int[] { 0, 3 }, new CatalogQuery().setSubjects("CS").where(CatalogQuery.not(
+                new CatalogQuery().setBuildings("MCB").setTimes(1200, -1))));
+    }
+
+    public void testParallelScanKeepsOrder() {
+
+        CourseCatalog large = new CourseCatalog();
+        for (int i = 0; i < 5000; i++) {
+            large.addAll(courses);
+        }
+
+        CatalogQuery query = new CatalogQuery().setCredits(3).setDays(CatalogQuery.toDaysMask("TR"));
+        int[] sequential = query.run(large);
+        int[] parallel = query.setParallelThreshold(1).run(large);
+
+        assertEquals(3 * 5000, sequential.length);
+        assertTrue(Arrays.equals(sequential, parallel));
+        assertTrue(Arrays.equals(large.filter(query), parallel));
+
+        List<Course> listed = new CatalogQuery().setSubjects("MATH").setCredits(4).setParallelThreshold(1)
+                .list(large);
+        assertEquals(5000, listed.size());
+        assertEquals(courses.get(2), listed.get(0));
+    }
+
+    /**
+     * @param expected the indexes expected.
+     * @param query the query run over the catalog.
+     */
+    private void assertRun(int[] expected, CatalogQuery query) {
+
+        assertEquals(Arrays.toString(expected), Arrays.toString(query.run(catalog)));
+        assertEquals(Arrays.toString(expected), Arrays.toString(catalog.filter(query)));
+    }
+}
@@ -0,0 +1,204 @@
+package test.vtaccess;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import com.vtaccess.CatalogCache;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.io.CatalogSnapshot;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseList;
+import test.vtaccess.server.BanwebReplayServer;
+import junit.framework.TestCase;
+
+/**
+ * Offline tests of writing a term's Courses, crawled from the local replay server, to a CatalogSnapshot
+ * and loading them back. No login information needed. Run from the root of the project so that
+ * tests/fixtures can be found.
+ */
+public class CatalogSnapshotTest extends TestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+
+    //~Data Fields--------------------------------------------
+    private File file;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        file = File.createTempFile("catalog", ".snapshot");
+    }
+
+    protected void tearDown() throws Exception {
+
+        file.delete();
+        super.tearDown();
+    }
+
+    //~Methods-------------------------------------------------
+    public void testRoundTrip() throws Exception {
+
+        BanwebReplayServer server = new BanwebReplayServer(
+                new File(System.getProperty("vtaccess.fixtures", "tests/fixtures")));
+        server.start(0);
+        server.useForEndpoints();
+        CourseList courses;
+        try {
+            courses = CourseInfo.getAllCourses(SEMESTER, true, false, "CS", "MATH");
+        }
+        finally {
+            server.stop();
+            CatalogCache.getDefault().reset();
+        }
+        assertNotNull(courses);
+        assertFalse(courses.isEmpty());
+
+        CatalogSnapshot.write(SEMESTER, courses, file);
+        CatalogSnapshot snapshot = CatalogSnapshot.load(file);
+
+        assertEquals(SEMESTER, snapshot.getSemesterCode());
+        assertEquals(courses.getFetched(), snapshot.getFetched());
+        assertEquals(courses.size(), snapshot.size());
+        for (int i = 0; i < courses.size(); i++) {
+            assertSameCourse(courses.get(i), snapshot.get(i));
+        }
+
+        Course last = courses.getLast();
+        assertEquals(courses.size() - 1, snapshot.lastIndexOf(last));
+        assertEquals(last.getCrn(), snapshot.getCrn(snapshot.indexOfCrn(last.getCrn())));
+        assertEquals(-1, snapshot.indexOfCrn("00000"));
+        assertEquals(courses, snapshot.toCourseList());
+    }
+
+    public void testCoursesAreNotShared() throws IOException {
+
+        List<Course> courses = CourseFixtures.sections().subList(0, 1);
+        CatalogSnapshot.write(SEMESTER, courses, file);
+        CatalogSnapshot snapshot = CatalogSnapshot.load(file);
+
+        snapshot.get(0).setName("Changed");
+        assertEquals("Software Design", snapshot.get(0).getName());
+        assertNotSame(snapshot.get(0), snapshot.get(0));
+    }
+
+    public void testOddCrns() throws IOException {
+
+        List<Course> courses = new ArrayList<Course>();
+        for (String crn : new String[] { "0", "01234", "", null, "987654321" }) {
+
+            Course course = new Course();
+            course.setCrn(crn);
+            courses.add(course);
+        }
+        CatalogSnapshot.write(SEMESTER, courses, file);
+        CatalogSnapshot snapshot = CatalogSnapshot.load(file);
+
+        for (int i = 0; i < courses.size(); i++) {
+            assertEquals(courses.get(i).getCrn(), snapshot.getCrn(i));
+        }
+        assertEquals(1, snapshot.indexOfCrn("01234"));
+        assertEquals(0, snapshot.indexOfCrn("0"));
+        assertEquals(4, snapshot.indexOfCrn("987654321"));
+    }
+
+    public void testRewriteWhileLoaded() throws IOException {
+
+        List<Course> courses = CourseFixtures.sections().subList(0, 1);
+        CatalogSnapshot.write(SEMESTER, courses, file);
+        CatalogSnapshot loaded = CatalogSnapshot.load(file);
+
+        //the file is replaced, not truncated under the mapping
+        courses.clear();
+        CatalogSnapshot.write("201401", courses, file);
+        assertEquals("Software Design", loaded.get(0).getName());
+        assertEquals(SEMESTER, loaded.getSemesterCode());
+        assertEquals("201401", CatalogSnapshot.load(file).getSemesterCode());
+        assertEquals(0, CatalogSnapshot.load(file).size());
+    }
+
+    public void testCorruptHeader() throws IOException {
+
+        CatalogSnapshot.write(SEMESTER, new ArrayList<Course>(), file);
+
+        //the index of the semesterCode, after the magic, size, string count, fetched time and stale flag
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        try {
+            raw.seek(24);
+            raw.writeInt(Integer.MAX_VALUE);
+        }
+        finally {
+            raw.close();
+        }
+
+        try {
+            CatalogSnapshot.load(file);
+            fail("loaded a snapshot with a corrupt header");
+        }
+        catch (IOException e) {
+            //expected
+        }
+    }
+
+    public void testNotASnapshot() throws IOException {
+
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write("<Schedules></Schedules>".getBytes("UTF-8"));
+        }
+        finally {
+            out.close();
+        }
+
+        try {
+            CatalogSnapshot.load(file);
+            fail("loaded a file that isn't a snapshot");
+        }
+        catch (IOException e) {
+            //expected
+        }
+    }
+
+    public void testInvalidTermIsNotWritten() throws IOException {
+
+        for (String semesterCode : new String[] { null, "2013", "201303" }) {
+
+            try {
+                CatalogSnapshot.write(semesterCode, CourseFixtures.sections(), file);
+                fail("wrote a snapshot of the term " + semesterCode);
+            }
+            catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+        assertEquals(0, file.length());
+    }
+
+    /**
+     * Asserts that every field a snapshot keeps is the same in both Courses.
+     *
+     * @param expected the Course written.
+     * @param actual the Course loaded.
+     */
+    private static void assertSameCourse(Course expected, Course actual) {
+
+        assertEquals(expected.getCrn(), actual.getCrn());
+        assertEquals(expected.getSubjectCode(), actual.getSubjectCode());
+        assertEquals(expected.getCourseNumber(), actual.getCourseNumber());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getTeacherName(), actual.getTeacherName());
+        assertEquals(expected.getCredits(), actual.getCredits());
+        assertEquals(expected.getClassSize(), actual.getClassSize());
+        assertEquals(expected.getDays(), actual.getDays());
+        assertEquals(expected.getBeginTime(), actual.getBeginTime());
+        assertEquals(expected.getEndTime(), actual.getEndTime());
+        assertEquals(expected.getBuilding(), actual.getBuilding());
+        assertEquals(expected.getRoom(), actual.getRoom());
+        assertEquals(expected.getCoursePoint(), actual.getCoursePoint());
+    }
+}
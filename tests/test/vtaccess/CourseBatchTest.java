@@ -0,0 +1,141 @@
+package test.vtaccess;
+
+import java.util.ArrayList;
+import java.util.List;
+import com.vtaccess.CatalogCache;
+import com.vtaccess.CourseBatch;
+import com.vtaccess.CourseIndex;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.net.CircuitBreaker;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.net.RetryPolicy;
+import com.vtaccess.net.Transport;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseList;
+import test.vtaccess.server.ReplayServerTestCase;
+
+/**
+ * Offline tests of CourseBatch planning lookups against the local replay server. No login information needed.
+ * Run from the root of the project so that tests/fixtures can be found.
+ */
+public class CourseBatchTest extends ReplayServerTestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+
+    //~Data Fields--------------------------------------------
+    private CourseList cs;
+    private List<String> numbers;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        cs = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        assertNotNull(cs);
+        numbers = new ArrayList<String>();
+        for (Course course : cs) {
+
+            if (!numbers.contains(course.getCourseNumber())) {
+                numbers.add(course.getCourseNumber());
+            }
+        }
+        assertTrue(numbers.size() > 2);
+
+        CatalogCache.getDefault().setEnabled(false);
+        CourseIndex.getDefault().reset();
+    }
+
+    //~Methods-------------------------------------------------
+    public void testSubjectIsFetchedOnce() {
+
+        long before = server.getRequestCount();
+        Course last = cs.getLast();
+        CourseBatch batch = new CourseBatch(SEMESTER, false)
+                .addCourse("CS", numbers.get(0))
+                .addCourse("CS", numbers.get(1))
+                .addCourse("CS", numbers.get(2))
+                .addCrn(last.getCrn());
+
+        assertTrue(batch.execute());
+        assertEquals(1, batch.getPageCount());
+        assertEquals(before + 1, server.getRequestCount());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(select(numbers.get(i)), batch.getCourses("CS", numbers.get(i)));
+        }
+        assertEquals(last.getCrn(), batch.getCourse(last.getCrn()).getCrn());
+        assertNull(batch.getCourses("CS", "0000"));
+    }
+
+    public void testSmallSubjectsUseTheFilter() {
+
+        CourseBatch batch = new CourseBatch(SEMESTER, false).setSubjectThreshold(3)
+                .addCourse("CS", numbers.get(0))
+                .addCourse("CS", numbers.get(1));
+
+        assertTrue(batch.execute());
+        assertEquals(2, batch.getPageCount());
+        assertEquals(select(numbers.get(1)), batch.getCourses("CS", numbers.get(1)));
+    }
+
+    public void testResultsAreNotShared() {
+
+        CourseBatch batch = new CourseBatch(SEMESTER, false).addCourse("CS", numbers.get(0));
+        assertTrue(batch.execute());
+
+        batch.getCourses("CS", numbers.get(0)).getFirst().setName("Changed");
+        assertEquals(select(numbers.get(0)).getFirst().getName(),
+                batch.getCourses("CS", numbers.get(0)).getFirst().getName());
+    }
+
+    public void testExecuteStartsOver() {
+
+        Transport.setPolicy(Endpoint.TIMETABLE, RetryPolicy.DEFAULT.withBackoff(10, 20));
+        server.failNext(Integer.MAX_VALUE);
+        CourseBatch batch = new CourseBatch(SEMESTER, false).addCourse("CS", numbers.get(0));
+
+        assertFalse(batch.execute());
+        assertFalse(batch.execute());
+        assertEquals(1, batch.getPageCount());
+        assertEquals(1, batch.getMissing().size());
+        assertEquals("CS " + numbers.get(0), batch.getMissing().get(0));
+        try {
+            batch.getMissing().clear();
+            fail("getMissing should be read only");
+        }
+        catch (UnsupportedOperationException e) {
+            //expected
+        }
+
+        server.failNext(0);
+        CircuitBreaker.getDefault().reset();
+        assertTrue(batch.execute());
+        assertTrue(batch.getMissing().isEmpty());
+        assertEquals(select(numbers.get(0)), batch.getCourses("CS", numbers.get(0)));
+    }
+
+    public void testInvalidTerm() {
+
+        CourseBatch batch = new CourseBatch("2013", false).addCourse("CS", numbers.get(0));
+        assertFalse(batch.execute());
+        assertEquals(0, batch.getPageCount());
+    }
+
+    /**
+     * @param courseNumber a CS course number.
+     * @return the CS Courses with the course number, from the crawl made in setUp.
+     */
+    private CourseList select(String courseNumber) {
+
+        CourseList found = new CourseList();
+        for (Course course : cs) {
+
+            if (courseNumber.equals(course.getCourseNumber())) {
+                found.add(course);
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,92 @@
+package test.vtaccess;
+
+import java.util.Arrays;
+import java.util.List;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseCatalog;
+import junit.framework.TestCase;
+
+/**
+ * Tests of the CourseCatalog, reading Courses back through its Views and scanning them.
+ */
+public class CourseCatalogTest extends TestCase {
+
+    //~Data Fields--------------------------------------------
+    private List<Course> courses;
+    private CourseCatalog catalog;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        courses = CourseFixtures.sections();
+        catalog = new CourseCatalog();
+        for (Course course : courses) {
+            catalog.add(course);
+        }
+    }
+
+    //~Methods-------------------------------------------------
+    public void testViewsReadTheFields() {
+
+        CourseCatalog.View view = catalog.view(0);
+        for (int i = 0; i < courses.size(); i++) {
+
+            Course course = courses.get(i);
+            view.moveTo(i);
+            assertEquals(course.getCrn(), view.getCrn());
+            assertEquals(course.getSubjectCode(), view.getSubjectCode());
+            assertEquals(course.getCourseNumber(), view.getCourseNumber());
+            assertEquals(course.getCourseCode(), view.getCourseCode());
+            assertEquals(course.getName(), view.getName());
+            assertEquals(course.getTeacherName(), view.getTeacherName());
+            assertEquals(course.getCredits(), view.getCredits());
+            assertEquals(course.getClassSize(), view.getClassSize());
+            assertEquals(course.getDays(), view.getDays());
+            assertEquals(course.getBeginTime(), view.getBeginTime());
+            assertEquals(course.getEndTime(), view.getEndTime());
+            assertEquals(course.getBuilding(), view.getBuilding());
+            assertEquals(course.getRoom(), view.getRoom());
+            assertEquals(course.getCoursePoint(), view.getCoursePoint());
+        }
+    }
+
+    public void testListOfCourses() {
+
+        assertEquals(courses.size(), catalog.size());
+        assertEquals(courses, catalog);
+        assertEquals(courses, new CourseCatalog(courses));
+
+        catalog.get(0).setName("Changed");
+        assertEquals("Software Design", catalog.get(0).getName());
+    }
+
+    public void testStringsAreHeldOnce() {
+
+        CourseCatalog twice = new CourseCatalog(0);
+        twice.addAll(courses);
+        twice.addAll(courses);
+
+        assertEquals(2 * courses.size(), twice.size());
+        assertEquals(catalog.getStringCount(), twice.getStringCount());
+    }
+
+    public void testScans() {
+
+        assertTrue(Arrays.equals(new int[] { 0, 1, 3 }, catalog.bySubject("CS")));
+        assertEquals(0, catalog.bySubject("ECE").length);
+        assertEquals(3, catalog.indexOfCrn("01234"));
+        assertEquals(2, catalog.indexOfCrn("20001"));
+        assertEquals(-1, catalog.indexOfCrn("99999"));
+
+        int[] afternoon = catalog.filter(new CourseCatalog.Filter() {
+
+            @Override
+            public boolean accept(CourseCatalog.View course) {
+
+                return course.getBegin() >= 1200 && "Jones".equals(course.getTeacherName());
+            }
+        });
+        assertTrue(Arrays.equals(new int[] { 1 }, afternoon));
+    }
+}
@@ -0,0 +1,44 @@
+package test.vtaccess;
+
+import java.util.ArrayList;
+import java.util.List;
+import com.vtaccess.schedule.Course;
+
+/**
+ * The hand-built sections the catalog tests are run over, so that every test reads the same term.
+ *
+ * In order: two sections of CS-2114 in MCB, Smith's in the morning and Jones' in the afternoon, Smith's
+ * MATH-1225 in MCB, Jones' CS-3114 with arranged times, and Brown's MATH-2214 in TORG.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class CourseFixtures {
+
+    //~Constructors--------------------------------------------
+    /**
+     * Only static methods.
+     */
+    private CourseFixtures() {
+
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @return a new List of new Courses, so that each test can change them freely.
+     */
+    public static List<Course> sections() {
+
+        List<Course> courses = new ArrayList<Course>();
+        courses.add(new Course("12345", "CS-2114", "Software Design", 3, 40, "Smith", "MWF", "9:05AM", "9:55AM",
+                "MCB 100"));
+        courses.add(new Course("12346", "CS-2114", "Software Design", 3, 40, "Jones", "TR", "2:00PM", "3:15PM",
+                "MCB 100"));
+        courses.add(new Course("20001", "MATH-1225", "Calculus", 4, 120, "Smith", "MTWR", "10:10AM", "11:00AM",
+                "MCB 113"));
+        courses.add(new Course("01234", "CS-3114", "Data Structures", 3, 60, "Jones", "TR", "ARR", "ARR", "TBA"));
+        courses.add(new Course("20002", "MATH-2214", "Differential Equations", 3, 80, "Brown", "TR", "11:00AM",
+                "12:15PM", "TORG 1020"));
+        return courses;
+    }
+}
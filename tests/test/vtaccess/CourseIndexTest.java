@@ -0,0 +1,78 @@
+package test.vtaccess;
+
+import com.vtaccess.CourseIndex;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseList;
+import com.vtaccess.schedule.CrnIndex;
+import test.vtaccess.server.ReplayServerTestCase;
+
+/**
+ * Offline tests of the CrnIndex, and of CourseInfo.getCourse looking up Courses crawled from the local
+ * replay server in the CourseIndex. No login information needed. Run from the root of the project so
+ * that tests/fixtures can be found.
+ */
+public class CourseIndexTest extends ReplayServerTestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+
+    //~Methods-------------------------------------------------
+    public void testCrawledCoursesAreLookedUpLocally() throws Exception {
+
+        CourseList courses = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        assertNotNull(courses);
+        assertTrue(CourseIndex.getDefault().size(SEMESTER) > 0);
+        server.stop();
+
+        Course first = courses.getFirst();
+        Course found = CourseInfo.getCourse(SEMESTER, first.getCrn());
+        assertNotNull(found);
+        assertEquals(first.getCrn(), found.getCrn());
+        assertEquals(first.getName(), found.getName());
+        assertEquals(first.getBeginTime(), found.getBeginTime());
+        assertEquals(1, server.getRequestCount());
+
+        found.setName("Changed");
+        assertEquals(first.getName(), CourseInfo.getCourse(SEMESTER, first.getCrn()).getName());
+        assertNull(CourseIndex.getDefault().get("201401", first.getCrn()));
+    }
+
+    public void testOldTermsAreDropped() throws Exception {
+
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertTrue(CourseIndex.getDefault().size(SEMESTER) > 0);
+
+        CourseIndex.getDefault().setMaxAge(-1);
+        assertEquals(0, CourseIndex.getDefault().size(SEMESTER));
+    }
+
+    public void testCrnIndex() {
+
+        CrnIndex index = new CrnIndex(0);
+        for (int crn = 10000; crn < 12000; crn++) {
+            assertEquals(CrnIndex.NONE, index.put(crn, crn - 10000));
+        }
+
+        assertEquals(2000, index.size());
+        for (int crn = 10000; crn < 12000; crn++) {
+            assertEquals(crn - 10000, index.get(crn));
+        }
+        assertEquals(CrnIndex.NONE, index.get(9999));
+        assertEquals(5, index.putIfAbsent(10005, 7));
+        assertEquals(5, index.put(10005, 7));
+        assertEquals(7, index.get(10005));
+        assertEquals(2000, index.size());
+    }
+
+    public void testCrnKeys() {
+
+        assertEquals(12345, CrnIndex.toKey("12345"));
+        assertEquals(0, CrnIndex.toKey("0"));
+        assertEquals(CrnIndex.NONE, CrnIndex.toKey("01234"));
+        assertEquals(CrnIndex.NONE, CrnIndex.toKey("12A45"));
+        assertEquals(CrnIndex.NONE, CrnIndex.toKey(""));
+        assertEquals(CrnIndex.NONE, CrnIndex.toKey(null));
+        assertEquals(CrnIndex.NONE, CrnIndex.toKey("1234567890"));
+    }
+}
@@ -0,0 +1,142 @@
+package test.vtaccess;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedList;
+import java.util.List;
+import com.vtaccess.io.ICalendarWriter;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.Date;
+import com.vtaccess.schedule.Schedule;
+import junit.framework.TestCase;
+
+
+/**
+ * Offline tests for writing Schedules and exam schedules as iCalendar feeds. No login information needed.
+ */
+public class ICalendarWriterTest extends TestCase {
+
+    //~Data Fields--------------------------------------------
+    private ICalendarWriter writer;
+    private Schedule mySchedule;
+    private List<Course> finals;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+
+        //the 26th of August 2013 is a Monday
+        writer = new ICalendarWriter(new Date("08/26/2013"), new Date("12/11/2013"));
+
+        mySchedule = new Schedule();
+        mySchedule.setCourseInDays(new Course("12345", "CS-2114", "Software Design, and Data Structures",
+                3, 120, "McQuain", "MWF", "10:10AM", "11:00AM", "TORG 1040"), "MWF");
+        mySchedule.setCourseInDays(new Course("23456", "MATH-2214", "Intro Differential Equations",
+                3, 40, "Smith", "TR", "2:00PM", "3:15PM", "MCB 100"), "TR");
+
+        finals = new LinkedList<Course>();
+        finals.add(new Course("12345", "Software Design and Data Structures", "CS", "2114", 3, "McQuain",
+                "7:45AM", "9:45AM", new Date("12/12/2013"), "TORG", "1040", "MWF"));
+    }
+
+    //~Methods-------------------------------------------------
+    public void testWeeklyEvents() throws Exception {
+
+        String feed = write(mySchedule);
+
+        assertTrue(feed.startsWith("BEGIN:VCALENDAR\r\n"));
+        assertTrue(feed.endsWith("END:VCALENDAR\r\n"));
+        assertEquals(2, count(feed, "BEGIN:VEVENT"));
+        assertTrue(feed.contains("DTSTART:20130826T101000\r\n"));
+        assertTrue(feed.contains("RRULE:FREQ=WEEKLY;BYDAY=MO,WE,FR;UNTIL=20131211T235959\r\n"));
+        //the first tuesday of the term
+        assertTrue(feed.contains("DTSTART:20130827T140000\r\n"));
+        assertTrue(feed.contains("DTEND:20130827T151500\r\n"));
+        assertTrue(feed.contains("Software Design\\, and Data Structures"));
+
+        for (String line : feed.split("\r\n")) {
+
+            assertTrue(line.getBytes("UTF-8").length <= 75);
+        }
+    }
+
+    public void testExamEvents() throws Exception {
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writer.writeExams(finals, os);
+        String feed = os.toString("UTF-8");
+
+        assertEquals(1, count(feed, "BEGIN:VEVENT"));
+        assertTrue(feed.contains("DTSTART:20131212T074500\r\n"));
+        assertTrue(feed.contains("DTEND:20131212T094500\r\n"));
+        assertFalse(feed.contains("RRULE"));
+    }
+
+    public void testFeedCachedUntilScheduleChanges() throws Exception {
+
+        String first = write("me", mySchedule);
+
+        //wait out the DTSTAMP second, so a regenerated feed would differ
+        Thread.sleep(1100);
+        assertEquals(first, write("me", mySchedule));
+
+        mySchedule.getMonday().getCourse(0).setRoom("2150");
+        String changed = write("me", mySchedule);
+        assertFalse(first.equals(changed));
+        assertTrue(changed.contains("LOCATION:TORG 2150"));
+    }
+
+    public void testDistinctSchedulesUnderOneKey() throws Exception {
+
+        Schedule software = new Schedule();
+        software.setCourseInDays(new Course("12345", "CS-2114", "Software Design and Data Structures",
+                3, 120, "McQuain", "MW", "10:10AM", "11:00AM", "TORG 1040"), "MW");
+        Schedule math = new Schedule();
+        math.setCourseInDays(new Course("23456", "MATH-2214", "Intro Differential Equations",
+                3, 40, "Smith", "MW", "2:00PM", "3:15PM", "MCB 100"), "MW");
+        assertEquals(software.getVersion(), math.getVersion());
+
+        assertTrue(write("me", software).contains("CS-2114"));
+        String feed = write("me", math);
+        assertTrue(feed.contains("MATH-2214"));
+        assertFalse(feed.contains("CS-2114"));
+    }
+
+    public void testDistinctExamsUnderOneKey() throws Exception {
+
+        List<Course> others = new LinkedList<Course>();
+        others.add(new Course("23456", "Intro Differential Equations", "MATH", "2214", 3, "Smith",
+                "1:05PM", "3:05PM", new Date("12/13/2013"), "MCB", "100", "TR"));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writer.writeExams("me", finals, os);
+        os = new ByteArrayOutputStream();
+        writer.writeExams("me", others, os);
+        String feed = os.toString("UTF-8");
+        assertTrue(feed.contains("DTSTART:20131213T130500\r\n"));
+        assertFalse(feed.contains("20131212"));
+    }
+
+    private String write(Schedule schedule) throws Exception {
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writer.writeSchedule(schedule, os);
+        return os.toString("UTF-8");
+    }
+
+    private String write(String feedKey, Schedule schedule) throws Exception {
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        writer.writeSchedule(feedKey, schedule, os);
+        return os.toString("UTF-8");
+    }
+
+    private static int count(String text, String part) {
+
+        int count = 0;
+        for (int i = text.indexOf(part); i != -1; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,146 @@
+package test.vtaccess;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import com.vtaccess.CatalogCache;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.io.PageArchive;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.net.Transport;
+import com.vtaccess.schedule.CourseList;
+import test.vtaccess.server.ReplayServerTestCase;
+
+/**
+ * Offline tests of recording pages into a PageArchive from the local replay server, and replaying them
+ * with the server stopped. No login information needed. Run from the root of the project so that
+ * tests/fixtures can be found.
+ */
+public class PageArchiveTest extends ReplayServerTestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+
+    //~Data Fields--------------------------------------------
+    private File directory;
+    private MetricsRegistry metrics;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        directory = File.createTempFile("archive", "");
+        directory.delete();
+        metrics = new MetricsRegistry();
+        CatalogCache.getDefault().setEnabled(false);
+    }
+
+    protected void tearDown() throws Exception {
+
+        PageArchive archive = Transport.getArchive();
+        if (archive != null) {
+            archive.close();
+        }
+        Transport.setArchive(null);
+        new File(directory, PageArchive.PAGES_FILE).delete();
+        new File(directory, PageArchive.INDEX_FILE).delete();
+        directory.delete();
+        super.tearDown();
+    }
+
+    //~Methods-------------------------------------------------
+    public void testReplaysWithoutTheNetwork() throws Exception {
+
+        Transport.setArchive(new PageArchive(directory, PageArchive.Mode.RECORD, metrics));
+        CourseList recorded = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        assertNotNull(recorded);
+        Transport.getArchive().close();
+        server.stop();
+
+        Transport.setArchive(new PageArchive(directory, PageArchive.Mode.REPLAY, metrics));
+        assertEquals(recorded, CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, metrics.counter("archive.replayed").get());
+    }
+
+    public void testUnrecordedRequestsFail() throws Exception {
+
+        Transport.setArchive(new PageArchive(directory, PageArchive.Mode.RECORD, metrics));
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        Transport.getArchive().close();
+
+        Transport.setArchive(new PageArchive(directory, PageArchive.Mode.REPLAY, metrics));
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "MATH", true, false));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, metrics.counter("archive.missing").get());
+    }
+
+    public void testPagesAreStoredOnce() throws Exception {
+
+        PageArchive archive = new PageArchive(directory, PageArchive.Mode.RECORD, metrics);
+        Transport.setArchive(archive);
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        long length = new File(directory, PageArchive.PAGES_FILE).length();
+
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertEquals(length, new File(directory, PageArchive.PAGES_FILE).length());
+        assertEquals(1, archive.getPageCount());
+        assertEquals(1, archive.size());
+        assertEquals(1, metrics.counter("archive.deduplicated").get());
+    }
+
+    public void testRoundTrip() throws IOException {
+
+        PageArchive archive = new PageArchive(directory, PageArchive.Mode.RECORD, metrics);
+        archive.put("a", "http://localhost/a", "UTF-8", "<p>one</p>".getBytes("UTF-8"));
+        archive.put("b", "http://localhost/b", null, "<p>one</p>".getBytes("UTF-8"));
+        archive.put("a", "http://localhost/a", "UTF-8", "<p>two</p>".getBytes("UTF-8"));
+        archive.close();
+
+        archive = new PageArchive(directory, PageArchive.Mode.REPLAY, metrics);
+        try {
+            assertEquals(2, archive.size());
+            assertEquals(2, archive.getPageCount());
+            assertEquals("<p>two</p>", new String(archive.get("a").getBody(), "UTF-8"));
+            assertEquals("<p>one</p>", new String(archive.get("b").getBody(), "UTF-8"));
+            assertNull(archive.get("b").getCharset());
+            assertNull(archive.get("c"));
+        }
+        finally {
+            archive.close();
+        }
+    }
+
+    public void testRecordsCutShortAreDropped() throws IOException {
+
+        PageArchive archive = new PageArchive(directory, PageArchive.Mode.RECORD, metrics);
+        archive.put("a", "http://localhost/a", "UTF-8", "<p>one</p>".getBytes("UTF-8"));
+        archive.close();
+
+        //half of a record, as if the process died writing it
+        File index = new File(directory, PageArchive.INDEX_FILE);
+        long length = index.length();
+        OutputStream out = new FileOutputStream(index, true);
+        try {
+            out.write(new byte[] { 0, 9, 'b' });
+        }
+        finally {
+            out.close();
+        }
+
+        archive = new PageArchive(directory, PageArchive.Mode.RECORD, metrics);
+        assertEquals(length, index.length());
+        archive.put("b", "http://localhost/b", "UTF-8", "<p>two</p>".getBytes("UTF-8"));
+        archive.close();
+
+        archive = new PageArchive(directory, PageArchive.Mode.REPLAY, metrics);
+        try {
+            assertEquals(2, archive.size());
+            assertEquals("<p>two</p>", new String(archive.get("b").getBody(), "UTF-8"));
+        }
+        finally {
+            archive.close();
+        }
+    }
+}
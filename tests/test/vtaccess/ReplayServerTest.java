@@ -0,0 +1,236 @@
+package test.vtaccess;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.LinkedList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import com.vtaccess.Cas;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.ScheduleScraper;
+import com.vtaccess.event.PipelineAdapter;
+import com.vtaccess.event.PipelineListeners;
+import com.vtaccess.exceptions.WrongLoginException;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.Schedule;
+import test.vtaccess.server.ReplayServerTestCase;
+
+
+/**
+ * Offline tests of Cas, ScheduleScraper and CourseInfo against the local replay server.
+ * No login information needed. Run from the root of the project so that tests/fixtures can be found.
+ */
+public class ReplayServerTest extends ReplayServerTestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+    private static final String username = "hokiebird";
+    private static final String password = "gobblegobble";
+
+    //~Data Fields--------------------------------------------
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        server.addUser(username, password);
+    }
+
+    protected void tearDown() throws Exception {
+
+        PipelineListeners.clear();
+        super.tearDown();
+    }
+
+    //~Methods-------------------------------------------------
+    public void testLogin() throws WrongLoginException {
+
+        Cas cas = new Cas(username.toCharArray(), password.toCharArray());
+        assertTrue(cas.isValidLoginInfo());
+        assertNotNull(cas.getCookies().get("IDMSESSID"));
+        assertEquals(1, server.getLoginCount());
+    }
+
+    public void testWrongLogin() {
+
+        try {
+            new Cas(username.toCharArray(), "wrong".toCharArray());
+            fail("logged in with the wrong password");
+        }
+        catch (WrongLoginException e) {}
+
+        assertEquals(0, server.getLoginCount());
+    }
+
+    public void testRetrieveSchedule() throws Exception {
+
+        ScheduleScraper scraper = new ScheduleScraper(username.toCharArray(), password.toCharArray());
+
+        Schedule schedule = new Schedule();
+        assertTrue(scraper.retrieveSchedule(schedule, SEMESTER));
+
+        //five courses, one online, and one with additional times on MWF
+        assertEquals(2, schedule.getMonday().size());
+        assertEquals(3, schedule.getTuesday().size());
+        assertEquals(1, schedule.getAnyDay().size());
+        assertEquals("10022", schedule.getTuesday().getCourse(0).getCrn());
+    }
+
+    public void testRetrieveExamSchedule() throws Exception {
+
+        ScheduleScraper scraper = new ScheduleScraper(username.toCharArray(), password.toCharArray());
+
+        List<Course> exams = new LinkedList<Course>();
+        assertTrue(scraper.retrieveExamSchedule(SEMESTER, exams));
+        assertEquals(5, exams.size());
+        assertEquals("Software Design and Data Structures", exams.get(0).getName());
+        assertEquals("CS", exams.get(0).getSubjectCode());
+        assertEquals("1044", exams.get(0).getCourseNumber());
+        assertEquals(12, exams.get(0).getDate().getDay());
+    }
+
+    public void testSessionExpiry() throws Exception {
+
+        ScheduleScraper scraper = new ScheduleScraper(username.toCharArray(), password.toCharArray());
+        server.expireSessions();
+
+        //the expired session is noticed and refreshed, so the next try succeeds
+        assertFalse(scraper.retrieveSchedule(new Schedule(), SEMESTER));
+        assertTrue(scraper.retrieveSchedule(new Schedule(), SEMESTER));
+    }
+
+    public void testTimetable() {
+
+        List<Course> courses = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        assertNotNull(courses);
+        assertEquals("10014", courses.get(0).getCrn());
+        assertTrue(courses.size() > 100);
+    }
+
+    public void testFetchesAreMeasured() {
+
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        metrics.reset();
+
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertEquals(1, metrics.counter("fetch.requests.timetable").get());
+        assertEquals(0, metrics.counter("fetch.errors.timetable").get());
+        assertEquals(new File("tests/fixtures/timetable_CS.html").length(), metrics.counter("fetch.bytes.timetable").get());
+        assertEquals(1, metrics.histogram("fetch.latency.timetable").getCount());
+        assertEquals(1, metrics.histogram("parse.latency.timetable").getCount());
+        assertEquals(0, metrics.gauge("fetch.inflight.timetable").get());
+    }
+
+    public void testFetchesAreRecorded() throws Exception {
+
+        File dump = File.createTempFile("vtaccess", ".jfr");
+        Recording recording = new Recording();
+        recording.enable("com.vtaccess.Fetch");
+        recording.enable("com.vtaccess.Parse");
+        recording.start();
+
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+
+        recording.stop();
+        recording.dump(dump.toPath());
+        recording.close();
+
+        int fetches = 0;
+        int rows = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump.toPath())) {
+
+            if (event.getEventType().getName().equals("com.vtaccess.Fetch")) {
+
+                fetches++;
+                assertEquals("timetable", event.getString("endpoint"));
+                assertEquals(SEMESTER, event.getString("term"));
+                assertEquals("CS", event.getString("subject"));
+                assertTrue(event.getBoolean("succeeded"));
+            }
+            else if ("timetableRows".equals(event.getString("kind"))) {
+
+                rows++;
+                assertEquals("CS", event.getString("subject"));
+                assertTrue(event.getInt("rows") > 100);
+            }
+        }
+        dump.delete();
+
+        assertEquals(1, fetches);
+        assertEquals(1, rows);
+    }
+
+    public void testListeners() throws Exception {
+
+        final List<String> calls = new LinkedList<String>();
+        final int[] courses = new int[1];
+        PipelineListeners.add(new PipelineAdapter() {
+
+            @Override
+            public void requestStarted(Endpoint endpoint, URL url) {
+
+                calls.add("start " + endpoint.getTag());
+            }
+
+            @Override
+            public void requestEnded(Endpoint endpoint, URL url, long nanos, long bytes, Throwable error) {
+
+                calls.add("end " + endpoint.getTag() + (error == null ? "" : " failed"));
+            }
+
+            @Override
+            public void courseEmitted(Course course) {
+
+                courses[0]++;
+            }
+
+            @Override
+            public void loggedIn(Cas cas) {
+
+                calls.add("login");
+            }
+        });
+
+        ScheduleScraper scraper = new ScheduleScraper(username.toCharArray(), password.toCharArray());
+        assertTrue(scraper.retrieveSchedule(new Schedule(), SEMESTER));
+
+        assertEquals("start login", calls.get(0));
+        assertEquals("end login", calls.get(1));
+        assertEquals("login", calls.get(4));
+        assertEquals("end scheduleDetail", calls.get(calls.size() - 1));
+        //five courses, and one set of additional times
+        assertEquals(6, courses[0]);
+    }
+
+    public void testNoListenersAllocatesNothing() {
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Course course = new Course();
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100000; i++) {
+
+            PipelineListeners.fireRequestStarted(Endpoint.TIMETABLE, null);
+            PipelineListeners.fireRequestEnded(Endpoint.TIMETABLE, null, i, i, null);
+            PipelineListeners.fireCourseEmitted(course);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    public void testLatency() throws WrongLoginException {
+
+        server.setLatency(50, 50);
+        long start = System.nanoTime();
+        new Cas(username.toCharArray(), password.toCharArray());
+
+        //the login page, and the login
+        assertTrue(System.nanoTime() - start >= 2 * 50 * 1000000L);
+    }
+}
@@ -0,0 +1,265 @@
+package test.vtaccess;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import com.vtaccess.CatalogCache;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.net.Priority;
+import com.vtaccess.net.RequestGovernor;
+import com.vtaccess.net.RequestScheduler;
+import test.vtaccess.server.BanwebReplayServer;
+import junit.framework.TestCase;
+
+/**
+ * Offline tests of the RequestGovernor's in flight limits, token buckets and scheduling by priority.
+ * No login information needed.
+ */
+public class RequestGovernorTest extends TestCase {
+
+    //~Constants----------------------------------------------
+    private static final long MILLIS = 1000000L;
+
+    //~Data Fields--------------------------------------------
+    private RequestGovernor governor;
+    private URL url;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        governor = new RequestGovernor(new MetricsRegistry());
+        governor.setRate(0, 1);
+        url = new URL("https://banweb.banner.vt.edu/ssb/prod/HZSKVTSC.P_ProcRequest");
+    }
+
+    protected void tearDown() throws Exception {
+
+        RequestGovernor.getDefault().reset();
+        RequestScheduler.resetWeights();
+        CatalogCache.getDefault().reset();
+        super.tearDown();
+    }
+
+    //~Methods-------------------------------------------------
+    public void testLimitGrowsWhileFast() throws InterruptedException {
+
+        RequestGovernor.Host host = governor.getHost("banweb.banner.vt.edu");
+        assertEquals(4, host.getLimit());
+
+        for (int i = 0; i < 200; i++) {
+
+            governor.acquire(url);
+            host.release(10 * MILLIS, false);
+        }
+
+        assertEquals(16, host.getLimit());
+        assertEquals(0, host.getInFlight());
+        assertEquals(10 * MILLIS, host.getBaseline());
+    }
+
+    public void testLimitHalvesOnFailure() throws InterruptedException {
+
+        RequestGovernor.Host host = governor.getHost("banweb.banner.vt.edu");
+        governor.acquire(url);
+        host.release(10 * MILLIS, false);
+        Thread.sleep(20);
+
+        governor.acquire(url);
+        host.release(10 * MILLIS, true);
+        assertEquals(2, host.getLimit());
+
+        //a second failure within a round trip isn't a second signal
+        governor.acquire(url);
+        host.release(10 * MILLIS, true);
+        assertEquals(2, host.getLimit());
+    }
+
+    public void testLimitHalvesWhenSlow() throws InterruptedException {
+
+        RequestGovernor.Host host = governor.getHost("banweb.banner.vt.edu");
+        governor.acquire(url);
+        host.release(10 * MILLIS, false);
+        Thread.sleep(20);
+
+        governor.acquire(url);
+        host.release(50 * MILLIS, false);
+        assertEquals(2, host.getLimit());
+    }
+
+    public void testInFlightLimit() throws Exception {
+
+        governor.setInFlightBounds(1, 1);
+        final RequestGovernor.Host host = governor.acquire(url);
+        assertEquals(1, host.getInFlight());
+
+        Thread releaser = new Thread(new Runnable() {
+
+            public void run() {
+
+                try {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e) {}
+                host.release(MILLIS, false);
+            }
+        });
+        releaser.start();
+
+        long start = System.nanoTime();
+        governor.acquire(url);
+        assertTrue(System.nanoTime() - start >= 90 * MILLIS);
+        releaser.join();
+        assertEquals(1, host.getInFlight());
+    }
+
+    public void testTokenBucket() throws InterruptedException {
+
+        governor.setRate(20, 2);
+        RequestGovernor.Host host = governor.getHost("banweb.banner.vt.edu");
+
+        //the burst goes right away, then one every 50 milliseconds
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+
+            governor.acquire(url);
+            host.release(MILLIS, false);
+        }
+        assertTrue(System.nanoTime() - start >= 4 * 50 * MILLIS - 10 * MILLIS);
+    }
+
+    public void testDisabled() throws InterruptedException {
+
+        governor.setEnabled(false);
+        assertNull(governor.acquire(url));
+    }
+
+    public void testPriorityIsPerThread() {
+
+        assertEquals(Priority.INTERACTIVE, RequestScheduler.getPriority());
+        assertEquals(Priority.INTERACTIVE, RequestScheduler.setPriority(Priority.BULK));
+        try {
+            assertEquals(Priority.BULK, RequestScheduler.getPriority());
+        }
+        finally {
+            assertEquals(Priority.BULK, RequestScheduler.setPriority(Priority.INTERACTIVE));
+        }
+    }
+
+    public void testInteractivePreemptsBulk() throws Exception {
+
+        //weighed alone, the second bulk request would go before the interactive one
+        RequestScheduler.setWeight(Priority.INTERACTIVE, 0.5);
+        governor.setInFlightBounds(1, 1);
+        RequestGovernor.Host host = governor.acquire(url);
+
+        List<Priority> order = new ArrayList<Priority>();
+        List<Thread> threads = new ArrayList<Thread>();
+        threads.add(queue(host, Priority.BULK, order, 1));
+        threads.add(queue(host, Priority.BULK, order, 2));
+        threads.add(queue(host, Priority.INTERACTIVE, order, 1));
+        host.release(MILLIS, false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(Arrays.asList(Priority.INTERACTIVE, Priority.BULK, Priority.BULK), order);
+    }
+
+    public void testPrioritiesShareByWeight() throws Exception {
+
+        governor.setInFlightBounds(1, 1);
+        RequestGovernor.Host host = governor.acquire(url);
+
+        List<Priority> order = new ArrayList<Priority>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 1; i <= 2; i++) {
+            threads.add(queue(host, Priority.BULK, order, i));
+        }
+        for (int i = 1; i <= 8; i++) {
+            threads.add(queue(host, Priority.PREFETCH, order, i));
+        }
+        host.release(MILLIS, false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        //prefetch requests weigh 4, bulk 1
+        Priority p = Priority.PREFETCH;
+        Priority b = Priority.BULK;
+        assertEquals(Arrays.asList(p, p, p, p, b, p, p, p, p, b), order);
+        assertEquals(0, host.getWaiting(p) + host.getWaiting(b));
+    }
+
+    public void testInterruptedRequestLeavesQueue() throws Exception {
+
+        governor.setInFlightBounds(1, 1);
+        RequestGovernor.Host host = governor.acquire(url);
+
+        Thread thread = queue(host, Priority.PREFETCH, new ArrayList<Priority>(), 1);
+        thread.interrupt();
+        thread.join();
+
+        assertEquals(0, host.getWaiting(Priority.PREFETCH));
+        assertEquals(1, host.getInFlight());
+    }
+
+    public void testTransportIsGoverned() throws Exception {
+
+        BanwebReplayServer server = new BanwebReplayServer(new File(System.getProperty("vtaccess.fixtures", "tests/fixtures")));
+        server.start(0);
+        server.useForEndpoints();
+        try {
+            assertNotNull(CourseInfo.getAllCourses("201309", "CS", true, false));
+
+            RequestGovernor.Host host = RequestGovernor.getDefault().getHost(new URL(server.getBaseUrl()).getAuthority());
+            assertEquals(0, host.getInFlight());
+            assertTrue(host.getBaseline() > 0);
+        }
+        finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Starts a thread making a request of a priority, and waits until it is queued.
+     * Once sent, the request is added to order and released at once.
+     *
+     * @param host the host, whose only slot is taken.
+     * @param priority the request's Priority.
+     * @param order the Priorities of the requests, in the order they were sent.
+     * @param waiting the requests of the priority waiting once this one is queued.
+     * @return the thread.
+     */
+    private Thread queue(final RequestGovernor.Host host, final Priority priority, final List<Priority> order,
+            int waiting) throws InterruptedException {
+
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+
+                RequestScheduler.setPriority(priority);
+                try {
+                    governor.acquire(url);
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                synchronized (order) {
+                    order.add(priority);
+                }
+                host.release(MILLIS, false);
+            }
+        };
+        thread.start();
+
+        while (host.getWaiting(priority) < waiting) {
+            Thread.sleep(5);
+        }
+        return thread;
+    }
+}
@@ -0,0 +1,456 @@
+package test.vtaccess;
+
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import com.vtaccess.io.AsyncScheduleWriter;
+import com.vtaccess.io.CompressedIO;
+import com.vtaccess.io.LazyScheduleList;
+import com.vtaccess.io.ScheduleIO;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CoursePool;
+import com.vtaccess.schedule.Date;
+import com.vtaccess.schedule.Day;
+import com.vtaccess.schedule.Schedule;
+import junit.framework.TestCase;
+
+
+/**
+ * Offline tests for saving and loading Schedules and exam schedules. No login information needed.
+ */
+public class ScheduleIOTest extends TestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+
+    //~Data Fields--------------------------------------------
+    private File schedulesFile;
+    private File examsFile;
+    private Schedule mySchedule;
+    private Schedule friendSchedule;
+    private List<Course> finals;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        schedulesFile = File.createTempFile("schedules", ".xml");
+        examsFile = File.createTempFile("exams", ".xml");
+
+        mySchedule = new Schedule();
+        mySchedule.setCourseInDays(new Course("12345", "CS-2114", "Software Design and Data Structures",
+                3, 120, "McQuain", "MWF", "10:10AM", "11:00AM", "TORG 1040"), "MWF");
+        mySchedule.setCourseInDays(new Course("23456", "MATH-2214", "Intro Differential Equations",
+                3, 40, "Smith", "TR", "2:00PM", "3:15PM", "MCB 100"), "TR");
+
+        friendSchedule = new Schedule("Friend");
+        friendSchedule.setCourseInDays(new Course("12345", "CS-2114", "Software Design and Data Structures",
+                3, 120, "McQuain", "MWF", "10:10AM", "11:00AM", "TORG 1040"), "MWF");
+
+        finals = new LinkedList<Course>();
+        finals.add(new Course("12345", "Software Design and Data Structures", "CS", "2114", 3, "McQuain",
+                "7:45AM", "9:45AM", new Date("12/12/2013"), "TORG", "1040", "MWF"));
+    }
+
+    protected void tearDown() throws Exception {
+
+        new ScheduleIO(schedulesFile, examsFile).getJournalFile().delete();
+        schedulesFile.delete();
+        examsFile.delete();
+        super.tearDown();
+    }
+
+    //~Methods-------------------------------------------------
+    public void testSaveAndLoadSchedules() {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        List<Schedule> buddies = new LinkedList<Schedule>();
+        buddies.add(friendSchedule);
+
+        assertTrue(scheduleIO.saveSchedules(mySchedule, buddies));
+
+        List<Schedule> loaded = scheduleIO.loadSchedules();
+        assertEquals(2, loaded.size());
+        assertEquals(mySchedule, loaded.get(0));
+        assertEquals("Friend", loaded.get(1).getWhosSchedule());
+        assertEquals(friendSchedule, loaded.get(1));
+    }
+
+    public void testLoadedSchedulesShareCourses() {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        List<Schedule> buddies = new LinkedList<Schedule>();
+        buddies.add(friendSchedule);
+        assertTrue(scheduleIO.saveSchedules(mySchedule, buddies));
+
+        List<Schedule> loaded = scheduleIO.loadSchedules();
+        Course course = loaded.get(0).getMonday().getCourse(0);
+        assertSame(course, loaded.get(0).getWednesday().getCourse(0));
+        assertSame(course, loaded.get(1).getMonday().getCourse(0));
+        assertNotSame(course, loaded.get(0).getTuesday().getCourse(0));
+        assertFalse(loaded.get(0).isDirty());
+
+        // each load has a pool of its own, unless it is passed one
+        assertNotSame(course, scheduleIO.loadSchedules().get(1).getFriday().getCourse(0));
+        CoursePool courses = new CoursePool();
+        Course shared = ScheduleIO.loadSchedules(schedulesFile, courses).get(0).getMonday().getCourse(0);
+        assertSame(shared, ScheduleIO.loadSchedulesLazily(schedulesFile, courses).get(1).getFriday().getCourse(0));
+    }
+
+    public void testCoursePoolDropsCollectedCourses() throws Exception {
+
+        CoursePool courses = new CoursePool();
+        courses.setMaxEntries(1);
+        courses.canonicalize(SEMESTER, new Course("12345", "CS-2114", "Software Design and Data Structures",
+                3, 120, "McQuain", "MWF", "10:10AM", "11:00AM", "TORG 1040"));
+
+        Course other = new Course("23456", "MATH-2214", "Intro Differential Equations",
+                3, 40, "Smith", "TR", "2:00PM", "3:15PM", "MCB 100");
+        for (int i = 0; i < 50 && courses.size() > 0; i++) {
+
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, courses.size());
+        assertSame(other, courses.canonicalize(SEMESTER, other));
+        assertEquals(1, courses.size());
+        assertEquals(0, courses.getBypassed());
+
+        // full, and the pooled Course is still held
+        courses.canonicalize(SEMESTER, new Course("34567", "CS-3114", "Data Structures and Algorithms",
+                3, 80, "Shaffer", "TR", "9:30AM", "10:45AM", "MCB 113"));
+        assertEquals(1, courses.getBypassed());
+        assertSame(other, courses.canonicalize(SEMESTER, new Course("23456", "MATH-2214", 
+                "Intro Differential Equations", 3, 40, "Smith", "TR", "2:00PM", "3:15PM", "MCB 100")));
+    }
+
+    public void testSaveAndLoadExams() {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        assertTrue(scheduleIO.saveFinalsList(finals, SEMESTER));
+
+        List<Course> loaded = scheduleIO.loadExams();
+        assertEquals(1, loaded.size());
+        assertEquals(finals.get(0).getDate().toString(), loaded.get(0).getDate().toString());
+        assertEquals(SEMESTER, scheduleIO.getSemester());
+    }
+
+    public void testCompressedSaveAndLoad() {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        scheduleIO.setCompressed(true);
+        List<Schedule> buddies = new LinkedList<Schedule>();
+        buddies.add(friendSchedule);
+
+        assertTrue(scheduleIO.saveSchedules(mySchedule, buddies));
+        assertTrue(scheduleIO.saveFinalsList(finals, SEMESTER));
+        assertTrue(CompressedIO.isCompressed(schedulesFile));
+        assertTrue(CompressedIO.isCompressed(examsFile));
+
+        List<Schedule> loaded = scheduleIO.loadSchedules();
+        assertEquals(2, loaded.size());
+        assertEquals(mySchedule, loaded.get(0));
+        assertEquals(friendSchedule, loaded.get(1));
+        assertEquals(1, scheduleIO.loadExams().size());
+
+        //plain files still load once compression is on
+        assertTrue(ScheduleIO.saveXMLFile(friendSchedule.toXML(), "Schedules", schedulesFile));
+        assertFalse(CompressedIO.isCompressed(schedulesFile));
+        assertEquals(friendSchedule, scheduleIO.loadSchedules().get(0));
+    }
+
+    public void testLazyLoadDecodesFriendsOnAccess() {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        List<Schedule> buddies = new LinkedList<Schedule>();
+        buddies.add(friendSchedule);
+        buddies.add(new Schedule("Other Friend"));
+
+        assertTrue(scheduleIO.saveSchedules(mySchedule, buddies));
+
+        LazyScheduleList loaded = scheduleIO.loadSchedulesLazily();
+        assertEquals(3, loaded.size());
+        assertEquals(mySchedule, loaded.get(0));
+        assertEquals("Other Friend", loaded.getOwner(2));
+        assertFalse(loaded.isDecoded(1));
+
+        assertEquals(friendSchedule, loaded.get(1));
+        assertTrue(loaded.isDecoded(1));
+        assertSame(loaded.get(1), loaded.get(1));
+        assertFalse(loaded.isDecoded(2));
+    }
+
+    public void testSaveChangesOnlyJournalsChangedDays() {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        List<Schedule> buddies = new LinkedList<Schedule>();
+        buddies.add(friendSchedule);
+
+        assertTrue(scheduleIO.saveSchedules(mySchedule, buddies));
+        assertFalse(mySchedule.isDirty());
+        long savedLength = schedulesFile.length();
+
+        //the course is on monday, wednesday and friday
+        mySchedule.getMonday().getCourse(0).setRoom("TORG 2150");
+        friendSchedule.getTuesday().addCourse(new Course("23456", "MATH-2214", "Intro Differential Equations",
+                3, 40, "Smith", "TR", "2:00PM", "3:15PM", "MCB 100"));
+        assertEquals(3, mySchedule.getDirtyDays().size());
+        assertEquals(1, friendSchedule.getDirtyDays().size());
+
+        assertTrue(scheduleIO.saveChanges(mySchedule, buddies));
+        assertFalse(mySchedule.isDirty());
+        assertFalse(friendSchedule.isDirty());
+        assertEquals(savedLength, schedulesFile.length());
+        assertTrue(scheduleIO.getJournalFile().exists());
+
+        List<Schedule> loaded = new ScheduleIO(schedulesFile, examsFile).loadSchedules();
+        assertEquals(mySchedule.toXML(), loaded.get(0).toXML());
+        assertEquals(friendSchedule.toXML(), loaded.get(1).toXML());
+        assertFalse(loaded.get(0).isDirty());
+
+        LazyScheduleList lazy = ScheduleIO.loadSchedulesLazily(schedulesFile);
+        assertEquals(friendSchedule.toXML(), lazy.get(1).toXML());
+
+        //a renamed schedule needs a full save, which clears the journal
+        friendSchedule.setWhosSchedule("Renamed Friend");
+        assertTrue(scheduleIO.saveChanges(mySchedule, buddies));
+        assertFalse(scheduleIO.getJournalFile().exists());
+        assertEquals("Renamed Friend", scheduleIO.loadSchedules().get(1).getWhosSchedule());
+    }
+
+    public void testSaveChangesAfterLoadKeepsTheJournal() {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        assertTrue(scheduleIO.saveSchedules(mySchedule, null));
+        mySchedule.getMonday().getCourse(0).setRoom("TORG 2150");
+        assertTrue(scheduleIO.saveChanges(mySchedule, null));
+
+        //a change made to the loaded Schedules is journaled after the ones already there
+        ScheduleIO reopened = new ScheduleIO(schedulesFile, examsFile);
+        List<Schedule> loaded = reopened.loadSchedules();
+        loaded.get(0).getTuesday().getCourse(0).setRoom("MCB 200");
+        assertTrue(reopened.saveChanges(loaded.get(0), loaded.subList(1, loaded.size())));
+
+        Schedule reloaded = new ScheduleIO(schedulesFile, examsFile).loadSchedules().get(0);
+        assertEquals(loaded.get(0).toXML(), reloaded.toXML());
+        assertEquals(mySchedule.getMonday().toXML(), reloaded.getMonday().toXML());
+    }
+
+    public void testCompressedSavesAreCompactedUncompressed() {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        scheduleIO.setCompressed(true);
+        List<Schedule> buddies = new LinkedList<Schedule>();
+        buddies.add(friendSchedule);
+
+        assertTrue(scheduleIO.saveSchedules(mySchedule, buddies));
+        long savedLength = schedulesFile.length();
+        Course course = mySchedule.getTuesday().getCourse(0);
+
+        //journal to twice the size of the compressed file, which is still smaller than the XML in it
+        for (int i = 0; scheduleIO.getJournalFile().length() <= 2 * savedLength; i++) {
+
+            course.setRoom("MCB " + i);
+            assertTrue(scheduleIO.saveChanges(mySchedule, buddies));
+            assertTrue(scheduleIO.getJournalFile().exists());
+        }
+
+        assertEquals(savedLength, schedulesFile.length());
+        assertEquals(course.getRoom(), new ScheduleIO(schedulesFile, examsFile).loadSchedules().get(0)
+                .getTuesday().getCourse(0).getRoom());
+
+        //the same holds once the compressed file is loaded instead of saved
+        assertNotNull(scheduleIO.loadSchedules());
+        course.setRoom("MCB 200");
+        assertTrue(scheduleIO.saveChanges(mySchedule, buddies));
+        assertEquals(savedLength, schedulesFile.length());
+    }
+
+    public void testVersionsGrowWithEveryChange() {
+
+        long version = mySchedule.getVersion();
+        mySchedule.markClean();
+        assertFalse(mySchedule.isDirty());
+
+        Course course = mySchedule.getMonday().getCourse(0);
+        course.setRoom("TORG 2150");
+        assertTrue(mySchedule.getVersion() > version);
+        assertEquals(3, mySchedule.getDirtyDays().size());
+        version = mySchedule.getVersion();
+
+        //removing a Course that changed often still moves the stamp forward
+        mySchedule.getMonday().removeCourse(course);
+        assertTrue(mySchedule.getVersion() > version);
+        version = mySchedule.getVersion();
+
+        mySchedule.setMonday(new Day("Monday"));
+        assertTrue(mySchedule.getVersion() > version);
+        assertFalse(mySchedule.isOwnerDirty());
+    }
+
+    public void testInstancesDoNotShareFiles() throws Exception {
+
+        File otherFile = File.createTempFile("other", ".xml");
+        try {
+            ScheduleIO first = new ScheduleIO(schedulesFile, examsFile);
+            ScheduleIO second = new ScheduleIO(otherFile, examsFile);
+
+            assertEquals(schedulesFile, first.getSchedulesFile());
+            assertEquals(otherFile, second.getSchedulesFile());
+        }
+        finally {
+            otherFile.delete();
+        }
+    }
+
+    public void testAsyncWriterCoalescesSaves() throws Exception {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        AsyncScheduleWriter writer = new AsyncScheduleWriter(scheduleIO, 60000);
+
+        try {
+            CompletableFuture<Boolean> first = writer.saveSchedule(friendSchedule);
+            CompletableFuture<Boolean> second = writer.saveSchedule(mySchedule);
+            CompletableFuture<Boolean> exams = writer.saveFinalsList(finals, SEMESTER);
+
+            //both schedule saves went to the same File
+            assertEquals(2, writer.getPendingCount());
+
+            writer.flush().get();
+            assertTrue(first.get());
+            assertTrue(second.get());
+            assertTrue(exams.get());
+
+            //the newest save won
+            assertEquals(mySchedule, ScheduleIO.loadSchedules(schedulesFile).get(0));
+            assertEquals(1, ScheduleIO.loadExams(examsFile).size());
+        }
+        finally {
+            writer.close();
+        }
+
+        assertFalse(writer.saveSchedule(null).get());
+    }
+
+    public void testQueuedSaveKeepsTheJournal() throws Exception {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        AsyncScheduleWriter writer = new AsyncScheduleWriter(scheduleIO, 60000);
+
+        try {
+            assertTrue(scheduleIO.saveSchedule(mySchedule));
+            mySchedule.getMonday().getCourse(0).setRoom("TORG 2150");
+            assertTrue(scheduleIO.saveChanges(mySchedule, null));
+            assertTrue(scheduleIO.getJournalFile().exists());
+
+            //until the queued save is written, the file and its journal are all there is on disk
+            CompletableFuture<Boolean> queued = writer.saveSchedule(mySchedule);
+            assertTrue(scheduleIO.getJournalFile().exists());
+            Schedule onDisk = ScheduleIO.loadSchedules(schedulesFile).get(0);
+            assertEquals("TORG 2150", onDisk.getMonday().getCourse(0).getRoom());
+
+            writer.flush().get();
+            assertTrue(queued.get());
+            assertFalse(scheduleIO.getJournalFile().exists());
+
+            //journaling resumes on top of the written save
+            mySchedule.getMonday().getCourse(0).setRoom("TORG 1060");
+            assertTrue(scheduleIO.saveChanges(mySchedule, null));
+            assertTrue(scheduleIO.getJournalFile().exists());
+            assertEquals(mySchedule.toXML(), ScheduleIO.loadSchedules(schedulesFile).get(0).toXML());
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    public void testSaveMadeWhileQueuedIsKept() throws Exception {
+
+        ScheduleIO scheduleIO = new ScheduleIO(schedulesFile, examsFile);
+        AsyncScheduleWriter writer = new AsyncScheduleWriter(scheduleIO, 60000);
+
+        try {
+            assertTrue(scheduleIO.saveSchedule(mySchedule));
+            CompletableFuture<Boolean> queued = writer.saveSchedule(mySchedule);
+
+            //a queued save is pending, so this is a full save rather than a journal record
+            mySchedule.getMonday().getCourse(0).setRoom("TORG 2150");
+            assertTrue(scheduleIO.saveChanges(mySchedule, null));
+            assertFalse(scheduleIO.getJournalFile().exists());
+
+            //the older queued save doesn't overwrite it
+            writer.flush().get();
+            assertTrue(queued.get());
+            assertEquals(mySchedule.toXML(), ScheduleIO.loadSchedules(schedulesFile).get(0).toXML());
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    public void testFailedWriteKeepsWriting() throws Exception {
+
+        //a File that can't be replaced, as it is a directory that isn't empty
+        File directory = File.createTempFile("schedules", "");
+        directory.delete();
+        assertTrue(directory.mkdir());
+        File inside = new File(directory, "keep.xml");
+        assertTrue(inside.createNewFile());
+
+        AsyncScheduleWriter writer = new AsyncScheduleWriter(new ScheduleIO(directory, examsFile), 60000);
+        try {
+            CompletableFuture<Boolean> failed = writer.saveSchedule(mySchedule);
+            writer.flush().get();
+            assertTrue(failed.isCompletedExceptionally());
+            assertTrue(inside.exists());
+
+            //no temporary files are left behind, and later saves are still written
+            File[] left = directory.getParentFile().listFiles();
+            for (File file : left) {
+                assertFalse(file.getName().startsWith(directory.getName() + ".") && file.getName().endsWith(".tmp"));
+            }
+            CompletableFuture<Boolean> exams = writer.saveFinalsList(finals, SEMESTER);
+            writer.flush().get();
+            assertTrue(exams.get());
+        }
+        finally {
+            writer.close();
+            inside.delete();
+            directory.delete();
+        }
+    }
+
+    public void testAsyncWritersShareOneThread() throws Exception {
+
+        List<AsyncScheduleWriter> writers = new LinkedList<AsyncScheduleWriter>();
+        List<CompletableFuture<Boolean>> saves = new LinkedList<CompletableFuture<Boolean>>();
+        try {
+            for (int i = 0; i < 8; i++) {
+
+                AsyncScheduleWriter writer = new AsyncScheduleWriter(new ScheduleIO(schedulesFile, examsFile), 60000);
+                writers.add(writer);
+                saves.add(writer.saveFinalsList(finals, SEMESTER));
+            }
+            assertEquals(8, AsyncScheduleWriter.getTotalPendingCount());
+
+            int threads = 0;
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals("vtaccess-schedule-writer")) {
+                    threads++;
+                }
+            }
+            assertEquals(1, threads);
+        }
+        finally {
+            for (AsyncScheduleWriter writer : writers) {
+                writer.close();
+            }
+        }
+
+        assertEquals(0, AsyncScheduleWriter.getTotalPendingCount());
+        for (CompletableFuture<Boolean> save : saves) {
+            assertTrue(save.get());
+        }
+    }
+}
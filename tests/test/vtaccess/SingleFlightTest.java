@@ -0,0 +1,243 @@
+package test.vtaccess;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.vtaccess.CatalogCache;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.net.SingleFlight;
+import com.vtaccess.schedule.Course;
+import test.vtaccess.server.BanwebReplayServer;
+import junit.framework.TestCase;
+
+/**
+ * Offline tests of SingleFlight, and of the coalescing of CourseInfo's requests against the local replay server.
+ * No login information needed. Run from the root of the project so that tests/fixtures can be found.
+ */
+public class SingleFlightTest extends TestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+    private static final int CALLERS = 8;
+
+    //~Data Fields--------------------------------------------
+    private MetricsRegistry metrics;
+    private AtomicInteger calls;
+    private CountDownLatch release;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        metrics = new MetricsRegistry();
+        calls = new AtomicInteger();
+        release = new CountDownLatch(1);
+    }
+
+    //~Methods-------------------------------------------------
+    public void testSharesOneCall() throws Exception {
+
+        SingleFlight<List<String>> flights = new SingleFlight<List<String>>("test", null, metrics);
+        List<List<String>> results = runTogether(flights, "CS", null);
+
+        assertEquals(1, calls.get());
+        assertEquals(CALLERS - 1, metrics.counter("singleflight.shared.test").get());
+        for (List<String> result : results) {
+            assertSame(results.get(0), result);
+        }
+        assertEquals(0, flights.getInFlight());
+    }
+
+    public void testSharedResultsAreCopied() throws Exception {
+
+        SingleFlight<List<String>> flights = new SingleFlight<List<String>>("test",
+                new SingleFlight.Copier<List<String>>() {
+
+                    @Override
+                    public List<String> copy(List<String> value) {
+
+                        return new ArrayList<String>(value);
+                    }
+                }, metrics);
+        List<List<String>> results = runTogether(flights, "CS", null);
+
+        assertEquals(1, calls.get());
+        for (int i = 1; i < results.size(); i++) {
+            assertNotSame(results.get(0), results.get(i));
+            assertEquals(results.get(0), results.get(i));
+        }
+    }
+
+    public void testUnsharedResultsAreNotCopied() throws Exception {
+
+        final List<String> result = new ArrayList<String>();
+        SingleFlight<List<String>> flights = new SingleFlight<List<String>>("test",
+                new SingleFlight.Copier<List<String>>() {
+
+                    @Override
+                    public List<String> copy(List<String> value) {
+
+                        fail("copied an unshared result");
+                        return null;
+                    }
+                }, metrics);
+
+        assertSame(result, flights.execute("CS", new SingleFlight.Call<List<String>>() {
+
+            @Override
+            public List<String> call() {
+
+                return result;
+            }
+        }));
+    }
+
+    public void testFailuresAreShared() throws Exception {
+
+        SingleFlight<List<String>> flights = new SingleFlight<List<String>>("test", null, metrics);
+        List<List<String>> results = runTogether(flights, "CS", new IOException("banweb is down"));
+
+        assertEquals(1, calls.get());
+        assertEquals(CALLERS, results.size());
+        for (List<String> result : results) {
+            assertNull(result);
+        }
+    }
+
+    public void testKeysAreForgottenOnceAnswered() throws Exception {
+
+        SingleFlight<List<String>> flights = new SingleFlight<List<String>>("test", null, metrics);
+        release.countDown();
+
+        flights.execute("CS", call(null));
+        flights.execute("CS", call(null));
+
+        assertEquals(2, calls.get());
+        assertEquals(0, metrics.counter("singleflight.shared.test").get());
+    }
+
+    public void testCoursesAreCoalesced() throws Exception {
+
+        BanwebReplayServer server = new BanwebReplayServer(
+                new File(System.getProperty("vtaccess.fixtures", "tests/fixtures")));
+        server.start(0);
+        server.useForEndpoints();
+        server.stallNext(1, 500);
+        try {
+
+            final List<List<Course>> results = new ArrayList<List<Course>>();
+            Thread[] threads = new Thread[CALLERS];
+            for (int i = 0; i < threads.length; i++) {
+
+                threads[i] = new Thread() {
+
+                    @Override
+                    public void run() {
+
+                        List<Course> courses = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+                        synchronized (results) {
+                            results.add(courses);
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(1, server.getRequestCount());
+            assertEquals(CALLERS, results.size());
+            List<Course> first = results.get(0);
+            assertFalse(first.isEmpty());
+            for (int i = 1; i < results.size(); i++) {
+                assertEquals(first, results.get(i));
+                assertNotSame(first.get(0), results.get(i).get(0));
+            }
+        }
+        finally {
+            server.stop();
+            CatalogCache.getDefault().reset();
+        }
+    }
+
+    /**
+     * Runs CALLERS callers of the same key together, holding the call until all of the followers have joined.
+     *
+     * @param flights the SingleFlight.
+     * @param key the key.
+     * @param error what the call fails with, null for it to succeed.
+     * @return the results, null for callers that got the error.
+     */
+    private List<List<String>> runTogether(final SingleFlight<List<String>> flights, final String key,
+            final IOException error) throws Exception {
+
+        final List<List<String>> results = new ArrayList<List<String>>();
+        Thread[] threads = new Thread[CALLERS];
+        for (int i = 0; i < threads.length; i++) {
+
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    List<String> result;
+                    try {
+                        result = flights.execute(key, call(error));
+                    }
+                    catch (IOException e) {
+                        assertSame(error, e);
+                        result = null;
+                    }
+                    synchronized (results) {
+                        results.add(result);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        while (metrics.counter("singleflight.shared.test").get() < CALLERS - 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        return results;
+    }
+
+    /**
+     * @param error what the call fails with, null for it to succeed.
+     * @return a call that counts itself, and waits to be released.
+     */
+    private SingleFlight.Call<List<String>> call(final IOException error) {
+
+        return new SingleFlight.Call<List<String>>() {
+
+            @Override
+            public List<String> call() throws IOException {
+
+                calls.incrementAndGet();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                if (error != null) {
+                    throw error;
+                }
+
+                List<String> result = new ArrayList<String>();
+                result.add("CS-2114");
+                return result;
+            }
+        };
+    }
+}
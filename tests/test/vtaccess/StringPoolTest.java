@@ -0,0 +1,91 @@
+package test.vtaccess;
+
+import java.io.File;
+import com.vtaccess.CatalogCache;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseList;
+import com.vtaccess.schedule.StringPool;
+import test.vtaccess.server.BanwebReplayServer;
+import junit.framework.TestCase;
+
+/**
+ * Tests of the StringPool, and of the Courses read from the local replay server sharing its Strings.
+ * No login information needed. Run from the root of the project so that tests/fixtures can be found.
+ */
+public class StringPoolTest extends TestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+
+    //~Constructors--------------------------------------------
+    protected void tearDown() throws Exception {
+
+        System.clearProperty(StringPool.TERMS_PROPERTY);
+        StringPool.reset();
+        super.tearDown();
+    }
+
+    //~Methods-------------------------------------------------
+    public void testEqualValuesAreShared() {
+
+        StringPool pool = new StringPool(16);
+        String first = new String("MWF");
+        String second = new String("MWF");
+
+        assertSame(first, pool.canonicalize(first));
+        assertSame(first, pool.canonicalize(second));
+        assertNull(pool.canonicalize(null));
+        assertEquals(1, pool.size());
+    }
+
+    public void testFullPoolPassesNewValuesThrough() {
+
+        StringPool pool = new StringPool(1);
+        String held = pool.canonicalize("TBA");
+        String fresh = new String("N/A");
+
+        assertSame(fresh, pool.canonicalize(fresh));
+        assertSame(held, pool.canonicalize(new String("TBA")));
+        assertEquals(1, pool.size());
+    }
+
+    public void testLeastRecentTermIsDropped() {
+
+        System.setProperty(StringPool.TERMS_PROPERTY, "2");
+        StringPool.reset();
+
+        StringPool fall = StringPool.forTerm("201309");
+        StringPool spring = StringPool.forTerm("201401");
+        assertSame(fall, StringPool.forTerm("201309"));
+        assertNotSame(fall, spring);
+
+        StringPool.forTerm("201406");
+        assertSame(fall, StringPool.forTerm("201309"));
+        assertNotSame(spring, StringPool.forTerm("201401"));
+    }
+
+    public void testParsedCoursesShareStrings() throws Exception {
+
+        BanwebReplayServer server = new BanwebReplayServer(
+                new File(System.getProperty("vtaccess.fixtures", "tests/fixtures")));
+        server.start(0);
+        server.useForEndpoints();
+        CourseList courses;
+        try {
+            courses = CourseInfo.getAllCourses(SEMESTER, "CS", true, false);
+        }
+        finally {
+            server.stop();
+            CatalogCache.getDefault().reset();
+        }
+        assertNotNull(courses);
+        assertTrue(courses.size() > 1);
+
+        Course first = courses.get(0);
+        for (Course course : courses) {
+
+            assertSame(first.getSubjectCode(), course.getSubjectCode());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package test.vtaccess;
+
+import java.util.Map;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.TimetableQuery;
+import com.vtaccess.exceptions.InvalidAreaException;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseList;
+import test.vtaccess.server.ReplayServerTestCase;
+
+/**
+ * Offline tests of TimetableQuery pushing predicates to the timetable, and applying the rest to the rows
+ * read from the local replay server. No login information needed. Run from the root of the project so that
+ * tests/fixtures can be found.
+ */
+public class TimetableQueryTest extends ReplayServerTestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+
+    //~Methods-------------------------------------------------
+    public void testPredicatesArePushed() throws InvalidAreaException {
+
+        TimetableQuery query = new TimetableQuery(SEMESTER).setSubjectCode("CS").setCourseNumber("2114")
+                .setArea("2").setScheduleType("L").setOnlyOpen(true).setTeacherName("McQuain");
+        Map<String, String> parameters = query.getParameters();
+
+        assertEquals(SEMESTER, parameters.get("TERMYEAR"));
+        assertEquals("CS", parameters.get("SUBJ_CODE"));
+        assertEquals("2114", parameters.get("CRSE_NUMBER"));
+        assertEquals("AR02", parameters.get("CORE_CODE"));
+        assertEquals("L", parameters.get("SCHDTYPE"));
+        assertEquals("on", parameters.get("open_only"));
+        assertFalse(parameters.containsValue("McQuain"));
+        assertTrue(query.hasLocalPredicates());
+        assertFalse(new TimetableQuery(SEMESTER).setSubjectCode("CS").hasLocalPredicates());
+    }
+
+    public void testRemainderIsAppliedLocally() {
+
+        CourseList all = new TimetableQuery(SEMESTER).setSubjectCode("CS").execute();
+        assertNotNull(all);
+        assertFalse(all.isEmpty());
+
+        String teacher = all.getFirst().getTeacherName();
+        CourseList taught = new TimetableQuery(SEMESTER).setSubjectCode("CS").setTeacherName(teacher).execute();
+        assertNotNull(taught);
+
+        int count = 0;
+        for (Course course : all) {
+
+            if (course.getTeacherName().contains(teacher)) {
+                count++;
+            }
+        }
+        assertEquals(count, taught.size());
+
+        CourseList tuesdays = new TimetableQuery(SEMESTER).setSubjectCode("CS").setDays("T").setCredits(3).execute();
+        for (Course course : tuesdays) {
+
+            assertTrue(course.getDays().contains("T"));
+            assertEquals(3, course.getCredits());
+        }
+    }
+
+    public void testDuplicatesAreDroppedAfterFiltering() {
+
+        CourseList all = new TimetableQuery(SEMESTER).setSubjectCode("CS").execute();
+        String teacher = all.getLast().getTeacherName();
+
+        CourseList first = new TimetableQuery(SEMESTER).setSubjectCode("CS").setTeacherName(teacher)
+                .setAllowDuplicates(false).execute();
+        assertNotNull(first);
+        assertFalse(first.isEmpty());
+        for (int i = 1; i < first.size(); i++) {
+
+            assertTrue(first.get(i).getName().contains("Additional Time")
+                    || !first.get(i).getCourseCode().equals(first.get(i - 1).getCourseCode()));
+        }
+    }
+
+    public void testTeacherLookupUsesTheQuery() {
+
+        CourseList all = new TimetableQuery(SEMESTER).setSubjectCode("CS").execute();
+        Course course = all.getFirst();
+
+        CourseList found = CourseInfo.getCourses(SEMESTER, "CS", course.getCourseNumber(), course.getTeacherName());
+        assertNotNull(found);
+        for (Course each : found) {
+            assertTrue(each.getTeacherName().contains(course.getTeacherName()));
+        }
+    }
+
+    public void testInvalidQueries() {
+
+        assertNull(new TimetableQuery(SEMESTER).setTeacherName("McQuain").execute());
+        assertNull(new TimetableQuery("2013").setSubjectCode("CS").execute());
+        try {
+            new TimetableQuery(SEMESTER).setArea("99");
+            fail("set an invalid area");
+        }
+        catch (InvalidAreaException e) {
+            //expected
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package test.vtaccess;
+
+import java.net.URL;
+import java.util.List;
+import com.vtaccess.Cas;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.net.CircuitBreaker;
+import com.vtaccess.net.CircuitOpenException;
+import com.vtaccess.net.Endpoint;
+import com.vtaccess.net.RequestGovernor;
+import com.vtaccess.net.RetryPolicy;
+import com.vtaccess.net.Transport;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.CourseList;
+import test.vtaccess.server.ReplayServerTestCase;
+
+/**
+ * Offline tests of Transport's deadlines, retries and hedging against the local replay server.
+ * No login information needed. Run from the root of the project so that tests/fixtures can be found.
+ */
+public class TransportTest extends ReplayServerTestCase {
+
+    //~Constants----------------------------------------------
+    private static final String SEMESTER = "201309";
+    private static final RetryPolicy FAST = RetryPolicy.DEFAULT.withBackoff(10, 20);
+
+    //~Data Fields--------------------------------------------
+    private MetricsRegistry metrics;
+
+    //~Constructors--------------------------------------------
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        server.addUser("hokiebird", "gobblegobble");
+        metrics = MetricsRegistry.getDefault();
+        metrics.reset();
+    }
+
+    //~Methods-------------------------------------------------
+    public void testRetriesServerErrors() {
+
+        Transport.setPolicy(Endpoint.TIMETABLE, FAST);
+        server.failNext(2);
+
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, metrics.counter("fetch.retries.timetable").get());
+        assertEquals(0, metrics.counter("fetch.deadlines.timetable").get());
+    }
+
+    public void testGivesUpAfterMaxAttempts() {
+
+        Transport.setPolicy(Endpoint.TIMETABLE, FAST);
+        server.failNext(10);
+
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertEquals(3, server.getRequestCount());
+        assertEquals(1, metrics.counter("fetch.exhausted.timetable").get());
+        assertEquals(0, metrics.counter("fetch.deadlines.timetable").get());
+    }
+
+    public void testAttemptTimeout() {
+
+        Transport.setPolicy(Endpoint.TIMETABLE, FAST.withAttemptTimeout(300));
+        server.stallNext(1, 3000);
+
+        long start = System.nanoTime();
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertTrue(System.nanoTime() - start < 2000 * 1000000L);
+        assertEquals(1, metrics.counter("fetch.retries.timetable").get());
+    }
+
+    public void testDeadline() {
+
+        Transport.setPolicy(Endpoint.TIMETABLE, FAST.withDeadline(500));
+        server.stallNext(10, 3000);
+
+        long start = System.nanoTime();
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertTrue(System.nanoTime() - start < 2000 * 1000000L);
+        assertEquals(1, metrics.counter("fetch.deadlines.timetable").get());
+    }
+
+    public void testHedging() {
+
+        //enough requests for the latency to be trusted
+        for (int i = 0; i < RetryPolicy.MIN_HEDGE_SAMPLES; i++) {
+            assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        }
+
+        //so that the attempt is sent, and stalled, before its duplicate
+        RequestGovernor.getDefault().setRate(0, 1);
+        Transport.setPolicy(Endpoint.TIMETABLE, FAST.withHedging(90));
+        server.stallNext(1, 3000);
+
+        long start = System.nanoTime();
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertTrue(System.nanoTime() - start < 2000 * 1000000L);
+        assertEquals(1, metrics.counter("fetch.hedges.timetable").get());
+        assertEquals(1, metrics.counter("fetch.hedgeWins.timetable").get());
+        assertEquals(0, metrics.counter("fetch.retries.timetable").get());
+    }
+
+    public void testPartialResultsAreIncomplete() {
+
+        Transport.setPolicy(Endpoint.TIMETABLE, FAST.withMaxAttempts(1));
+        server.failNext(1);
+
+        CourseList courses = CourseInfo.getAllCourses(SEMESTER, true, false, "MATH", "CS");
+        assertFalse(courses.isComplete());
+        assertEquals(1, courses.getMissing().size());
+        assertEquals("MATH", courses.getMissing().get(0));
+        assertNotNull(courses.getLastError());
+        assertTrue(courses.size() > 100);
+
+        //what is missing is kept when the List is added as any Collection
+        List<Course> partial = courses;
+        CourseList gathered = new CourseList();
+        gathered.addAll(partial);
+        assertEquals(courses.size(), gathered.size());
+        assertEquals(courses.getMissing(), gathered.getMissing());
+
+        courses = CourseInfo.getAllCourses(SEMESTER, true, false, "MATH", "CS");
+        assertTrue(courses.isComplete());
+    }
+
+    public void testLoginIsNotRetried() {
+
+        server.failNext(1);
+
+        try {
+            Cas cas = new Cas("hokiebird".toCharArray(), "gobblegobble".toCharArray());
+            assertFalse(cas.isValidLoginInfo());
+        }
+        catch (Exception e) {}
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, metrics.counter("fetch.retries.login").get());
+    }
+
+    public void testCircuitOpens() throws Exception {
+
+        Transport.setPolicy(Endpoint.TIMETABLE, FAST.withMaxAttempts(1));
+        CircuitBreaker.getDefault().setThresholds(2, 60000);
+        server.failNext(2);
+
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "MATH", true, false));
+
+        //failed without being sent
+        long start = System.nanoTime();
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertTrue(System.nanoTime() - start < 100 * 1000000L);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, metrics.counter("breaker.rejections." + authority()).get());
+        assertEquals(CircuitBreaker.OPEN, metrics.gauge("breaker.state." + authority()).get());
+    }
+
+    public void testCircuitProbes() throws Exception {
+
+        Transport.setPolicy(Endpoint.TIMETABLE, FAST.withMaxAttempts(1));
+        CircuitBreaker.getDefault().setThresholds(1, 100);
+        server.failNext(2);
+
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertEquals(1, server.getRequestCount());
+
+        //the failed probe opens it again
+        Thread.sleep(150);
+        assertNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertEquals(2, server.getRequestCount());
+        assertEquals(CircuitBreaker.OPEN, metrics.gauge("breaker.state." + authority()).get());
+
+        //the successful probe closes it
+        Thread.sleep(150);
+        assertNotNull(CourseInfo.getAllCourses(SEMESTER, "CS", true, false));
+        assertEquals(CircuitBreaker.CLOSED, metrics.gauge("breaker.state." + authority()).get());
+    }
+
+    public void testHalfOpenCircuitLetsOneProbeThrough() throws Exception {
+
+        CircuitBreaker breaker = new CircuitBreaker(new MetricsRegistry());
+        breaker.setThresholds(1, 0);
+        CircuitBreaker.Circuit circuit = breaker.getCircuit("banweb.banner.vt.edu");
+
+        assertFalse(circuit.allow());
+        circuit.failed(false);
+        assertEquals(CircuitBreaker.OPEN, circuit.getState());
+
+        assertTrue(circuit.allow());
+        assertEquals(CircuitBreaker.HALF_OPEN, circuit.getState());
+        try {
+            circuit.allow();
+            fail("let a second probe through");
+        }
+        catch (CircuitOpenException e) {
+            assertEquals("banweb.banner.vt.edu", e.getAuthority());
+        }
+
+        circuit.succeeded(true);
+        assertEquals(CircuitBreaker.CLOSED, circuit.getState());
+        assertFalse(circuit.allow());
+    }
+
+    public void testLateResultsLeaveAnOpenCircuit() throws Exception {
+
+        CircuitBreaker breaker = new CircuitBreaker(new MetricsRegistry());
+        breaker.setThresholds(1, 60000);
+        CircuitBreaker.Circuit circuit = breaker.getCircuit("banweb.banner.vt.edu");
+
+        //both let through while closed, the second ends after the first opened the circuit
+        boolean first = circuit.allow();
+        boolean second = circuit.allow();
+        circuit.failed(first);
+        assertEquals(CircuitBreaker.OPEN, circuit.getState());
+
+        circuit.succeeded(second);
+        assertEquals(CircuitBreaker.OPEN, circuit.getState());
+        try {
+            circuit.allow();
+            fail("a late success closed the circuit");
+        }
+        catch (CircuitOpenException e) {
+            //expected
+        }
+    }
+
+    /**
+     * @return the host and port of the replay server.
+     */
+    private String authority() throws Exception {
+
+        return new URL(server.getBaseUrl()).getAuthority();
+    }
+
+    public void testBackoffIsJittered() {
+
+        java.util.Random random = new java.util.Random(1);
+        RetryPolicy policy = RetryPolicy.DEFAULT;
+        for (int i = 0; i < 100; i++) {
+
+            assertTrue(policy.getBackoff(2, random) <= 250);
+            assertTrue(policy.getBackoff(4, random) <= 1000);
+            assertTrue(policy.getBackoff(30, random) <= 4000);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package test.vtaccess.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import com.vtaccess.Cas;
+import com.vtaccess.CourseInfo;
+import com.vtaccess.Endpoints;
+import com.vtaccess.ScheduleScraper;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.net.RequestGovernor;
+import com.vtaccess.schedule.Course;
+import com.vtaccess.schedule.Schedule;
+import test.vtaccess.server.BanwebReplayServer;
+
+/**
+ * Drives Cas, ScheduleScraper and CourseInfo from many simulated students at once, and reports
+ * the throughput, the p50/p99/p999 latency and the allocation of each type of operation, along
+ * with the garbage collection done during the run, followed by the metrics VTAccess recorded.
+ *
+ * Each simulated student logs in, syncs their schedule and exam schedule, queries the timetable
+ * a few times, logs out, and starts over, until the run ends. Operations in the warm up are not
+ * reported.
+ *
+ * Unless vtaccess.banweb.base is set, a BanwebReplayServer is started in this JVM and used, in
+ * which case the GC figures include the server's work. Run from the root of the project:
+ *
+ *     java -cp ... test.vtaccess.load.LoadDriver [students] [seconds] [warmupSeconds] [latencyMillis]
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public final class LoadDriver {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The semester that is synced and queried.
+     */
+    private static final String SEMESTER = "201309";
+    /**
+     * The subjects whose timetables are queried.
+     */
+    private static final String[] SUBJECTS = { "CS", "MATH", "ECE" };
+    /**
+     * The CRNs of the Courses that are queried.
+     */
+    private static final String[] CRNS = { "10014", "10022", "10119", "10179" };
+    /**
+     * The username the simulated students login with.
+     */
+    private static final String USERNAME = "hokiebird";
+    /**
+     * The password the simulated students login with.
+     */
+    private static final String PASSWORD = "gobblegobble";
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The number of simulated students.
+     */
+    private final int students;
+    /**
+     * The number of timetable queries each student makes per schedule sync.
+     */
+    private final int queriesPerSync;
+    /**
+     * The stats of logging in.
+     */
+    private final OperationStats login;
+    /**
+     * The stats of syncing a schedule.
+     */
+    private final OperationStats schedule;
+    /**
+     * The stats of syncing an exam schedule.
+     */
+    private final OperationStats exams;
+    /**
+     * The stats of getting the Courses of a subject.
+     */
+    private final OperationStats timetable;
+    /**
+     * The stats of getting one Course by its CRN.
+     */
+    private final OperationStats course;
+    /**
+     * False once the run is over.
+     */
+    private volatile boolean running;
+    /**
+     * Used to measure the allocation of each operation, null if the JVM can't.
+     */
+    private final com.sun.management.ThreadMXBean threads;
+
+    //~Constructors--------------------------------------------
+    /**
+     * @param students the number of simulated students.
+     * @param queriesPerSync the number of timetable queries each student makes per schedule sync.
+     */
+    public LoadDriver(int students, int queriesPerSync) {
+
+        this.students = students;
+        this.queriesPerSync = queriesPerSync;
+
+        login = new OperationStats("login");
+        schedule = new OperationStats("retrieveSchedule");
+        exams = new OperationStats("retrieveExams");
+        timetable = new OperationStats("getAllCourses");
+        course = new OperationStats("getCourse");
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        else {
+            threads = null;
+        }
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * @param args optionally the number of students (default 50), the seconds to measure for (default 30),
+     *          the seconds to warm up for (default 10) and the latency of the local server in milliseconds (default 20).
+     *
+     * @throws IOException thrown if the local server could not be started.
+     * @throws InterruptedException thrown if interrupted while waiting for the run to end.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        long latency = args.length > 3 ? Long.parseLong(args[3]) : 20;
+
+        BanwebReplayServer server = null;
+        if (System.getProperty(Endpoints.BANWEB_BASE_PROPERTY) == null) {
+
+            server = new BanwebReplayServer(new File(System.getProperty("vtaccess.fixtures", "tests/fixtures")));
+            server.setLatency(latency / 2, latency * 3 / 2);
+            server.start(0);
+            server.useForEndpoints();
+        }
+
+        //every simulated student would have their own governor, one shared by all of them would be the bottleneck
+        RequestGovernor.getDefault().setEnabled(false);
+
+        try {
+            LoadDriver driver = new LoadDriver(students, 4);
+            System.out.println(driver.run(warmup * 1000L, seconds * 1000L));
+            System.out.println(MetricsRegistry.getDefault());
+        }
+        finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    /**
+     * Runs the simulated students, and reports on the measured part of the run.
+     *
+     * @param warmupMillis the time to run before measuring, in milliseconds.
+     * @param measureMillis the time to measure for, in milliseconds.
+     * @return the report.
+     *
+     * @throws InterruptedException thrown if interrupted while waiting.
+     */
+    public String run(long warmupMillis, long measureMillis) throws InterruptedException {
+
+        running = true;
+        CountDownLatch done = new CountDownLatch(students);
+        for (int i = 0; i < students; i++) {
+
+            Thread thread = new Thread(new Student(done), "student-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        Thread.sleep(warmupMillis);
+        for (OperationStats stats : getStats()) {
+            stats.reset();
+        }
+        long[] gcStart = gcTotals();
+        long start = System.nanoTime();
+
+        Thread.sleep(measureMillis);
+        running = false;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long[] gcEnd = gcTotals();
+        done.await();
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d students, %.1f seconds measured%n", students, seconds));
+        report.append(String.format("%-18s %9s %8s %10s %9s %9s %9s %9s %12s%n",
+                "operation", "ops", "failed", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "alloc KB/op"));
+        for (OperationStats stats : getStats()) {
+            report.append(stats.report(seconds)).append(String.format("%n"));
+        }
+        for (OperationStats stats : getStats()) {
+
+            if (stats.getExceptions() > 0) {
+                report.append(String.format("%s: %d failed by throwing, first: %s%n",
+                        stats.getName(), stats.getExceptions(), stats.getFirstException()));
+            }
+        }
+        report.append(String.format("GC: %d collections, %d ms%n", gcEnd[0] - gcStart[0], gcEnd[1] - gcStart[1]));
+        if (threads == null) {
+            report.append(String.format("Allocation is not measured by this JVM.%n"));
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * @return the number of collections and the milliseconds spent collecting, by every collector, so far.
+     */
+    private static long[] gcTotals() {
+
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, -1 if not measured.
+     */
+    private long allocated() {
+
+        return (threads == null) ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Records one operation that started at the passed time and allocation.
+     *
+     * @param stats the stats of the operation's type.
+     * @param startNanos System.nanoTime() when the operation started.
+     * @param startAllocated allocated() when the operation started.
+     * @param succeeded false if the operation failed.
+     */
+    private void record(OperationStats stats, long startNanos, long startAllocated, boolean succeeded) {
+
+        long nanos = System.nanoTime() - startNanos;
+        stats.record(nanos, succeeded, (startAllocated < 0) ? -1 : allocated() - startAllocated);
+    }
+
+    /**
+     * Records one operation that started at the passed time and allocation, and failed by throwing.
+     *
+     * @param stats the stats of the operation's type.
+     * @param startNanos System.nanoTime() when the operation started.
+     * @param startAllocated allocated() when the operation started.
+     * @param exception what the operation threw.
+     */
+    private void record(OperationStats stats, long startNanos, long startAllocated, Exception exception) {
+
+        long nanos = System.nanoTime() - startNanos;
+        stats.record(nanos, exception, (startAllocated < 0) ? -1 : allocated() - startAllocated);
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the stats of every type of operation.
+     */
+    public List<OperationStats> getStats() {
+
+        List<OperationStats> stats = new ArrayList<OperationStats>(5);
+        stats.add(login);
+        stats.add(schedule);
+        stats.add(exams);
+        stats.add(timetable);
+        stats.add(course);
+        return stats;
+    }
+
+    //~Nested Classes--------------------------------------------------------------------
+    /**
+     * One simulated student, syncing and querying until the run ends.
+     */
+    private class Student implements Runnable {
+
+        /**
+         * Counted down when this student stops.
+         */
+        private final CountDownLatch done;
+
+        /**
+         * @param done counted down when this student stops.
+         */
+        Student(CountDownLatch done) {
+
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+
+            try {
+                while (running) {
+                    session();
+                }
+            }
+            finally {
+                done.countDown();
+            }
+        }
+
+        /**
+         * Logs in, syncs, queries and logs out once.
+         */
+        private void session() {
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            long start = System.nanoTime();
+            long allocated = allocated();
+            Cas cas;
+            try {
+                cas = new Cas(USERNAME.toCharArray(), PASSWORD.toCharArray());
+            }
+            catch (Exception e) {
+                record(login, start, allocated, e);
+                return;
+            }
+            record(login, start, allocated, true);
+
+            //each step's failure is recorded against that step
+            ScheduleScraper scraper = null;
+            start = System.nanoTime();
+            allocated = allocated();
+            try {
+                scraper = new ScheduleScraper(cas);
+                record(schedule, start, allocated, scraper.retrieveSchedule(new Schedule(), SEMESTER));
+            }
+            catch (Exception e) {
+                record(schedule, start, allocated, e);
+            }
+
+            if (scraper != null) {
+
+                start = System.nanoTime();
+                allocated = allocated();
+                try {
+                    record(exams, start, allocated, scraper.retrieveExamSchedule(SEMESTER, new LinkedList<Course>()));
+                }
+                catch (Exception e) {
+                    record(exams, start, allocated, e);
+                }
+            }
+
+            for (int i = 0; i < queriesPerSync && running; i++) {
+
+                start = System.nanoTime();
+                allocated = allocated();
+                if (random.nextBoolean()) {
+
+                    List<Course> courses = CourseInfo.getAllCourses(SEMESTER, SUBJECTS[random.nextInt(SUBJECTS.length)], true, false);
+                    record(timetable, start, allocated, courses != null);
+                }
+                else {
+
+                    Course found = CourseInfo.getCourse(SEMESTER, CRNS[random.nextInt(CRNS.length)]);
+                    record(course, start, allocated, found != null);
+                }
+            }
+
+            cas.closeSession();
+        }
+    }
+}
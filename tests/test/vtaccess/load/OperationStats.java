@@ -0,0 +1,156 @@
+package test.vtaccess.load;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import com.vtaccess.metrics.Histogram;
+
+/**
+ * The latencies, failures, exceptions and allocation recorded for one type of operation during a load run.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class OperationStats {
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The name of the operation.
+     */
+    private final String name;
+    /**
+     * The latencies of the operations, successful or not.
+     */
+    private final Histogram latencies;
+    /**
+     * The number of operations that failed.
+     */
+    private final LongAdder failures;
+    /**
+     * The number of operations that failed by throwing.
+     */
+    private final LongAdder exceptions;
+    /**
+     * The first exception thrown by an operation, null if none has been.
+     */
+    private final AtomicReference<Exception> firstException;
+    /**
+     * The bytes allocated by the threads running the operations, where it could be measured.
+     */
+    private final LongAdder allocatedBytes;
+
+    //~Constructors--------------------------------------------
+    /**
+     * @param name the name of the operation.
+     */
+    public OperationStats(String name) {
+
+        this.name = name;
+        latencies = new Histogram();
+        failures = new LongAdder();
+        exceptions = new LongAdder();
+        firstException = new AtomicReference<Exception>();
+        allocatedBytes = new LongAdder();
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Records one operation.
+     *
+     * @param nanos the time the operation took, in nanoseconds.
+     * @param succeeded false if the operation failed.
+     * @param allocated the bytes the operation allocated, negative if not measured.
+     */
+    public void record(long nanos, boolean succeeded, long allocated) {
+
+        latencies.record(nanos / 1000);
+        if (!succeeded) {
+            failures.increment();
+        }
+        if (allocated > 0) {
+            allocatedBytes.add(allocated);
+        }
+    }
+
+    /**
+     * Records one operation that failed by throwing.
+     *
+     * @param nanos the time the operation took, in nanoseconds.
+     * @param exception what the operation threw.
+     * @param allocated the bytes the operation allocated, negative if not measured.
+     */
+    public void record(long nanos, Exception exception, long allocated) {
+
+        record(nanos, false, allocated);
+        exceptions.increment();
+        firstException.compareAndSet(null, exception);
+    }
+
+    /**
+     * Forgets everything recorded, at the end of the warm up.
+     */
+    public void reset() {
+
+        latencies.reset();
+        failures.reset();
+        exceptions.reset();
+        firstException.set(null);
+        allocatedBytes.reset();
+    }
+
+    /**
+     * Formats a report line, see LoadDriver.
+     *
+     * @param seconds the length of the measured run, in seconds.
+     * @return the line.
+     */
+    public String report(double seconds) {
+
+        long count = latencies.getCount();
+        return String.format("%-18s %9d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %12.1f",
+                name, count, failures.sum(), count / seconds,
+                latencies.getPercentile(50) / 1000.0, latencies.getPercentile(99) / 1000.0,
+                latencies.getPercentile(99.9) / 1000.0, latencies.getMax() / 1000.0,
+                count == 0 ? 0.0 : allocatedBytes.sum() / 1024.0 / count);
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the name of the operation.
+     */
+    public String getName() {
+
+        return name;
+    }
+
+    /**
+     * @return the latencies of the operations, in microseconds.
+     */
+    public Histogram getLatencies() {
+
+        return latencies;
+    }
+
+    /**
+     * @return the number of operations that failed.
+     */
+    public long getFailures() {
+
+        return failures.sum();
+    }
+
+    /**
+     * @return the number of operations that failed by throwing.
+     */
+    public long getExceptions() {
+
+        return exceptions.sum();
+    }
+
+    /**
+     * @return the first exception thrown by an operation, null if none has been.
+     */
+    public Exception getFirstException() {
+
+        return firstException.get();
+    }
+}
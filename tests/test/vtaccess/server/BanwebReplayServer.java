@@ -0,0 +1,629 @@
+package test.vtaccess.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.vtaccess.Endpoints;
+
+/**
+ * A local stand-in for the CAS and banweb servers, replaying recorded pages from a fixtures
+ * directory so that Cas, CourseInfo and ScheduleScraper can be exercised without the live
+ * servers or real credentials.
+ *
+ * The CAS login form hands out a fresh lt and execution with every page, and a login only
+ * succeeds if it sends back an lt that was handed out. Successful logins get an IDMSESSID
+ * cookie, which expires after the session timeout; HokieSpa pages requested with an expired
+ * or unknown session get the login form back, as the live server does.
+ *
+ * Fixtures are templates, any {NAME} in them is replaced with the request parameter NAME.
+ * The timetable serves timetable_SUBJ.html for the requested subject, falling back to the
+ * default timetable page when there is no recording of that subject.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public class BanwebReplayServer {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The timetable page served when there is no recording of the requested subject.
+     */
+    public static final String DEFAULT_TIMETABLE = "timetable_CS.html";
+    /**
+     * The default time a session lasts, in milliseconds.
+     */
+    public static final long DEFAULT_SESSION_TIMEOUT = 30 * 60 * 1000;
+    /**
+     * The error shown on the login form when the username or password is wrong.
+     */
+    private static final String LOGIN_ERROR = "<div id=\"login-error\">Invalid username or password.</div>";
+    static {
+
+        //without this the JDK's server waits on delayed ACKs, adding ~40ms to every response
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The directory the recorded pages are read from.
+     */
+    private final File fixtures;
+    /**
+     * The recorded pages read so far, by file name.
+     */
+    private final Map<String, String> pages;
+    /**
+     * The usernames and passwords that may login. Any login is accepted if empty.
+     */
+    private final Map<String, String> users;
+    /**
+     * The login tickets handed out and not yet used.
+     */
+    private final Map<String, Boolean> loginTickets;
+    /**
+     * The times that the active sessions expire at, by IDMSESSID.
+     */
+    private final Map<String, Long> sessions;
+    /**
+     * The number of requests served.
+     */
+    private final AtomicLong requests;
+    /**
+     * The number of successful logins.
+     */
+    private final AtomicLong logins;
+    /**
+     * The least latency added to each response, in milliseconds.
+     */
+    private volatile long minLatency;
+    /**
+     * The most latency added to each response, in milliseconds.
+     */
+    private volatile long maxLatency;
+    /**
+     * The time a session lasts, in milliseconds.
+     */
+    private volatile long sessionTimeout;
+    /**
+     * The number of upcoming requests to fail with a 503.
+     */
+    private final AtomicInteger failures;
+    /**
+     * The number of upcoming requests to stall.
+     */
+    private final AtomicInteger stalls;
+    /**
+     * The time stalled requests are held for, in milliseconds.
+     */
+    private volatile long stall;
+    /**
+     * The running server, null if not started.
+     */
+    private HttpServer server;
+    /**
+     * The threads serving requests.
+     */
+    private ExecutorService executor;
+
+    //~Constructors--------------------------------------------
+    /**
+     * Creates a server replaying the pages in the passed directory. It is not started.
+     *
+     * @param fixtures the directory holding the recorded pages.
+     */
+    public BanwebReplayServer(File fixtures) {
+
+        this.fixtures = fixtures;
+        pages = new ConcurrentHashMap<String, String>();
+        users = new ConcurrentHashMap<String, String>();
+        loginTickets = new ConcurrentHashMap<String, Boolean>();
+        sessions = new ConcurrentHashMap<String, Long>();
+        requests = new AtomicLong();
+        failures = new AtomicInteger();
+        stalls = new AtomicInteger();
+        logins = new AtomicLong();
+        sessionTimeout = DEFAULT_SESSION_TIMEOUT;
+    }
+
+    //~Methods-------------------------------------------------
+    /**
+     * Starts serving on the passed port of the loopback address.
+     *
+     * @param port the port to serve on, 0 for any free port.
+     *
+     * @throws IOException thrown if the server could not be bound.
+     */
+    public synchronized void start(int port) throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+
+                try {
+                    serve(exchange);
+                }
+                finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Stops serving, and points Endpoints back at the live servers if they were pointed here.
+     */
+    public synchronized void stop() {
+
+        if (server != null) {
+
+            if (Endpoints.getAuthBase().equals(getBaseUrl())) {
+                Endpoints.setAuthBase(null);
+            }
+            if (Endpoints.getBanwebBase().equals(getBaseUrl())) {
+                Endpoints.setBanwebBase(null);
+            }
+
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * Points both the CAS and banweb Endpoints at this server.
+     */
+    public void useForEndpoints() {
+
+        Endpoints.setAuthBase(getBaseUrl());
+        Endpoints.setBanwebBase(getBaseUrl());
+    }
+
+    /**
+     * Adds a user who may login. Once any user is added, only added users may login.
+     *
+     * @param username the user's username.
+     * @param password the user's password.
+     */
+    public void addUser(String username, String password) {
+
+        users.put(username, password);
+    }
+
+    /**
+     * Expires every active session, as if the session timeout had passed.
+     */
+    public void expireSessions() {
+
+        sessions.clear();
+    }
+
+    /**
+     * Serves one request.
+     *
+     * @param exchange the request and its response.
+     *
+     * @throws IOException thrown if the response could not be written.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+
+        requests.incrementAndGet();
+        simulateLatency();
+
+        if (take(stalls)) {
+            sleep(stall);
+        }
+        if (take(failures)) {
+
+            respond(exchange, 503, "Service Unavailable");
+            return;
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> params = readParams(exchange);
+        Map<String, String> cookies = readCookies(exchange);
+
+        if (path.equals("/login")) {
+
+            serveLogin(exchange, params, cookies);
+        }
+        else if (path.equals("/logout")) {
+
+            respond(exchange, 200, page("cas_logout.html", params));
+        }
+        else if (path.equals("/ssb/prod/HZSKVTSC.P_ProcRequest")) {
+
+            serveTimetable(exchange, params);
+        }
+        else if (path.equals("/ssb/prod/HZSKVTSC.P_ProcComments")) {
+
+            respond(exchange, 200, page("comments.html", params));
+        }
+        else if (path.equals("/ssb/prod/hzskstat.P_Popup")) {
+
+            //hands out a SESSID whether or not the session is active, expiry shows on the next page
+            exchange.getResponseHeaders().add("Set-Cookie", "SESSID=" + UUID.randomUUID() + "; Path=/");
+            respond(exchange, 200, "<html><body></body></html>");
+        }
+        else if (!isSessionActive(cookies.get("IDMSESSID"))) {
+
+            //every other page is on HokieSpa, and needs a session
+            serveLoginForm(exchange, params, false);
+        }
+        else if (path.equals("/ssb/prod/hzskschd.P_DispCrseSchdDetl")) {
+
+            respond(exchange, 200, page("Y".equals(params.get("print_friendly"))
+                    ? "schedule_print.html" : "schedule_detail.html", params));
+        }
+        else if (path.equals("/ssb/prod/HZSKVTSC.P_ProcExamTime")) {
+
+            respond(exchange, 200, page("exam_time.html", params));
+        }
+        else {
+
+            respond(exchange, 404, "<html><body>Not Found</body></html>");
+        }
+    }
+
+    /**
+     * Serves the CAS login form, or a login attempt if a username was sent.
+     *
+     * @param exchange the request and its response.
+     * @param params the request's parameters.
+     * @param cookies the request's cookies.
+     *
+     * @throws IOException thrown if the response could not be written.
+     */
+    private void serveLogin(HttpExchange exchange, Map<String, String> params,
+            Map<String, String> cookies) throws IOException {
+
+        String username = params.get("username");
+        if (username == null) {
+
+            serveLoginForm(exchange, params, false);
+            return;
+        }
+
+        String lt = params.get("lt");
+        if (lt == null || loginTickets.remove(lt) == null) {
+
+            //an unknown or reused login ticket gets a fresh form, as CAS does
+            serveLoginForm(exchange, params, false);
+            return;
+        }
+
+        String password = params.get("password");
+        if (!users.isEmpty() && (password == null || !password.equals(users.get(username)))) {
+
+            serveLoginForm(exchange, params, true);
+            return;
+        }
+
+        String session = UUID.randomUUID().toString();
+        sessions.put(session, System.currentTimeMillis() + sessionTimeout);
+        logins.incrementAndGet();
+
+        exchange.getResponseHeaders().add("Set-Cookie", "IDMSESSID=" + session + "; Path=/");
+        exchange.getResponseHeaders().add("Set-Cookie", "SESSID=" + UUID.randomUUID() + "; Path=/");
+        respond(exchange, 200, page("cas_success.html", params));
+    }
+
+    /**
+     * Serves the CAS login form with a fresh login ticket.
+     *
+     * @param exchange the request and its response.
+     * @param params the request's parameters.
+     * @param error true to show the wrong username or password error.
+     *
+     * @throws IOException thrown if the response could not be written.
+     */
+    private void serveLoginForm(HttpExchange exchange, Map<String, String> params, boolean error) throws IOException {
+
+        String lt = "LT-" + UUID.randomUUID();
+        loginTickets.put(lt, Boolean.TRUE);
+
+        Map<String, String> values = new HashMap<String, String>(params);
+        values.put("lt", lt);
+        values.put("execution", "e1s1");
+        values.put("error", error ? LOGIN_ERROR : "");
+
+        exchange.getResponseHeaders().add("Set-Cookie", "JSESSIONID=" + UUID.randomUUID() + "; Path=/");
+        respond(exchange, 200, page("cas_login.html", values));
+    }
+
+    /**
+     * Serves the timetable search page, or the timetable of the requested subject.
+     *
+     * @param exchange the request and its response.
+     * @param params the request's parameters.
+     *
+     * @throws IOException thrown if the response could not be written.
+     */
+    private void serveTimetable(HttpExchange exchange, Map<String, String> params) throws IOException {
+
+        if (params.isEmpty()) {
+
+            respond(exchange, 200, page("timetable_subjects.html", params));
+            return;
+        }
+
+        String name = "timetable_" + params.get("SUBJ_CODE") + ".html";
+        if (!new File(fixtures, name).isFile()) {
+            name = DEFAULT_TIMETABLE;
+        }
+        respond(exchange, 200, page(name, params));
+    }
+
+    /**
+     * @param session an IDMSESSID, may be null.
+     * @return true if the session exists and has not expired.
+     */
+    private boolean isSessionActive(String session) {
+
+        if (session == null) {
+            return false;
+        }
+
+        Long expires = sessions.get(session);
+        if (expires == null) {
+            return false;
+        }
+        if (expires.longValue() < System.currentTimeMillis()) {
+
+            sessions.remove(session);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sleeps for a latency between the least and most latency.
+     */
+    private void simulateLatency() {
+
+        long min = minLatency;
+        long max = maxLatency;
+        if (max <= 0) {
+            return;
+        }
+
+        sleep(max > min ? ThreadLocalRandom.current().nextLong(min, max + 1) : max);
+    }
+
+    /**
+     * Takes one from a count of upcoming requests, if any are left.
+     *
+     * @param counter the count.
+     * @return true if one was taken.
+     */
+    private static boolean take(AtomicInteger counter) {
+
+        int left;
+        do {
+            left = counter.get();
+            if (left <= 0) {
+                return false;
+            }
+        } while (!counter.compareAndSet(left, left - 1));
+        return true;
+    }
+
+    /**
+     * Sleeps, giving up quietly if interrupted.
+     *
+     * @param millis the time to sleep for, in milliseconds.
+     */
+    private static void sleep(long millis) {
+
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets a recorded page with its {NAME}s replaced by the passed values.
+     *
+     * @param name the file name of the page.
+     * @param values the values to fill in.
+     * @return the page.
+     *
+     * @throws IOException thrown if the page could not be read.
+     */
+    private String page(String name, Map<String, String> values) throws IOException {
+
+        String page = pages.get(name);
+        if (page == null) {
+
+            page = new String(Files.readAllBytes(new File(fixtures, name).toPath()), StandardCharsets.UTF_8);
+            pages.put(name, page);
+        }
+
+        if (page.indexOf('{') < 0) {
+            return page;
+        }
+
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            page = page.replace("{" + value.getKey() + "}", value.getValue());
+        }
+        return page;
+    }
+
+    /**
+     * Writes an HTML response.
+     *
+     * @param exchange the request and its response.
+     * @param status the HTTP status code.
+     * @param body the HTML.
+     *
+     * @throws IOException thrown if the response could not be written.
+     */
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        OutputStream os = exchange.getResponseBody();
+        os.write(bytes);
+        os.close();
+    }
+
+    /**
+     * Reads the parameters of a request, from both its query and its form encoded body.
+     *
+     * @param exchange the request.
+     * @return the parameters, by name.
+     *
+     * @throws IOException thrown if the body could not be read.
+     */
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+
+        Map<String, String> params = new HashMap<String, String>();
+        addParams(params, exchange.getRequestURI().getRawQuery());
+
+        InputStream is = exchange.getRequestBody();
+        byte[] body = is.readAllBytes();
+        is.close();
+        if (body.length > 0) {
+            addParams(params, new String(body, StandardCharsets.UTF_8));
+        }
+
+        return params;
+    }
+
+    /**
+     * Adds the parameters of a form encoded string.
+     *
+     * @param params the parameters to add to.
+     * @param encoded the form encoded string, may be null.
+     */
+    private static void addParams(Map<String, String> params, String encoded) {
+
+        if (encoded == null || encoded.length() == 0) {
+            return;
+        }
+
+        for (String pair : encoded.split("&")) {
+
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * @param exchange the request.
+     * @return the request's cookies, by name.
+     */
+    private static Map<String, String> readCookies(HttpExchange exchange) {
+
+        Map<String, String> cookies = new HashMap<String, String>();
+        for (String header : exchange.getRequestHeaders().getOrDefault("Cookie", Collections.<String>emptyList())) {
+
+            for (String cookie : header.split(";")) {
+
+                int equals = cookie.indexOf('=');
+                if (equals > 0) {
+                    cookies.put(cookie.substring(0, equals).trim(), cookie.substring(equals + 1).trim());
+                }
+            }
+        }
+        return cookies;
+    }
+
+    //~Getters and Setters--------------------------------------------------------------
+    /**
+     * @return the base URL of this server, e.g. "http://localhost:8080", for Endpoints.
+     */
+    public synchronized String getBaseUrl() {
+
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Sets the latency added to each response, picked uniformly between the two values.
+     *
+     * @param minMillis the least latency, in milliseconds.
+     * @param maxMillis the most latency, in milliseconds. 0 for none.
+     */
+    public void setLatency(long minMillis, long maxMillis) {
+
+        minLatency = minMillis;
+        maxLatency = maxMillis;
+    }
+
+    /**
+     * Makes the next requests fail with a 503 Service Unavailable.
+     *
+     * @param count the number of requests to fail.
+     */
+    public void failNext(int count) {
+
+        failures.set(count);
+    }
+
+    /**
+     * Holds the next requests for a while before answering them, on top of the latency.
+     *
+     * @param count the number of requests to stall.
+     * @param millis the time to hold each one for, in milliseconds.
+     */
+    public void stallNext(int count, long millis) {
+
+        stall = millis;
+        stalls.set(count);
+    }
+
+    /**
+     * @param millis the time a session lasts from login, in milliseconds.
+     */
+    public void setSessionTimeout(long millis) {
+
+        sessionTimeout = millis;
+    }
+
+    /**
+     * @return the number of requests served.
+     */
+    public long getRequestCount() {
+
+        return requests.get();
+    }
+
+    /**
+     * @return the number of successful logins.
+     */
+    public long getLoginCount() {
+
+        return logins.get();
+    }
+}
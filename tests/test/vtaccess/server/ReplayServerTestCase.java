@@ -0,0 +1,67 @@
+package test.vtaccess.server;
+
+import java.io.File;
+import com.vtaccess.CatalogCache;
+import com.vtaccess.CourseIndex;
+import com.vtaccess.metrics.MetricsRegistry;
+import com.vtaccess.net.CircuitBreaker;
+import com.vtaccess.net.RequestGovernor;
+import com.vtaccess.net.Transport;
+import junit.framework.TestCase;
+
+/**
+ * Base of the offline tests run against a BanwebReplayServer. Each test gets a fresh server, started on a free
+ * port, with the Endpoints pointed at it, and the shared caches, network settings and metrics are reset after it.
+ * Subclasses add their own setup after calling super.setUp(), and their own cleanup before super.tearDown().
+ *
+ * The fixtures are read from the directory in the system property vtaccess.fixtures, tests/fixtures by default,
+ * so run from the root of the project or set the property.
+ *
+ * @author Ethan Gaebel (egaebel)
+ *
+ */
+public abstract class ReplayServerTestCase extends TestCase {
+
+    //~Constants-----------------------------------------------
+    /**
+     * The system property holding the directory of the recorded pages.
+     */
+    public static final String FIXTURES_PROPERTY = "vtaccess.fixtures";
+
+    //~Data Fields---------------------------------------------
+    /**
+     * The server the Endpoints point at during each test.
+     */
+    protected BanwebReplayServer server;
+
+    //~Methods-------------------------------------------------
+    /**
+     * Starts a fresh server and points the Endpoints at it.
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        server = new BanwebReplayServer(new File(System.getProperty(FIXTURES_PROPERTY, "tests/fixtures")));
+        server.start(0);
+        server.useForEndpoints();
+    }
+
+    /**
+     * Stops the server, and resets the CatalogCache, the CourseIndex, the Transport's policies, the
+     * CircuitBreaker, the RequestGovernor and the default MetricsRegistry, so that no test sees what the
+     * last one left behind.
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        server.stop();
+        Transport.resetPolicies();
+        CircuitBreaker.getDefault().reset();
+        RequestGovernor.getDefault().reset();
+        CatalogCache.getDefault().reset();
+        CourseIndex.getDefault().reset();
+        MetricsRegistry.getDefault().reset();
+        super.tearDown();
+    }
+}